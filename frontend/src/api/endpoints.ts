@@ -24,7 +24,8 @@ export const addBlog = (data: any) => api.post('/admin/blogs', data);
 export const updateBlog = (id: number, data: any) => api.put(`/admin/blogs/${id}`, data);
 export const deleteBlog = (id: number) => api.delete(`/admin/blogs/${id}`);
 export const getAllExportApplications = () => api.get('/admin/export-applications');
-export const getAllAdminOrders = () => api.get('/admin/orders');
+export const getAllAdminOrders = (cursor?: string) => api.get('/admin/orders', { params: { cursor, limit: 100 } });
+export const getAdminIncome = () => api.get('/admin/income');
 export const getAllAdminBids = () => api.get('/admin/bids');
 export const getAdminConfig = () => api.get('/admin/config');
 export const updateCropStockOut = (id: number) => api.put(`/admin/crops/${id}/stock-out`);
@@ -49,12 +50,12 @@ export const getBidsByCrop = (cropId: number) => api.get(`/bids/crop/${cropId}`)
 export const getMyBids = () => api.get('/bids/my-bids');
 export const getFarmerBids = () => api.get('/bids/farmer-bids');
 export const getBidById = (bidId: number) => api.get(`/bids/${bidId}`);
-export const counterOfferBid = (bidId: number, counterPrice: number) => api.put(`/bids/${bidId}/counter`, { counterPrice });
-export const buyerRespondBid = (bidId: number, action: string, amount?: number) => api.put(`/bids/${bidId}/buyer-respond`, { action, amount });
-export const acceptBid = (bidId: number) => api.put(`/bids/${bidId}/accept`);
-export const rejectBid = (bidId: number) => api.put(`/bids/${bidId}/reject`);
-export const deleteBid = (bidId: number) => api.delete(`/bids/${bidId}`);
-export const updateFarmerBidStatus = (bidId: number, action: string) => api.put(`/features/farmer/bids/${bidId}/${action}`);
+export const counterOfferBid = (bidId: number, version: number, counterPrice: number) => api.put(`/bids/${bidId}/counter`, { counterPrice, version });
+export const buyerRespondBid = (bidId: number, version: number, action: string, amount?: number) => api.put(`/bids/${bidId}/buyer-respond`, { action, amount, version });
+export const acceptBid = (bidId: number, version: number) => api.put(`/bids/${bidId}/accept`, null, { params: { version } });
+export const rejectBid = (bidId: number, version: number) => api.put(`/bids/${bidId}/reject`, null, { params: { version } });
+export const deleteBid = (bidId: number, version: number) => api.delete(`/bids/${bidId}`, { params: { version } });
+export const updateFarmerBidStatus = (bidId: number, version: number, action: string) => api.put(`/features/farmer/bids/${bidId}/${action}`, null, { params: { version } });
 
 // ORDER APIs
 export const createOrder = (data: any) => api.post('/orders/create', data);
@@ -1,7 +1,7 @@
 import React, { useEffect, useState } from 'react';
 import { 
     getAllUsers, deleteUser, getAllAdminCrops, deleteCropAdmin, updateCrop,
-    getAllAdminBlogs, getAllExportApplications, getAllAdminOrders, getAllAdminBids,
+    getAllAdminBlogs, getAllExportApplications, getAllAdminOrders, getAdminIncome, getAllAdminBids,
     getAdminConfig, updateCropStockOut, updateCropBackInStock, updateBulkQuantitySettings,
     updateExportApplicationStatus
 } from '../api/endpoints';
@@ -39,6 +39,9 @@ const AdminDashboard: React.FC = () => {
     const [blogs, setBlogs] = useState<any[]>([]);
     const [exportApplications, setExportApplications] = useState<any[]>([]);
     const [orders, setOrders] = useState<any[]>([]);
+    const [ordersCursor, setOrdersCursor] = useState<string | null>(null);
+    const [orderCount, setOrderCount] = useState(0);
+    const [income, setIncome] = useState(0);
     const [bids, setBids] = useState<any[]>([]);
     const [loading, setLoading] = useState(false);
     const [fetchError, _setFetchError] = useState(false);
@@ -74,12 +77,10 @@ const AdminDashboard: React.FC = () => {
         totalBuyers: users.filter(u => u.roles?.includes('ROLE_BUYER')).length,
         totalCrops: crops.length,
         totalBlogs: blogs.length,
-        totalOrders: orders.length,
+        totalOrders: orderCount,
         totalExports: exportApplications.length,
         totalBids: bids.length,
-        totalIncome: orders
-            .filter(o => o.status === 'COMPLETED' || o.status === 'DELIVERED')
-            .reduce((sum, o) => sum + (o.totalAmount || 0), 0)
+        totalIncome: income
     };
 
     useEffect(() => {
@@ -106,13 +107,14 @@ const AdminDashboard: React.FC = () => {
 
     const fetchData = async () => {
         try {
-            const [usersRes, cropsRes, blogsRes, exportsRes, ordersRes, bidsRes] = await Promise.all([
+            const [usersRes, cropsRes, blogsRes, exportsRes, ordersRes, bidsRes, incomeRes] = await Promise.all([
                 getAllUsers().catch((err) => { console.error('Failed to fetch users:', err); return { data: [] }; }),
                 getAllAdminCrops().catch((err) => { console.error('Failed to fetch crops:', err); return { data: [] }; }),
                 getAllAdminBlogs().catch(() => ({ data: [] })),
                 getAllExportApplications().catch(() => ({ data: [] })),
-                getAllAdminOrders().catch(() => ({ data: [] })),
-                getAllAdminBids().catch(() => ({ data: [] }))
+                getAllAdminOrders().catch(() => ({ data: [], headers: {} as Record<string, string> })),
+                getAllAdminBids().catch(() => ({ data: [] })),
+                getAdminIncome().catch(() => ({ data: { totalIncome: '0' } }))
             ]);
 
             console.log('Admin Dashboard Data:', {
@@ -126,7 +128,11 @@ const AdminDashboard: React.FC = () => {
             setCrops(cropsRes.data);
             setBlogs(blogsRes.data);
             setExportApplications(exportsRes.data);
+            // Orders come a page at a time; the first page carries the total
             setOrders(ordersRes.data);
+            setOrdersCursor(ordersRes.headers['x-next-cursor'] ?? null);
+            setOrderCount(Number(ordersRes.headers['x-total-count'] ?? ordersRes.data.length));
+            setIncome(Number(incomeRes.data.totalIncome) || 0);
             setBids(bidsRes.data);
         } catch (err) {
             console.error("Error fetching admin data", err);
@@ -202,6 +208,15 @@ const AdminDashboard: React.FC = () => {
         });
     };
 
+    const loadMoreOrders = async () => {
+        if (!ordersCursor) return;
+        try {
+            const res = await getAllAdminOrders(ordersCursor);
+            setOrders(prev => [...prev, ...res.data]);
+            setOrdersCursor(res.headers['x-next-cursor'] ?? null);
+        } catch { error('Could not load more orders'); }
+    };
+
     const handleOrderStatus = async (id: number, status: string) => {
         try {
             await api.put(`/admin/orders/${id}/status`, { status });
@@ -411,6 +426,8 @@ const AdminDashboard: React.FC = () => {
             {activeTab === 'orders' && (
                 <AdminOrders
                     orders={orders}
+                    hasMoreOrders={ordersCursor !== null}
+                    loadMoreOrders={loadMoreOrders}
                     handleOrderStatus={handleOrderStatus}
                     handleDeliveryStatus={handleDeliveryStatus}
                     handleDeleteOrder={handleDeleteOrder}
@@ -56,6 +56,7 @@ interface Bid {
     amount: number;
     bidTime: string;
     status: string;
+    version: number;
 }
 
 interface MyCrop {
@@ -397,9 +398,9 @@ const FarmerDashboard: React.FC = () => {
         });
     };
 
-    const handleBidAction = async (id: number, action: 'accept' | 'reject') => {
+    const handleBidAction = async (id: number, version: number, action: 'accept' | 'reject') => {
         try {
-            await api.put(`/features/farmer/bids/${id}/${action}`);
+            await api.put(`/features/farmer/bids/${id}/${action}`, null, { params: { version } });
             success(`বিড ${action === 'accept' ? 'গ্রহণ' : 'প্রত্যাখ্যান'} করা হয়েছে!`);
             fetchBids();
         } catch (err) {
@@ -679,8 +680,8 @@ const FarmerDashboard: React.FC = () => {
                                             <div className="text-sm text-muted-foreground">৳{b.amount} - {b.buyerName}</div>
                                         </div>
                                         <div className="flex gap-2">
-                                            <Button size="sm" className="bg-green-600 hover:bg-green-700 h-8 text-xs" onClick={() => handleBidAction(b.id, 'accept')}>{t('farmer.accept')}</Button>
-                                            <Button size="sm" variant="destructive" className="h-8 text-xs" onClick={() => handleBidAction(b.id, 'reject')}>{t('farmer.reject')}</Button>
+                                            <Button size="sm" className="bg-green-600 hover:bg-green-700 h-8 text-xs" onClick={() => handleBidAction(b.id, b.version, 'accept')}>{t('farmer.accept')}</Button>
+                                            <Button size="sm" variant="destructive" className="h-8 text-xs" onClick={() => handleBidAction(b.id, b.version, 'reject')}>{t('farmer.reject')}</Button>
                                         </div>
                                     </div>
                                 ))}
@@ -1448,8 +1449,8 @@ const FarmerDashboard: React.FC = () => {
                                         <TableCell className="text-right">
                                             {b.status === 'PENDING' && (
                                                 <div className="flex gap-2 justify-end">
-                                                    <Button size="sm" className="bg-green-600 hover:bg-green-700" onClick={() => handleBidAction(b.id, 'accept')}>{t('farmer.accept')}</Button>
-                                                    <Button size="sm" variant="destructive" onClick={() => handleBidAction(b.id, 'reject')}>{t('farmer.reject')}</Button>
+                                                    <Button size="sm" className="bg-green-600 hover:bg-green-700" onClick={() => handleBidAction(b.id, b.version, 'accept')}>{t('farmer.accept')}</Button>
+                                                    <Button size="sm" variant="destructive" onClick={() => handleBidAction(b.id, b.version, 'reject')}>{t('farmer.reject')}</Button>
                                                 </div>
                                             )}
                                         </TableCell>
@@ -5,13 +5,15 @@ import api from '../../api/axios';
 
 interface AdminOrdersProps {
     orders: any[];
+    hasMoreOrders: boolean;
+    loadMoreOrders: () => void;
     handleOrderStatus: (id: number, status: string) => void;
     handleDeliveryStatus: (id: number, deliveryStatus: string) => void;
     handleDeleteOrder: (id: number) => void;
 }
 
 const AdminOrders: React.FC<AdminOrdersProps> = ({
-    orders, handleOrderStatus, handleDeliveryStatus, handleDeleteOrder
+    orders, hasMoreOrders, loadMoreOrders, handleOrderStatus, handleDeliveryStatus, handleDeleteOrder
 }) => {
     const [selectedOrder, setSelectedOrder] = useState<any>(null);
     const [filter, setFilter] = useState('ALL');
@@ -300,6 +302,18 @@ const AdminOrders: React.FC<AdminOrdersProps> = ({
                         </button>
                     </div>
                 )}
+
+                {/* Older orders are fetched from the server on demand */}
+                {hasMoreOrders && (
+                    <div className="flex justify-center mt-4">
+                        <button
+                            onClick={loadMoreOrders}
+                            className="px-4 py-2 rounded-xl text-sm font-bold text-gray-600 dark:text-gray-300 bg-gray-100 dark:bg-gray-800 hover:bg-gray-200 dark:hover:bg-gray-700 transition-colors"
+                        >
+                            Load older orders
+                        </button>
+                    </div>
+                )}
             </div>
 
             {/* Order Details Modal */}
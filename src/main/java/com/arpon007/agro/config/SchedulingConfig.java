@@ -0,0 +1,12 @@
+package com.arpon007.agro.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs (cache reconcilers, sweepers)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,9 +1,11 @@
 package com.arpon007.agro.controller;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,14 +15,22 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.arpon007.agro.dto.CropFilter;
+import com.arpon007.agro.dto.CursorPage;
+import com.arpon007.agro.dto.OrderSearch;
+import com.arpon007.agro.dto.PageCursor;
 import com.arpon007.agro.model.Crop;
 import com.arpon007.agro.model.User;
 import com.arpon007.agro.repository.CropRepository;
 import com.arpon007.agro.repository.FeatureRepository;
+import com.arpon007.agro.repository.ReferenceDataCache;
 import com.arpon007.agro.repository.UserRepository;
 import com.arpon007.agro.service.CashoutService;
+import com.arpon007.agro.service.CropBulkOperationService;
+import com.arpon007.agro.service.SettlementService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 
@@ -29,24 +39,34 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminController {
 
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final String TOTAL_COUNT_EXACT_HEADER = "X-Total-Count-Exact";
+    private static final int ORDER_COUNT_CAP = 10_000;
+
     private final UserRepository userRepository;
     private final FeatureRepository featureRepository;
     private final CropRepository cropRepository;
-    private final com.arpon007.agro.repository.AppConfigRepository appConfigRepository;
+    private final com.arpon007.agro.service.AppConfigService appConfigService;
     private final com.arpon007.agro.repository.OrderRepository orderRepository;
-    private final com.arpon007.agro.service.WalletService walletService;
+    private final SettlementService settlementService;
+    private final CropBulkOperationService cropBulkOperationService;
+    private final ReferenceDataCache referenceData;
 
     public AdminController(UserRepository userRepository, FeatureRepository featureRepository,
             CropRepository cropRepository,
-            com.arpon007.agro.repository.AppConfigRepository appConfigRepository,
+            com.arpon007.agro.service.AppConfigService appConfigService,
             com.arpon007.agro.repository.OrderRepository orderRepository,
-            com.arpon007.agro.service.WalletService walletService) {
+            SettlementService settlementService,
+            CropBulkOperationService cropBulkOperationService,
+            ReferenceDataCache referenceData) {
         this.userRepository = userRepository;
         this.featureRepository = featureRepository;
         this.cropRepository = cropRepository;
-        this.appConfigRepository = appConfigRepository;
+        this.appConfigService = appConfigService;
         this.orderRepository = orderRepository;
-        this.walletService = walletService;
+        this.settlementService = settlementService;
+        this.cropBulkOperationService = cropBulkOperationService;
+        this.referenceData = referenceData;
     }
 
     // User Management
@@ -170,34 +190,139 @@ public class AdminController {
                 ? new BigDecimal(payload.get("maxRetailQty").toString())
                 : new BigDecimal("10");
 
-        // Update all crops
-        List<Crop> crops = cropRepository.findAllForAdmin();
-        for (Crop crop : crops) {
-            cropRepository.updateQuantitySettings(crop.getId(), minWholesaleQty, minRetailQty, maxRetailQty);
-        }
+        // Update all crops with one set-based UPDATE per chunk
+        Map<String, Object> report = cropBulkOperationService.execute(
+                CropBulkOperationService.Operation.QUANTITY_SETTINGS, CropFilter.all(),
+                Map.of("minWholesaleQty", minWholesaleQty, "minRetailQty", minRetailQty,
+                        "maxRetailQty", maxRetailQty));
 
         // Also save as default config
-        appConfigRepository.setValue("default_min_wholesale_qty", minWholesaleQty.toString());
-        appConfigRepository.setValue("default_min_retail_qty", minRetailQty.toString());
-        appConfigRepository.setValue("default_max_retail_qty", maxRetailQty.toString());
+        appConfigService.setAll(Map.of(
+                "default_min_wholesale_qty", minWholesaleQty.toString(),
+                "default_min_retail_qty", minRetailQty.toString(),
+                "default_max_retail_qty", maxRetailQty.toString()));
 
         return ResponseEntity.ok(Map.of(
-                "message", "Bulk quantity settings updated for " + crops.size() + " crops",
-                "cropsUpdated", String.valueOf(crops.size())));
+                "message", "Bulk quantity settings updated for " + report.get("updated") + " crops",
+                "cropsUpdated", String.valueOf(report.get("updated"))));
+    }
+
+    /**
+     * Apply one change to every crop matching a filter
+     * Payload: { "operation": "QUANTITY_SETTINGS | PRICING_SETTINGS |
+     * MARKETPLACE_TYPE | STOCK_OUT | BACK_IN_STOCK", "filter": { cropTypeId,
+     * farmerId, marketplaceType, district }, "values": { ... } }
+     */
+    @PostMapping("/crops/bulk")
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<?> runBulkCropOperation(@RequestBody Map<String, Object> payload) {
+        try {
+            Object operation = payload.get("operation");
+            if (operation == null) {
+                return ResponseEntity.badRequest().body(Map.of("message", "operation is required"));
+            }
+            Map<String, Object> report = cropBulkOperationService.execute(
+                    CropBulkOperationService.Operation.valueOf(operation.toString().toUpperCase()),
+                    CropFilter.fromPayload((Map<String, Object>) payload.get("filter")),
+                    (Map<String, Object>) payload.get("values"));
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
     }
 
     // System Config
     @GetMapping("/config")
     public ResponseEntity<java.util.Map<String, String>> getSystemConfig() {
-        return ResponseEntity.ok(appConfigRepository.getAllConfigs());
+        return ResponseEntity.ok(appConfigService.getAll());
     }
 
     @PostMapping("/config")
     public ResponseEntity<String> updateSystemConfig(@RequestBody java.util.Map<String, String> payload) {
-        payload.forEach(appConfigRepository::setValue);
+        appConfigService.setAll(payload);
         return ResponseEntity.ok("Configuration updated");
     }
 
+    // ==================== REFERENCE DATA ====================
+
+    @PostMapping("/crop-types")
+    public ResponseEntity<?> createCropType(@RequestBody Map<String, String> payload) {
+        String nameEn = payload.get("nameEn");
+        String nameBn = payload.get("nameBn");
+        if (nameEn == null || nameEn.isBlank() || nameBn == null || nameBn.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "nameEn and nameBn are required"));
+        }
+        Integer id = referenceData.createCropType(nameEn.trim(), nameBn.trim());
+        return ResponseEntity.ok(Map.of("message", "Crop type created", "id", id));
+    }
+
+    @PutMapping("/crop-types/{id}")
+    public ResponseEntity<?> updateCropType(@PathVariable Integer id, @RequestBody Map<String, String> payload) {
+        String nameEn = payload.get("nameEn");
+        String nameBn = payload.get("nameBn");
+        if (nameEn == null || nameEn.isBlank() || nameBn == null || nameBn.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "nameEn and nameBn are required"));
+        }
+        if (!referenceData.updateCropType(id, nameEn.trim(), nameBn.trim())) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("message", "Crop type updated"));
+    }
+
+    /**
+     * Payload: { "nameBn", "descriptionBn", "amount", "deadline": "yyyy-MM-dd" }
+     */
+    @PostMapping("/subsidy-schemes")
+    public ResponseEntity<?> createSubsidyScheme(@RequestBody Map<String, String> payload) {
+        try {
+            String nameBn = payload.get("nameBn");
+            if (nameBn == null || nameBn.isBlank()) {
+                return ResponseEntity.badRequest().body(Map.of("message", "nameBn is required"));
+            }
+            referenceData.createSubsidyScheme(nameBn.trim(), payload.get("descriptionBn"),
+                    parseAmount(payload.get("amount")), parseDate(payload.get("deadline")));
+            return ResponseEntity.ok(Map.of("message", "Subsidy scheme created"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid amount or deadline"));
+        }
+    }
+
+    @PutMapping("/subsidy-schemes/{id}")
+    public ResponseEntity<?> updateSubsidyScheme(@PathVariable Integer id, @RequestBody Map<String, String> payload) {
+        try {
+            String nameBn = payload.get("nameBn");
+            if (nameBn == null || nameBn.isBlank()) {
+                return ResponseEntity.badRequest().body(Map.of("message", "nameBn is required"));
+            }
+            if (!referenceData.updateSubsidyScheme(id, nameBn.trim(), payload.get("descriptionBn"),
+                    parseAmount(payload.get("amount")), parseDate(payload.get("deadline")))) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(Map.of("message", "Subsidy scheme updated"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid amount or deadline"));
+        }
+    }
+
+    /**
+     * Reload crop types and subsidy schemes after editing the tables directly
+     */
+    @PostMapping("/reference-data/refresh")
+    public ResponseEntity<?> refreshReferenceData() {
+        referenceData.refresh();
+        return ResponseEntity.ok(Map.of("message", "Reference data reloaded",
+                "cropTypes", referenceData.getCropTypes().size(),
+                "subsidySchemes", referenceData.getSubsidySchemes().size()));
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        return value != null && !value.isBlank() ? new BigDecimal(value.trim()) : null;
+    }
+
+    private static java.sql.Date parseDate(String value) {
+        return value != null && !value.isBlank() ? java.sql.Date.valueOf(value.trim()) : null;
+    }
+
     // ==================== AGRONOMIST MANAGEMENT ====================
 
     /**
@@ -317,16 +442,58 @@ public class AdminController {
     // ==================== ORDERS MANAGEMENT ====================
 
     /**
-     * Get all orders
+     * All orders, newest first, a page at a time (see {@link PageCursor});
+     * the first page carries X-Total-Count like {@link #searchOrders}
      */
     @GetMapping("/orders")
-    public ResponseEntity<List<Map<String, Object>>> getAllOrders() {
-        try {
-            List<Map<String, Object>> orders = featureRepository.getAllOrdersForAdmin();
-            return ResponseEntity.ok(orders);
-        } catch (Exception e) {
-            return ResponseEntity.ok(java.util.Collections.emptyList());
+    public ResponseEntity<List<Map<String, Object>>> getAllOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ordersPage(OrderSearch.all(), cursor, limit);
+    }
+
+    /**
+     * Search orders, newest first, e.g.
+     * /api/admin/orders/search?status=PENDING&district=Dhaka&from=2025-01-01&mobile=0171
+     *
+     * Always paged (see {@link PageCursor}). The first page also carries the
+     * number of matching orders in X-Total-Count; past
+     * {@value #ORDER_COUNT_CAP} it stops counting and X-Total-Count-Exact is
+     * false.
+     */
+    @GetMapping("/orders/search")
+    public ResponseEntity<List<Map<String, Object>>> searchOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String deliveryStatus,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long buyerId,
+            @RequestParam(required = false) Long farmerId,
+            @RequestParam(required = false) String district,
+            @RequestParam(required = false) String mobile,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ordersPage(OrderSearch.of(status, deliveryStatus, from, to, buyerId, farmerId, district, mobile),
+                cursor, limit);
+    }
+
+    private ResponseEntity<List<Map<String, Object>>> ordersPage(OrderSearch search, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        CursorPage<Map<String, Object>> page = featureRepository.searchOrdersForAdmin(search, after,
+                PageCursor.clampLimit(limit));
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            builder.header(PageCursor.NEXT_CURSOR_HEADER, page.nextCursor());
         }
+        if (after == null) {
+            // A single page is its own count
+            long total = page.nextCursor() == null ? page.items().size()
+                    : featureRepository.countOrdersForAdmin(search, ORDER_COUNT_CAP);
+            builder.header(TOTAL_COUNT_HEADER, String.valueOf(Math.min(total, ORDER_COUNT_CAP)));
+            builder.header(TOTAL_COUNT_EXACT_HEADER, String.valueOf(total <= ORDER_COUNT_CAP));
+        }
+        return builder.body(page.items());
     }
 
     /**
@@ -483,34 +650,9 @@ public class AdminController {
             @PathVariable Long id,
             @RequestBody Map<String, String> payload) {
         try {
-            String deliveryStatus = payload.get("deliveryStatus");
-            orderRepository.updateDeliveryStatus(id, deliveryStatus);
-
-            // If order is delivered or completed, check if we should mark it as completed
-            // and record income
-            if ("DELIVERED".equals(deliveryStatus)) {
-                // Also update order status to COMPLETED
-                orderRepository.updateStatus(id, "COMPLETED");
-
-                // Record platform income (2% platform fee) and credit farmer
-                if (!orderRepository.isIncomeRecorded(id)) {
-                    com.arpon007.agro.model.Order order = orderRepository.findById(id).orElse(null);
-                    if (order != null) {
-                        java.math.BigDecimal platformFee = order.getTotalAmount()
-                                .multiply(new java.math.BigDecimal("0.02"));
-                        orderRepository.recordPlatformIncome(id, platformFee, new java.math.BigDecimal("2.00"));
-
-                        // Credit farmer wallet (Total - Platform Fee)
-                        // Note: Depending on business logic, we credit the whole amount minus fee
-                        // assuming the platform collected everything (Advance + COD/Digital).
-                        java.math.BigDecimal amountToCredit = order.getTotalAmount().subtract(platformFee);
-                        walletService.creditWallet(order.getFarmerId(), amountToCredit,
-                                com.arpon007.agro.model.Transaction.TransactionSource.SALE,
-                                "Payment for Order #" + id);
-                    }
-                }
-            }
-
+            // DELIVERED queues the order for settlement (platform fee and farmer
+            // credit); the wallet writes happen in the background
+            settlementService.updateDeliveryStatus(id, payload.get("deliveryStatus"));
             return ResponseEntity.ok(Map.of("message", "Delivery status updated successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
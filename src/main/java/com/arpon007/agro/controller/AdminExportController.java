@@ -0,0 +1,77 @@
+package com.arpon007.agro.controller;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.arpon007.agro.repository.ExportRepository.Dataset;
+import com.arpon007.agro.service.ExportService;
+import com.arpon007.agro.service.ExportService.Format;
+
+/**
+ * Streaming downloads of whole admin tables (orders, bids, users,
+ * transactions) for reporting. The admin list endpoints stay for the UI.
+ */
+@RestController
+@RequestMapping("/api/admin/export")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminExportController {
+
+    private final ExportService exportService;
+
+    public AdminExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * Download a table, e.g. /api/admin/export/orders?format=ndjson&gzip=true
+     *
+     * @param dataset orders, bids, users or transactions
+     * @param format  csv (default) or ndjson
+     * @param gzip    send a .gz file instead of plain text
+     */
+    @GetMapping("/{dataset}")
+    public ResponseEntity<?> export(@PathVariable String dataset,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        Dataset table = parse(Dataset.class, dataset);
+        Format output = parse(Format.class, format);
+        if (table == null || output == null) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("message", "Unknown dataset or format: " + dataset + ", " + format));
+        }
+
+        return exportService.open(table, output, gzip)
+                .<ResponseEntity<?>>map(body -> {
+                    String filename = table.name().toLowerCase(Locale.ROOT) + "-" + LocalDate.now() + "."
+                            + output.getExtension() + (gzip ? ".gz" : "");
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.CONTENT_DISPOSITION,
+                                    ContentDisposition.attachment().filename(filename).build().toString())
+                            .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : output.getContentType()))
+                            .body(body);
+                })
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .body(Map.of("message", "Another export is running, try again shortly")));
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
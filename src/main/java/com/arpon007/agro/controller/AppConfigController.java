@@ -1,6 +1,6 @@
 package com.arpon007.agro.controller;
 
-import com.arpon007.agro.repository.AppConfigRepository;
+import com.arpon007.agro.service.AppConfigService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -11,10 +11,10 @@ import java.util.Map;
 @RequestMapping("/api")
 public class AppConfigController {
 
-    private final AppConfigRepository appConfigRepository;
+    private final AppConfigService appConfigService;
 
-    public AppConfigController(AppConfigRepository appConfigRepository) {
-        this.appConfigRepository = appConfigRepository;
+    public AppConfigController(AppConfigService appConfigService) {
+        this.appConfigService = appConfigService;
     }
 
     /**
@@ -23,7 +23,7 @@ public class AppConfigController {
     // Public endpoint to get specific configs (e.g. delivery charges)
     @GetMapping("/public/config")
     public ResponseEntity<Map<String, String>> getPublicConfig() {
-        Map<String, String> configs = appConfigRepository.getAllConfigs();
+        Map<String, String> configs = appConfigService.getAll();
         return ResponseEntity.ok(configs);
     }
 
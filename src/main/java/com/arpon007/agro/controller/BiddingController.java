@@ -1,43 +1,54 @@
 package com.arpon007.agro.controller;
 
+import com.arpon007.agro.dto.CursorPage;
+import com.arpon007.agro.dto.PageCursor;
+import com.arpon007.agro.model.Auction;
 import com.arpon007.agro.model.Bid;
-import com.arpon007.agro.model.Cart;
-import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.model.BidRule;
+import com.arpon007.agro.repository.BidInboxRepository;
 import com.arpon007.agro.repository.BidRepository;
-import com.arpon007.agro.repository.CartRepository;
-import com.arpon007.agro.repository.ChatRepository;
 import com.arpon007.agro.security.JwtUtil;
-import com.arpon007.agro.service.CropService;
+import com.arpon007.agro.service.AuctionService;
+import com.arpon007.agro.service.BidMatchingEngine;
+import com.arpon007.agro.service.BidOrderBook;
+import com.arpon007.agro.service.BidService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/bids")
 public class BiddingController {
 
     private final BidRepository bidRepository;
-    private final ChatRepository chatRepository;
-    private final CartRepository cartRepository;
-    private final CropService cropService;
+    private final BidService bidService;
     private final JwtUtil jwtUtil;
-    private final JdbcTemplate jdbcTemplate;
-
-    public BiddingController(BidRepository bidRepository, ChatRepository chatRepository,
-            CartRepository cartRepository, CropService cropService, JwtUtil jwtUtil, JdbcTemplate jdbcTemplate) {
+    private final BidOrderBook bidOrderBook;
+    private final BidInboxRepository bidInboxRepository;
+    private final BidMatchingEngine matchingEngine;
+    private final AuctionService auctionService;
+
+    public BiddingController(BidRepository bidRepository, BidService bidService, JwtUtil jwtUtil,
+            BidOrderBook bidOrderBook, BidInboxRepository bidInboxRepository, BidMatchingEngine matchingEngine,
+            AuctionService auctionService) {
         this.bidRepository = bidRepository;
-        this.chatRepository = chatRepository;
-        this.cartRepository = cartRepository;
-        this.cropService = cropService;
+        this.bidService = bidService;
         this.jwtUtil = jwtUtil;
-        this.jdbcTemplate = jdbcTemplate;
+        this.bidOrderBook = bidOrderBook;
+        this.bidInboxRepository = bidInboxRepository;
+        this.matchingEngine = matchingEngine;
+        this.auctionService = auctionService;
     }
 
     /**
@@ -62,44 +73,170 @@ public class BiddingController {
         bid.setAmount(amount);
         bid.setQuantity(quantity);
 
-        bidRepository.placeBid(bid);
-
-        // Send automatic message to farmer
-        try {
-            Crop crop = cropService.getCropById(cropId, false);
-            if (crop != null && crop.getFarmerId() != null) {
-                chatRepository.sendBidMessage(
-                        userId,
-                        crop.getFarmerId(),
-                        crop.getTitle(),
-                        amount.toString(),
-                        quantity.toString());
-            }
-        } catch (Exception e) {
-            // Log but don't fail the bid if message fails
-            System.err.println("Failed to send bid message: " + e.getMessage());
-        }
-
-        return ResponseEntity.ok("Bid placed successfully");
+        String status = bidService.placeBid(bid);
+        return switch (status) {
+            case "ACCEPTED" -> ResponseEntity.ok("Bid placed and accepted automatically");
+            case "COUNTER_OFFER" -> ResponseEntity.ok("Bid placed; the farmer has sent a counter-offer");
+            case "REJECTED" -> ResponseEntity.ok("Bid placed but rejected: below the farmer's reserve price");
+            default -> ResponseEntity.ok("Bid placed successfully");
+        };
     }
 
     /**
      * Get all bids for a crop
      */
     @GetMapping("/crop/{cropId}")
-    public ResponseEntity<List<Bid>> getBidsByCrop(@PathVariable Long cropId) {
+    public ResponseEntity<?> getBidsByCrop(@PathVariable Long cropId) {
+        if (auctionService.isSealed(cropId)) {
+            return ResponseEntity.status(403).body("Bids are sealed until the auction closes");
+        }
         return ResponseEntity.ok(bidRepository.findByCropId(cropId));
     }
 
+    /**
+     * Reserve rules of a crop (owner and admins only)
+     */
+    @GetMapping("/crop/{cropId}/rules")
+    @PreAuthorize("hasAnyRole('FARMER', 'ADMIN')")
+    public ResponseEntity<?> getBidRules(@PathVariable Long cropId, HttpServletRequest request) {
+        ResponseEntity<?> denied = checkCropOwner(cropId, request);
+        if (denied != null) {
+            return denied;
+        }
+        BidRule rule = matchingEngine.getRule(cropId);
+        return rule != null ? ResponseEntity.ok(rule.toMap()) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Set the reserve rules new bids on a crop are matched against:
+     * { autoAcceptPrice, autoAcceptMinQuantity, autoCounterPrice, autoRejectBelow }
+     * (per-unit prices; omitted fields switch that rule off)
+     */
+    @PutMapping("/crop/{cropId}/rules")
+    @PreAuthorize("hasAnyRole('FARMER', 'ADMIN')")
+    public ResponseEntity<?> saveBidRules(
+            @PathVariable Long cropId,
+            @RequestBody Map<String, Object> payload,
+            HttpServletRequest request) {
+        ResponseEntity<?> denied = checkCropOwner(cropId, request);
+        if (denied != null) {
+            return denied;
+        }
+        BidRule rule = new BidRule(cropId, decimal(payload.get("autoAcceptPrice")),
+                decimal(payload.get("autoAcceptMinQuantity")), decimal(payload.get("autoCounterPrice")),
+                decimal(payload.get("autoRejectBelow")));
+        matchingEngine.saveRule(rule);
+        return ResponseEntity.ok(rule.toMap());
+    }
+
+    @DeleteMapping("/crop/{cropId}/rules")
+    @PreAuthorize("hasAnyRole('FARMER', 'ADMIN')")
+    public ResponseEntity<?> deleteBidRules(@PathVariable Long cropId, HttpServletRequest request) {
+        ResponseEntity<?> denied = checkCropOwner(cropId, request);
+        if (denied != null) {
+            return denied;
+        }
+        matchingEngine.deleteRule(cropId);
+        return ResponseEntity.ok("Bid rules removed");
+    }
+
+    /**
+     * Live order book of a crop (best bid, depth, last counter-offer). Changes
+     * are pushed to /topic/crops/{cropId}/bids.
+     */
+    @GetMapping("/crop/{cropId}/book")
+    public ResponseEntity<?> getOrderBook(@PathVariable Long cropId) {
+        if (auctionService.isSealed(cropId)) {
+            return ResponseEntity.status(403).body("Bids are sealed until the auction closes");
+        }
+        return ResponseEntity.ok(bidOrderBook.snapshot(cropId));
+    }
+
+    /**
+     * Auction of a crop: window, lot size, pricing and, once cleared, the
+     * result. The reserve price is not shown.
+     */
+    @GetMapping("/crop/{cropId}/auction")
+    public ResponseEntity<?> getAuction(@PathVariable Long cropId) {
+        Auction auction = auctionService.getAuction(cropId);
+        return auction != null ? ResponseEntity.ok(auction.toMap()) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Open a sealed-bid auction on a B2B crop (owner and admins):
+     * { closesAt (ISO-8601) or durationHours, opensAt?, lotSize, pricing: UNIFORM | PAY_AS_BID,
+     * reservePrice? }
+     */
+    @PutMapping("/crop/{cropId}/auction")
+    @PreAuthorize("hasAnyRole('FARMER', 'ADMIN')")
+    public ResponseEntity<?> openAuction(
+            @PathVariable Long cropId,
+            @RequestBody Map<String, Object> payload,
+            HttpServletRequest request) {
+        ResponseEntity<?> denied = checkCropOwner(cropId, request);
+        if (denied != null) {
+            return denied;
+        }
+        Instant opensAt = payload.get("opensAt") != null ? Instant.parse(payload.get("opensAt").toString())
+                : Instant.now();
+        Instant closesAt;
+        if (payload.get("closesAt") != null) {
+            closesAt = Instant.parse(payload.get("closesAt").toString());
+        } else if (payload.get("durationHours") != null) {
+            closesAt = opensAt.plus(Duration.ofMinutes(
+                    Math.round(Double.parseDouble(payload.get("durationHours").toString()) * 60)));
+        } else {
+            return ResponseEntity.badRequest().body("closesAt or durationHours is required");
+        }
+        Auction.Pricing pricing = payload.get("pricing") != null
+                ? Auction.Pricing.valueOf(payload.get("pricing").toString().trim().toUpperCase())
+                : Auction.Pricing.UNIFORM;
+        BigDecimal lotSize = decimal(payload.get("lotSize"));
+
+        Auction auction = new Auction(cropId, Timestamp.from(opensAt), Timestamp.from(closesAt),
+                lotSize != null ? lotSize : BigDecimal.ONE, decimal(payload.get("reservePrice")), pricing, "OPEN");
+        auctionService.openAuction(auction);
+        return ResponseEntity.ok(auction.toMap());
+    }
+
+    /**
+     * Cancel an open auction; its bids go back to normal negotiation
+     */
+    @DeleteMapping("/crop/{cropId}/auction")
+    @PreAuthorize("hasAnyRole('FARMER', 'ADMIN')")
+    public ResponseEntity<?> cancelAuction(@PathVariable Long cropId, HttpServletRequest request) {
+        ResponseEntity<?> denied = checkCropOwner(cropId, request);
+        if (denied != null) {
+            return denied;
+        }
+        if (!auctionService.cancelAuction(cropId)) {
+            return ResponseEntity.status(409).body("No open auction on this crop");
+        }
+        return ResponseEntity.ok("Auction cancelled");
+    }
+
     /**
      * Get buyer's bids
      */
     @GetMapping("/my-bids")
     @PreAuthorize("hasAnyRole('BUYER', 'FARMER', 'ADMIN')")
-    public ResponseEntity<List<Bid>> getMyBids(HttpServletRequest request) {
+    public ResponseEntity<List<Bid>> getMyBids(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            HttpServletRequest request) {
         Long userId = extractUserId(request);
         String role = extractRole(request);
 
+        // Keyset paging is opt-in so existing clients still get the full list
+        if (cursor != null || limit != null) {
+            PageCursor after = PageCursor.decode(cursor);
+            int pageSize = PageCursor.clampLimit(limit);
+            List<Bid> rows = "ROLE_ADMIN".equals(role)
+                    ? bidRepository.findAllPage(after, pageSize)
+                    : bidRepository.findByBuyerIdPage(userId, after, pageSize);
+            return CursorPage.of(rows, pageSize, BiddingController::cursorOf).toResponse();
+        }
+
         if ("ROLE_ADMIN".equals(role)) {
             // Admin sees all bids
             return ResponseEntity.ok(bidRepository.findAll());
@@ -112,15 +249,43 @@ public class BiddingController {
      */
     @GetMapping("/farmer-bids")
     @PreAuthorize("hasAnyRole('FARMER', 'ADMIN')")
-    public ResponseEntity<List<Bid>> getFarmerBids(HttpServletRequest request) {
+    public ResponseEntity<List<Bid>> getFarmerBids(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "status", required = false) String status,
+            HttpServletRequest request) {
         Long userId = extractUserId(request);
         String role = extractRole(request);
 
         if ("ROLE_ADMIN".equals(role)) {
             // Admin sees all bids
+            if (cursor != null || limit != null) {
+                int pageSize = PageCursor.clampLimit(limit);
+                List<Bid> rows = bidRepository.findAllPage(PageCursor.decode(cursor), pageSize);
+                return CursorPage.of(rows, pageSize, BiddingController::cursorOf).toResponse();
+            }
             return ResponseEntity.ok(bidRepository.findAll());
         }
-        return ResponseEntity.ok(bidRepository.findByFarmerId(userId));
+
+        // Farmers read their inbox, newest activity first
+        Set<String> statuses = parseStatuses(status);
+        if (cursor != null || limit != null) {
+            int pageSize = PageCursor.clampLimit(limit);
+            List<Bid> rows = bidInboxRepository.findByFarmerIdPage(userId, statuses, PageCursor.decode(cursor),
+                    pageSize);
+            return CursorPage.of(rows, pageSize, bid -> new PageCursor(bid.getUpdatedAt(), bid.getId()))
+                    .toResponse();
+        }
+        return ResponseEntity.ok(bidInboxRepository.findByFarmerId(userId, statuses));
+    }
+
+    /**
+     * Number of the farmer's bids in each status
+     */
+    @GetMapping("/farmer-bids/counts")
+    @PreAuthorize("hasRole('FARMER')")
+    public ResponseEntity<Map<String, Long>> getFarmerBidCounts(HttpServletRequest request) {
+        return ResponseEntity.ok(bidInboxRepository.countByStatus(extractUserId(request)));
     }
 
     /**
@@ -149,7 +314,8 @@ public class BiddingController {
             return ResponseEntity.status(403).body("Not authorized");
         }
 
-        bidRepository.farmerCounterOffer(bidId, counterPrice);
+        auctionService.requireNegotiable(bid.getCropId());
+        bidRepository.farmerCounterOffer(bidId, requiredVersion(payload.get("version")), counterPrice);
         return ResponseEntity.ok("Counter-offer sent");
     }
 
@@ -179,11 +345,14 @@ public class BiddingController {
         }
 
         if ("accept".equals(action)) {
-            bidRepository.acceptBid(bidId);
+            bid.setVersion(requiredVersion(payload.get("version")));
+            bidService.buyerAcceptBid(bid);
             return ResponseEntity.ok("Bid accepted! You can now purchase at the agreed price.");
         } else if ("counter".equals(action)) {
             BigDecimal newAmount = new BigDecimal(payload.get("amount").toString());
-            bidRepository.buyerUpdateBid(bidId, newAmount);
+            // Sealed bids can be revised while the auction window is open
+            auctionService.checkBid(bid);
+            bidRepository.buyerUpdateBid(bidId, requiredVersion(payload.get("version")), newAmount);
             return ResponseEntity.ok("New bid amount sent to farmer");
         }
 
@@ -197,6 +366,7 @@ public class BiddingController {
     @PreAuthorize("hasAnyRole('FARMER', 'ADMIN')")
     public ResponseEntity<String> acceptBid(
             @PathVariable Long bidId,
+            @RequestParam(value = "version", required = false) Integer version,
             HttpServletRequest request) {
 
         Optional<Bid> bidOpt = bidRepository.findById(bidId);
@@ -212,54 +382,8 @@ public class BiddingController {
             return ResponseEntity.status(403).body("Not authorized");
         }
 
-        bidRepository.acceptBid(bidId);
-
-        // Auto-add to buyer's cart with agreed price
-        try {
-            Crop crop = cropService.getCropById(bid.getCropId(), false);
-            System.out.println(
-                    "DEBUG: Accepting bid " + bidId + " for crop " + (crop != null ? crop.getTitle() : "null"));
-
-            if (crop != null) {
-                Cart buyerCart = cartRepository.getOrCreateCart(bid.getBuyerId());
-                System.out.println("DEBUG: Got cart " + buyerCart.getId() + " for buyer " + bid.getBuyerId());
-
-                BigDecimal agreedPrice = bid.getFarmerCounterPrice() != null ? bid.getFarmerCounterPrice()
-                        : bid.getAmount();
-                BigDecimal quantity = bid.getQuantity() != null ? bid.getQuantity() : BigDecimal.ONE;
-
-                System.out.println("DEBUG: Adding to cart - cropId: " + bid.getCropId() + ", qty: " + quantity
-                        + ", price: " + agreedPrice);
-
-                cartRepository.addItemToCart(buyerCart.getId(), bid.getCropId(), quantity, agreedPrice);
-                System.out.println("DEBUG: Item added to cart successfully!");
-
-                // Create notification for buyer
-                String notificationMsg = String.format(
-                        "🎉 আপনার বিড গৃহীত হয়েছে!\n\n" +
-                                "ফসল: %s\n" +
-                                "পরিমাণ: %s কেজি\n" +
-                                "মূল্য: ৳%s/কেজি\n\n" +
-                                "পণ্যটি আপনার কার্টে যোগ করা হয়েছে। চেকআউট করতে কার্টে যান।",
-                        crop.getTitle(), quantity, agreedPrice);
-
-                String notifSql = "INSERT INTO notifications (user_id, message_bn, type) VALUES (?, ?, 'BID')";
-                jdbcTemplate.update(notifSql, bid.getBuyerId(), notificationMsg);
-
-                // Send message to buyer's inbox
-                String inboxMessage = String.format(
-                        "✅ বিড গৃহীত হয়েছে!\n\n" +
-                                "ফসল: %s\n" +
-                                "পরিমাণ: %s কেজি\n" +
-                                "মূল্য: ৳%s/কেজি\n\n" +
-                                "পণ্যটি আপনার কার্টে যোগ করা হয়েছে। চেকআউট করতে কার্টে যান।",
-                        crop.getTitle(), quantity, agreedPrice);
-                chatRepository.sendDirectMessage(userId, bid.getBuyerId(), inboxMessage);
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to add to cart: " + e.getMessage());
-            e.printStackTrace();
-        }
+        bid.setVersion(requiredVersion(version));
+        bidService.acceptBid(bid, userId);
 
         return ResponseEntity.ok("Bid accepted and added to buyer's cart");
     }
@@ -271,6 +395,7 @@ public class BiddingController {
     @PreAuthorize("hasAnyRole('FARMER', 'ADMIN')")
     public ResponseEntity<String> rejectBid(
             @PathVariable Long bidId,
+            @RequestParam(value = "version", required = false) Integer version,
             HttpServletRequest request) {
 
         Optional<Bid> bidOpt = bidRepository.findById(bidId);
@@ -286,34 +411,8 @@ public class BiddingController {
             return ResponseEntity.status(403).body("Not authorized");
         }
 
-        bidRepository.rejectBid(bidId);
-
-        // Send notification and message to buyer about rejection
-        try {
-            Crop crop = cropService.getCropById(bid.getCropId(), false);
-            if (crop != null) {
-                String notificationMsg = String.format(
-                        "❌ দুঃখিত! আপনার বিড প্রত্যাখ্যাত হয়েছে।\n\n" +
-                                "ফসল: %s\n" +
-                                "আপনার প্রস্তাবিত মূল্য: ৳%s/কেজি\n\n" +
-                                "আপনি অন্য ফসলে বিড করতে পারেন।",
-                        crop.getTitle(), bid.getAmount());
-
-                String notifSql = "INSERT INTO notifications (user_id, message_bn, type) VALUES (?, ?, 'BID')";
-                jdbcTemplate.update(notifSql, bid.getBuyerId(), notificationMsg);
-
-                // Send message to buyer's inbox
-                String inboxMessage = String.format(
-                        "❌ বিড প্রত্যাখ্যাত হয়েছে\n\n" +
-                                "ফসল: %s\n" +
-                                "আপনার প্রস্তাবিত মূল্য: ৳%s/কেজি\n\n" +
-                                "দুঃখিত, কৃষক আপনার প্রস্তাবিত মূল্য গ্রহণ করেননি। আপনি অন্য ফসলে বিড করতে পারেন।",
-                        crop.getTitle(), bid.getAmount());
-                chatRepository.sendDirectMessage(userId, bid.getBuyerId(), inboxMessage);
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to send rejection notification: " + e.getMessage());
-        }
+        bid.setVersion(requiredVersion(version));
+        bidService.rejectBid(bid, userId);
 
         return ResponseEntity.ok("Bid rejected");
     }
@@ -325,6 +424,7 @@ public class BiddingController {
     @PreAuthorize("hasAnyRole('BUYER', 'FARMER', 'ADMIN')")
     public ResponseEntity<String> deleteBid(
             @PathVariable Long bidId,
+            @RequestParam(value = "version", required = false) Integer version,
             HttpServletRequest request) {
 
         Optional<Bid> bidOpt = bidRepository.findById(bidId);
@@ -345,20 +445,92 @@ public class BiddingController {
             return ResponseEntity.status(403).body("Not authorized");
         }
 
-        bidRepository.deleteBid(bidId);
+        bidRepository.deleteBid(bidId, requiredVersion(version));
         return ResponseEntity.ok("Bid deleted");
     }
 
     /**
-     * Get single bid by ID
+     * Get single bid by ID (the buyer who placed it, the crop owner or an
+     * admin; the crop owner only once the crop's auction has closed)
      */
     @GetMapping("/{bidId}")
-    public ResponseEntity<Bid> getBid(@PathVariable Long bidId) {
+    @PreAuthorize("hasAnyRole('BUYER', 'FARMER', 'ADMIN')")
+    public ResponseEntity<?> getBid(@PathVariable Long bidId, HttpServletRequest request) {
         Optional<Bid> bidOpt = bidRepository.findById(bidId);
         if (bidOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(bidOpt.get());
+
+        Long userId = extractUserId(request);
+        Bid bid = bidOpt.get();
+        boolean isAdmin = "ROLE_ADMIN".equals(extractRole(request));
+        boolean isBuyerOwner = bid.getBuyerId().equals(userId);
+        boolean isFarmerOwner = bid.getFarmerId().equals(userId);
+
+        if (!isAdmin && !isBuyerOwner && !isFarmerOwner) {
+            return ResponseEntity.status(403).body("Not authorized");
+        }
+        if (!isAdmin && !isBuyerOwner && auctionService.isSealed(bid.getCropId())) {
+            return ResponseEntity.status(403).body("Bids are sealed until the auction closes");
+        }
+        return ResponseEntity.ok(bid);
+    }
+
+    /**
+     * The version of the bid the client acted on. It is required: falling
+     * back to a version read by the handler would only catch changes made
+     * after that read, not a client acting on stale data.
+     *
+     * @throws IllegalArgumentException (400) if the client sent none
+     */
+    private static int requiredVersion(Object requested) {
+        if (requested == null || requested.toString().isBlank()) {
+            throw new IllegalArgumentException("version is required: send the version of the bid you last read");
+        }
+        return Integer.parseInt(requested.toString());
+    }
+
+    /**
+     * Comma-separated status filter, e.g. "PENDING,COUNTER_OFFER"
+     */
+    private static Set<String> parseStatuses(String status) {
+        Set<String> statuses = new LinkedHashSet<>();
+        if (status == null || status.isBlank()) {
+            return statuses;
+        }
+        for (String part : status.split(",")) {
+            String value = part.trim().toUpperCase();
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (!BidInboxRepository.STATUSES.contains(value)) {
+                throw new IllegalArgumentException("Unknown bid status: " + part.trim());
+            }
+            statuses.add(value);
+        }
+        return statuses;
+    }
+
+    /**
+     * 404 for an unknown crop, 403 unless the caller owns it or is an admin
+     */
+    private ResponseEntity<?> checkCropOwner(Long cropId, HttpServletRequest request) {
+        Long ownerId = matchingEngine.cropOwner(cropId);
+        if (ownerId == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!"ROLE_ADMIN".equals(extractRole(request)) && !ownerId.equals(extractUserId(request))) {
+            return ResponseEntity.status(403).body("Not authorized");
+        }
+        return null;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return value != null && !value.toString().isBlank() ? new BigDecimal(value.toString()) : null;
+    }
+
+    private static PageCursor cursorOf(Bid bid) {
+        return new PageCursor(bid.getBidTime(), bid.getId());
     }
 
     private Long extractUserId(HttpServletRequest request) {
@@ -6,12 +6,14 @@ import com.arpon007.agro.model.Crop;
 import com.arpon007.agro.repository.CartRepository;
 import com.arpon007.agro.repository.CropRepository;
 import com.arpon007.agro.security.CustomUserDetails;
+import com.arpon007.agro.service.StockReservationService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -22,10 +24,13 @@ public class CartController {
 
     private final CartRepository cartRepository;
     private final CropRepository cropRepository;
+    private final StockReservationService reservations;
 
-    public CartController(CartRepository cartRepository, CropRepository cropRepository) {
+    public CartController(CartRepository cartRepository, CropRepository cropRepository,
+            StockReservationService reservations) {
         this.cartRepository = cartRepository;
         this.cropRepository = cropRepository;
+        this.reservations = reservations;
     }
 
     /**
@@ -68,13 +73,16 @@ public class CartController {
                                 "Maximum quantity is " + crop.getMaxRetailQty() + " " + crop.getUnit()));
             }
 
-            // Check stock availability
-            if (quantity.compareTo(crop.getQuantity()) > 0) {
+            // Hold the whole cart line for this customer; other customers' holds are not available
+            Cart cart = cartRepository.getOrCreateCart(userDetails.getId());
+            BigDecimal inCart = cartRepository.getItemQuantity(cart.getId(), cropId);
+            if (!reservations.holdForCart(cropId, userDetails.getId(), inCart.add(quantity), crop.getQuantity())) {
+                BigDecimal available = reservations.availableTo(cropId, userDetails.getId(), crop.getQuantity())
+                        .subtract(inCart).max(BigDecimal.ZERO);
                 return ResponseEntity.badRequest()
-                        .body(Map.of("message", "Only " + crop.getQuantity() + " " + crop.getUnit() + " available"));
+                        .body(Map.of("message", "Only " + available + " " + crop.getUnit() + " available"));
             }
 
-            Cart cart = cartRepository.getOrCreateCart(userDetails.getId());
             BigDecimal price = crop.getMinPrice();
 
             CartItem item = cartRepository.addItemToCart(cart.getId(), cropId, quantity, price);
@@ -92,6 +100,7 @@ public class CartController {
      */
     @PutMapping("/items/{itemId}")
     public ResponseEntity<?> updateCartItem(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
             @PathVariable Long itemId,
             @RequestBody Map<String, Object> payload) {
         try {
@@ -113,9 +122,10 @@ public class CartController {
                                 " and " + crop.getMaxRetailQty() + " " + crop.getUnit()));
             }
 
-            if (quantity.compareTo(crop.getQuantity()) > 0) {
+            if (!reservations.holdForCart(crop.getId(), userDetails.getId(), quantity, crop.getQuantity())) {
+                BigDecimal available = reservations.availableTo(crop.getId(), userDetails.getId(), crop.getQuantity());
                 return ResponseEntity.badRequest()
-                        .body(Map.of("message", "Only " + crop.getQuantity() + " " + crop.getUnit() + " available"));
+                        .body(Map.of("message", "Only " + available + " " + crop.getUnit() + " available"));
             }
 
             cartRepository.updateCartItemQuantity(itemId, quantity);
@@ -130,9 +140,13 @@ public class CartController {
      * Remove item from cart
      */
     @DeleteMapping("/items/{itemId}")
-    public ResponseEntity<?> removeCartItem(@PathVariable Long itemId) {
+    public ResponseEntity<?> removeCartItem(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @PathVariable Long itemId) {
         try {
+            CartItem item = cartRepository.getCartItemById(itemId);
             cartRepository.removeCartItem(itemId);
+            reservations.release(userDetails.getId(), List.of(item.getCropId()));
             return ResponseEntity.ok(Map.of("message", "Item removed from cart"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("message", "Failed to remove item: " + e.getMessage()));
@@ -147,6 +161,7 @@ public class CartController {
         try {
             Cart cart = cartRepository.getOrCreateCart(userDetails.getId());
             cartRepository.clearCart(cart.getId());
+            reservations.releaseAll(userDetails.getId());
             return ResponseEntity.ok(Map.of("message", "Cart cleared"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("message", "Failed to clear cart: " + e.getMessage()));
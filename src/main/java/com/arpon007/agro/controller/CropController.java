@@ -11,9 +11,15 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.arpon007.agro.dto.PageCursor;
 import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.repository.LocationHierarchy;
+import com.arpon007.agro.repository.ReferenceDataCache;
+import com.arpon007.agro.repository.UserRepository;
 import com.arpon007.agro.security.JwtUtil;
+import com.arpon007.agro.service.CropLocationIndex;
 import com.arpon007.agro.service.CropService;
+import com.arpon007.agro.service.ResponseCache;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -23,10 +29,19 @@ public class CropController {
 
     private final CropService cropService;
     private final JwtUtil jwtUtil;
+    private final ResponseCache responseCache;
+    private final CropLocationIndex cropLocationIndex;
+    private final ReferenceDataCache referenceData;
+    private final UserRepository userRepository;
 
-    public CropController(CropService cropService, JwtUtil jwtUtil) {
+    public CropController(CropService cropService, JwtUtil jwtUtil, ResponseCache responseCache,
+            CropLocationIndex cropLocationIndex, ReferenceDataCache referenceData, UserRepository userRepository) {
         this.cropService = cropService;
         this.jwtUtil = jwtUtil;
+        this.responseCache = responseCache;
+        this.cropLocationIndex = cropLocationIndex;
+        this.referenceData = referenceData;
+        this.userRepository = userRepository;
     }
 
     @PostMapping
@@ -176,8 +191,10 @@ public class CropController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Crop>> getAllCrops(
+    public ResponseEntity<?> getAllCrops(
             @RequestParam(value = "marketplaceType", required = false) String marketplaceType,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
             HttpServletRequest request) {
         boolean isBangla = true;
         String userRole = null;
@@ -196,31 +213,36 @@ public class CropController {
             // Guest or error, default Bangla
         }
 
-        List<Crop> crops;
+        String type;
 
         // If explicit marketplaceType is provided, use it
         if (marketplaceType != null && !marketplaceType.isEmpty()) {
-            crops = cropService.getCropsByMarketplaceType(marketplaceType.toUpperCase(), isBangla);
+            type = marketplaceType.toUpperCase();
         } else {
             // Fallback to role-based filtering
-            if ("ROLE_BUYER".equals(userRole)) {
-                crops = cropService.getCropsByMarketplaceType("B2B", isBangla);
-            } else {
-                crops = cropService.getCropsByMarketplaceType("RETAIL", isBangla);
-            }
+            type = "ROLE_BUYER".equals(userRole) ? "B2B" : "RETAIL";
         }
 
-        // Adjust prices based on user role
-        for (Crop crop : crops) {
-            adjustPriceForRole(crop, userRole);
+        // Keyset paging is opt-in so existing clients still get the full list
+        if (cursor != null || limit != null) {
+            return cropService.getCropsPageByMarketplaceType(type, isBangla, PageCursor.decode(cursor),
+                    PageCursor.clampLimit(limit)).toResponse();
         }
 
-        return ResponseEntity.ok(crops);
+        // Catalog crops are shared snapshot entries, so no per-role price adjustment here
+        String listingType = type;
+        boolean bangla = isBangla;
+        return responseCache.respond(request, ResponseCache.Group.CROPS,
+                "crops:" + listingType + ":" + (bangla ? "bn" : "en"),
+                () -> cropService.getCropsByMarketplaceType(listingType, bangla));
     }
 
     @GetMapping("/my")
     @PreAuthorize("hasRole('FARMER')")
-    public ResponseEntity<List<Crop>> getMyCrops(HttpServletRequest request) {
+    public ResponseEntity<List<Crop>> getMyCrops(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            HttpServletRequest request) {
         try {
             String authHeader = request.getHeader("Authorization");
             if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -245,13 +267,81 @@ public class CropController {
                 return ResponseEntity.status(401).build();
             }
 
+            if (cursor != null || limit != null) {
+                return cropService.getCropsPageByFarmerId(userId, PageCursor.decode(cursor),
+                        PageCursor.clampLimit(limit)).toResponse();
+            }
             return ResponseEntity.ok(cropService.getCropsByFarmerId(userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * Crops near a place, widening from upazila to district to division until
+     * enough are found. The place is given by ids (see /api/locations/tree) or
+     * names, and defaults to the logged-in user's profile address.
+     */
+    @GetMapping("/nearby")
+    public ResponseEntity<?> getNearbyCrops(
+            @RequestParam(value = "divisionId", required = false) Integer divisionId,
+            @RequestParam(value = "districtId", required = false) Integer districtId,
+            @RequestParam(value = "upazilaId", required = false) Integer upazilaId,
+            @RequestParam(value = "division", required = false) String division,
+            @RequestParam(value = "district", required = false) String district,
+            @RequestParam(value = "upazila", required = false) String upazila,
+            @RequestParam(value = "marketplaceType", required = false) String marketplaceType,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            HttpServletRequest request) {
+        boolean isBangla = true;
+        Long userId = null;
+
+        try {
+            String authHeader = request.getHeader("Authorization");
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                String token = authHeader.substring(7);
+                String userRole = jwtUtil.extractClaim(token, claims -> claims.get("role", String.class));
+                if ("ROLE_BUYER".equals(userRole) || "ROLE_AGRONOMIST".equals(userRole)
+                        || "ROLE_ADMIN".equals(userRole)) {
+                    isBangla = false;
+                }
+                Object idClaim = jwtUtil.extractClaim(token, claims -> claims.get("userId"));
+                userId = idClaim != null ? Long.parseLong(String.valueOf(idClaim)) : null;
+            }
+        } catch (Exception e) {
+            // Guest or error, default Bangla
+        }
+
+        LocationHierarchy locations = referenceData.getLocations();
+        LocationHierarchy.Placement origin = locations.placementOf(divisionId, districtId, upazilaId);
+        if (origin.isEmpty()) {
+            origin = locations.resolve(division, district, upazila);
+        }
+        if (origin.isEmpty() && userId != null) {
+            origin = userRepository.findById(userId)
+                    .map(user -> locations.resolve(user.getDivision(), user.getDistrict(), user.getUpazila()))
+                    .orElse(LocationHierarchy.Placement.NONE);
+        }
+        if (origin.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "A known division, district or upazila is required"));
+        }
+
+        try {
+            CropLocationIndex.NearbyResult nearby = cropLocationIndex.findNearby(origin, marketplaceType, isBangla,
+                    PageCursor.clampLimit(limit));
+            Map<String, Object> body = new HashMap<>();
+            body.put("origin", nearby.origin());
+            body.put("level", nearby.level());
+            body.put("crops", nearby.crops());
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid marketplace type"));
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Crop> getCrop(@PathVariable Long id, HttpServletRequest request) {
         boolean isBangla = true;
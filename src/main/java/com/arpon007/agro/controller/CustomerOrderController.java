@@ -1,24 +1,16 @@
 package com.arpon007.agro.controller;
 
-import com.arpon007.agro.model.Cart;
-import com.arpon007.agro.model.CartItem;
-import com.arpon007.agro.model.Crop;
-import com.arpon007.agro.model.Order;
-import com.arpon007.agro.repository.CartRepository;
-import com.arpon007.agro.repository.CropRepository;
+import com.arpon007.agro.dto.CursorPage;
+import com.arpon007.agro.dto.PageCursor;
 import com.arpon007.agro.repository.OrderRepository;
 import com.arpon007.agro.security.CustomUserDetails;
-import com.arpon007.agro.service.WalletService;
+import com.arpon007.agro.service.CheckoutService;
+import com.arpon007.agro.service.IdempotencyService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -26,117 +18,49 @@ import java.util.Map;
 @PreAuthorize("hasAnyRole('GENERAL_CUSTOMER', 'CUSTOMER', 'BUYER', 'FARMER', 'ADMIN')")
 public class CustomerOrderController {
 
-    private final CartRepository cartRepository;
-    private final CropRepository cropRepository;
     private final OrderRepository orderRepository;
-    private final WalletService walletService;
-    private final com.arpon007.agro.repository.AppConfigRepository appConfigRepository;
+    private final CheckoutService checkoutService;
+    private final IdempotencyService idempotencyService;
 
-    public CustomerOrderController(CartRepository cartRepository, CropRepository cropRepository,
-            OrderRepository orderRepository, WalletService walletService,
-            com.arpon007.agro.repository.AppConfigRepository appConfigRepository) {
-        this.cartRepository = cartRepository;
-        this.cropRepository = cropRepository;
+    public CustomerOrderController(OrderRepository orderRepository, CheckoutService checkoutService,
+            IdempotencyService idempotencyService) {
         this.orderRepository = orderRepository;
-        this.walletService = walletService;
-        this.appConfigRepository = appConfigRepository;
+        this.checkoutService = checkoutService;
+        this.idempotencyService = idempotencyService;
     }
 
     /**
-     * Checkout - Create order from cart
+     * Checkout - Create order from cart. A retry with the same Idempotency-Key
+     * replays the first response instead of checking out again.
      */
     @PostMapping("/checkout")
-    @Transactional
     public ResponseEntity<?> checkout(
             @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestBody Map<String, Object> payload) {
+        return idempotencyService.execute(idempotencyKey, userDetails.getId(), "POST /api/customer/orders/checkout",
+                payload, status -> placeCheckout(userDetails, payload));
+    }
+
+    private ResponseEntity<?> placeCheckout(CustomUserDetails userDetails, Map<String, Object> payload) {
         try {
             String mobile = payload.get("mobile").toString();
             String address = payload.get("address").toString();
             String paymentMethod = payload.get("paymentMethod").toString(); // BKASH, BANK, CASH
             String deliveryLocation = payload.getOrDefault("deliveryLocation", "dhaka").toString();
 
-            // Get cart with items
-            Cart cart = cartRepository.getCartWithItems(userDetails.getId());
-
-            if (cart.getItems() == null || cart.getItems().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of("message", "Cart is empty"));
-            }
-
-            // Calculate total and create orders for each crop
-            BigDecimal grandTotal = BigDecimal.ZERO;
-            List<Long> orderIds = new ArrayList<>();
-
-            for (CartItem item : cart.getItems()) {
-                // Get crop details
-                Crop crop = cropRepository.findById(item.getCropId()).orElseThrow();
-
-                // Validate stock
-                if (item.getQuantity().compareTo(crop.getQuantity()) > 0) {
-                    return ResponseEntity.badRequest()
-                            .body(Map.of("message", "Insufficient stock for " + crop.getTitle()));
-                }
-
-                // Calculate item total - use exact price set by farmer
-                BigDecimal price = crop.getMinPrice();
-                BigDecimal itemTotal = price.multiply(item.getQuantity());
-                grandTotal = grandTotal.add(itemTotal);
-
-                // Create order - for customers, full payment upfront (no advance/due split)
-                Order order = new Order();
-                order.setBuyerId(userDetails.getId());
-                order.setFarmerId(crop.getFarmerId());
-                order.setCropId(crop.getId());
-                order.setTotalAmount(itemTotal);
-                order.setAdvanceAmount(itemTotal); // Full payment
-                order.setDueAmount(BigDecimal.ZERO);
-                order.setCustomerMobile(mobile);
-                order.setCustomerAddress(address);
-                order.setStatus(Order.OrderStatus.PENDING);
-                order.setDeliveryStatus(Order.DeliveryStatus.PENDING);
-
-                Long orderId = orderRepository.createOrder(order);
-                orderIds.add(orderId);
-
-                // Reduce stock
-                BigDecimal newQuantity = crop.getQuantity().subtract(item.getQuantity());
-                cropRepository.updateStock(crop.getId(), newQuantity);
-            }
-
-            // Add Delivery Charge
-            String configKey = "delivery_charge_" + deliveryLocation; // delivery_charge_dhaka or
-                                                                      // delivery_charge_outside
-            String defaultCharge = "dhaka".equalsIgnoreCase(deliveryLocation) ? "70" : "130";
-            BigDecimal deliveryFee = new BigDecimal(appConfigRepository.getValue(configKey, defaultCharge));
-
-            grandTotal = grandTotal.add(deliveryFee);
-
-            // Debit wallet - ONLY if using Wallet/Online payment
-            if ("WALLET".equalsIgnoreCase(paymentMethod) || "ONLINE".equalsIgnoreCase(paymentMethod)) {
-                try {
-                    walletService.debitWallet(
-                            userDetails.getId(),
-                            grandTotal,
-                            com.arpon007.agro.model.Transaction.TransactionSource.ORDER_PAYMENT,
-                            "Payment for " + orderIds.size() + " order(s) + Delivery Fee");
-                } catch (IllegalArgumentException e) {
-                    // Rollback will happen automatically due to @Transactional
-                    return ResponseEntity.badRequest().body(Map.of("message", "Payment failed: " + e.getMessage()));
-                }
-            } else {
-                // For COD/Cash, we don't debit wallet.
-                // Assuming success for now.
-            }
-
-            // Clear cart after successful checkout
-            cartRepository.clearCart(cart.getId());
+            CheckoutService.Result result = checkoutService.checkout(userDetails.getId(), mobile, address,
+                    paymentMethod, deliveryLocation);
 
             return ResponseEntity.ok(Map.of(
                     "message", "Order placed successfully",
-                    "orderIds", orderIds,
-                    "totalAmount", grandTotal.toString(),
-                    "deliveryFee", deliveryFee,
+                    "orderIds", result.orderIds(),
+                    "totalAmount", result.totalAmount().toString(),
+                    "deliveryFee", result.deliveryFee(),
                     "paymentMethod", paymentMethod));
+        } catch (IllegalStateException e) {
+            // Nothing was written
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(Map.of("message", "Checkout failed: " + e.getMessage()));
@@ -144,38 +68,22 @@ public class CustomerOrderController {
     }
 
     /**
-     * Get customer's order history
+     * Get customer's order history, with crop title, cover image and farmer
+     * name from one joined query per page
      */
     @GetMapping
-    public ResponseEntity<?> getOrders(@AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<?> getOrders(@AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
         try {
-            List<Order> orders = orderRepository.findByCustomerId(userDetails.getId());
-
-            // Enrich orders with crop details
-            List<Map<String, Object>> enrichedOrders = new ArrayList<>();
-            for (Order order : orders) {
-                Map<String, Object> orderMap = new HashMap<>();
-                orderMap.put("id", order.getId());
-                orderMap.put("totalAmount", order.getTotalAmount());
-                orderMap.put("status", order.getStatus().name());
-                orderMap.put("deliveryStatus",
-                        order.getDeliveryStatus() != null ? order.getDeliveryStatus().name() : "PENDING");
-                orderMap.put("customerMobile", order.getCustomerMobile());
-                orderMap.put("customerAddress", order.getCustomerAddress());
-                orderMap.put("createdAt", order.getCreatedAt());
-
-                // Get crop details
-                cropRepository.findById(order.getCropId()).ifPresent(crop -> {
-                    orderMap.put("cropTitle", crop.getTitle());
-                    orderMap.put("cropImage", crop.getImages() != null && !crop.getImages().isEmpty()
-                            ? crop.getImages().get(0)
-                            : null);
-                });
-
-                enrichedOrders.add(orderMap);
+            // Keyset paging is opt-in so existing clients still get the full list
+            if (cursor != null || limit != null) {
+                int pageSize = PageCursor.clampLimit(limit);
+                return CursorPage.of(orderRepository.findHistoryPage(OrderRepository.Party.BUYER,
+                        userDetails.getId(), PageCursor.decode(cursor), pageSize), pageSize,
+                        OrderRepository::historyCursor).toResponse();
             }
-
-            return ResponseEntity.ok(enrichedOrders);
+            return ResponseEntity.ok(orderRepository.findHistory(OrderRepository.Party.BUYER, userDetails.getId()));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(Map.of("message", "Failed to fetch orders: " + e.getMessage()));
@@ -187,31 +95,8 @@ public class CustomerOrderController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<?> getOrder(@PathVariable Long id) {
-        try {
-            Order order = orderRepository.findById(id).orElseThrow();
-
-            Map<String, Object> orderMap = new HashMap<>();
-            orderMap.put("id", order.getId());
-            orderMap.put("totalAmount", order.getTotalAmount());
-            orderMap.put("status", order.getStatus().name());
-            orderMap.put("deliveryStatus",
-                    order.getDeliveryStatus() != null ? order.getDeliveryStatus().name() : "PENDING");
-            orderMap.put("customerMobile", order.getCustomerMobile());
-            orderMap.put("customerAddress", order.getCustomerAddress());
-            orderMap.put("createdAt", order.getCreatedAt());
-
-            // Get crop details
-            cropRepository.findById(order.getCropId()).ifPresent(crop -> {
-                orderMap.put("cropTitle", crop.getTitle());
-                orderMap.put("cropImage", crop.getImages() != null && !crop.getImages().isEmpty()
-                        ? crop.getImages().get(0)
-                        : null);
-                orderMap.put("farmerName", crop.getFarmerName());
-            });
-
-            return ResponseEntity.ok(orderMap);
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
-        }
+        return orderRepository.findHistoryById(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 }
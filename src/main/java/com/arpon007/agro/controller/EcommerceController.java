@@ -1,9 +1,18 @@
 package com.arpon007.agro.controller;
 
+import com.arpon007.agro.dto.CursorPage;
+import com.arpon007.agro.dto.PageCursor;
+import com.arpon007.agro.repository.ReferenceDataCache;
+import com.arpon007.agro.service.ProductSearchIndex;
+import com.arpon007.agro.service.ResponseCache;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -15,10 +24,26 @@ import java.util.Map;
 @RequestMapping("/api/ecommerce")
 public class EcommerceController {
 
+    private static final String PRODUCT_LISTING_SQL = """
+            SELECT c.*,
+                   u.full_name as farmer_name, u.district as farmer_location,
+                   (SELECT image_url FROM crop_images ci WHERE ci.crop_id = c.id LIMIT 1) as image_url
+            FROM crops c
+            JOIN users u ON c.farmer_id = u.id
+            WHERE c.is_sold = false AND c.quantity <= 50
+            """;
+
     private final JdbcTemplate jdbcTemplate;
+    private final ProductSearchIndex productSearchIndex;
+    private final ReferenceDataCache referenceData;
+    private final ResponseCache responseCache;
 
-    public EcommerceController(JdbcTemplate jdbcTemplate) {
+    public EcommerceController(JdbcTemplate jdbcTemplate, ProductSearchIndex productSearchIndex,
+            ReferenceDataCache referenceData, ResponseCache responseCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.productSearchIndex = productSearchIndex;
+        this.referenceData = referenceData;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -29,31 +54,92 @@ public class EcommerceController {
     public ResponseEntity<List<Map<String, Object>>> getRetailProducts(
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String search,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer page,
             @RequestParam(defaultValue = "20") int size) {
 
-        StringBuilder sql = new StringBuilder("""
-                SELECT c.*,
-                       ct.name_en as crop_type_en, ct.name_bn as crop_type_bn,
-                       u.full_name as farmer_name, u.district as farmer_location,
-                       (SELECT image_url FROM crop_images ci WHERE ci.crop_id = c.id LIMIT 1) as image_url
-                FROM crops c
-                JOIN crop_type ct ON c.crop_type_id = ct.id
-                JOIN users u ON c.farmer_id = u.id
-                WHERE c.is_sold = false AND c.quantity <= 50
-                """);
+        int limit = PageCursor.clampLimit(size);
+        // Page numbers are still accepted from older clients; the cursor wins when both are given
+        int offset = cursor == null && page != null && page > 0 ? page * limit : 0;
+
+        // Text search is answered by the in-memory index, then only the page is loaded
+        if (search != null && !search.isBlank()) {
+            ProductSearchIndex.SearchPage hits = cursor != null
+                    ? productSearchIndex.search(search, category, cursor, limit)
+                    : productSearchIndex.search(search, category, offset, limit);
+            return new CursorPage<>(findProductsByIds(hits.cropIds()), hits.nextCursor()).toResponse();
+        }
+
+        StringBuilder sql = new StringBuilder(PRODUCT_LISTING_SQL);
+        List<Object> params = new ArrayList<>();
 
         if (category != null && !category.isBlank()) {
-            sql.append(" AND ct.name_en = '").append(category).append("'");
+            Integer cropTypeId = referenceData.findCropTypeId(category);
+            if (cropTypeId == null) {
+                return ResponseEntity.ok(List.of());
+            }
+            sql.append(" AND c.crop_type_id = ?");
+            params.add(cropTypeId);
         }
-        if (search != null && !search.isBlank()) {
-            sql.append(" AND (c.title LIKE '%").append(search).append("%' OR ct.name_bn LIKE '%").append(search)
-                    .append("%')");
+
+        // Keyset pagination on (created_at, id): deep pages cost the same as the first
+        PageCursor after = PageCursor.decode(cursor);
+        if (after != null) {
+            sql.append(" AND (c.created_at < ? OR (c.created_at = ? AND c.id < ?))");
+            params.add(after.createdAt());
+            params.add(after.createdAt());
+            params.add(after.id());
         }
 
-        sql.append(" ORDER BY c.created_at DESC LIMIT ").append(size).append(" OFFSET ").append(page * size);
+        sql.append(" ORDER BY c.created_at DESC, c.id DESC LIMIT ?");
+        params.add(limit + 1);
+        if (offset > 0) {
+            sql.append(" OFFSET ?");
+            params.add(offset);
+        }
 
-        return ResponseEntity.ok(jdbcTemplate.queryForList(sql.toString()));
+        List<Map<String, Object>> rows = withCropTypeNames(jdbcTemplate.queryForList(sql.toString(), params.toArray()));
+        return CursorPage.of(rows, limit, row -> PageCursor.fromRow(row.get("created_at"), row.get("id")))
+                .toResponse();
+    }
+
+    /**
+     * Load listing rows for the given crop ids, keeping the order of the ids
+     */
+    private List<Map<String, Object>> findProductsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = PRODUCT_LISTING_SQL + " AND c.id IN (" + placeholders + ")";
+
+        Map<Long, Map<String, Object>> byId = new HashMap<>();
+        for (Map<String, Object> row : withCropTypeNames(jdbcTemplate.queryForList(sql, ids.toArray()))) {
+            byId.put(((Number) row.get("id")).longValue(), row);
+        }
+        List<Map<String, Object>> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Map<String, Object> row = byId.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Add the crop_type_en / crop_type_bn columns from the cached crop types
+     */
+    private List<Map<String, Object>> withCropTypeNames(List<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            Object typeId = row.get("crop_type_id");
+            ReferenceDataCache.CropType type = typeId != null
+                    ? referenceData.getCropType(((Number) typeId).intValue())
+                    : null;
+            row.put("crop_type_en", type != null ? type.nameEn() : null);
+            row.put("crop_type_bn", type != null ? type.nameBn() : null);
+        }
+        return rows;
     }
 
     /**
@@ -63,16 +149,14 @@ public class EcommerceController {
     public ResponseEntity<Map<String, Object>> getProductDetails(@PathVariable Long id) {
         String sql = """
                 SELECT c.*,
-                       ct.name_en as crop_type_en, ct.name_bn as crop_type_bn,
                        u.id as farmer_id, u.full_name as farmer_name, u.district as farmer_location,
                        (SELECT AVG(r.rating) FROM reviews r WHERE r.target_user_id = u.id) as farmer_rating
                 FROM crops c
-                JOIN crop_type ct ON c.crop_type_id = ct.id
                 JOIN users u ON c.farmer_id = u.id
                 WHERE c.id = ?
                 """;
 
-        Map<String, Object> product = jdbcTemplate.queryForMap(sql, id);
+        Map<String, Object> product = withCropTypeNames(List.of(jdbcTemplate.queryForMap(sql, id))).get(0);
 
         // Get images
         String imagesSql = "SELECT image_url FROM crop_images WHERE crop_id = ?";
@@ -97,9 +181,9 @@ public class EcommerceController {
      * Get categories for filter
      */
     @GetMapping("/categories")
-    public ResponseEntity<List<Map<String, Object>>> getCategories() {
-        String sql = "SELECT id, name_en, name_bn FROM crop_type ORDER BY name_en";
-        return ResponseEntity.ok(jdbcTemplate.queryForList(sql));
+    public ResponseEntity<byte[]> getCategories(HttpServletRequest request) {
+        return responseCache.respond(request, ResponseCache.Group.REFERENCE_DATA, "ecommerce:categories",
+                referenceData::getCropTypesByName);
     }
 
     /**
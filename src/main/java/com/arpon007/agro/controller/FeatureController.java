@@ -1,7 +1,11 @@
 package com.arpon007.agro.controller;
 
+import com.arpon007.agro.dto.PageCursor;
+import com.arpon007.agro.model.Bid;
+import com.arpon007.agro.repository.BidRepository;
 import com.arpon007.agro.repository.FeatureRepository;
 import com.arpon007.agro.security.JwtUtil;
+import com.arpon007.agro.service.BidService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -10,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/features")
@@ -17,10 +22,15 @@ public class FeatureController {
 
     private final FeatureRepository featureRepository;
     private final JwtUtil jwtUtil;
+    private final BidRepository bidRepository;
+    private final BidService bidService;
 
-    public FeatureController(FeatureRepository featureRepository, JwtUtil jwtUtil) {
+    public FeatureController(FeatureRepository featureRepository, JwtUtil jwtUtil, BidRepository bidRepository,
+            BidService bidService) {
         this.featureRepository = featureRepository;
         this.jwtUtil = jwtUtil;
+        this.bidRepository = bidRepository;
+        this.bidService = bidService;
     }
 
     // Export
@@ -82,9 +92,17 @@ public class FeatureController {
 
     @GetMapping("/farmer/orders")
     @PreAuthorize("hasRole('FARMER')")
-    public ResponseEntity<List<Map<String, Object>>> getFarmerOrders(HttpServletRequest request) {
+    public ResponseEntity<List<Map<String, Object>>> getFarmerOrders(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            HttpServletRequest request) {
         String token = request.getHeader("Authorization").substring(7);
         Long userId = jwtUtil.extractClaim(token, claims -> claims.get("userId", Long.class));
+        // Keyset paging is opt-in so existing clients still get the full list
+        if (cursor != null || limit != null) {
+            return featureRepository.getOrdersByFarmerPage(userId, PageCursor.decode(cursor), PageCursor.clampLimit(limit))
+                    .toResponse();
+        }
         return ResponseEntity.ok(featureRepository.getOrdersByFarmer(userId));
     }
 
@@ -96,20 +114,48 @@ public class FeatureController {
         return ResponseEntity.ok(featureRepository.getBidsForFarmer(userId));
     }
 
+    /**
+     * Same as PUT /api/bids/{id}/accept: only the crop owner, on the bid
+     * version the client last read
+     */
     @PutMapping("/farmer/bids/{id}/accept")
     @PreAuthorize("hasRole('FARMER')")
-    public ResponseEntity<String> acceptBid(@PathVariable Long id) {
-        featureRepository.updateBidStatus(id, "ACCEPTED");
+    public ResponseEntity<String> acceptBid(@PathVariable Long id, @RequestParam("version") Integer version,
+            HttpServletRequest request) {
+        Optional<Bid> bid = ownBid(id, request);
+        if (bid.isEmpty()) {
+            return ResponseEntity.status(403).body("Not authorized");
+        }
+        bid.get().setVersion(version);
+        bidService.acceptBid(bid.get(), bid.get().getFarmerId());
         return ResponseEntity.ok("Bid accepted");
     }
 
+    /**
+     * Same as PUT /api/bids/{id}/reject
+     */
     @PutMapping("/farmer/bids/{id}/reject")
     @PreAuthorize("hasRole('FARMER')")
-    public ResponseEntity<String> rejectBid(@PathVariable Long id) {
-        featureRepository.updateBidStatus(id, "REJECTED");
+    public ResponseEntity<String> rejectBid(@PathVariable Long id, @RequestParam("version") Integer version,
+            HttpServletRequest request) {
+        Optional<Bid> bid = ownBid(id, request);
+        if (bid.isEmpty()) {
+            return ResponseEntity.status(403).body("Not authorized");
+        }
+        bid.get().setVersion(version);
+        bidService.rejectBid(bid.get(), bid.get().getFarmerId());
         return ResponseEntity.ok("Bid rejected");
     }
 
+    /**
+     * The bid if it is on one of the caller's crops
+     */
+    private Optional<Bid> ownBid(Long bidId, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtUtil.extractClaim(token, claims -> claims.get("userId", Long.class));
+        return bidRepository.findById(bidId).filter(bid -> bid.getFarmerId().equals(userId));
+    }
+
     @GetMapping("/farmer/pending-money")
     @PreAuthorize("hasRole('FARMER')")
     public ResponseEntity<Map<String, Object>> getFarmerPendingMoney(HttpServletRequest request) {
@@ -132,9 +178,17 @@ public class FeatureController {
 
     @GetMapping("/buyer/orders")
     @PreAuthorize("hasRole('BUYER')")
-    public ResponseEntity<List<Map<String, Object>>> getBuyerOrders(HttpServletRequest request) {
+    public ResponseEntity<List<Map<String, Object>>> getBuyerOrders(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            HttpServletRequest request) {
         String token = request.getHeader("Authorization").substring(7);
         Long userId = jwtUtil.extractClaim(token, claims -> claims.get("userId", Long.class));
+        // Keyset paging is opt-in so existing clients still get the full list
+        if (cursor != null || limit != null) {
+            return featureRepository.getOrdersByBuyerPage(userId, PageCursor.decode(cursor), PageCursor.clampLimit(limit))
+                    .toResponse();
+        }
         return ResponseEntity.ok(featureRepository.getOrdersByBuyer(userId));
     }
 
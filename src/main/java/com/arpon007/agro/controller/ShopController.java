@@ -34,16 +34,22 @@ public class ShopController {
 
     @Autowired
     private com.arpon007.agro.service.InvoiceService invoiceService;
+    @Autowired
+    private com.arpon007.agro.service.CropCatalogService cropCatalogService;
+    @Autowired
+    private com.arpon007.agro.service.ResponseCache responseCache;
 
     @GetMapping("/products")
-    public List<Crop> getProducts() {
-        return cropRepository.findAllRetail();
+    public ResponseEntity<byte[]> getProducts(jakarta.servlet.http.HttpServletRequest request) {
+        return responseCache.respond(request, com.arpon007.agro.service.ResponseCache.Group.CROPS,
+                "shop:products", () -> cropCatalogService.getCrops("RETAIL", false));
     }
 
     @GetMapping("/crop-types")
-    public ResponseEntity<?> getCropTypes() {
+    public ResponseEntity<?> getCropTypes(jakarta.servlet.http.HttpServletRequest request) {
         try {
-            return ResponseEntity.ok(cropRepository.getAllCropTypes());
+            return responseCache.respond(request, com.arpon007.agro.service.ResponseCache.Group.REFERENCE_DATA,
+                    "shop:crop-types", cropRepository::getAllCropTypes);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError()
@@ -0,0 +1,35 @@
+package com.arpon007.agro.dto;
+
+import java.util.Map;
+
+/**
+ * Selects crops for admin bulk operations; null fields are ignored
+ */
+public record CropFilter(Integer cropTypeId, Long farmerId, String marketplaceType, String district) {
+
+    public static CropFilter all() {
+        return new CropFilter(null, null, null, null);
+    }
+
+    /**
+     * Read a filter from a request payload (missing or blank values are ignored)
+     */
+    public static CropFilter fromPayload(Map<String, Object> payload) {
+        if (payload == null) {
+            return all();
+        }
+        Object cropTypeId = payload.get("cropTypeId");
+        Object farmerId = payload.get("farmerId");
+        Object marketplaceType = payload.get("marketplaceType");
+        Object district = payload.get("district");
+        return new CropFilter(
+                isBlank(cropTypeId) ? null : Integer.valueOf(cropTypeId.toString()),
+                isBlank(farmerId) ? null : Long.valueOf(farmerId.toString()),
+                isBlank(marketplaceType) ? null : marketplaceType.toString().toUpperCase(),
+                isBlank(district) ? null : district.toString());
+    }
+
+    private static boolean isBlank(Object value) {
+        return value == null || value.toString().isBlank();
+    }
+}
@@ -0,0 +1,36 @@
+package com.arpon007.agro.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.http.ResponseEntity;
+
+/**
+ * One page of a keyset-paginated listing plus the cursor of the next page
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    /**
+     * Build a page from rows fetched with {@code LIMIT limit + 1}: the extra row
+     * only tells us whether another page exists.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, PageCursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(items, cursorOf.apply(items.get(limit - 1)).encode());
+    }
+
+    /**
+     * The items as the response body, with the next cursor in a header so
+     * existing list consumers keep working
+     */
+    public ResponseEntity<List<T>> toResponse() {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (nextCursor != null) {
+            builder.header(PageCursor.NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return builder.body(items);
+    }
+}
@@ -0,0 +1,37 @@
+package com.arpon007.agro.dto;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Selects orders for the admin order search; null fields are ignored.
+ * {@code from} is inclusive and {@code to} exclusive.
+ */
+public record OrderSearch(String status, String deliveryStatus, Timestamp from, Timestamp to, Long buyerId,
+        Long farmerId, String district, String mobilePrefix) {
+
+    public static OrderSearch all() {
+        return new OrderSearch(null, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * Read a search from request parameters (blank values are ignored, the
+     * date range covers whole days)
+     */
+    public static OrderSearch of(String status, String deliveryStatus, LocalDate fromDate, LocalDate toDate,
+            Long buyerId, Long farmerId, String district, String mobilePrefix) {
+        return new OrderSearch(
+                isBlank(status) ? null : status.trim().toUpperCase(),
+                isBlank(deliveryStatus) ? null : deliveryStatus.trim().toUpperCase(),
+                fromDate == null ? null : Timestamp.valueOf(fromDate.atStartOfDay()),
+                toDate == null ? null : Timestamp.valueOf(toDate.plusDays(1).atStartOfDay()),
+                buyerId,
+                farmerId,
+                isBlank(district) ? null : district.trim(),
+                isBlank(mobilePrefix) ? null : mobilePrefix.replaceAll("[\\s-]", ""));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
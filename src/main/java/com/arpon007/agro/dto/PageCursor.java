@@ -0,0 +1,63 @@
+package com.arpon007.agro.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for listings ordered by (created_at DESC, id DESC).
+ * Clients only ever see the encoded string and hand it back unchanged.
+ */
+public record PageCursor(Timestamp createdAt, long id) {
+
+    /**
+     * Response header carrying the cursor of the next page (absent on the last
+     * page)
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * Build a cursor from raw column values of a queryForList row (the driver may
+     * return TIMESTAMP columns as Timestamp or LocalDateTime)
+     */
+    public static PageCursor fromRow(Object createdAt, Object id) {
+        Timestamp timestamp = createdAt instanceof LocalDateTime ldt ? Timestamp.valueOf(ldt) : (Timestamp) createdAt;
+        return new PageCursor(timestamp, ((Number) id).longValue());
+    }
+
+    public String encode() {
+        String raw = createdAt.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor received from a client; null or blank means "first page"
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            return new PageCursor(new Timestamp(Long.parseLong(raw.substring(0, sep))),
+                    Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+
+    /**
+     * Clamp a requested page size into [1, MAX_LIMIT]
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
@@ -0,0 +1,23 @@
+package com.arpon007.agro.event;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published whenever bid rows are inserted or change status, amount or
+ * counter price.
+ */
+public record BidChangedEvent(List<Long> bidIds) {
+
+    public BidChangedEvent {
+        bidIds = bidIds == null ? List.of() : List.copyOf(bidIds);
+    }
+
+    public static BidChangedEvent of(Long bidId) {
+        return new BidChangedEvent(List.of(bidId));
+    }
+
+    public static BidChangedEvent of(Collection<Long> bidIds) {
+        return new BidChangedEvent(List.copyOf(bidIds));
+    }
+}
@@ -0,0 +1,31 @@
+package com.arpon007.agro.event;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published whenever crop rows are inserted, updated or deleted.
+ * An empty id list means "anything may have changed" and forces a full reload.
+ */
+public record CropChangedEvent(List<Long> cropIds) {
+
+    public CropChangedEvent {
+        cropIds = cropIds == null ? List.of() : List.copyOf(cropIds);
+    }
+
+    public static CropChangedEvent of(Long cropId) {
+        return new CropChangedEvent(List.of(cropId));
+    }
+
+    public static CropChangedEvent of(Collection<Long> cropIds) {
+        return new CropChangedEvent(List.copyOf(cropIds));
+    }
+
+    public static CropChangedEvent all() {
+        return new CropChangedEvent(List.of());
+    }
+
+    public boolean isFullReload() {
+        return cropIds.isEmpty();
+    }
+}
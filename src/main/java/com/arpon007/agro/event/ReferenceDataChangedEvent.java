@@ -0,0 +1,16 @@
+package com.arpon007.agro.event;
+
+/**
+ * Published after an admin write to crop types or subsidy schemes so the
+ * in-memory reference data is reloaded once the transaction commits.
+ */
+public record ReferenceDataChangedEvent(boolean cropTypesChanged) {
+
+    public static ReferenceDataChangedEvent cropTypes() {
+        return new ReferenceDataChangedEvent(true);
+    }
+
+    public static ReferenceDataChangedEvent subsidySchemes() {
+        return new ReferenceDataChangedEvent(false);
+    }
+}
@@ -0,0 +1,23 @@
+package com.arpon007.agro.event;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published whenever stock holds on crops are taken, changed or released, so
+ * listings can refresh the available quantity without reloading the crops.
+ */
+public record StockReservedEvent(List<Long> cropIds) {
+
+    public StockReservedEvent {
+        cropIds = cropIds == null ? List.of() : List.copyOf(cropIds);
+    }
+
+    public static StockReservedEvent of(Long cropId) {
+        return new StockReservedEvent(List.of(cropId));
+    }
+
+    public static StockReservedEvent of(Collection<Long> cropIds) {
+        return new StockReservedEvent(List.copyOf(cropIds));
+    }
+}
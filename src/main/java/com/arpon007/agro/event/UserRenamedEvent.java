@@ -0,0 +1,8 @@
+package com.arpon007.agro.event;
+
+/**
+ * Published when a user's full name changes, so copies of it (the bid inbox)
+ * can follow.
+ */
+public record UserRenamedEvent(Long userId) {
+}
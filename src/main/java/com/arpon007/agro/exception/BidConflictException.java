@@ -0,0 +1,43 @@
+package com.arpon007.agro.exception;
+
+import com.arpon007.agro.model.BidAction;
+
+/**
+ * A bid transition lost a race or is not allowed from the bid's current
+ * status. Carries the current state so the client can refresh and retry.
+ */
+public class BidConflictException extends RuntimeException {
+    private final Long bidId;
+    private final BidAction action;
+    private final String currentStatus;
+    private final Integer currentVersion;
+
+    public BidConflictException(Long bidId, BidAction action, String currentStatus, Integer currentVersion) {
+        super(currentStatus == null
+                ? "Bid not found"
+                : action.allows(currentStatus)
+                        ? "Bid was changed by someone else, please refresh"
+                        : "Cannot " + action.name().toLowerCase().replace('_', ' ') + " a bid that is "
+                                + currentStatus);
+        this.bidId = bidId;
+        this.action = action;
+        this.currentStatus = currentStatus;
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getBidId() {
+        return bidId;
+    }
+
+    public BidAction getAction() {
+        return action;
+    }
+
+    public String getCurrentStatus() {
+        return currentStatus;
+    }
+
+    public Integer getCurrentVersion() {
+        return currentVersion;
+    }
+}
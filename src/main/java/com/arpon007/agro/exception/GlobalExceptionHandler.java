@@ -34,6 +34,16 @@ public class GlobalExceptionHandler {
                 "Access denied: You don't have permission to access this resource");
     }
 
+    @ExceptionHandler(BidConflictException.class)
+    public ResponseEntity<Map<String, Object>> handleBidConflict(BidConflictException ex) {
+        HttpStatus status = ex.getCurrentStatus() == null ? HttpStatus.NOT_FOUND : HttpStatus.CONFLICT;
+        ResponseEntity<Map<String, Object>> response = buildErrorResponse(status, ex.getMessage());
+        response.getBody().put("bidId", ex.getBidId());
+        response.getBody().put("currentStatus", ex.getCurrentStatus());
+        response.getBody().put("currentVersion", ex.getCurrentVersion());
+        return response;
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, Object>> handleRuntimeException(RuntimeException ex) {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
@@ -0,0 +1,135 @@
+package com.arpon007.agro.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A sealed-bid auction on one crop (crop_auctions)
+ */
+public class Auction {
+
+    public enum Pricing {
+        /** Every winner pays the lowest winning bid */
+        UNIFORM,
+        /** Every winner pays its own bid */
+        PAY_AS_BID
+    }
+
+    private final Long cropId;
+    private final Timestamp opensAt;
+    private final Timestamp closesAt;
+    private final BigDecimal lotSize;
+    private final BigDecimal reservePrice;
+    private final Pricing pricing;
+    private final String status;
+    private BigDecimal clearingPrice;
+    private BigDecimal soldQuantity;
+    private Integer winningBids;
+    private Timestamp clearedAt;
+
+    public Auction(Long cropId, Timestamp opensAt, Timestamp closesAt, BigDecimal lotSize, BigDecimal reservePrice,
+            Pricing pricing, String status) {
+        this.cropId = cropId;
+        this.opensAt = opensAt;
+        this.closesAt = closesAt;
+        this.lotSize = lotSize;
+        this.reservePrice = reservePrice;
+        this.pricing = pricing;
+        this.status = status;
+    }
+
+    /**
+     * Whether bids are taken at the given time
+     */
+    public boolean isOpenAt(long millis) {
+        return "OPEN".equals(status) && opensAt.getTime() <= millis && millis < closesAt.getTime();
+    }
+
+    /**
+     * Whether bids are sealed: an OPEN auction that has not been cleared yet,
+     * including after closes_at until the clearing job has run
+     */
+    public boolean isSealed() {
+        return "OPEN".equals(status);
+    }
+
+    /**
+     * Public view; bids stay hidden until the auction is cleared
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("cropId", cropId);
+        map.put("opensAt", opensAt);
+        map.put("closesAt", closesAt);
+        map.put("lotSize", lotSize);
+        map.put("pricing", pricing);
+        map.put("status", status);
+        map.put("clearingPrice", clearingPrice);
+        map.put("soldQuantity", soldQuantity);
+        map.put("winningBids", winningBids);
+        map.put("clearedAt", clearedAt);
+        return map;
+    }
+
+    public Long getCropId() {
+        return cropId;
+    }
+
+    public Timestamp getOpensAt() {
+        return opensAt;
+    }
+
+    public Timestamp getClosesAt() {
+        return closesAt;
+    }
+
+    public BigDecimal getLotSize() {
+        return lotSize;
+    }
+
+    public BigDecimal getReservePrice() {
+        return reservePrice;
+    }
+
+    public Pricing getPricing() {
+        return pricing;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public BigDecimal getClearingPrice() {
+        return clearingPrice;
+    }
+
+    public void setClearingPrice(BigDecimal clearingPrice) {
+        this.clearingPrice = clearingPrice;
+    }
+
+    public BigDecimal getSoldQuantity() {
+        return soldQuantity;
+    }
+
+    public void setSoldQuantity(BigDecimal soldQuantity) {
+        this.soldQuantity = soldQuantity;
+    }
+
+    public Integer getWinningBids() {
+        return winningBids;
+    }
+
+    public void setWinningBids(Integer winningBids) {
+        this.winningBids = winningBids;
+    }
+
+    public Timestamp getClearedAt() {
+        return clearedAt;
+    }
+
+    public void setClearedAt(Timestamp clearedAt) {
+        this.clearedAt = clearedAt;
+    }
+}
@@ -13,7 +13,8 @@ public class Bid {
     private String lastActionBy; // BUYER or FARMER
     private Timestamp bidTime;
     private Timestamp updatedAt;
-    private String status; // PENDING, COUNTER_OFFER, ACCEPTED, REJECTED, DELETED
+    private String status; // PENDING, COUNTER_OFFER, ACCEPTED, REJECTED, DELETED, ORDERED
+    private int version; // Bumped by every status transition, see BidAction
 
     // Extra fields for display
     private String buyerName;
@@ -122,6 +123,14 @@ public class Bid {
         this.status = status;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public String getBuyerName() {
         return buyerName;
     }
@@ -0,0 +1,42 @@
+package com.arpon007.agro.model;
+
+import java.util.Set;
+
+/**
+ * The bid state machine: each action moves a bid from one of the listed
+ * statuses to its target status. Anything else is a conflict.
+ */
+public enum BidAction {
+    /** Farmer proposes a different price */
+    COUNTER("COUNTER_OFFER", "PENDING", "COUNTER_OFFER"),
+    /** Buyer answers a counter-offer with a new amount */
+    BUYER_UPDATE("PENDING", "PENDING", "COUNTER_OFFER"),
+    /** Buyer takes the farmer's counter-offer */
+    BUYER_ACCEPT("ACCEPTED", "COUNTER_OFFER"),
+    /** Farmer accepts the buyer's offer */
+    ACCEPT("ACCEPTED", "PENDING", "COUNTER_OFFER"),
+    REJECT("REJECTED", "PENDING", "COUNTER_OFFER"),
+    DELETE("DELETED", "PENDING", "COUNTER_OFFER", "ACCEPTED", "REJECTED"),
+    /** An order was placed from an accepted bid */
+    ORDER("ORDERED", "ACCEPTED");
+
+    private final String target;
+    private final Set<String> from;
+
+    BidAction(String target, String... from) {
+        this.target = target;
+        this.from = Set.of(from);
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public Set<String> getFrom() {
+        return from;
+    }
+
+    public boolean allows(String status) {
+        return from.contains(status);
+    }
+}
@@ -0,0 +1,119 @@
+package com.arpon007.agro.model;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A farmer's reserve rules for one crop listing. Prices are per unit; a null
+ * price switches that rule off.
+ */
+public class BidRule {
+
+    /**
+     * What the farmer's rules say about a new bid
+     */
+    public enum Outcome {
+        ACCEPT,
+        COUNTER,
+        REJECT,
+        NONE
+    }
+
+    private final Long cropId;
+    private final BigDecimal autoAcceptPrice;
+    private final BigDecimal autoAcceptMinQuantity;
+    private final BigDecimal autoCounterPrice;
+    private final BigDecimal autoRejectBelow;
+
+    public BidRule(Long cropId, BigDecimal autoAcceptPrice, BigDecimal autoAcceptMinQuantity,
+            BigDecimal autoCounterPrice, BigDecimal autoRejectBelow) {
+        this.cropId = cropId;
+        this.autoAcceptPrice = autoAcceptPrice;
+        this.autoAcceptMinQuantity = autoAcceptMinQuantity;
+        this.autoCounterPrice = autoCounterPrice;
+        this.autoRejectBelow = autoRejectBelow;
+    }
+
+    /**
+     * Accept wins over reject, reject over counter. Only bids below the
+     * counter price are countered.
+     */
+    public Outcome evaluate(BigDecimal amount, BigDecimal quantity) {
+        if (autoAcceptPrice != null && amount.compareTo(autoAcceptPrice) >= 0
+                && (autoAcceptMinQuantity == null
+                        || (quantity != null && quantity.compareTo(autoAcceptMinQuantity) >= 0))) {
+            return Outcome.ACCEPT;
+        }
+        if (autoRejectBelow != null && amount.compareTo(autoRejectBelow) < 0) {
+            return Outcome.REJECT;
+        }
+        if (autoCounterPrice != null && amount.compareTo(autoCounterPrice) < 0) {
+            return Outcome.COUNTER;
+        }
+        return Outcome.NONE;
+    }
+
+    /**
+     * Throws IllegalArgumentException unless reject floor <= counter price <=
+     * accept price and all set values are positive
+     */
+    public void validate() {
+        requirePositive("autoAcceptPrice", autoAcceptPrice);
+        requirePositive("autoAcceptMinQuantity", autoAcceptMinQuantity);
+        requirePositive("autoCounterPrice", autoCounterPrice);
+        requirePositive("autoRejectBelow", autoRejectBelow);
+        if (autoAcceptMinQuantity != null && autoAcceptPrice == null) {
+            throw new IllegalArgumentException("autoAcceptMinQuantity needs an autoAcceptPrice");
+        }
+        requireOrder("autoRejectBelow", autoRejectBelow, "autoCounterPrice", autoCounterPrice);
+        requireOrder("autoCounterPrice", autoCounterPrice, "autoAcceptPrice", autoAcceptPrice);
+        requireOrder("autoRejectBelow", autoRejectBelow, "autoAcceptPrice", autoAcceptPrice);
+    }
+
+    public boolean isEmpty() {
+        return autoAcceptPrice == null && autoCounterPrice == null && autoRejectBelow == null;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("cropId", cropId);
+        map.put("autoAcceptPrice", autoAcceptPrice);
+        map.put("autoAcceptMinQuantity", autoAcceptMinQuantity);
+        map.put("autoCounterPrice", autoCounterPrice);
+        map.put("autoRejectBelow", autoRejectBelow);
+        return map;
+    }
+
+    public Long getCropId() {
+        return cropId;
+    }
+
+    public BigDecimal getAutoAcceptPrice() {
+        return autoAcceptPrice;
+    }
+
+    public BigDecimal getAutoAcceptMinQuantity() {
+        return autoAcceptMinQuantity;
+    }
+
+    public BigDecimal getAutoCounterPrice() {
+        return autoCounterPrice;
+    }
+
+    public BigDecimal getAutoRejectBelow() {
+        return autoRejectBelow;
+    }
+
+    private static void requirePositive(String name, BigDecimal value) {
+        if (value != null && value.signum() <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+    }
+
+    private static void requireOrder(String lowName, BigDecimal low, String highName, BigDecimal high) {
+        if (low != null && high != null && low.compareTo(high) > 0) {
+            throw new IllegalArgumentException(lowName + " must not be above " + highName);
+        }
+    }
+}
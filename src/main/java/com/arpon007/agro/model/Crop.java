@@ -11,6 +11,8 @@ public class Crop {
     private String description;
     private Integer cropTypeId;
     private BigDecimal quantity;
+    // quantity minus active stock holds (catalog listings only)
+    private BigDecimal availableQuantity;
     private String unit;
 
     // Wholesale pricing (for BUYER role - minimum 80kg)
@@ -28,6 +30,10 @@ public class Crop {
     private BigDecimal fixedCostPerUnit; // Fixed cost per unit (transport, handling, etc.)
 
     private String location;
+    // Normalized location (ids from the division/district/upazila hierarchy)
+    private Integer divisionId;
+    private Integer districtId;
+    private Integer upazilaId;
     private Boolean isSold;
     private Timestamp createdAt;
 
@@ -74,6 +80,21 @@ public class Crop {
         this.images = images;
     }
 
+    /**
+     * Shallow copy (the image list is shared)
+     */
+    public Crop(Crop other) {
+        this(other.id, other.farmerId, other.title, other.description, other.cropTypeId, other.quantity, other.unit,
+                other.minPrice, other.wholesalePrice, other.minWholesaleQty, other.retailPrice, other.minRetailQty,
+                other.maxRetailQty, other.profitMarginPercent, other.fixedCostPerUnit, other.location, other.isSold,
+                other.createdAt, other.farmerName, other.cropTypeName, other.images);
+        this.marketplaceType = other.marketplaceType;
+        this.availableQuantity = other.availableQuantity;
+        this.divisionId = other.divisionId;
+        this.districtId = other.districtId;
+        this.upazilaId = other.upazilaId;
+    }
+
     // Helper method - returns minPrice directly (no calculations)
     public BigDecimal getCalculatedRetailPrice() {
         // No calculations - return exact price set by farmer
@@ -128,6 +149,14 @@ public class Crop {
         this.quantity = quantity;
     }
 
+    public BigDecimal getAvailableQuantity() {
+        return availableQuantity;
+    }
+
+    public void setAvailableQuantity(BigDecimal availableQuantity) {
+        this.availableQuantity = availableQuantity;
+    }
+
     public String getUnit() {
         return unit;
     }
@@ -208,6 +237,30 @@ public class Crop {
         this.location = location;
     }
 
+    public Integer getDivisionId() {
+        return divisionId;
+    }
+
+    public void setDivisionId(Integer divisionId) {
+        this.divisionId = divisionId;
+    }
+
+    public Integer getDistrictId() {
+        return districtId;
+    }
+
+    public void setDistrictId(Integer districtId) {
+        this.districtId = districtId;
+    }
+
+    public Integer getUpazilaId() {
+        return upazilaId;
+    }
+
+    public void setUpazilaId(Integer upazilaId) {
+        this.upazilaId = upazilaId;
+    }
+
     public Boolean getIsSold() {
         return isSold;
     }
@@ -2,12 +2,14 @@ package com.arpon007.agro.model;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Order {
     private Long id;
     private Long buyerId;
     private Long farmerId;
-    private Long cropId;
+    private Long cropId; // the first line's crop
     private BigDecimal totalAmount;
     private BigDecimal advanceAmount;
     private BigDecimal dueAmount;
@@ -26,6 +28,7 @@ public class Order {
     private String customerMobile;
     private String customerAddress;
     private Timestamp createdAt;
+    private List<OrderItem> items = new ArrayList<>();
 
     public Order() {
     }
@@ -142,4 +145,12 @@ public class Order {
     public void setCustomerAddress(String customerAddress) {
         this.customerAddress = customerAddress;
     }
+
+    public List<OrderItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OrderItem> items) {
+        this.items = items;
+    }
 }
@@ -0,0 +1,52 @@
+package com.arpon007.agro.model;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * A pending side effect from the outbox_events table
+ */
+public class OutboxEvent {
+    private final Long id;
+    private final String eventType;
+    private final Map<String, Object> payload;
+    private final int attempts;
+
+    public OutboxEvent(Long id, String eventType, Map<String, Object> payload, int attempts) {
+        this.id = id;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.attempts = attempts;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public Map<String, Object> getPayload() {
+        return payload;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getString(String key) {
+        Object value = payload.get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    public Long getLong(String key) {
+        Object value = payload.get(key);
+        return value != null ? Long.valueOf(value.toString()) : null;
+    }
+
+    public BigDecimal getDecimal(String key) {
+        Object value = payload.get(key);
+        return value != null ? new BigDecimal(value.toString()) : null;
+    }
+}
@@ -3,6 +3,8 @@ package com.arpon007.agro.repository;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +12,9 @@ import java.util.Map;
 @Repository
 public class AppConfigRepository {
 
+    private static final String UPSERT_SQL = "INSERT INTO app_configs (config_key, config_value) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE config_value = VALUES(config_value), updated_at = CURRENT_TIMESTAMP";
+
     private final JdbcTemplate jdbcTemplate;
 
     public AppConfigRepository(JdbcTemplate jdbcTemplate) {
@@ -17,28 +22,25 @@ public class AppConfigRepository {
     }
 
     public String getValue(String key, String defaultValue) {
-        try {
-            String sql = "SELECT config_value FROM app_configs WHERE config_key = ?";
-            return jdbcTemplate.queryForObject(sql, String.class, key);
-        } catch (Exception e) {
-            return defaultValue;
-        }
+        String sql = "SELECT config_value FROM app_configs WHERE config_key = ?";
+        List<String> values = jdbcTemplate.queryForList(sql, String.class, key);
+        return values.isEmpty() || values.get(0) == null ? defaultValue : values.get(0);
     }
 
     public void setValue(String key, String value) {
-        // Check if the key exists first
-        String checkSql = "SELECT COUNT(*) FROM app_configs WHERE config_key = ?";
-        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, key);
-        
-        if (count != null && count > 0) {
-            // Update existing record
-            String updateSql = "UPDATE app_configs SET config_value = ?, updated_at = CURRENT_TIMESTAMP WHERE config_key = ?";
-            jdbcTemplate.update(updateSql, value, key);
-        } else {
-            // Insert new record
-            String insertSql = "INSERT INTO app_configs (config_key, config_value) VALUES (?, ?)";
-            jdbcTemplate.update(insertSql, key, value);
+        jdbcTemplate.update(UPSERT_SQL, key, value);
+    }
+
+    /**
+     * Insert or update several keys in one batch
+     */
+    public void setValues(Map<String, String> values) {
+        if (values.isEmpty()) {
+            return;
         }
+        List<Object[]> args = new ArrayList<>(values.size());
+        values.forEach((key, value) -> args.add(new Object[] { key, value }));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
     }
 
     public Map<String, String> getAllConfigs() {
@@ -50,4 +52,16 @@ public class AppConfigRepository {
         }
         return configs;
     }
+
+    /**
+     * Cheap fingerprint of the table (row count and latest update time). It
+     * changes whenever a row is inserted, updated or deleted.
+     */
+    public String getChangeStamp() {
+        String sql = "SELECT COUNT(*), MAX(updated_at) FROM app_configs";
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
+            Timestamp latest = rs.getTimestamp(2);
+            return rs.getLong(1) + ":" + (latest != null ? latest.getTime() : 0);
+        });
+    }
 }
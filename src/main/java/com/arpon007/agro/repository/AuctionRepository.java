@@ -0,0 +1,115 @@
+package com.arpon007.agro.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.arpon007.agro.model.Auction;
+
+/**
+ * Sealed-bid auctions per crop (crop_auctions)
+ */
+@Repository
+public class AuctionRepository {
+
+    private static final RowMapper<Auction> ROW_MAPPER = (rs, rowNum) -> {
+        Auction auction = new Auction(rs.getLong("crop_id"), rs.getTimestamp("opens_at"),
+                rs.getTimestamp("closes_at"), rs.getBigDecimal("lot_size"), rs.getBigDecimal("reserve_price"),
+                Auction.Pricing.valueOf(rs.getString("pricing")), rs.getString("status"));
+        auction.setClearingPrice(rs.getBigDecimal("clearing_price"));
+        auction.setSoldQuantity(rs.getBigDecimal("sold_quantity"));
+        int winners = rs.getInt("winning_bids");
+        auction.setWinningBids(rs.wasNull() ? null : winners);
+        auction.setClearedAt(rs.getTimestamp("cleared_at"));
+        return auction;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuctionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<Auction> findByCropId(Long cropId) {
+        return jdbcTemplate.query("SELECT * FROM crop_auctions WHERE crop_id = ?", ROW_MAPPER, cropId)
+                .stream().findFirst();
+    }
+
+    /**
+     * Auctions that have not been cleared or cancelled
+     */
+    public List<Auction> findOpen() {
+        return jdbcTemplate.query("SELECT * FROM crop_auctions WHERE status = 'OPEN'", ROW_MAPPER);
+    }
+
+    /**
+     * Crops whose auction window has ended but which are not cleared yet
+     */
+    public List<Long> findDue(int limit) {
+        return jdbcTemplate.queryForList("""
+                SELECT crop_id FROM crop_auctions
+                WHERE status = 'OPEN' AND closes_at <= CURRENT_TIMESTAMP
+                ORDER BY closes_at
+                LIMIT ?
+                """, Long.class, limit);
+    }
+
+    /**
+     * Lock a due auction for clearing; empty if it is not due any more or
+     * another node holds it
+     */
+    public Optional<Auction> lockDue(Long cropId) {
+        return jdbcTemplate.query("""
+                SELECT * FROM crop_auctions
+                WHERE crop_id = ? AND status = 'OPEN' AND closes_at <= CURRENT_TIMESTAMP
+                FOR UPDATE SKIP LOCKED
+                """, ROW_MAPPER, cropId).stream().findFirst();
+    }
+
+    /**
+     * Owner, title, marketplace type and quantity of a crop, or empty if it
+     * does not exist
+     */
+    public Optional<CropLot> findCropLot(Long cropId) {
+        return jdbcTemplate.query("SELECT farmer_id, title, marketplace_type, quantity FROM crops WHERE id = ?",
+                (rs, rowNum) -> new CropLot(rs.getLong("farmer_id"), rs.getString("title"),
+                        rs.getString("marketplace_type"), rs.getBigDecimal("quantity")),
+                cropId).stream().findFirst();
+    }
+
+    public record CropLot(Long farmerId, String title, String marketplaceType, BigDecimal quantity) {
+    }
+
+    /**
+     * Start (or restart) the auction of a crop
+     */
+    public void save(Auction auction) {
+        jdbcTemplate.update("""
+                INSERT INTO crop_auctions (crop_id, opens_at, closes_at, lot_size, reserve_price, pricing, status)
+                VALUES (?, ?, ?, ?, ?, ?, 'OPEN')
+                ON DUPLICATE KEY UPDATE opens_at = VALUES(opens_at), closes_at = VALUES(closes_at),
+                                        lot_size = VALUES(lot_size), reserve_price = VALUES(reserve_price),
+                                        pricing = VALUES(pricing), status = 'OPEN', clearing_price = NULL,
+                                        sold_quantity = NULL, winning_bids = NULL, cleared_at = NULL
+                """, auction.getCropId(), auction.getOpensAt(), auction.getClosesAt(), auction.getLotSize(),
+                auction.getReservePrice(), auction.getPricing().name());
+    }
+
+    public boolean cancel(Long cropId) {
+        return jdbcTemplate.update("UPDATE crop_auctions SET status = 'CANCELLED' WHERE crop_id = ? AND status = 'OPEN'",
+                cropId) > 0;
+    }
+
+    public void markCleared(Long cropId, BigDecimal clearingPrice, BigDecimal soldQuantity, int winningBids) {
+        jdbcTemplate.update("""
+                UPDATE crop_auctions
+                SET status = 'CLOSED', clearing_price = ?, sold_quantity = ?, winning_bids = ?,
+                    cleared_at = CURRENT_TIMESTAMP
+                WHERE crop_id = ?
+                """, clearingPrice, soldQuantity, winningBids, cropId);
+    }
+}
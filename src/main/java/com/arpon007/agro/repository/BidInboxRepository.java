@@ -0,0 +1,260 @@
+package com.arpon007.agro.repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.arpon007.agro.dto.PageCursor;
+import com.arpon007.agro.event.BidChangedEvent;
+import com.arpon007.agro.event.CropChangedEvent;
+import com.arpon007.agro.event.UserRenamedEvent;
+import com.arpon007.agro.model.Bid;
+
+/**
+ * The farmer bid inbox: a denormalized copy of each live bid with the buyer
+ * name, crop title, unit and prices, keyed by farmer and status.
+ *
+ * Rows are rewritten from the source tables in the same transaction as every
+ * bid write (by primary key, so it costs two short statements). Crop edits
+ * and user renames refresh the copied columns after commit, and a startup
+ * pass fills in any rows that are missing.
+ */
+@Repository
+public class BidInboxRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(BidInboxRepository.class);
+
+    public static final Set<String> STATUSES = Set.of("PENDING", "COUNTER_OFFER", "ACCEPTED", "REJECTED",
+            "ORDERED");
+
+    private static final String COLUMNS = """
+            bid_id, farmer_id, crop_id, buyer_id, status, buyer_name, farmer_name, crop_title, unit,
+            crop_min_price, amount, quantity, farmer_counter_price, last_action_by, version, bid_time, updated_at""";
+
+    private static final String SOURCE = """
+            SELECT b.id, c.farmer_id, b.crop_id, b.buyer_id, b.status, buyer.full_name, farmer.full_name, c.title,
+                   c.unit, c.min_price, b.amount, b.quantity, b.farmer_counter_price, b.last_action_by, b.version,
+                   b.bid_time, b.updated_at
+            FROM bids b
+            JOIN users buyer ON b.buyer_id = buyer.id
+            JOIN crops c ON b.crop_id = c.id
+            JOIN users farmer ON c.farmer_id = farmer.id
+            WHERE b.status != 'DELETED'""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BidInboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * One page of a farmer's bids, latest activity first (limit + 1 rows)
+     *
+     * @param statuses only these statuses; empty means all
+     */
+    public List<Bid> findByFarmerIdPage(Long farmerId, Collection<String> statuses, PageCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM farmer_bid_inbox WHERE farmer_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(farmerId);
+        appendStatusFilter(sql, params, statuses);
+        if (after != null) {
+            sql.append(" AND (updated_at < ? OR (updated_at = ? AND bid_id < ?))");
+            params.add(after.createdAt());
+            params.add(after.createdAt());
+            params.add(after.id());
+        }
+        sql.append(" ORDER BY updated_at DESC, bid_id DESC LIMIT ?");
+        params.add(limit + 1);
+        return jdbcTemplate.query(sql.toString(), new InboxRowMapper(), params.toArray());
+    }
+
+    /**
+     * All of a farmer's bids, latest activity first
+     */
+    public List<Bid> findByFarmerId(Long farmerId, Collection<String> statuses) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM farmer_bid_inbox WHERE farmer_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(farmerId);
+        appendStatusFilter(sql, params, statuses);
+        sql.append(" ORDER BY updated_at DESC, bid_id DESC");
+        return jdbcTemplate.query(sql.toString(), new InboxRowMapper(), params.toArray());
+    }
+
+    /**
+     * Number of bids per status, for the dashboard tabs
+     */
+    public Map<String, Long> countByStatus(Long farmerId) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) AS total FROM farmer_bid_inbox WHERE farmer_id = ? GROUP BY status",
+                rs -> {
+                    counts.put(rs.getString("status"), rs.getLong("total"));
+                }, farmerId);
+        return counts;
+    }
+
+    // ==================== MAINTENANCE ====================
+
+    /**
+     * Runs synchronously inside the transaction of the bid write
+     */
+    @EventListener
+    public void onBidChanged(BidChangedEvent event) {
+        refreshBids(event.bidIds());
+    }
+
+    /**
+     * Crop title, unit and price are copied into the inbox. A full reload is
+     * only published for reference data (crop types), none of which is
+     * copied, so it is ignored.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onCropChanged(CropChangedEvent event) {
+        if (event.isFullReload()) {
+            return;
+        }
+        try {
+            refreshCrops(event.cropIds());
+        } catch (Exception e) {
+            log.error("Failed to refresh bid inbox for crops {}: {}", event.cropIds(), e.getMessage());
+        }
+    }
+
+    /**
+     * Buyer and farmer names are copied into the inbox
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onUserRenamed(UserRenamedEvent event) {
+        try {
+            refreshUserName(event.userId());
+        } catch (Exception e) {
+            log.error("Failed to refresh bid inbox names for user {}: {}", event.userId(), e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            int added = backfill();
+            if (added > 0) {
+                log.info("Bid inbox backfilled with {} bids", added);
+            }
+        } catch (Exception e) {
+            log.warn("Could not backfill bid inbox: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrite the inbox rows of the given bids from the source tables; deleted
+     * bids drop out
+     */
+    public void refreshBids(Collection<Long> bidIds) {
+        if (bidIds.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(",", Collections.nCopies(bidIds.size(), "?"));
+        Object[] ids = bidIds.toArray();
+        jdbcTemplate.update("DELETE FROM farmer_bid_inbox WHERE bid_id IN (" + placeholders + ")", ids);
+        jdbcTemplate.update("INSERT INTO farmer_bid_inbox (" + COLUMNS + ") " + SOURCE
+                + " AND b.id IN (" + placeholders + ")", ids);
+    }
+
+    /**
+     * Re-copy crop columns for bids on the given crops. The crops are read
+     * once and each one is a single update on idx_inbox_crop that only
+     * touches rows whose copy differs, so stock-only changes write nothing.
+     */
+    public int refreshCrops(Collection<Long> cropIds) {
+        if (cropIds.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(cropIds.size(), "?"));
+        List<Object[]> updates = jdbcTemplate.query(
+                "SELECT id, title, unit, min_price FROM crops WHERE id IN (" + placeholders + ")",
+                (rs, rowNum) -> {
+                    String title = rs.getString("title");
+                    String unit = rs.getString("unit");
+                    BigDecimal minPrice = rs.getBigDecimal("min_price");
+                    return new Object[] { title, unit, minPrice, rs.getLong("id"), title, unit, minPrice };
+                }, cropIds.toArray());
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        // Crop title, unit and min_price are NOT NULL, so a null copy is always stale
+        int[] counts = jdbcTemplate.batchUpdate("""
+                UPDATE farmer_bid_inbox SET crop_title = ?, unit = ?, crop_min_price = ?
+                WHERE crop_id = ? AND (crop_title IS NULL OR crop_title != ? OR unit IS NULL OR unit != ?
+                    OR crop_min_price IS NULL OR crop_min_price != ?)
+                """, updates);
+        return Arrays.stream(counts).map(count -> Math.max(count, 0)).sum();
+    }
+
+    /**
+     * Re-copy a user's name into the bids they placed and the bids on their
+     * crops
+     */
+    public int refreshUserName(Long userId) {
+        String name = jdbcTemplate.queryForObject("SELECT full_name FROM users WHERE id = ?", String.class, userId);
+        return jdbcTemplate.update("UPDATE farmer_bid_inbox SET buyer_name = ? WHERE buyer_id = ?", name, userId)
+                + jdbcTemplate.update("UPDATE farmer_bid_inbox SET farmer_name = ? WHERE farmer_id = ?", name,
+                        userId);
+    }
+
+    /**
+     * Add inbox rows for live bids that do not have one yet
+     */
+    public int backfill() {
+        return jdbcTemplate.update("INSERT INTO farmer_bid_inbox (" + COLUMNS + ") " + SOURCE
+                + " AND NOT EXISTS (SELECT 1 FROM farmer_bid_inbox i WHERE i.bid_id = b.id)");
+    }
+
+    private static void appendStatusFilter(StringBuilder sql, List<Object> params, Collection<String> statuses) {
+        if (statuses == null || statuses.isEmpty()) {
+            return;
+        }
+        sql.append(" AND status IN (").append(String.join(",", Collections.nCopies(statuses.size(), "?")))
+                .append(")");
+        params.addAll(statuses);
+    }
+
+    /**
+     * Same fields as the joined bid queries in BidRepository
+     */
+    private static class InboxRowMapper implements RowMapper<Bid> {
+        @Override
+        public Bid mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Bid bid = new Bid(rs.getLong("bid_id"), rs.getLong("crop_id"), rs.getLong("buyer_id"),
+                    rs.getBigDecimal("amount"), rs.getBigDecimal("quantity"), rs.getBigDecimal("farmer_counter_price"),
+                    rs.getString("last_action_by"), rs.getTimestamp("bid_time"), rs.getTimestamp("updated_at"),
+                    rs.getString("status"));
+            bid.setVersion(rs.getInt("version"));
+            bid.setBuyerName(rs.getString("buyer_name"));
+            bid.setCropTitle(rs.getString("crop_title"));
+            bid.setFarmerId(rs.getLong("farmer_id"));
+            bid.setCropMinPrice(rs.getBigDecimal("crop_min_price"));
+            bid.setUnit(rs.getString("unit"));
+            bid.setFarmerName(rs.getString("farmer_name"));
+            return bid;
+        }
+    }
+}
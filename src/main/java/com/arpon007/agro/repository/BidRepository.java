@@ -1,23 +1,38 @@
 package com.arpon007.agro.repository;
 
+import com.arpon007.agro.dto.PageCursor;
+import com.arpon007.agro.event.BidChangedEvent;
+import com.arpon007.agro.exception.BidConflictException;
 import com.arpon007.agro.model.Bid;
+import com.arpon007.agro.model.BidAction;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 public class BidRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public BidRepository(JdbcTemplate jdbcTemplate) {
+    public BidRepository(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
         this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -25,7 +40,19 @@ public class BidRepository {
      */
     public void placeBid(Bid bid) {
         String sql = "INSERT INTO bids (crop_id, buyer_id, amount, quantity, last_action_by, status) VALUES (?, ?, ?, ?, 'BUYER', 'PENDING')";
-        jdbcTemplate.update(sql, bid.getCropId(), bid.getBuyerId(), bid.getAmount(), bid.getQuantity());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, new String[] { "id" });
+            ps.setLong(1, bid.getCropId());
+            ps.setLong(2, bid.getBuyerId());
+            ps.setBigDecimal(3, bid.getAmount());
+            ps.setBigDecimal(4, bid.getQuantity());
+            return ps;
+        }, keyHolder);
+        if (keyHolder.getKey() != null) {
+            bid.setId(keyHolder.getKey().longValue());
+            eventPublisher.publishEvent(BidChangedEvent.of(bid.getId()));
+        }
     }
 
     /**
@@ -95,73 +122,144 @@ public class BidRepository {
     }
 
     /**
-     * Find all bids for farmer's products
+     * Farmer counter-offer
      */
-    public List<Bid> findByFarmerId(Long farmerId) {
-        String sql = """
-                SELECT b.*,
-                       buyer.full_name as buyer_name,
-                       c.title as crop_title,
-                       c.farmer_id,
-                       c.min_price as crop_min_price,
-                       c.unit,
-                       farmer.full_name as farmer_name
-                FROM bids b
-                JOIN users buyer ON b.buyer_id = buyer.id
-                JOIN crops c ON b.crop_id = c.id
-                JOIN users farmer ON c.farmer_id = farmer.id
-                WHERE c.farmer_id = ? AND b.status != 'DELETED'
-                ORDER BY b.updated_at DESC
-                """;
-        return jdbcTemplate.query(sql, new BidRowMapper(), farmerId);
+    public void farmerCounterOffer(Long bidId, Integer expectedVersion, BigDecimal counterPrice) {
+        transition(bidId, BidAction.COUNTER, expectedVersion, null,
+                "farmer_counter_price = ?, last_action_by = 'FARMER'", counterPrice);
     }
 
     /**
-     * Update bid status
+     * Buyer updates their bid amount (responding to counter)
      */
-    public void updateStatus(Long bidId, String status) {
-        String sql = "UPDATE bids SET status = ? WHERE id = ?";
-        jdbcTemplate.update(sql, status, bidId);
+    public void buyerUpdateBid(Long bidId, Integer expectedVersion, BigDecimal newAmount) {
+        transition(bidId, BidAction.BUYER_UPDATE, expectedVersion, null, "amount = ?, last_action_by = 'BUYER'",
+                newAmount);
     }
 
     /**
-     * Farmer counter-offer
+     * Accept bid (farmer accepting an offer, or the buyer taking a counter-offer)
      */
-    public void farmerCounterOffer(Long bidId, BigDecimal counterPrice) {
-        String sql = "UPDATE bids SET farmer_counter_price = ?, last_action_by = 'FARMER', status = 'COUNTER_OFFER' WHERE id = ?";
-        jdbcTemplate.update(sql, counterPrice, bidId);
+    public void acceptBid(Long bidId, BidAction action, Integer expectedVersion) {
+        transition(bidId, action, expectedVersion, null, null);
     }
 
     /**
-     * Buyer updates their bid amount (responding to counter)
+     * Reject bid
      */
-    public void buyerUpdateBid(Long bidId, BigDecimal newAmount) {
-        String sql = "UPDATE bids SET amount = ?, last_action_by = 'BUYER', status = 'PENDING' WHERE id = ?";
-        jdbcTemplate.update(sql, newAmount, bidId);
+    public void rejectBid(Long bidId, Integer expectedVersion) {
+        transition(bidId, BidAction.REJECT, expectedVersion, null, null);
     }
 
     /**
-     * Accept bid
+     * Delete (soft delete) bid
      */
-    public void acceptBid(Long bidId) {
-        String sql = "UPDATE bids SET status = 'ACCEPTED' WHERE id = ?";
-        jdbcTemplate.update(sql, bidId);
+    public void deleteBid(Long bidId, Integer expectedVersion) {
+        transition(bidId, BidAction.DELETE, expectedVersion, null, null);
     }
 
     /**
-     * Reject bid
+     * Mark the buyer's accepted bid as turned into an order
      */
-    public void rejectBid(Long bidId) {
-        String sql = "UPDATE bids SET status = 'REJECTED' WHERE id = ?";
-        jdbcTemplate.update(sql, bidId);
+    public void markOrdered(Long bidId, Long buyerId, Integer expectedVersion) {
+        transition(bidId, BidAction.ORDER, expectedVersion, buyerId, null);
     }
 
     /**
-     * Delete (soft delete) bid
+     * Accept and reject many open bids at once (auction clearing). Every row is
+     * compare-and-set on its version like {@link #transition}; if any bid has
+     * moved, a BidConflictException is thrown and the caller's transaction must
+     * roll back.
+     *
+     * @param accepted rows { quantity, agreedPrice, bidId, version }
+     * @param rejected rows { bidId, version }
+     */
+    public void settleBatch(List<Object[]> accepted, List<Object[]> rejected) {
+        checkBatch(BidAction.ACCEPT, accepted, 2, jdbcTemplate.batchUpdate(batchSql(BidAction.ACCEPT,
+                "quantity = ?, farmer_counter_price = ?, last_action_by = 'FARMER'"), accepted));
+        checkBatch(BidAction.REJECT, rejected, 0, jdbcTemplate.batchUpdate(batchSql(BidAction.REJECT,
+                "last_action_by = 'FARMER'"), rejected));
+
+        List<Long> bidIds = new ArrayList<>(accepted.size() + rejected.size());
+        accepted.forEach(row -> bidIds.add((Long) row[2]));
+        rejected.forEach(row -> bidIds.add((Long) row[0]));
+        if (!bidIds.isEmpty()) {
+            eventPublisher.publishEvent(BidChangedEvent.of(bidIds));
+        }
+    }
+
+    private static String batchSql(BidAction action, String set) {
+        return "UPDATE bids SET " + set + ", status = '" + action.getTarget()
+                + "', version = version + 1 WHERE id = ? AND version = ? AND status IN ('"
+                + String.join("', '", action.getFrom()) + "')";
+    }
+
+    /**
+     * A row with no update count (SUCCESS_NO_INFO) is checked by reading the
+     * bid back: it applied if the bid is now in the target status one version
+     * past the one expected.
      */
-    public void deleteBid(Long bidId) {
-        String sql = "UPDATE bids SET status = 'DELETED' WHERE id = ?";
-        jdbcTemplate.update(sql, bidId);
+    private void checkBatch(BidAction action, List<Object[]> rows, int idIndex, int[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0 && counts[i] != Statement.SUCCESS_NO_INFO) {
+                continue;
+            }
+            Long bidId = (Long) rows.get(i)[idIndex];
+            int expectedVersion = ((Number) rows.get(i)[idIndex + 1]).intValue();
+            List<Map<String, Object>> current = jdbcTemplate.queryForList(
+                    "SELECT status, version FROM bids WHERE id = ?", bidId);
+            String status = current.isEmpty() ? null : (String) current.get(0).get("status");
+            Integer version = current.isEmpty() ? null : ((Number) current.get(0).get("version")).intValue();
+            if (counts[i] == Statement.SUCCESS_NO_INFO && action.getTarget().equals(status)
+                    && version != null && version == expectedVersion + 1) {
+                continue;
+            }
+            throw new BidConflictException(bidId, action, status, version);
+        }
+    }
+
+    /**
+     * Apply a state machine transition with one conditional UPDATE; no row
+     * lock is held beyond that statement.
+     *
+     * @param expectedVersion version the caller read, or null to only check
+     *                        the status
+     * @param buyerId         optional owner guard
+     * @throws BidConflictException if the bid is gone, in another status or at
+     *                              another version
+     */
+    private void transition(Long bidId, BidAction action, Integer expectedVersion, Long buyerId, String set,
+            Object... setParams) {
+        StringBuilder sql = new StringBuilder("UPDATE bids SET ");
+        List<Object> params = new ArrayList<>();
+        if (set != null) {
+            sql.append(set).append(", ");
+            params.addAll(List.of(setParams));
+        }
+        sql.append("status = ?, version = version + 1 WHERE id = ? AND status IN (")
+                .append(String.join(",", Collections.nCopies(action.getFrom().size(), "?"))).append(")");
+        params.add(action.getTarget());
+        params.add(bidId);
+        params.addAll(action.getFrom());
+        if (expectedVersion != null) {
+            sql.append(" AND version = ?");
+            params.add(expectedVersion);
+        }
+        if (buyerId != null) {
+            sql.append(" AND buyer_id = ?");
+            params.add(buyerId);
+        }
+
+        if (jdbcTemplate.update(sql.toString(), params.toArray()) == 0) {
+            List<Map<String, Object>> current = jdbcTemplate.queryForList(
+                    "SELECT status, version, buyer_id FROM bids WHERE id = ?", bidId);
+            boolean visible = !current.isEmpty() && (buyerId == null
+                    || buyerId.equals(((Number) current.get(0).get("buyer_id")).longValue()));
+            throw new BidConflictException(bidId, action,
+                    visible ? (String) current.get(0).get("status") : null,
+                    visible ? ((Number) current.get(0).get("version")).intValue() : null);
+        }
+        eventPublisher.publishEvent(BidChangedEvent.of(bidId));
     }
 
     /**
@@ -186,6 +284,86 @@ public class BidRepository {
         return jdbcTemplate.query(sql, new BidRowMapper());
     }
 
+    /**
+     * One page of a buyer's bids, newest first (limit + 1 rows)
+     */
+    public List<Bid> findByBuyerIdPage(Long buyerId, PageCursor after, int limit) {
+        return findPage("b.buyer_id = ?", buyerId, after, limit);
+    }
+
+    /**
+     * One page of all bids (for admin), newest first (limit + 1 rows)
+     */
+    public List<Bid> findAllPage(PageCursor after, int limit) {
+        return findPage(null, null, after, limit);
+    }
+
+    /**
+     * Keyset query on (bid_time, id) so deep pages cost the same as the first
+     */
+    private List<Bid> findPage(String ownerFilter, Long ownerId, PageCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT b.*,
+                       buyer.full_name as buyer_name,
+                       c.title as crop_title,
+                       c.farmer_id,
+                       c.min_price as crop_min_price,
+                       c.unit,
+                       farmer.full_name as farmer_name
+                FROM bids b
+                JOIN users buyer ON b.buyer_id = buyer.id
+                JOIN crops c ON b.crop_id = c.id
+                JOIN users farmer ON c.farmer_id = farmer.id
+                WHERE b.status != 'DELETED'
+                """);
+        List<Object> params = new ArrayList<>();
+        if (ownerFilter != null) {
+            sql.append(" AND ").append(ownerFilter);
+            params.add(ownerId);
+        }
+        if (after != null) {
+            sql.append(" AND (b.bid_time < ? OR (b.bid_time = ? AND b.id < ?))");
+            params.add(after.createdAt());
+            params.add(after.createdAt());
+            params.add(after.id());
+        }
+        sql.append(" ORDER BY b.bid_time DESC, b.id DESC LIMIT ?");
+        params.add(limit + 1);
+        return jdbcTemplate.query(sql.toString(), new BidRowMapper(), params.toArray());
+    }
+
+    /**
+     * Bid rows without the display joins, including closed bids
+     */
+    public List<Bid> findBookEntries(Collection<Long> bidIds) {
+        if (bidIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String placeholders = String.join(",", Collections.nCopies(bidIds.size(), "?"));
+        return jdbcTemplate.query("SELECT * FROM bids WHERE id IN (" + placeholders + ")", new BookEntryRowMapper(),
+                bidIds.toArray());
+    }
+
+    /**
+     * Open (PENDING / COUNTER_OFFER) bids on a crop without the display joins
+     */
+    public List<Bid> findOpenByCropId(Long cropId) {
+        String sql = "SELECT * FROM bids WHERE crop_id = ? AND status IN ('PENDING', 'COUNTER_OFFER')";
+        return jdbcTemplate.query(sql, new BookEntryRowMapper(), cropId);
+    }
+
+    private static class BookEntryRowMapper implements RowMapper<Bid> {
+        @Override
+        public Bid mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Bid bid = new Bid(rs.getLong("id"), rs.getLong("crop_id"), rs.getLong("buyer_id"),
+                    rs.getBigDecimal("amount"), rs.getBigDecimal("quantity"), rs.getBigDecimal("farmer_counter_price"),
+                    rs.getString("last_action_by"), rs.getTimestamp("bid_time"), rs.getTimestamp("updated_at"),
+                    rs.getString("status"));
+            bid.setVersion(rs.getInt("version"));
+            return bid;
+        }
+    }
+
     private static class BidRowMapper implements RowMapper<Bid> {
         @Override
         public Bid mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -200,6 +378,7 @@ public class BidRepository {
             bid.setBidTime(rs.getTimestamp("bid_time"));
             bid.setUpdatedAt(rs.getTimestamp("updated_at"));
             bid.setStatus(rs.getString("status"));
+            bid.setVersion(rs.getInt("version"));
             bid.setBuyerName(rs.getString("buyer_name"));
             bid.setCropTitle(rs.getString("crop_title"));
             bid.setFarmerId(rs.getLong("farmer_id"));
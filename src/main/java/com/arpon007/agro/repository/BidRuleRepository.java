@@ -0,0 +1,66 @@
+package com.arpon007.agro.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.arpon007.agro.model.BidRule;
+
+/**
+ * Farmer reserve rules per crop (crop_bid_rules)
+ */
+@Repository
+public class BidRuleRepository {
+
+    private static final RowMapper<BidRule> ROW_MAPPER = (rs, rowNum) -> new BidRule(rs.getLong("crop_id"),
+            rs.getBigDecimal("auto_accept_price"), rs.getBigDecimal("auto_accept_min_quantity"),
+            rs.getBigDecimal("auto_counter_price"), rs.getBigDecimal("auto_reject_below"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BidRuleRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<BidRule> findAll() {
+        return jdbcTemplate.query("SELECT * FROM crop_bid_rules", ROW_MAPPER);
+    }
+
+    public List<BidRule> findByCropIds(Collection<Long> cropIds) {
+        if (cropIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(cropIds.size(), "?"));
+        return jdbcTemplate.query("SELECT * FROM crop_bid_rules WHERE crop_id IN (" + placeholders + ")", ROW_MAPPER,
+                cropIds.toArray());
+    }
+
+    /**
+     * Owner of a crop, or null if the crop does not exist
+     */
+    public Long findCropOwner(Long cropId) {
+        List<Long> owners = jdbcTemplate.queryForList("SELECT farmer_id FROM crops WHERE id = ?", Long.class, cropId);
+        return owners.isEmpty() ? null : owners.get(0);
+    }
+
+    public void save(BidRule rule) {
+        jdbcTemplate.update("""
+                INSERT INTO crop_bid_rules (crop_id, auto_accept_price, auto_accept_min_quantity, auto_counter_price,
+                                            auto_reject_below)
+                VALUES (?, ?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE auto_accept_price = VALUES(auto_accept_price),
+                                        auto_accept_min_quantity = VALUES(auto_accept_min_quantity),
+                                        auto_counter_price = VALUES(auto_counter_price),
+                                        auto_reject_below = VALUES(auto_reject_below)
+                """, rule.getCropId(), rule.getAutoAcceptPrice(), rule.getAutoAcceptMinQuantity(),
+                rule.getAutoCounterPrice(), rule.getAutoRejectBelow());
+    }
+
+    public boolean delete(Long cropId) {
+        return jdbcTemplate.update("DELETE FROM crop_bid_rules WHERE crop_id = ?", cropId) > 0;
+    }
+}
@@ -101,6 +101,13 @@ public class CartRepository {
         }
     }
 
+    // Quantity of a crop already in the cart (zero if none)
+    public BigDecimal getItemQuantity(Long cartId, Long cropId) {
+        String sql = "SELECT quantity FROM cart_items WHERE cart_id = ? AND crop_id = ?";
+        List<BigDecimal> quantities = jdbcTemplate.queryForList(sql, BigDecimal.class, cartId, cropId);
+        return quantities.isEmpty() ? BigDecimal.ZERO : quantities.get(0);
+    }
+
     // Get cart item by ID
     public CartItem getCartItemById(Long itemId) {
         String sql = "SELECT ci.*, c.title as crop_title, c.min_price as current_price, " +
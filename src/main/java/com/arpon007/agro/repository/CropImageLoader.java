@@ -0,0 +1,79 @@
+package com.arpon007.agro.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.arpon007.agro.model.Crop;
+
+/**
+ * Loads crop images for a whole page of crops at once.
+ * Images are fetched with bounded IN (...) queries and attached in memory,
+ * so a listing costs one extra query per chunk instead of one per crop.
+ */
+@Component
+public class CropImageLoader {
+
+    /**
+     * Maximum number of crop ids bound into a single IN (...) clause
+     */
+    static final int CHUNK_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CropImageLoader(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Populate the images of every crop in the list (crops without images get an
+     * empty list)
+     */
+    public void attachImages(List<Crop> crops) {
+        if (crops == null || crops.isEmpty()) {
+            return;
+        }
+
+        List<Long> cropIds = new ArrayList<>(crops.size());
+        for (Crop crop : crops) {
+            cropIds.add(crop.getId());
+        }
+
+        Map<Long, List<String>> imagesByCrop = findImagesByCropIds(cropIds);
+        for (Crop crop : crops) {
+            crop.setImages(imagesByCrop.getOrDefault(crop.getId(), new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Get image urls grouped by crop id, in upload order
+     */
+    public Map<Long, List<String>> findImagesByCropIds(Collection<Long> cropIds) {
+        if (cropIds == null || cropIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(cropIds));
+        Map<Long, List<String>> imagesByCrop = new HashMap<>();
+
+        for (int from = 0; from < distinctIds.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + CHUNK_SIZE, distinctIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT crop_id, image_url FROM crop_images WHERE crop_id IN (" + placeholders + ") " +
+                    "ORDER BY crop_id, id";
+
+            jdbcTemplate.query(sql, rs -> {
+                imagesByCrop.computeIfAbsent(rs.getLong("crop_id"), id -> new ArrayList<>())
+                        .add(rs.getString("image_url"));
+            }, chunk.toArray());
+        }
+        return imagesByCrop;
+    }
+}
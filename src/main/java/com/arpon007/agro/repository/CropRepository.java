@@ -5,28 +5,44 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import com.arpon007.agro.dto.CropFilter;
+import com.arpon007.agro.dto.PageCursor;
+import com.arpon007.agro.event.CropChangedEvent;
 import com.arpon007.agro.model.Crop;
 
 @Repository
 public class CropRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final CropImageLoader cropImageLoader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenceDataCache referenceData;
 
-    public CropRepository(JdbcTemplate jdbcTemplate) {
+    public CropRepository(JdbcTemplate jdbcTemplate, CropImageLoader cropImageLoader,
+            ApplicationEventPublisher eventPublisher, ReferenceDataCache referenceData) {
         this.jdbcTemplate = jdbcTemplate;
+        this.cropImageLoader = cropImageLoader;
+        this.eventPublisher = eventPublisher;
+        this.referenceData = referenceData;
     }
 
     public Crop save(Crop crop) {
-        String sql = "INSERT INTO crops (farmer_id, title, description, crop_type_id, quantity, unit, min_price, wholesale_price, min_wholesale_qty, retail_price, min_retail_qty, max_retail_qty, profit_margin_percent, fixed_cost_per_unit, location, marketplace_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO crops (farmer_id, title, description, crop_type_id, quantity, unit, min_price, wholesale_price, min_wholesale_qty, retail_price, min_retail_qty, max_retail_qty, profit_margin_percent, fixed_cost_per_unit, location, marketplace_type, division_id, district_id, upazila_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        applyPlacement(crop);
 
         KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(connection -> {
@@ -55,6 +71,9 @@ public class CropRepository {
                     crop.getFixedCostPerUnit() != null ? crop.getFixedCostPerUnit() : new java.math.BigDecimal("5"));
             ps.setString(15, crop.getLocation());
             ps.setString(16, crop.getMarketplaceType() != null ? crop.getMarketplaceType().name() : "BOTH");
+            ps.setObject(17, crop.getDivisionId(), java.sql.Types.INTEGER);
+            ps.setObject(18, crop.getDistrictId(), java.sql.Types.INTEGER);
+            ps.setObject(19, crop.getUpazilaId(), java.sql.Types.INTEGER);
             return ps;
         }, keyHolder);
 
@@ -62,13 +81,14 @@ public class CropRepository {
         crop.setId(newId);
 
         // Save images
-        if (crop.getImages() != null) {
+        if (crop.getImages() != null && !crop.getImages().isEmpty()) {
             String imgSql = "INSERT INTO crop_images (crop_id, image_url) VALUES (?, ?)";
-            for (String url : crop.getImages()) {
-                jdbcTemplate.update(imgSql, newId, url);
-            }
+            jdbcTemplate.batchUpdate(imgSql, crop.getImages().stream()
+                    .map(url -> new Object[] { newId, url })
+                    .toList());
         }
 
+        eventPublisher.publishEvent(CropChangedEvent.of(newId));
         return crop;
     }
 
@@ -79,7 +99,14 @@ public class CropRepository {
         String sql = "UPDATE crops SET farmer_id = ?, title = ?, description = ?, crop_type_id = ?, " +
                 "quantity = ?, unit = ?, min_price = ?, wholesale_price = ?, min_wholesale_qty = ?, " +
                 "retail_price = ?, min_retail_qty = ?, max_retail_qty = ?, profit_margin_percent = ?, " +
-                "fixed_cost_per_unit = ?, location = ?, marketplace_type = ? WHERE id = ?";
+                "fixed_cost_per_unit = ?, location = ?, marketplace_type = ?, " +
+                "division_id = ?, district_id = ?, upazila_id = ? WHERE id = ?";
+
+        // The location text may have changed, so resolve it again
+        crop.setDivisionId(null);
+        crop.setDistrictId(null);
+        crop.setUpazilaId(null);
+        applyPlacement(crop);
 
         jdbcTemplate.update(sql,
                 crop.getFarmerId(),
@@ -98,6 +125,9 @@ public class CropRepository {
                 crop.getFixedCostPerUnit(),
                 crop.getLocation(),
                 crop.getMarketplaceType() != null ? crop.getMarketplaceType().name() : "BOTH",
+                crop.getDivisionId(),
+                crop.getDistrictId(),
+                crop.getUpazilaId(),
                 crop.getId());
 
         // Update images if provided
@@ -107,45 +137,90 @@ public class CropRepository {
 
             // Insert new images
             String imgSql = "INSERT INTO crop_images (crop_id, image_url) VALUES (?, ?)";
-            for (String url : crop.getImages()) {
-                jdbcTemplate.update(imgSql, crop.getId(), url);
-            }
+            jdbcTemplate.batchUpdate(imgSql, crop.getImages().stream()
+                    .map(url -> new Object[] { crop.getId(), url })
+                    .toList());
         }
 
+        eventPublisher.publishEvent(CropChangedEvent.of(crop.getId()));
+
         return crop;
     }
 
+    /**
+     * Fill in the crop's division/district/upazila ids from its location text,
+     * falling back to the farmer's profile address
+     */
+    private void applyPlacement(Crop crop) {
+        if (crop.getDivisionId() != null) {
+            return;
+        }
+        LocationHierarchy locations = referenceData.getLocations();
+        LocationHierarchy.Placement placement = locations.resolve(crop.getLocation());
+        if (placement.isEmpty() && crop.getFarmerId() != null) {
+            List<LocationHierarchy.Placement> profile = jdbcTemplate.query(
+                    "SELECT division, district, upazila FROM users WHERE id = ?",
+                    (rs, rowNum) -> locations.resolve(rs.getString("division"), rs.getString("district"),
+                            rs.getString("upazila")),
+                    crop.getFarmerId());
+            if (!profile.isEmpty()) {
+                placement = profile.get(0);
+            }
+        }
+        crop.setDivisionId(placement.divisionId());
+        crop.setDistrictId(placement.districtId());
+        crop.setUpazilaId(placement.upazilaId());
+    }
+
     public List<Crop> findAll(boolean isBangla) {
-        // Fetch crop type name based on language
-        String typeCol = isBangla ? "ct.name_bn" : "ct.name_en";
-        String sql = "SELECT c.*, u.full_name as farmer_name, " + typeCol + " as type_name " +
+        String sql = "SELECT c.*, u.full_name as farmer_name " +
                 "FROM crops c " +
                 "JOIN users u ON c.farmer_id = u.id " +
-                "JOIN crop_type ct ON c.crop_type_id = ct.id " +
                 "WHERE c.is_sold = FALSE " +
                 "ORDER BY c.created_at DESC";
 
-        List<Crop> crops = jdbcTemplate.query(sql, new CropRowMapper());
+        List<Crop> crops = jdbcTemplate.query(sql, new CropRowMapper(isBangla));
 
-        // Populate images for each crop to support UI previews
-        String imgSql = "SELECT image_url FROM crop_images WHERE crop_id = ?";
-        for (Crop crop : crops) {
-            List<String> images = jdbcTemplate.queryForList(imgSql, String.class, crop.getId());
-            crop.setImages(images);
+        // Populate images for the whole list in one batch to support UI previews
+        cropImageLoader.attachImages(crops);
+        return crops;
+    }
+
+    /**
+     * Get the unsold crops among the given ids (with images), in catalog order.
+     * Ids that are sold or deleted are simply absent from the result.
+     */
+    public List<Crop> findActiveByIds(Collection<Long> ids, boolean isBangla) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Crop> crops = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += CropImageLoader.CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from,
+                    Math.min(from + CropImageLoader.CHUNK_SIZE, distinctIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT c.*, u.full_name as farmer_name " +
+                    "FROM crops c " +
+                    "JOIN users u ON c.farmer_id = u.id " +
+                    "WHERE c.is_sold = FALSE AND c.id IN (" + placeholders + ") " +
+                    "ORDER BY c.created_at DESC";
+            crops.addAll(jdbcTemplate.query(sql, new CropRowMapper(isBangla), chunk.toArray()));
         }
+
+        cropImageLoader.attachImages(crops);
         return crops;
     }
 
     public Optional<Crop> findById(Long id, boolean isBangla) {
-        String typeCol = isBangla ? "ct.name_bn" : "ct.name_en";
-        String sql = "SELECT c.*, u.full_name as farmer_name, " + typeCol + " as type_name " +
+        String sql = "SELECT c.*, u.full_name as farmer_name " +
                 "FROM crops c " +
                 "JOIN users u ON c.farmer_id = u.id " +
-                "JOIN crop_type ct ON c.crop_type_id = ct.id " +
                 "WHERE c.id = ?";
 
         try {
-            Crop crop = jdbcTemplate.queryForObject(sql, new CropRowMapper(), id);
+            Crop crop = jdbcTemplate.queryForObject(sql, new CropRowMapper(isBangla), id);
             // Fetch images
             String imgSql = "SELECT image_url FROM crop_images WHERE crop_id = ?";
             List<String> images = jdbcTemplate.queryForList(imgSql, String.class, id);
@@ -156,7 +231,17 @@ public class CropRepository {
         }
     }
 
-    private static class CropRowMapper implements RowMapper<Crop> {
+    /**
+     * Maps crop rows; the crop type name is resolved from the in-memory
+     * reference data instead of a crop_type join
+     */
+    private class CropRowMapper implements RowMapper<Crop> {
+        private final boolean isBangla;
+
+        CropRowMapper(boolean isBangla) {
+            this.isBangla = isBangla;
+        }
+
         @Override
         public Crop mapRow(ResultSet rs, int rowNum) throws SQLException {
             Crop crop = new Crop();
@@ -176,10 +261,13 @@ public class CropRepository {
             crop.setProfitMarginPercent(rs.getBigDecimal("profit_margin_percent"));
             crop.setFixedCostPerUnit(rs.getBigDecimal("fixed_cost_per_unit"));
             crop.setLocation(rs.getString("location"));
+            crop.setDivisionId(nullableInt(rs, "division_id"));
+            crop.setDistrictId(nullableInt(rs, "district_id"));
+            crop.setUpazilaId(nullableInt(rs, "upazila_id"));
             crop.setIsSold(rs.getBoolean("is_sold"));
             crop.setCreatedAt(rs.getTimestamp("created_at"));
             crop.setFarmerName(rs.getString("farmer_name"));
-            crop.setCropTypeName(rs.getString("type_name"));
+            crop.setCropTypeName(referenceData.cropTypeName(crop.getCropTypeId(), isBangla));
 
             // Parse marketplace type
             try {
@@ -195,6 +283,11 @@ public class CropRepository {
         }
     }
 
+    private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
     /**
      * Update quantity settings for a crop (Admin only)
      */
@@ -202,6 +295,7 @@ public class CropRepository {
             java.math.BigDecimal minRetailQty, java.math.BigDecimal maxRetailQty) {
         String sql = "UPDATE crops SET min_wholesale_qty = ?, min_retail_qty = ?, max_retail_qty = ? WHERE id = ?";
         jdbcTemplate.update(sql, minWholesaleQty, minRetailQty, maxRetailQty, cropId);
+        eventPublisher.publishEvent(CropChangedEvent.of(cropId));
     }
 
     /**
@@ -212,28 +306,24 @@ public class CropRepository {
             java.math.BigDecimal fixedCostPerUnit) {
         String sql = "UPDATE crops SET wholesale_price = ?, retail_price = ?, profit_margin_percent = ?, fixed_cost_per_unit = ? WHERE id = ?";
         jdbcTemplate.update(sql, wholesalePrice, retailPrice, profitMarginPercent, fixedCostPerUnit, cropId);
+        eventPublisher.publishEvent(CropChangedEvent.of(cropId));
     }
 
     /**
      * Get all retail crops (with images)
      */
     public List<Crop> findAllRetail() {
-        String sql = "SELECT c.*, u.full_name as farmer_name, ct.name_en as type_name " +
+        String sql = "SELECT c.*, u.full_name as farmer_name " +
                 "FROM crops c " +
                 "JOIN users u ON c.farmer_id = u.id " +
-                "JOIN crop_type ct ON c.crop_type_id = ct.id " +
                 "WHERE c.is_sold = FALSE " +
                 "AND c.marketplace_type = 'RETAIL' " +
                 "ORDER BY c.created_at DESC";
 
-        List<Crop> crops = jdbcTemplate.query(sql, new CropRowMapper());
+        List<Crop> crops = jdbcTemplate.query(sql, new CropRowMapper(false));
 
-        // Populate images for each crop
-        String imgSql = "SELECT image_url FROM crop_images WHERE crop_id = ?";
-        for (Crop crop : crops) {
-            List<String> images = jdbcTemplate.queryForList(imgSql, String.class, crop.getId());
-            crop.setImages(images);
-        }
+        // Populate images for the whole list in one batch
+        cropImageLoader.attachImages(crops);
         return crops;
     }
 
@@ -245,50 +335,117 @@ public class CropRepository {
      * Get all crops for admin (includes all fields, no language filter)
      */
     public List<Crop> findAllForAdmin() {
-        String sql = "SELECT c.*, u.full_name as farmer_name, ct.name_en as type_name " +
+        String sql = "SELECT c.*, u.full_name as farmer_name " +
                 "FROM crops c " +
                 "JOIN users u ON c.farmer_id = u.id " +
-                "JOIN crop_type ct ON c.crop_type_id = ct.id " +
                 "ORDER BY c.created_at DESC";
-        List<Crop> crops = jdbcTemplate.query(sql, new CropRowMapper());
+        List<Crop> crops = jdbcTemplate.query(sql, new CropRowMapper(false));
 
-        // Populate images for each crop
-        String imgSql = "SELECT image_url FROM crop_images WHERE crop_id = ?";
-        for (Crop crop : crops) {
-            List<String> images = jdbcTemplate.queryForList(imgSql, String.class, crop.getId());
-            crop.setImages(images);
-        }
+        // Populate images for the whole list in one batch
+        cropImageLoader.attachImages(crops);
         return crops;
     }
 
     public void updateStock(Long id, java.math.BigDecimal newQuantity) {
         String sql = "UPDATE crops SET quantity = ? WHERE id = ?";
         jdbcTemplate.update(sql, newQuantity, id);
+        eventPublisher.publishEvent(CropChangedEvent.of(id));
+    }
+
+    /**
+     * Reduce stock only if enough quantity is left
+     *
+     * @return true if the stock was reduced
+     */
+    public boolean reduceStock(Long id, java.math.BigDecimal quantity) {
+        String sql = "UPDATE crops SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+        int rows = jdbcTemplate.update(sql, quantity, id, quantity);
+        if (rows > 0) {
+            eventPublisher.publishEvent(CropChangedEvent.of(id));
+        }
+        return rows > 0;
+    }
+
+    /**
+     * Owner, title, price, stock and sold flag of the given crops in one
+     * query (no images or joins), keyed by id. Missing ids are absent.
+     */
+    public java.util.Map<Long, Crop> findStockByIds(Collection<Long> ids) {
+        java.util.Map<Long, Crop> crops = new java.util.HashMap<>();
+        if (ids.isEmpty()) {
+            return crops;
+        }
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        String placeholders = String.join(", ", Collections.nCopies(distinctIds.size(), "?"));
+        jdbcTemplate.query("SELECT id, farmer_id, title, min_price, quantity, is_sold FROM crops WHERE id IN ("
+                + placeholders + ")", rs -> {
+                    Crop crop = new Crop();
+                    crop.setId(rs.getLong("id"));
+                    crop.setFarmerId(rs.getLong("farmer_id"));
+                    crop.setTitle(rs.getString("title"));
+                    crop.setMinPrice(rs.getBigDecimal("min_price"));
+                    crop.setQuantity(rs.getBigDecimal("quantity"));
+                    crop.setIsSold(rs.getBoolean("is_sold"));
+                    crops.put(crop.getId(), crop);
+                }, distinctIds.toArray());
+        return crops;
+    }
+
+    /**
+     * {@link #reduceStock} for many crops in one JDBC batch. Each row only
+     * applies if enough quantity is left; the caller must roll back when
+     * any crop is returned.
+     *
+     * @param quantities quantity to take per crop id
+     * @return the crop ids that did not have enough stock
+     */
+    public List<Long> reduceStockBatch(java.util.Map<Long, BigDecimal> quantities) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            rows.add(new Object[] { quantities.get(id), id, quantities.get(id) });
+        }
+        int[] counts = jdbcTemplate.batchUpdate(
+                "UPDATE crops SET quantity = quantity - ? WHERE id = ? AND quantity >= ?", rows);
+
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                // The guard leaves no trace on a short crop, so there is nothing to verify against
+                throw new IllegalStateException("Stock batch returned no update counts; "
+                        + "rewriteBatchedStatements must stay off on the datasource");
+            }
+            if (counts[i] == 0) {
+                failed.add(ids.get(i));
+            }
+        }
+        if (failed.isEmpty()) {
+            eventPublisher.publishEvent(CropChangedEvent.of(ids));
+        }
+        return failed;
     }
 
     public List<java.util.Map<String, Object>> getAllCropTypes() {
-        return jdbcTemplate.queryForList("SELECT * FROM crop_type");
+        return referenceData.getCropTypes();
     }
 
     /**
      * Get crops by marketplace type (B2B or RETAIL only - no BOTH)
      */
     public List<Crop> findByMarketplaceType(String marketplaceType) {
-        String sql = "SELECT c.*, u.full_name as farmer_name, ct.name_en as type_name " +
+        String sql = "SELECT c.*, u.full_name as farmer_name " +
                 "FROM crops c " +
                 "JOIN users u ON c.farmer_id = u.id " +
-                "JOIN crop_type ct ON c.crop_type_id = ct.id " +
                 "WHERE c.is_sold = FALSE AND c.marketplace_type = ? " +
                 "ORDER BY c.created_at DESC";
 
-        List<Crop> crops = jdbcTemplate.query(sql, new CropRowMapper(), marketplaceType);
+        List<Crop> crops = jdbcTemplate.query(sql, new CropRowMapper(false), marketplaceType);
 
-        // Populate images for each crop
-        String imgSql = "SELECT image_url FROM crop_images WHERE crop_id = ?";
-        for (Crop crop : crops) {
-            List<String> images = jdbcTemplate.queryForList(imgSql, String.class, crop.getId());
-            crop.setImages(images);
-        }
+        // Populate images for the whole list in one batch
+        cropImageLoader.attachImages(crops);
         return crops;
     }
 
@@ -298,6 +455,7 @@ public class CropRepository {
     public void updateMarketplaceType(Long cropId, String marketplaceType) {
         String sql = "UPDATE crops SET marketplace_type = ? WHERE id = ?";
         jdbcTemplate.update(sql, marketplaceType, cropId);
+        eventPublisher.publishEvent(CropChangedEvent.of(cropId));
     }
 
     /**
@@ -306,6 +464,7 @@ public class CropRepository {
     public void markAsSoldOut(Long cropId) {
         String sql = "UPDATE crops SET is_sold = TRUE WHERE id = ?";
         jdbcTemplate.update(sql, cropId);
+        eventPublisher.publishEvent(CropChangedEvent.of(cropId));
     }
 
     /**
@@ -314,30 +473,217 @@ public class CropRepository {
     public void markAsAvailable(Long cropId) {
         String sql = "UPDATE crops SET is_sold = FALSE WHERE id = ?";
         jdbcTemplate.update(sql, cropId);
+        eventPublisher.publishEvent(CropChangedEvent.of(cropId));
     }
 
     /**
      * Get crops by farmer ID
      */
     public List<Crop> findByFarmerId(Long farmerId) {
-        String sql = "SELECT c.*, u.full_name as farmer_name, ct.name_en as type_name " +
+        String sql = "SELECT c.*, u.full_name as farmer_name " +
                 "FROM crops c " +
                 "JOIN users u ON c.farmer_id = u.id " +
-                "JOIN crop_type ct ON c.crop_type_id = ct.id " +
                 "WHERE c.farmer_id = ? " +
                 "ORDER BY c.created_at DESC";
 
-        List<Crop> crops = jdbcTemplate.query(sql, new CropRowMapper(), farmerId);
+        List<Crop> crops = jdbcTemplate.query(sql, new CropRowMapper(false), farmerId);
 
-        // Populate images for each crop
-        String imgSql = "SELECT image_url FROM crop_images WHERE crop_id = ?";
-        for (Crop crop : crops) {
-            List<String> images = jdbcTemplate.queryForList(imgSql, String.class, crop.getId());
-            crop.setImages(images);
+        // Populate images for the whole list in one batch
+        cropImageLoader.attachImages(crops);
+        return crops;
+    }
+
+    /**
+     * Get one page of a farmer's crops, newest first, starting after the cursor
+     * (fetches limit + 1 rows so the caller can tell whether more exist)
+     */
+    public List<Crop> findByFarmerIdPage(Long farmerId, PageCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT c.*, u.full_name as farmer_name " +
+                "FROM crops c " +
+                "JOIN users u ON c.farmer_id = u.id " +
+                "WHERE c.farmer_id = ? ");
+        List<Object> params = new ArrayList<>();
+        params.add(farmerId);
+        if (after != null) {
+            sql.append("AND (c.created_at < ? OR (c.created_at = ? AND c.id < ?)) ");
+            params.add(after.createdAt());
+            params.add(after.createdAt());
+            params.add(after.id());
         }
+        sql.append("ORDER BY c.created_at DESC, c.id DESC LIMIT ?");
+        params.add(limit + 1);
+
+        List<Crop> crops = jdbcTemplate.query(sql.toString(), new CropRowMapper(false), params.toArray());
+        cropImageLoader.attachImages(crops);
         return crops;
     }
 
+    /**
+     * Get the searchable text of unsold crops (title, description, crop type names
+     * and farmer district). Pass null to load every unsold crop.
+     */
+    public List<java.util.Map<String, Object>> findSearchDocuments(Collection<Long> ids) {
+        String sql = "SELECT c.id, c.title, c.description, c.quantity, c.created_at, c.crop_type_id, u.district " +
+                "FROM crops c " +
+                "JOIN users u ON c.farmer_id = u.id " +
+                "WHERE c.is_sold = FALSE";
+        if (ids == null) {
+            return withCropTypeNames(jdbcTemplate.queryForList(sql));
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<java.util.Map<String, Object>> rows = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += CropImageLoader.CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from,
+                    Math.min(from + CropImageLoader.CHUNK_SIZE, distinctIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            rows.addAll(jdbcTemplate.queryForList(sql + " AND c.id IN (" + placeholders + ")", chunk.toArray()));
+        }
+        return withCropTypeNames(rows);
+    }
+
+    private List<java.util.Map<String, Object>> withCropTypeNames(List<java.util.Map<String, Object>> rows) {
+        for (java.util.Map<String, Object> row : rows) {
+            Object typeId = row.get("crop_type_id");
+            ReferenceDataCache.CropType type = typeId != null
+                    ? referenceData.getCropType(((Number) typeId).intValue())
+                    : null;
+            row.put("type_en", type != null ? type.nameEn() : null);
+            row.put("type_bn", type != null ? type.nameBn() : null);
+        }
+        return rows;
+    }
+
+    /**
+     * Get the location fields of unsold crops (stored ids, free text and the
+     * farmer's profile address). Pass null to load every unsold crop.
+     */
+    public List<java.util.Map<String, Object>> findLocationRows(Collection<Long> ids) {
+        String sql = "SELECT c.id, c.location, c.division_id, c.district_id, c.upazila_id, " +
+                "u.division as farmer_division, u.district as farmer_district, u.upazila as farmer_upazila " +
+                "FROM crops c " +
+                "JOIN users u ON c.farmer_id = u.id " +
+                "WHERE c.is_sold = FALSE";
+        if (ids == null) {
+            return jdbcTemplate.queryForList(sql);
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<java.util.Map<String, Object>> rows = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += CropImageLoader.CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from,
+                    Math.min(from + CropImageLoader.CHUNK_SIZE, distinctIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            rows.addAll(jdbcTemplate.queryForList(sql + " AND c.id IN (" + placeholders + ")", chunk.toArray()));
+        }
+        return rows;
+    }
+
+    /**
+     * Store resolved location ids for existing crops in one batch. Each row is
+     * { divisionId, districtId, upazilaId, cropId }. No change event is
+     * published: the ids are derived from data the caches already have.
+     */
+    public void updateLocationIds(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("UPDATE crops SET division_id = ?, district_id = ?, upazila_id = ? WHERE id = ?",
+                rows);
+    }
+
+    // ==================== BULK (ADMIN) ====================
+
+    /**
+     * Get the ids of all crops matching the filter, in id order
+     */
+    public List<Long> findIdsByFilter(CropFilter filter) {
+        StringBuilder sql = new StringBuilder("SELECT c.id FROM crops c ");
+        List<Object> params = new ArrayList<>();
+        if (filter.district() != null) {
+            sql.append("JOIN users u ON c.farmer_id = u.id ");
+        }
+        sql.append("WHERE 1 = 1");
+        if (filter.cropTypeId() != null) {
+            sql.append(" AND c.crop_type_id = ?");
+            params.add(filter.cropTypeId());
+        }
+        if (filter.farmerId() != null) {
+            sql.append(" AND c.farmer_id = ?");
+            params.add(filter.farmerId());
+        }
+        if (filter.marketplaceType() != null) {
+            sql.append(" AND c.marketplace_type = ?");
+            params.add(filter.marketplaceType());
+        }
+        if (filter.district() != null) {
+            sql.append(" AND u.district = ?");
+            params.add(filter.district());
+        }
+        sql.append(" ORDER BY c.id");
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, params.toArray());
+    }
+
+    /**
+     * Set quantity settings on a chunk of crops in one statement (null keeps the
+     * current value)
+     */
+    public int updateQuantitySettingsForIds(List<Long> ids, java.math.BigDecimal minWholesaleQty,
+            java.math.BigDecimal minRetailQty, java.math.BigDecimal maxRetailQty) {
+        return updateForIds("min_wholesale_qty = COALESCE(?, min_wholesale_qty), " +
+                "min_retail_qty = COALESCE(?, min_retail_qty), max_retail_qty = COALESCE(?, max_retail_qty)",
+                ids, minWholesaleQty, minRetailQty, maxRetailQty);
+    }
+
+    /**
+     * Set pricing settings on a chunk of crops in one statement (null keeps the
+     * current value)
+     */
+    public int updatePricingSettingsForIds(List<Long> ids, java.math.BigDecimal wholesalePrice,
+            java.math.BigDecimal retailPrice, java.math.BigDecimal profitMarginPercent,
+            java.math.BigDecimal fixedCostPerUnit) {
+        return updateForIds("wholesale_price = COALESCE(?, wholesale_price), " +
+                "retail_price = COALESCE(?, retail_price), " +
+                "profit_margin_percent = COALESCE(?, profit_margin_percent), " +
+                "fixed_cost_per_unit = COALESCE(?, fixed_cost_per_unit)",
+                ids, wholesalePrice, retailPrice, profitMarginPercent, fixedCostPerUnit);
+    }
+
+    /**
+     * Move a chunk of crops to another marketplace
+     */
+    public int updateMarketplaceTypeForIds(List<Long> ids, String marketplaceType) {
+        return updateForIds("marketplace_type = ?", ids, marketplaceType);
+    }
+
+    /**
+     * Mark a chunk of crops as sold out (true) or back in stock (false)
+     */
+    public int updateSoldForIds(List<Long> ids, boolean sold) {
+        return updateForIds("is_sold = ?", ids, sold);
+    }
+
+    private int updateForIds(String setClause, List<Long> ids, Object... setParams) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = "UPDATE crops SET " + setClause + " WHERE id IN (" + placeholders + ")";
+
+        List<Object> params = new ArrayList<>(setParams.length + ids.size());
+        params.addAll(java.util.Arrays.asList(setParams));
+        params.addAll(ids);
+        int updated = jdbcTemplate.update(sql, params.toArray());
+        eventPublisher.publishEvent(CropChangedEvent.of(ids));
+        return updated;
+    }
+
     /**
      * Delete a crop by ID
      * Deletes all related records first to prevent foreign key constraint errors
@@ -369,5 +715,6 @@ public class CropRepository {
 
         // Finally delete the crop
         jdbcTemplate.update("DELETE FROM crops WHERE id = ?", cropId);
+        eventPublisher.publishEvent(CropChangedEvent.of(cropId));
     }
 }
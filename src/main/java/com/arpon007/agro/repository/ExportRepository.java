@@ -0,0 +1,87 @@
+package com.arpon007.agro.repository;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Full-table reads for the admin exports. Rows are handed to the caller as
+ * they arrive from a forward-only, read-only result set (streamed row by row
+ * on MySQL, see app.export.fetch-size), so memory stays flat however large
+ * the table is. Exports are in
+ * primary key order, which the database reads straight off the index
+ * instead of sorting the whole table first.
+ */
+@Repository
+public class ExportRepository {
+
+    public enum Dataset {
+        ORDERS("""
+                SELECT o.id, o.buyer_id, buyer.full_name AS buyer_name, o.farmer_id, farmer.full_name AS farmer_name,
+                       o.crop_id, c.title AS crop_title,
+                       (SELECT COUNT(*) FROM order_items oi WHERE oi.order_id = o.id) AS item_count,
+                       o.total_amount, o.advance_amount, o.due_amount, o.status, o.delivery_status,
+                       o.customer_mobile, o.customer_address, o.created_at
+                FROM orders o
+                LEFT JOIN users buyer ON buyer.id = o.buyer_id
+                LEFT JOIN users farmer ON farmer.id = o.farmer_id
+                LEFT JOIN crops c ON c.id = o.crop_id
+                ORDER BY o.id
+                """),
+        BIDS("""
+                SELECT b.id, b.crop_id, c.title AS crop_title, c.farmer_id, farmer.full_name AS farmer_name,
+                       b.buyer_id, buyer.full_name AS buyer_name, b.amount, b.quantity, b.farmer_counter_price,
+                       b.status, b.last_action_by, b.bid_time, b.updated_at
+                FROM bids b
+                LEFT JOIN users buyer ON buyer.id = b.buyer_id
+                LEFT JOIN crops c ON c.id = b.crop_id
+                LEFT JOIN users farmer ON farmer.id = c.farmer_id
+                ORDER BY b.id
+                """),
+        USERS("""
+                SELECT u.id, u.full_name, u.email, u.email_verified, u.phone, u.country, u.division, u.district,
+                       u.upazila, u.is_verified, r.name AS role, u.created_at
+                FROM users u
+                LEFT JOIN roles r ON r.id = u.role_id
+                ORDER BY u.id
+                """),
+        TRANSACTIONS("""
+                SELECT t.id, w.user_id, u.full_name, t.type, t.amount, t.source, t.reference_id, t.description,
+                       t.created_at
+                FROM transactions t
+                JOIN wallets w ON w.id = t.wallet_id
+                LEFT JOIN users u ON u.id = w.user_id
+                ORDER BY t.id
+                """);
+
+        private final String sql;
+
+        Dataset(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    /**
+     * @param fetchSize rows per round trip; 0 or less streams row by row
+     *                  (Integer.MIN_VALUE, MySQL Connector/J's streaming
+     *                  result set), set on this template only so the shared
+     *                  pool keeps its normal buffered reads
+     */
+    public ExportRepository(DataSource dataSource, @Value("${app.export.fetch-size:0}") int fetchSize) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(fetchSize > 0 ? fetchSize : Integer.MIN_VALUE);
+    }
+
+    /**
+     * Run the dataset's query and let the extractor walk the rows, one at a
+     * time
+     */
+    public <T> T stream(Dataset dataset, ResultSetExtractor<T> extractor) {
+        return streamingJdbcTemplate.query(dataset.sql, extractor);
+    }
+}
@@ -1,5 +1,6 @@
 package com.arpon007.agro.repository;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -7,13 +8,25 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
+import com.arpon007.agro.dto.CursorPage;
+import com.arpon007.agro.dto.OrderSearch;
+import com.arpon007.agro.dto.PageCursor;
+import com.arpon007.agro.event.CropChangedEvent;
+
 @Repository
 public class FeatureRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenceDataCache referenceData;
+    private final OrderRepository orderRepository;
 
-    public FeatureRepository(JdbcTemplate jdbcTemplate) {
+    public FeatureRepository(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+            ReferenceDataCache referenceData, OrderRepository orderRepository) {
         this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.referenceData = referenceData;
+        this.orderRepository = orderRepository;
     }
 
     // Export
@@ -33,7 +46,7 @@ public class FeatureRepository {
     }
 
     public List<Map<String, Object>> getSubsidySchemes() {
-        return jdbcTemplate.queryForList("SELECT * FROM subsidy_schemes");
+        return referenceData.getSubsidySchemes();
     }
 
     // Review
@@ -50,6 +63,7 @@ public class FeatureRepository {
     public void deleteCrop(Long id) {
         String sql = "DELETE FROM crops WHERE id = ?";
         jdbcTemplate.update(sql, id);
+        eventPublisher.publishEvent(CropChangedEvent.of(id));
     }
 
     // Blog Management
@@ -116,71 +130,52 @@ public class FeatureRepository {
 
     // ==================== ORDERS MANAGEMENT ====================
 
-    public List<Map<String, Object>> getAllOrdersForAdmin() {
-        String sql = """
-                SELECT o.id, o.buyer_id as buyerId, o.farmer_id as farmerId,
-                       o.crop_id as cropId, o.total_amount as totalAmount,
-                       o.advance_amount as advanceAmount, o.due_amount as dueAmount,
-                       o.status, o.created_at as createdAt,
-                       o.customer_mobile as customerMobile,
-                       o.customer_address as customerAddress,
-                       o.delivery_status as deliveryStatus,
-                       buyer.full_name as buyerName, buyer.email as buyerEmail,
-                       farmer.full_name as farmerName, farmer.email as farmerEmail,
-                       c.title as cropTitle
-                FROM orders o
-                LEFT JOIN users buyer ON o.buyer_id = buyer.id
-                LEFT JOIN users farmer ON o.farmer_id = farmer.id
-                LEFT JOIN crops c ON o.crop_id = c.id
-                ORDER BY o.created_at DESC
-                """;
-        try {
-            return jdbcTemplate.queryForList(sql);
-        } catch (Exception e) {
-            return java.util.Collections.emptyList();
-        }
+    /**
+     * One page of the admin order search (see {@link OrderRepository#search})
+     */
+    public CursorPage<Map<String, Object>> searchOrdersForAdmin(OrderSearch search, PageCursor after, int limit) {
+        return CursorPage.of(orderRepository.search(search, after, limit), limit, OrderRepository::historyCursor);
     }
 
+    /**
+     * Orders matching the admin search, counted up to cap + 1
+     */
+    public long countOrdersForAdmin(OrderSearch search, int cap) {
+        return orderRepository.countMatching(search, cap);
+    }
+
+    /**
+     * The buyer's order history (see {@link OrderRepository#findHistory})
+     */
     public List<Map<String, Object>> getOrdersByBuyer(Long buyerId) {
-        String sql = """
-                SELECT o.id, o.farmer_id as farmerId, o.crop_id as cropId,
-                       o.total_amount as totalAmount, o.advance_amount as advanceAmount,
-                       o.due_amount as dueAmount, o.status, o.created_at as createdAt,
-                       farmer.full_name as farmerName,
-                       c.title as cropTitle
-                FROM orders o
-                LEFT JOIN users farmer ON o.farmer_id = farmer.id
-                LEFT JOIN crops c ON o.crop_id = c.id
-                WHERE o.buyer_id = ?
-                ORDER BY o.created_at DESC
-                """;
         try {
-            return jdbcTemplate.queryForList(sql, buyerId);
+            return orderRepository.findHistory(OrderRepository.Party.BUYER, buyerId);
         } catch (Exception e) {
             return java.util.Collections.emptyList();
         }
     }
 
+    public CursorPage<Map<String, Object>> getOrdersByBuyerPage(Long buyerId, PageCursor after, int limit) {
+        return CursorPage.of(orderRepository.findHistoryPage(OrderRepository.Party.BUYER, buyerId, after, limit),
+                limit, OrderRepository::historyCursor);
+    }
+
+    /**
+     * Orders placed with the farmer (see {@link OrderRepository#findHistory})
+     */
     public List<Map<String, Object>> getOrdersByFarmer(Long farmerId) {
-        String sql = """
-                SELECT o.id, o.buyer_id as buyerId, o.crop_id as cropId,
-                       o.total_amount as totalAmount, o.advance_amount as advanceAmount,
-                       o.due_amount as dueAmount, o.status, o.created_at as createdAt,
-                       buyer.full_name as buyerName,
-                       c.title as cropTitle
-                FROM orders o
-                LEFT JOIN users buyer ON o.buyer_id = buyer.id
-                LEFT JOIN crops c ON o.crop_id = c.id
-                WHERE o.farmer_id = ?
-                ORDER BY o.created_at DESC
-                """;
         try {
-            return jdbcTemplate.queryForList(sql, farmerId);
+            return orderRepository.findHistory(OrderRepository.Party.FARMER, farmerId);
         } catch (Exception e) {
             return java.util.Collections.emptyList();
         }
     }
 
+    public CursorPage<Map<String, Object>> getOrdersByFarmerPage(Long farmerId, PageCursor after, int limit) {
+        return CursorPage.of(orderRepository.findHistoryPage(OrderRepository.Party.FARMER, farmerId, after, limit),
+                limit, OrderRepository::historyCursor);
+    }
+
     public void updateOrderStatus(Long id, String status) {
         String sql = "UPDATE orders SET status = ? WHERE id = ?";
         jdbcTemplate.update(sql, status, id);
@@ -234,7 +229,7 @@ public class FeatureRepository {
     public List<Map<String, Object>> getBidsForFarmer(Long farmerId) {
         String sql = """
                 SELECT b.id, b.crop_id as cropId, b.buyer_id as buyerId,
-                       b.amount, b.bid_time as bidTime, b.status,
+                       b.amount, b.bid_time as bidTime, b.status, b.version,
                        b.quantity, b.farmer_counter_price as farmerCounterPrice,
                        buyer.full_name as buyerName, buyer.email as buyerEmail,
                        c.title as cropTitle
@@ -251,11 +246,6 @@ public class FeatureRepository {
         }
     }
 
-    public void updateBidStatus(Long id, String status) {
-        String sql = "UPDATE bids SET status = ? WHERE id = ?";
-        jdbcTemplate.update(sql, status, id);
-    }
-
     // ==================== FARMER FINANCIAL TRACKING ====================
 
     /**
@@ -0,0 +1,67 @@
+package com.arpon007.agro.repository;
+
+import java.util.Optional;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Idempotency keys per user and the response first given for them
+ * (idempotency_keys)
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    /**
+     * A completed request: its fingerprint and the response to replay
+     */
+    public record StoredResponse(String requestHash, int statusCode, String contentType, String body) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert the key in the caller's transaction. While that transaction is
+     * open, the same insert from another transaction waits on the row lock.
+     *
+     * @return false if the key already exists
+     */
+    public boolean claim(Long userId, String key, String requestHash) {
+        try {
+            jdbcTemplate.update(
+                    "INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash) VALUES (?, ?, ?)",
+                    userId, key, requestHash);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public Optional<StoredResponse> find(Long userId, String key) {
+        return jdbcTemplate.query("""
+                SELECT request_hash, status_code, content_type, response_body FROM idempotency_keys
+                WHERE user_id = ? AND idempotency_key = ? AND status_code IS NOT NULL
+                """,
+                (rs, rowNum) -> new StoredResponse(rs.getString("request_hash"), rs.getInt("status_code"),
+                        rs.getString("content_type"), rs.getString("response_body")),
+                userId, key).stream().findFirst();
+    }
+
+    public void complete(Long userId, String key, StoredResponse response) {
+        jdbcTemplate.update("""
+                UPDATE idempotency_keys SET status_code = ?, content_type = ?, response_body = ?
+                WHERE user_id = ? AND idempotency_key = ?
+                """, response.statusCode(), response.contentType(), response.body(), userId, key);
+    }
+
+    public int purgeOlderThan(int retentionHours) {
+        return jdbcTemplate.update(
+                "DELETE FROM idempotency_keys WHERE created_at < TIMESTAMPADD(HOUR, ?, CURRENT_TIMESTAMP)",
+                -retentionHours);
+    }
+}
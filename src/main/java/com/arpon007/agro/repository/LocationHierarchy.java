@@ -0,0 +1,300 @@
+package com.arpon007.agro.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.springframework.core.io.ClassPathResource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Bangladesh divisions -> districts -> upazilas with stable ids, in display
+ * order. Names are "বাংলা (English)" labels.
+ *
+ * Also resolves free-text locations ("Savar, Dhaka", "ঢাকা", a dropdown label)
+ * to the most specific {@link Placement} it can find.
+ */
+public final class LocationHierarchy {
+
+    private static final Pattern SEGMENT_SEPARATOR = Pattern.compile("[,;/|]+");
+    private static final Pattern ZERO_WIDTH = Pattern.compile("[\\u200C\\u200D]");
+
+    /**
+     * Division / district / upazila ids of one place; missing levels are null
+     */
+    public record Placement(Integer divisionId, Integer districtId, Integer upazilaId) {
+        public static final Placement NONE = new Placement(null, null, null);
+
+        public boolean isEmpty() {
+            return divisionId == null;
+        }
+    }
+
+    public record Node(Integer id, String name, Integer parentId) {
+    }
+
+    private final List<String> divisions;
+    private final Map<String, List<String>> districtsByDivision;
+    private final List<String> allDistricts;
+    private final Map<String, List<String>> upazilasByDistrict;
+    private final List<String> defaultUpazilas;
+
+    private final Map<Integer, Node> divisionsById = new LinkedHashMap<>();
+    private final Map<Integer, Node> districtsById = new LinkedHashMap<>();
+    private final Map<Integer, Node> upazilasById = new LinkedHashMap<>();
+    private final Map<String, Integer> divisionAliases = new HashMap<>();
+    private final Map<String, Integer> districtAliases = new HashMap<>();
+    private final Map<String, List<Integer>> upazilaAliases = new HashMap<>();
+    private final List<Map<String, Object>> tree;
+
+    private LocationHierarchy(LocationFile file) {
+        Map<String, List<String>> districtNames = new LinkedHashMap<>();
+        Map<String, List<String>> upazilaNames = new LinkedHashMap<>();
+        List<Map<String, Object>> treeDivisions = new ArrayList<>();
+
+        for (DivisionEntry division : file.divisions()) {
+            divisionsById.put(division.id(), new Node(division.id(), division.name(), null));
+            addAliases(divisionAliases, division.name(), division.id());
+
+            List<String> names = new ArrayList<>();
+            List<Map<String, Object>> treeDistricts = new ArrayList<>();
+            for (DistrictEntry district : division.districts()) {
+                names.add(district.name());
+                districtsById.put(district.id(), new Node(district.id(), district.name(), division.id()));
+                addAliases(districtAliases, district.name(), district.id());
+
+                List<Map<String, Object>> treeUpazilas = new ArrayList<>();
+                if (district.upazilas() != null && !district.upazilas().isEmpty()) {
+                    List<String> upazilas = new ArrayList<>();
+                    for (UpazilaEntry upazila : district.upazilas()) {
+                        upazilas.add(upazila.name());
+                        upazilasById.put(upazila.id(), new Node(upazila.id(), upazila.name(), district.id()));
+                        for (String alias : aliases(upazila.name())) {
+                            upazilaAliases.computeIfAbsent(alias, a -> new ArrayList<>()).add(upazila.id());
+                        }
+                        treeUpazilas.add(treeNode(upazila.id(), upazila.name(), null));
+                    }
+                    upazilaNames.put(district.name(), List.copyOf(upazilas));
+                }
+                treeDistricts.add(treeNode(district.id(), district.name(), treeUpazilas));
+            }
+            districtNames.put(division.name(), List.copyOf(names));
+            treeDivisions.add(treeNode(division.id(), division.name(), treeDistricts));
+        }
+
+        this.districtsByDivision = Collections.unmodifiableMap(districtNames);
+        this.upazilasByDistrict = Collections.unmodifiableMap(upazilaNames);
+        this.divisions = List.copyOf(districtNames.keySet());
+        List<String> all = new ArrayList<>();
+        districtNames.values().forEach(all::addAll);
+        this.allDistricts = List.copyOf(all);
+        this.defaultUpazilas = List.copyOf(file.defaultUpazilas());
+        this.tree = List.copyOf(treeDivisions);
+    }
+
+    static LocationHierarchy load(String resource) {
+        try (InputStream in = new ClassPathResource(resource).getInputStream()) {
+            return new LocationHierarchy(new ObjectMapper().readValue(in, LocationFile.class));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + resource, e);
+        }
+    }
+
+    // ==================== NAMES (dropdowns) ====================
+
+    public List<String> getDivisions() {
+        return divisions;
+    }
+
+    /**
+     * Districts of a division, empty for an unknown division
+     */
+    public List<String> getDistricts(String division) {
+        return districtsByDivision.getOrDefault(division, List.of());
+    }
+
+    public List<String> getAllDistricts() {
+        return allDistricts;
+    }
+
+    /**
+     * Upazilas of a district, or generic entries when the district is not mapped
+     */
+    public List<String> getUpazilas(String district) {
+        return upazilasByDistrict.getOrDefault(district, defaultUpazilas);
+    }
+
+    public Map<String, List<String>> getDistrictsByDivision() {
+        return districtsByDivision;
+    }
+
+    public Map<String, List<String>> getUpazilasByDistrict() {
+        return upazilasByDistrict;
+    }
+
+    /**
+     * The hierarchy with ids: [{ id, name, children: [...] }]
+     */
+    public List<Map<String, Object>> getTree() {
+        return tree;
+    }
+
+    // ==================== IDS ====================
+
+    public Node getDivision(Integer id) {
+        return id != null ? divisionsById.get(id) : null;
+    }
+
+    public Node getDistrict(Integer id) {
+        return id != null ? districtsById.get(id) : null;
+    }
+
+    public Node getUpazila(Integer id) {
+        return id != null ? upazilasById.get(id) : null;
+    }
+
+    /**
+     * Fill in the parent levels of the most specific id given. Unknown ids are
+     * ignored.
+     */
+    public Placement placementOf(Integer divisionId, Integer districtId, Integer upazilaId) {
+        Node upazila = getUpazila(upazilaId);
+        if (upazila != null) {
+            Node district = districtsById.get(upazila.parentId());
+            return new Placement(district.parentId(), district.id(), upazila.id());
+        }
+        Node district = getDistrict(districtId);
+        if (district != null) {
+            return new Placement(district.parentId(), district.id(), null);
+        }
+        Node division = getDivision(divisionId);
+        return division != null ? new Placement(division.id(), null, null) : Placement.NONE;
+    }
+
+    /**
+     * Resolve free text to the most specific known place. Upazila names that
+     * exist in several districts are disambiguated by a district in the same
+     * text.
+     */
+    public Placement resolve(String text) {
+        if (text == null || text.isBlank()) {
+            return Placement.NONE;
+        }
+        List<String> segments = new ArrayList<>();
+        segments.addAll(aliases(text));
+        for (String part : SEGMENT_SEPARATOR.split(text)) {
+            segments.addAll(aliases(part));
+        }
+
+        Integer districtId = null;
+        Integer divisionId = null;
+        List<Integer> upazilaCandidates = null;
+        for (String segment : segments) {
+            if (upazilaCandidates == null && upazilaAliases.containsKey(segment)) {
+                upazilaCandidates = upazilaAliases.get(segment);
+            }
+            if (districtId == null && districtAliases.containsKey(segment)) {
+                districtId = districtAliases.get(segment);
+            }
+            if (divisionId == null && divisionAliases.containsKey(segment)) {
+                divisionId = divisionAliases.get(segment);
+            }
+        }
+
+        if (upazilaCandidates != null) {
+            for (Integer upazilaId : upazilaCandidates) {
+                if (districtId == null || upazilasById.get(upazilaId).parentId().equals(districtId)) {
+                    return placementOf(null, null, upazilaId);
+                }
+            }
+        }
+        return placementOf(divisionId, districtId, null);
+    }
+
+    /**
+     * Like {@link #resolve(String)} for the three profile fields of a user,
+     * most specific first
+     */
+    public Placement resolve(String division, String district, String upazila) {
+        return resolve(join(upazila, district, division));
+    }
+
+    private static String join(String... parts) {
+        StringBuilder text = new StringBuilder();
+        for (String part : parts) {
+            if (part != null && !part.isBlank()) {
+                text.append(text.length() > 0 ? ", " : "").append(part);
+            }
+        }
+        return text.toString();
+    }
+
+    private static void addAliases(Map<String, Integer> target, String label, Integer id) {
+        for (String alias : aliases(label)) {
+            target.putIfAbsent(alias, id);
+        }
+    }
+
+    /**
+     * Normalized forms of a label: the whole text, the Bangla part before the
+     * parentheses and the English part inside them
+     */
+    static List<String> aliases(String label) {
+        String normalized = normalize(label);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<String> aliases = new ArrayList<>(3);
+        aliases.add(normalized);
+        int open = normalized.indexOf('(');
+        int close = normalized.lastIndexOf(')');
+        if (open > 0 && close > open) {
+            String outside = normalized.substring(0, open).trim();
+            String inside = normalized.substring(open + 1, close).trim();
+            if (!outside.isEmpty()) {
+                aliases.add(outside);
+            }
+            if (!inside.isEmpty()) {
+                aliases.add(inside);
+            }
+        }
+        return aliases;
+    }
+
+    private static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC);
+        normalized = ZERO_WIDTH.matcher(normalized).replaceAll("");
+        return normalized.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static Map<String, Object> treeNode(Integer id, String name, List<Map<String, Object>> children) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("id", id);
+        node.put("name", name);
+        if (children != null) {
+            node.put("children", List.copyOf(children));
+        }
+        return Collections.unmodifiableMap(node);
+    }
+
+    private record LocationFile(List<DivisionEntry> divisions, List<String> defaultUpazilas) {
+    }
+
+    private record DivisionEntry(Integer id, String name, List<DistrictEntry> districts) {
+    }
+
+    private record DistrictEntry(Integer id, String name, List<UpazilaEntry> upazilas) {
+    }
+
+    private record UpazilaEntry(Integer id, String name) {
+    }
+}
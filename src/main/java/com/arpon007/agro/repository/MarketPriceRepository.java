@@ -13,30 +13,26 @@ import java.util.List;
 public class MarketPriceRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceData;
 
-    public MarketPriceRepository(JdbcTemplate jdbcTemplate) {
+    public MarketPriceRepository(JdbcTemplate jdbcTemplate, ReferenceDataCache referenceData) {
         this.jdbcTemplate = jdbcTemplate;
+        this.referenceData = referenceData;
     }
 
     public List<MarketPrice> findByDistrict(String district, boolean isBangla) {
-        String typeCol = isBangla ? "ct.name_bn" : "ct.name_en";
-        String sql = "SELECT mp.*, " + typeCol + " as type_name " +
-                "FROM market_price mp " +
-                "JOIN crop_type ct ON mp.crop_type_id = ct.id " +
+        String sql = "SELECT mp.* FROM market_price mp " +
                 "WHERE mp.district = ? " +
                 "ORDER BY mp.price_date DESC";
 
-        return jdbcTemplate.query(sql, new MarketPriceRowMapper(), district);
+        return jdbcTemplate.query(sql, new MarketPriceRowMapper(isBangla), district);
     }
 
     public List<MarketPrice> findAll(boolean isBangla) {
-        String typeCol = isBangla ? "ct.name_bn" : "ct.name_en";
-        String sql = "SELECT mp.*, " + typeCol + " as type_name " +
-                "FROM market_price mp " +
-                "JOIN crop_type ct ON mp.crop_type_id = ct.id " +
+        String sql = "SELECT mp.* FROM market_price mp " +
                 "ORDER BY mp.price_date DESC";
 
-        return jdbcTemplate.query(sql, new MarketPriceRowMapper());
+        return jdbcTemplate.query(sql, new MarketPriceRowMapper(isBangla));
     }
 
     public void save(MarketPrice price) {
@@ -44,7 +40,13 @@ public class MarketPriceRepository {
         jdbcTemplate.update(sql, price.getCropTypeId(), price.getDistrict(), price.getPrice(), price.getPriceDate());
     }
 
-    private static class MarketPriceRowMapper implements RowMapper<MarketPrice> {
+    private class MarketPriceRowMapper implements RowMapper<MarketPrice> {
+        private final boolean isBangla;
+
+        MarketPriceRowMapper(boolean isBangla) {
+            this.isBangla = isBangla;
+        }
+
         @Override
         public MarketPrice mapRow(ResultSet rs, int rowNum) throws SQLException {
             MarketPrice mp = new MarketPrice();
@@ -53,7 +55,7 @@ public class MarketPriceRepository {
             mp.setDistrict(rs.getString("district"));
             mp.setPrice(rs.getBigDecimal("price"));
             mp.setPriceDate(rs.getDate("price_date"));
-            mp.setCropTypeName(rs.getString("type_name"));
+            mp.setCropTypeName(referenceData.cropTypeName(mp.getCropTypeId(), isBangla));
             return mp;
         }
     }
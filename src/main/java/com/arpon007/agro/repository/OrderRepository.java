@@ -1,13 +1,19 @@
 package com.arpon007.agro.repository;
 
+import com.arpon007.agro.dto.OrderSearch;
+import com.arpon007.agro.dto.PageCursor;
 import com.arpon007.agro.model.Order;
+import com.arpon007.agro.model.OrderItem;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
 
 @Repository
@@ -39,7 +45,67 @@ public class OrderRepository {
             return ps;
         }, keyHolder);
 
-        return keyHolder.getKey().longValue();
+        Long orderId = keyHolder.getKey().longValue();
+        insertItems(java.util.List.of(order), java.util.List.of(orderId));
+        return orderId;
+    }
+
+    /**
+     * Insert many orders in one JDBC batch, and all of their lines in a second
+     *
+     * @return the generated ids, in the order of the given list
+     */
+    public java.util.List<Long> createOrders(java.util.List<Order> orders) {
+        if (orders.isEmpty()) {
+            return java.util.List.of();
+        }
+        String sql = "INSERT INTO orders (buyer_id, farmer_id, crop_id, total_amount, advance_amount, due_amount, customer_mobile, customer_address, status, delivery_status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[] { "id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Order order = orders.get(i);
+                        ps.setLong(1, order.getBuyerId());
+                        ps.setLong(2, order.getFarmerId());
+                        ps.setLong(3, order.getCropId());
+                        ps.setBigDecimal(4, order.getTotalAmount());
+                        ps.setBigDecimal(5, order.getAdvanceAmount());
+                        ps.setBigDecimal(6, order.getDueAmount());
+                        ps.setString(7, order.getCustomerMobile());
+                        ps.setString(8, order.getCustomerAddress());
+                        ps.setString(9, order.getStatus() != null ? order.getStatus().name() : "PENDING");
+                        ps.setString(10,
+                                order.getDeliveryStatus() != null ? order.getDeliveryStatus().name() : "PENDING");
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orders.size();
+                    }
+                }, keyHolder);
+
+        // The key column is "id" or "GENERATED_KEY" depending on the driver
+        java.util.List<Long> orderIds = keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.values().iterator().next()).longValue())
+                .toList();
+        insertItems(orders, orderIds);
+        return orderIds;
+    }
+
+    private void insertItems(java.util.List<Order> orders, java.util.List<Long> orderIds) {
+        java.util.List<Object[]> rows = new java.util.ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            for (OrderItem item : orders.get(i).getItems()) {
+                item.setOrderId(orderIds.get(i));
+                rows.add(new Object[] { item.getOrderId(), item.getCropId(), item.getQuantity(), item.getUnitPrice(),
+                        item.getTotalPrice() });
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO order_items (order_id, crop_id, quantity, unit_price, total_price) "
+                    + "VALUES (?, ?, ?, ?, ?)", rows);
+        }
     }
 
     public void updateStatus(Long orderId, String status) {
@@ -55,33 +121,7 @@ public class OrderRepository {
     public java.util.Optional<Order> findById(Long id) {
         String sql = "SELECT * FROM orders WHERE id = ?";
         try {
-            Order order = jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
-                Order o = new Order();
-                o.setId(rs.getLong("id"));
-                o.setBuyerId(rs.getLong("buyer_id"));
-                o.setFarmerId(rs.getLong("farmer_id"));
-                o.setCropId(rs.getLong("crop_id"));
-                o.setTotalAmount(rs.getBigDecimal("total_amount"));
-                o.setAdvanceAmount(rs.getBigDecimal("advance_amount"));
-                o.setDueAmount(rs.getBigDecimal("due_amount"));
-                try {
-                    o.setStatus(com.arpon007.agro.model.Order.OrderStatus.valueOf(rs.getString("status")));
-                } catch (Exception e) {
-                    o.setStatus(com.arpon007.agro.model.Order.OrderStatus.PENDING);
-                }
-                try {
-                    String deliveryStatus = rs.getString("delivery_status");
-                    if (deliveryStatus != null) {
-                        o.setDeliveryStatus(com.arpon007.agro.model.Order.DeliveryStatus.valueOf(deliveryStatus));
-                    }
-                } catch (Exception e) {
-                    o.setDeliveryStatus(com.arpon007.agro.model.Order.DeliveryStatus.PENDING);
-                }
-                o.setCustomerMobile(rs.getString("customer_mobile"));
-                o.setCustomerAddress(rs.getString("customer_address"));
-                o.setCreatedAt(rs.getTimestamp("created_at"));
-                return o;
-            }, id);
+            Order order = jdbcTemplate.queryForObject(sql, ORDER_ROW_MAPPER, id);
             return java.util.Optional.ofNullable(order);
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
             return java.util.Optional.empty();
@@ -89,39 +129,281 @@ public class OrderRepository {
     }
 
     /**
-     * Get orders by customer ID
+     * Whose orders an order-history listing shows
      */
-    public java.util.List<Order> findByCustomerId(Long customerId) {
-        String sql = "SELECT * FROM orders WHERE buyer_id = ? ORDER BY created_at DESC";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Order o = new Order();
-            o.setId(rs.getLong("id"));
-            o.setBuyerId(rs.getLong("buyer_id"));
-            o.setFarmerId(rs.getLong("farmer_id"));
-            o.setCropId(rs.getLong("crop_id"));
-            o.setTotalAmount(rs.getBigDecimal("total_amount"));
-            o.setAdvanceAmount(rs.getBigDecimal("advance_amount"));
-            o.setDueAmount(rs.getBigDecimal("due_amount"));
-            try {
-                o.setStatus(com.arpon007.agro.model.Order.OrderStatus.valueOf(rs.getString("status")));
-            } catch (Exception e) {
-                o.setStatus(com.arpon007.agro.model.Order.OrderStatus.PENDING);
-            }
-            try {
-                String deliveryStatus = rs.getString("delivery_status");
-                if (deliveryStatus != null) {
-                    o.setDeliveryStatus(com.arpon007.agro.model.Order.DeliveryStatus.valueOf(deliveryStatus));
+    public enum Party {
+        BUYER("o.buyer_id"), FARMER("o.farmer_id");
+
+        private final String column;
+
+        Party(String column) {
+            this.column = column;
+        }
+    }
+
+    /**
+     * Order history rows: the order plus crop title, cover image, both
+     * parties' names and its lines, in one statement (the cover image is the
+     * crop's first image, as in the listings). The orders are picked and
+     * limited in a derived table first, so a page of n orders is one query
+     * however many lines they have.
+     */
+    private static String historySql(String extraColumns, String orderFilter) {
+        return """
+                SELECT o.id, o.buyer_id, o.farmer_id, o.crop_id, o.total_amount, o.advance_amount, o.due_amount,
+                       o.status, o.delivery_status, o.customer_mobile, o.customer_address, o.created_at,
+                       c.title AS crop_title, farmer.full_name AS farmer_name, buyer.full_name AS buyer_name,
+                       (SELECT ci.image_url FROM crop_images ci WHERE ci.crop_id = o.crop_id
+                        ORDER BY ci.id LIMIT 1) AS crop_image, %s%s
+                FROM (SELECT * FROM orders o %s) o
+                LEFT JOIN crops c ON c.id = o.crop_id
+                LEFT JOIN users farmer ON farmer.id = o.farmer_id
+                LEFT JOIN users buyer ON buyer.id = o.buyer_id
+                %s
+                ORDER BY o.created_at DESC, o.id DESC, oi.id
+                """.formatted(extraColumns, ITEM_COLUMNS, orderFilter, ITEM_JOINS);
+    }
+
+    /**
+     * All of a buyer's or farmer's orders for the order history, newest first
+     */
+    public java.util.List<java.util.Map<String, Object>> findHistory(Party party, Long userId) {
+        String sql = historySql("", "WHERE " + party.column + " = ?");
+        return jdbcTemplate.query(sql, withItems(OrderRepository::mapHistoryRow), userId);
+    }
+
+    /**
+     * One page of {@link #findHistory} starting after the cursor (fetches
+     * limit + 1 orders so the caller can tell whether more exist)
+     */
+    public java.util.List<java.util.Map<String, Object>> findHistoryPage(Party party, Long userId, PageCursor after,
+            int limit) {
+        if (after == null) {
+            String sql = historySql("", "WHERE " + party.column + " = ? " +
+                    "ORDER BY o.created_at DESC, o.id DESC LIMIT ?");
+            return jdbcTemplate.query(sql, withItems(OrderRepository::mapHistoryRow), userId, limit + 1);
+        }
+        String sql = historySql("", "WHERE " + party.column + " = ? " +
+                "AND (o.created_at < ? OR (o.created_at = ? AND o.id < ?)) " +
+                "ORDER BY o.created_at DESC, o.id DESC LIMIT ?");
+        return jdbcTemplate.query(sql, withItems(OrderRepository::mapHistoryRow), userId, after.createdAt(),
+                after.createdAt(), after.id(), limit + 1);
+    }
+
+    /**
+     * One order as an order history row
+     */
+    public java.util.Optional<java.util.Map<String, Object>> findHistoryById(Long id) {
+        return jdbcTemplate.query(historySql("", "WHERE o.id = ?"), withItems(OrderRepository::mapHistoryRow), id)
+                .stream().findFirst();
+    }
+
+    /**
+     * One order as an order history row plus what the invoice needs: the
+     * buyer's email and phone and the marketplace type of the first crop
+     */
+    public java.util.Optional<java.util.Map<String, Object>> findInvoiceById(Long id) {
+        String sql = historySql("buyer.email AS buyer_email, buyer.phone AS buyer_phone, "
+                + "c.marketplace_type AS marketplace_type, ", "WHERE o.id = ?");
+        return jdbcTemplate.query(sql, withItems(rs -> {
+            java.util.Map<String, Object> row = mapHistoryRow(rs);
+            row.put("buyerEmail", rs.getString("buyer_email"));
+            row.put("buyerPhone", rs.getString("buyer_phone"));
+            row.put("marketplaceType", rs.getString("marketplace_type"));
+            return row;
+        }), id).stream().findFirst();
+    }
+
+    /**
+     * One page of the admin order search, newest first, as order history rows
+     * plus both parties' emails. Each filter is served by a (column,
+     * created_at, id) index (V7, V16, V20), so a page reads about limit + 1
+     * index entries instead of sorting every matching order.
+     */
+    public java.util.List<java.util.Map<String, Object>> search(OrderSearch search, PageCursor after, int limit) {
+        java.util.List<Object> args = new java.util.ArrayList<>();
+        StringBuilder where = searchFilter(search, args);
+        if (after != null) {
+            where.append(" AND (o.created_at < ? OR (o.created_at = ? AND o.id < ?))");
+            args.add(after.createdAt());
+            args.add(after.createdAt());
+            args.add(after.id());
+        }
+        where.append(" ORDER BY o.created_at DESC, o.id DESC LIMIT ?");
+        args.add(limit + 1);
+        String sql = historySql("buyer.email AS buyer_email, farmer.email AS farmer_email, ", where.toString());
+        return jdbcTemplate.query(sql, withItems(rs -> {
+            java.util.Map<String, Object> row = mapHistoryRow(rs);
+            row.put("buyerEmail", rs.getString("buyer_email"));
+            row.put("farmerEmail", rs.getString("farmer_email"));
+            return row;
+        }), args.toArray());
+    }
+
+    /**
+     * Number of orders the search matches, counting no further than the cap
+     * (a result of cap + 1 means "more than cap"), so a broad search costs at
+     * most cap index entries
+     */
+    public long countMatching(OrderSearch search, int cap) {
+        java.util.List<Object> args = new java.util.ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM (SELECT 1 FROM orders o " + searchFilter(search, args) + " LIMIT ?) m";
+        args.add(cap + 1);
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args.toArray());
+        return count != null ? count : 0;
+    }
+
+    private static StringBuilder searchFilter(OrderSearch search, java.util.List<Object> args) {
+        StringBuilder where = new StringBuilder("WHERE 1 = 1");
+        if (search.status() != null) {
+            where.append(" AND o.status = ?");
+            args.add(search.status());
+        }
+        if (search.deliveryStatus() != null) {
+            where.append(" AND o.delivery_status = ?");
+            args.add(search.deliveryStatus());
+        }
+        if (search.from() != null) {
+            where.append(" AND o.created_at >= ?");
+            args.add(search.from());
+        }
+        if (search.to() != null) {
+            where.append(" AND o.created_at < ?");
+            args.add(search.to());
+        }
+        if (search.buyerId() != null) {
+            where.append(" AND o.buyer_id = ?");
+            args.add(search.buyerId());
+        }
+        if (search.farmerId() != null) {
+            where.append(" AND o.farmer_id = ?");
+            args.add(search.farmerId());
+        }
+        if (search.district() != null) {
+            // Orders placed by buyers from the district
+            where.append(" AND o.buyer_id IN (SELECT u.id FROM users u WHERE u.district = ?)");
+            args.add(search.district());
+        }
+        if (search.mobilePrefix() != null) {
+            // A prefix match is a range scan on idx_orders_mobile_created
+            where.append(" AND o.customer_mobile LIKE ? ESCAPE '!'");
+            args.add(search.mobilePrefix().replaceAll("[!%_]", "!$0") + "%");
+        }
+        return where;
+    }
+
+    /**
+     * Cursor of the page after an order history row
+     */
+    public static PageCursor historyCursor(java.util.Map<String, Object> row) {
+        return new PageCursor((java.sql.Timestamp) row.get("createdAt"), (Long) row.get("id"));
+    }
+
+    private static java.util.Map<String, Object> mapHistoryRow(java.sql.ResultSet rs) throws SQLException {
+        java.util.Map<String, Object> row = new java.util.LinkedHashMap<>();
+        row.put("id", rs.getLong("id"));
+        row.put("buyerId", rs.getLong("buyer_id"));
+        row.put("farmerId", rs.getLong("farmer_id"));
+        row.put("cropId", rs.getLong("crop_id"));
+        row.put("totalAmount", rs.getBigDecimal("total_amount"));
+        row.put("advanceAmount", rs.getBigDecimal("advance_amount"));
+        row.put("dueAmount", rs.getBigDecimal("due_amount"));
+        row.put("status", rs.getString("status"));
+        String deliveryStatus = rs.getString("delivery_status");
+        row.put("deliveryStatus", deliveryStatus != null ? deliveryStatus : "PENDING");
+        row.put("customerMobile", rs.getString("customer_mobile"));
+        row.put("customerAddress", rs.getString("customer_address"));
+        row.put("createdAt", rs.getTimestamp("created_at"));
+        row.put("cropTitle", rs.getString("crop_title"));
+        row.put("cropImage", rs.getString("crop_image"));
+        row.put("farmerName", rs.getString("farmer_name"));
+        row.put("buyerName", rs.getString("buyer_name"));
+        return row;
+    }
+
+    /**
+     * Line columns for a query over orders o; join them with
+     * {@link #ITEM_JOINS} and order by o.id (then oi.id) for {@link #withItems}
+     */
+    static final String ITEM_COLUMNS = "oi.id AS item_id, oi.crop_id AS item_crop_id, oi.quantity AS item_quantity, "
+            + "oi.unit_price AS item_unit_price, oi.total_price AS item_total_price, ic.title AS item_crop_title, "
+            + "ic.unit AS item_unit";
+
+    static final String ITEM_JOINS = "LEFT JOIN order_items oi ON oi.order_id = o.id "
+            + "LEFT JOIN crops ic ON ic.id = oi.crop_id";
+
+    /**
+     * An order row mapped from the first of its joined rows
+     */
+    @FunctionalInterface
+    interface HeaderMapper {
+        java.util.Map<String, Object> map(java.sql.ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Fold the rows of an orders-join-lines query (see {@link #ITEM_COLUMNS})
+     * into one map per order, with its lines under "items" and their count
+     * under "itemCount"
+     */
+    static org.springframework.jdbc.core.ResultSetExtractor<java.util.List<java.util.Map<String, Object>>> withItems(
+            HeaderMapper headerMapper) {
+        return rs -> {
+            java.util.List<java.util.Map<String, Object>> orders = new java.util.ArrayList<>();
+            java.util.List<java.util.Map<String, Object>> items = null;
+            long currentId = -1;
+            while (rs.next()) {
+                long id = rs.getLong("id");
+                if (items == null || id != currentId) {
+                    java.util.Map<String, Object> order = headerMapper.map(rs);
+                    items = new java.util.ArrayList<>();
+                    order.put("items", items);
+                    orders.add(order);
+                    currentId = id;
+                }
+                if (rs.getObject("item_id") != null) {
+                    java.util.Map<String, Object> item = new java.util.LinkedHashMap<>();
+                    item.put("cropId", rs.getLong("item_crop_id"));
+                    item.put("cropTitle", rs.getString("item_crop_title"));
+                    item.put("unit", rs.getString("item_unit"));
+                    item.put("quantity", rs.getBigDecimal("item_quantity"));
+                    item.put("unitPrice", rs.getBigDecimal("item_unit_price"));
+                    item.put("totalPrice", rs.getBigDecimal("item_total_price"));
+                    items.add(item);
                 }
-            } catch (Exception e) {
-                o.setDeliveryStatus(com.arpon007.agro.model.Order.DeliveryStatus.PENDING);
             }
-            o.setCustomerMobile(rs.getString("customer_mobile"));
-            o.setCustomerAddress(rs.getString("customer_address"));
-            o.setCreatedAt(rs.getTimestamp("created_at"));
-            return o;
-        }, customerId);
+            orders.forEach(order -> order.put("itemCount", ((java.util.List<?>) order.get("items")).size()));
+            return orders;
+        };
     }
 
+    private static final RowMapper<Order> ORDER_ROW_MAPPER = (rs, rowNum) -> {
+        Order o = new Order();
+        o.setId(rs.getLong("id"));
+        o.setBuyerId(rs.getLong("buyer_id"));
+        o.setFarmerId(rs.getLong("farmer_id"));
+        o.setCropId(rs.getLong("crop_id"));
+        o.setTotalAmount(rs.getBigDecimal("total_amount"));
+        o.setAdvanceAmount(rs.getBigDecimal("advance_amount"));
+        o.setDueAmount(rs.getBigDecimal("due_amount"));
+        try {
+            o.setStatus(com.arpon007.agro.model.Order.OrderStatus.valueOf(rs.getString("status")));
+        } catch (Exception e) {
+            o.setStatus(com.arpon007.agro.model.Order.OrderStatus.PENDING);
+        }
+        try {
+            String deliveryStatus = rs.getString("delivery_status");
+            if (deliveryStatus != null) {
+                o.setDeliveryStatus(com.arpon007.agro.model.Order.DeliveryStatus.valueOf(deliveryStatus));
+            }
+        } catch (Exception e) {
+            o.setDeliveryStatus(com.arpon007.agro.model.Order.DeliveryStatus.PENDING);
+        }
+        o.setCustomerMobile(rs.getString("customer_mobile"));
+        o.setCustomerAddress(rs.getString("customer_address"));
+        o.setCreatedAt(rs.getTimestamp("created_at"));
+        return o;
+    };
+
     /**
      * Record platform income when order is completed
      */
@@ -131,6 +413,46 @@ public class OrderRepository {
         jdbcTemplate.update(sql, orderId, amount, feePercentage);
     }
 
+    /**
+     * A delivered order that has not been settled yet
+     */
+    public record Unsettled(Long orderId, Long farmerId, java.math.BigDecimal totalAmount) {
+    }
+
+    /**
+     * Lock the given orders (in id order) and return the delivered ones with
+     * no platform income recorded. Concurrent settlements of the same order
+     * wait on the row lock and then find it settled.
+     */
+    public java.util.List<Unsettled> lockUnsettled(java.util.Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return java.util.List.of();
+        }
+        Object[] ids = orderIds.toArray();
+        String placeholders = String.join(", ", java.util.Collections.nCopies(ids.length, "?"));
+        java.util.List<Unsettled> delivered = jdbcTemplate.query(
+                "SELECT id, farmer_id, total_amount FROM orders WHERE delivery_status = 'DELIVERED' AND id IN ("
+                        + placeholders + ") ORDER BY id FOR UPDATE",
+                (rs, rowNum) -> new Unsettled(rs.getLong("id"), rs.getLong("farmer_id"),
+                        rs.getBigDecimal("total_amount")),
+                ids);
+        java.util.Set<Long> settled = new java.util.HashSet<>(jdbcTemplate.queryForList(
+                "SELECT order_id FROM platform_income WHERE order_id IN (" + placeholders + ")", Long.class, ids));
+        return delivered.stream().filter(order -> !settled.contains(order.orderId())).toList();
+    }
+
+    /**
+     * Record the platform fee of many orders as one batch. platform_income
+     * is unique per order, so an order cannot be settled twice.
+     */
+    public void recordPlatformIncome(java.util.Map<Long, java.math.BigDecimal> feeByOrder,
+            java.math.BigDecimal feePercentage) {
+        jdbcTemplate.batchUpdate("INSERT INTO platform_income (order_id, amount, fee_percentage) VALUES (?, ?, ?)",
+                feeByOrder.entrySet().stream()
+                        .map(fee -> new Object[] { fee.getKey(), fee.getValue(), feePercentage })
+                        .toList());
+    }
+
     /**
      * Get total platform income
      */
@@ -0,0 +1,118 @@
+package com.arpon007.agro.repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.arpon007.agro.model.OutboxEvent;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+@Repository
+public class OutboxRepository {
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OutboxRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Record an event in the caller's transaction
+     */
+    public void insert(String eventType, Map<String, Object> payload) {
+        jdbcTemplate.update("INSERT INTO outbox_events (event_type, payload) VALUES (?, ?)", eventType,
+                toJson(payload));
+    }
+
+    /**
+     * Record many events of one type in a single batch
+     */
+    public void insertAll(String eventType, List<Map<String, Object>> payloads) {
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_events (event_type, payload) VALUES (?, ?)",
+                payloads.stream().map(payload -> new Object[] { eventType, toJson(payload) }).toList());
+    }
+
+    /**
+     * Lock up to limit due events, oldest first. Rows locked by another worker
+     * are skipped, so concurrent workers (or nodes) never share an event.
+     */
+    public List<OutboxEvent> claimDue(int limit) {
+        String sql = """
+                SELECT id, event_type, payload, attempts FROM outbox_events
+                WHERE status = 'PENDING' AND next_attempt_at <= CURRENT_TIMESTAMP
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new OutboxEvent(rs.getLong("id"), rs.getString("event_type"),
+                fromJson(rs.getString("payload")), rs.getInt("attempts")), limit);
+    }
+
+    public void markDone(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE outbox_events SET status = 'DONE', attempts = attempts + 1, last_error = NULL, processed_at = CURRENT_TIMESTAMP WHERE id = ?";
+        jdbcTemplate.batchUpdate(sql, ids.stream().map(id -> new Object[] { id }).toList());
+    }
+
+    /**
+     * Schedule another attempt: rows are { error, delaySeconds, id }
+     */
+    public void markRetry(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE outbox_events SET attempts = attempts + 1, last_error = ?, next_attempt_at = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) WHERE id = ?";
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+
+    /**
+     * Give up on events: rows are { error, id }
+     */
+    public void markDead(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE outbox_events SET status = 'DEAD', attempts = attempts + 1, last_error = ?, processed_at = CURRENT_TIMESTAMP WHERE id = ?";
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+
+    /**
+     * Delete processed events older than the given number of days
+     */
+    public int purgeDone(int retentionDays) {
+        return jdbcTemplate.update(
+                "DELETE FROM outbox_events WHERE status = 'DONE' AND processed_at < TIMESTAMPADD(DAY, ?, CURRENT_TIMESTAMP)",
+                -retentionDays);
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable", e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, PAYLOAD_TYPE);
+        } catch (JacksonException e) {
+            // Let the handler fail it, so it is retried and then marked dead
+            // instead of blocking the queue
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.arpon007.agro.repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.arpon007.agro.event.CropChangedEvent;
+import com.arpon007.agro.event.ReferenceDataChangedEvent;
+
+/**
+ * In-memory reference data: crop types, subsidy schemes and the Bangladesh
+ * location hierarchy.
+ *
+ * These tables are tiny and almost never change, so they are loaded once at
+ * startup and held in immutable maps behind a volatile reference. Listings
+ * resolve localized crop type names here instead of joining crop_type, which
+ * lets English and Bangla requests share the same rows. Admin writes go through
+ * this class and reload the data after commit.
+ */
+@Component
+public class ReferenceDataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private static final String LOCATIONS_RESOURCE = "reference/bd-locations.json";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LocationHierarchy locations;
+    private final Object loadLock = new Object();
+    private volatile Snapshot snapshot;
+
+    public ReferenceDataCache(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.locations = LocationHierarchy.load(LOCATIONS_RESOURCE);
+    }
+
+    public record CropType(Integer id, String nameEn, String nameBn) {
+        public String name(boolean isBangla) {
+            return isBangla ? nameBn : nameEn;
+        }
+    }
+
+    // ==================== READS ====================
+
+    /**
+     * Localized crop type name, or null for an unknown id
+     */
+    public String cropTypeName(Integer cropTypeId, boolean isBangla) {
+        CropType type = cropTypeId != null ? current().cropTypes.get(cropTypeId) : null;
+        return type != null ? type.name(isBangla) : null;
+    }
+
+    public CropType getCropType(Integer cropTypeId) {
+        return cropTypeId != null ? current().cropTypes.get(cropTypeId) : null;
+    }
+
+    /**
+     * Id of the crop type with the given English or Bangla name (case-insensitive)
+     */
+    public Integer findCropTypeId(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        return current().cropTypeIdsByName.get(name.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Crop type rows (id, name_en, name_bn) in id order
+     */
+    public List<Map<String, Object>> getCropTypes() {
+        return current().cropTypeRows;
+    }
+
+    /**
+     * Crop type rows sorted by English name, for category filters
+     */
+    public List<Map<String, Object>> getCropTypesByName() {
+        return current().cropTypeRowsByName;
+    }
+
+    public List<Map<String, Object>> getSubsidySchemes() {
+        return current().subsidySchemes;
+    }
+
+    public LocationHierarchy getLocations() {
+        return locations;
+    }
+
+    // ==================== ADMIN WRITES ====================
+
+    public Integer createCropType(String nameEn, String nameBn) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO crop_type (name_en, name_bn) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, nameEn);
+            ps.setString(2, nameBn);
+            return ps;
+        }, keyHolder);
+        eventPublisher.publishEvent(ReferenceDataChangedEvent.cropTypes());
+        return keyHolder.getKey() != null ? keyHolder.getKey().intValue() : null;
+    }
+
+    public boolean updateCropType(Integer id, String nameEn, String nameBn) {
+        int rows = jdbcTemplate.update("UPDATE crop_type SET name_en = ?, name_bn = ? WHERE id = ?", nameEn, nameBn,
+                id);
+        if (rows > 0) {
+            eventPublisher.publishEvent(ReferenceDataChangedEvent.cropTypes());
+            // Cached crop listings carry the old name
+            eventPublisher.publishEvent(CropChangedEvent.all());
+        }
+        return rows > 0;
+    }
+
+    public void createSubsidyScheme(String nameBn, String descriptionBn, BigDecimal amount, Date deadline) {
+        jdbcTemplate.update("INSERT INTO subsidy_schemes (name_bn, description_bn, amount, deadline) VALUES (?, ?, ?, ?)",
+                nameBn, descriptionBn, amount, deadline);
+        eventPublisher.publishEvent(ReferenceDataChangedEvent.subsidySchemes());
+    }
+
+    public boolean updateSubsidyScheme(Integer id, String nameBn, String descriptionBn, BigDecimal amount,
+            Date deadline) {
+        int rows = jdbcTemplate.update(
+                "UPDATE subsidy_schemes SET name_bn = ?, description_bn = ?, amount = ?, deadline = ? WHERE id = ?",
+                nameBn, descriptionBn, amount, deadline, id);
+        if (rows > 0) {
+            eventPublisher.publishEvent(ReferenceDataChangedEvent.subsidySchemes());
+        }
+        return rows > 0;
+    }
+
+    // ==================== LOADING ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // The first read will retry
+            log.warn("Could not load reference data: {}", e.getMessage());
+        }
+    }
+
+    // Before the listeners that render from this data (e.g. the response cache)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Failed to reload reference data: {}", e.getMessage());
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Reload crop types and subsidy schemes from the database
+     */
+    public void refresh() {
+        synchronized (loadLock) {
+            Snapshot loaded = Snapshot.of(
+                    jdbcTemplate.queryForList("SELECT id, name_en, name_bn FROM crop_type ORDER BY id"),
+                    jdbcTemplate.queryForList("SELECT * FROM subsidy_schemes ORDER BY id"));
+            snapshot = loaded;
+            log.info("Reference data loaded: {} crop types, {} subsidy schemes", loaded.cropTypes.size(),
+                    loaded.subsidySchemes.size());
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (loadLock) {
+            if (snapshot == null) {
+                refresh();
+            }
+            return snapshot;
+        }
+    }
+
+    private record Snapshot(Map<Integer, CropType> cropTypes, Map<String, Integer> cropTypeIdsByName,
+            List<Map<String, Object>> cropTypeRows, List<Map<String, Object>> cropTypeRowsByName,
+            List<Map<String, Object>> subsidySchemes) {
+
+        static Snapshot of(List<Map<String, Object>> cropTypeRows, List<Map<String, Object>> schemeRows) {
+            Map<Integer, CropType> cropTypes = new HashMap<>();
+            Map<String, Integer> idsByName = new HashMap<>();
+            List<Map<String, Object>> rows = new ArrayList<>(cropTypeRows.size());
+            for (Map<String, Object> row : cropTypeRows) {
+                CropType type = new CropType(((Number) row.get("id")).intValue(), (String) row.get("name_en"),
+                        (String) row.get("name_bn"));
+                cropTypes.put(type.id(), type);
+                if (type.nameBn() != null) {
+                    idsByName.putIfAbsent(type.nameBn().trim().toLowerCase(Locale.ROOT), type.id());
+                }
+                if (type.nameEn() != null) {
+                    idsByName.put(type.nameEn().trim().toLowerCase(Locale.ROOT), type.id());
+                }
+                rows.add(frozen(row));
+            }
+
+            List<Map<String, Object>> byName = new ArrayList<>(rows);
+            byName.sort(Comparator.comparing(row -> (String) row.get("name_en"),
+                    Comparator.nullsLast(Comparator.<String>naturalOrder())));
+
+            List<Map<String, Object>> schemes = new ArrayList<>(schemeRows.size());
+            for (Map<String, Object> row : schemeRows) {
+                schemes.add(frozen(row));
+            }
+            return new Snapshot(Map.copyOf(cropTypes), Map.copyOf(idsByName), List.copyOf(rows),
+                    List.copyOf(byName), List.copyOf(schemes));
+        }
+
+        private static Map<String, Object> frozen(Map<String, Object> row) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(row));
+        }
+    }
+}
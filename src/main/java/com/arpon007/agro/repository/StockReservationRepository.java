@@ -0,0 +1,84 @@
+package com.arpon007.agro.repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Stock holds per (crop, customer) (stock_reservations). The live view is kept
+ * in memory by StockReservationService; this table makes it survive restarts
+ * and lets the sweeper find expired holds.
+ */
+@Repository
+public class StockReservationRepository {
+
+    public record Reservation(Long cropId, Long customerId, BigDecimal quantity, Timestamp expiresAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockReservationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Holds that have not expired at the given time
+     */
+    public List<Reservation> findActive(Timestamp now) {
+        return jdbcTemplate.query(
+                "SELECT crop_id, customer_id, quantity, expires_at FROM stock_reservations WHERE expires_at > ?",
+                (rs, rowNum) -> new Reservation(rs.getLong("crop_id"), rs.getLong("customer_id"),
+                        rs.getBigDecimal("quantity"), rs.getTimestamp("expires_at")),
+                now);
+    }
+
+    /**
+     * Up to limit holds that expired at or before the given time, oldest first
+     */
+    public List<Reservation> findExpired(Timestamp now, int limit) {
+        return jdbcTemplate.query("""
+                SELECT crop_id, customer_id, quantity, expires_at FROM stock_reservations
+                WHERE expires_at <= ?
+                ORDER BY expires_at
+                LIMIT ?
+                """,
+                (rs, rowNum) -> new Reservation(rs.getLong("crop_id"), rs.getLong("customer_id"),
+                        rs.getBigDecimal("quantity"), rs.getTimestamp("expires_at")),
+                now, limit);
+    }
+
+    /**
+     * Insert or replace holds in one batch
+     */
+    public void saveAll(Collection<Reservation> reservations) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO stock_reservations (crop_id, customer_id, quantity, expires_at)
+                VALUES (?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), expires_at = VALUES(expires_at)
+                """, reservations.stream()
+                .map(r -> new Object[] { r.cropId(), r.customerId(), r.quantity(), r.expiresAt() })
+                .toList());
+    }
+
+    /**
+     * Delete the customer's holds on the given crops in one batch
+     */
+    public void deleteAll(Long customerId, Collection<Long> cropIds) {
+        jdbcTemplate.batchUpdate("DELETE FROM stock_reservations WHERE crop_id = ? AND customer_id = ?",
+                cropIds.stream().map(cropId -> new Object[] { cropId, customerId }).toList());
+    }
+
+    /**
+     * Delete expired holds in one batch. A hold renewed since it was read is
+     * kept.
+     */
+    public void deleteExpired(Collection<Reservation> expired, Timestamp now) {
+        jdbcTemplate.batchUpdate(
+                "DELETE FROM stock_reservations WHERE crop_id = ? AND customer_id = ? AND expires_at <= ?",
+                expired.stream().map(r -> new Object[] { r.cropId(), r.customerId(), now }).toList());
+    }
+}
@@ -75,6 +75,17 @@ public class TransactionRepository {
         return t;
     }
 
+    /**
+     * Insert many transactions as one batch (ids are not read back)
+     */
+    public void saveAll(List<Transaction> transactions) {
+        String sql = "INSERT INTO transactions (wallet_id, type, amount, source, reference_id, description) VALUES (?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(sql, transactions.stream()
+                .map(t -> new Object[] { t.getWalletId(), t.getType().name(), t.getAmount(), t.getSource().name(),
+                        t.getReferenceId(), t.getDescription() })
+                .toList());
+    }
+
     public long countByWalletId(Long walletId) {
         String sql = "SELECT COUNT(*) FROM transactions WHERE wallet_id = ?";
         Long count = jdbcTemplate.queryForObject(sql, Long.class, walletId);
@@ -1,6 +1,8 @@
 package com.arpon007.agro.repository;
 
+import com.arpon007.agro.event.UserRenamedEvent;
 import com.arpon007.agro.model.User;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
@@ -8,6 +10,7 @@ import org.springframework.stereotype.Repository;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -17,10 +20,12 @@ import org.slf4j.LoggerFactory;
 public class UserRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger logger = LoggerFactory.getLogger(UserRepository.class);
 
-    public UserRepository(JdbcTemplate jdbcTemplate) {
+    public UserRepository(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
         this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
     }
 
     public Optional<User> findByEmail(String email) {
@@ -51,12 +56,16 @@ public class UserRepository {
     }
 
     public User save(User user) {
-        if (user.getId() != null && findById(user.getId()).isPresent()) {
+        Optional<User> existing = user.getId() != null ? findById(user.getId()) : Optional.empty();
+        if (existing.isPresent()) {
             // Update existing user
             String sql = "UPDATE users SET full_name = ?, email = ?, password_hash = ?, phone = ?, country = ?, division = ?, district = ?, upazila = ?, thana = ?, post_code = ?, is_verified = ?, email_verified = ?, role_id = ? WHERE id = ?";
             jdbcTemplate.update(sql, user.getFullName(), user.getEmail(), user.getPasswordHash(), user.getPhone(),
                     user.getCountry(), user.getDivision(), user.getDistrict(), user.getUpazila(), user.getThana(),
                     user.getPostCode(), user.isVerified(), user.isEmailVerified(), user.getRoleId(), user.getId());
+            if (!Objects.equals(existing.get().getFullName(), user.getFullName())) {
+                eventPublisher.publishEvent(new UserRenamedEvent(user.getId()));
+            }
             return findById(user.getId()).orElseThrow();
         } else {
             // Insert new user
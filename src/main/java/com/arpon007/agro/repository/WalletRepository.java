@@ -10,6 +10,11 @@ import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
@@ -76,6 +81,50 @@ public class WalletRepository {
         return w;
     }
 
+    /**
+     * Wallet ids by user, creating the missing wallets as one batch
+     */
+    public Map<Long, Long> findOrCreateIds(Collection<Long> userIds) {
+        Map<Long, Long> ids = findIds(userIds);
+        List<Object[]> missing = userIds.stream()
+                .filter(userId -> !ids.containsKey(userId))
+                .distinct()
+                .map(userId -> new Object[] { userId })
+                .toList();
+        if (missing.isEmpty()) {
+            return ids;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO wallets (user_id) VALUES (?)", missing);
+        return findIds(userIds);
+    }
+
+    private Map<Long, Long> findIds(Collection<Long> userIds) {
+        Map<Long, Long> ids = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return ids;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(userIds.size(), "?"));
+        jdbcTemplate.query("SELECT id, user_id FROM wallets WHERE user_id IN (" + placeholders + ")",
+                rs -> {
+                    ids.put(rs.getLong("user_id"), rs.getLong("id"));
+                }, userIds.toArray());
+        return ids;
+    }
+
+    /**
+     * Add earnings to many wallets as one batch. The increments are applied
+     * in SQL, so they do not overwrite concurrent balance changes.
+     *
+     * @param amountByWallet amounts keyed by wallet id; iterate in id order to
+     *                       lock rows in a consistent order
+     */
+    public void creditAll(Map<Long, BigDecimal> amountByWallet) {
+        String sql = "UPDATE wallets SET balance = balance + ?, total_earned = total_earned + ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+        jdbcTemplate.batchUpdate(sql, amountByWallet.entrySet().stream()
+                .map(credit -> new Object[] { credit.getValue(), credit.getValue(), credit.getKey() })
+                .toList());
+    }
+
     public int updateBalance(Long walletId, BigDecimal newBalance, BigDecimal totalEarned, BigDecimal totalWithdrawn) {
         String sql = "UPDATE wallets SET balance = ?, total_earned = ?, total_withdrawn = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
         return jdbcTemplate.update(sql, newBalance, totalEarned, totalWithdrawn, walletId);
@@ -121,7 +121,9 @@ public class SecurityConfig {
         configuration.setAllowedOriginPatterns(List.of("*")); // Allow all origins
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(List.of("*"));
-        configuration.setExposedHeaders(List.of("Authorization")); // Expose auth header
+        // Expose auth, paging and idempotent-replay headers
+        configuration.setExposedHeaders(List.of("Authorization", "X-Next-Cursor", "Idempotent-Replayed", "X-Total-Count",
+                "X-Total-Count-Exact"));
         configuration.setAllowCredentials(true); // Enabled to support frontend credentials
         configuration.setMaxAge(3600L); // Cache preflight for 1 hour
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
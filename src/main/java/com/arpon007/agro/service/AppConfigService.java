@@ -0,0 +1,242 @@
+package com.arpon007.agro.service;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.arpon007.agro.repository.AppConfigRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Typed, in-memory view of the app_configs table.
+ *
+ * Reads are a single hash lookup on an immutable snapshot; numeric values are
+ * parsed once when the snapshot is built. Every entry carries a version stamp
+ * that only moves when its value changes. Writes through this service reload
+ * the snapshot after commit and notify other nodes through the
+ * {@link ConfigInvalidationBus}; a periodic reconcile picks up rows edited
+ * directly in the database.
+ */
+@Service
+public class AppConfigService {
+
+    private static final Logger log = LoggerFactory.getLogger(AppConfigService.class);
+
+    private final AppConfigRepository appConfigRepository;
+    private final ConfigInvalidationBus invalidationBus;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong versionCounter = new AtomicLong();
+    private final Object loadLock = new Object();
+    private volatile Snapshot snapshot;
+
+    public AppConfigService(AppConfigRepository appConfigRepository, ConfigInvalidationBus invalidationBus) {
+        this.appConfigRepository = appConfigRepository;
+        this.invalidationBus = invalidationBus;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    /**
+     * One config value with the version it was last changed at
+     */
+    public record Entry(String value, BigDecimal decimal, long version) {
+    }
+
+    // ==================== READS ====================
+
+    public String getString(String key, String defaultValue) {
+        Entry entry = current().entries.get(key);
+        return entry != null && entry.value != null ? entry.value : defaultValue;
+    }
+
+    /**
+     * Numeric value, or the default when the key is missing or not a number
+     */
+    public BigDecimal getDecimal(String key, BigDecimal defaultValue) {
+        Entry entry = current().entries.get(key);
+        return entry != null && entry.decimal != null ? entry.decimal : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        BigDecimal value = getDecimal(key, null);
+        return value != null ? value.intValue() : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    /**
+     * Version of a key's current value (0 if the key does not exist)
+     */
+    public long getVersion(String key) {
+        Entry entry = current().entries.get(key);
+        return entry != null ? entry.version : 0;
+    }
+
+    /**
+     * Highest version in the snapshot; changes whenever any value changes
+     */
+    public long getVersion() {
+        return current().version;
+    }
+
+    public Map<String, String> getAll() {
+        return current().values;
+    }
+
+    // ==================== WRITES ====================
+
+    public void set(String key, String value) {
+        setAll(Map.of(key, value));
+    }
+
+    /**
+     * Write the values and refresh the cache once the surrounding transaction
+     * (if any) commits
+     */
+    public void setAll(Map<String, String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        appConfigRepository.setValues(values);
+        Set<String> keys = Set.copyOf(values.keySet());
+        TransactionHooks.afterCommit(() -> afterWrite(keys));
+    }
+
+    private void afterWrite(Set<String> keys) {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Failed to refresh config after writing {}: {}", keys, e.getMessage());
+            snapshot = null;
+        }
+        invalidationBus.publish(new ConfigInvalidationBus.Invalidation(nodeId, keys));
+    }
+
+    // ==================== LOADING ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // The first read will retry
+            log.warn("Could not load app config: {}", e.getMessage());
+        }
+    }
+
+    void onInvalidation(ConfigInvalidationBus.Invalidation invalidation) {
+        if (nodeId.equals(invalidation.originNodeId())) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Failed to reload config for {}: {}", invalidation.keys(), e.getMessage());
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Reload if the table changed behind our back (direct SQL edits, or a node
+     * whose invalidation message was lost)
+     */
+    @Scheduled(fixedDelayString = "${app.config.reconcile-interval-ms:30000}",
+            initialDelayString = "${app.config.reconcile-interval-ms:30000}")
+    public void reconcile() {
+        Snapshot current = snapshot;
+        try {
+            if (current == null || !appConfigRepository.getChangeStamp().equals(current.changeStamp)) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("Config reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the snapshot from the database. Keys whose value did not change
+     * keep their version.
+     */
+    public void reload() {
+        synchronized (loadLock) {
+            String changeStamp = appConfigRepository.getChangeStamp();
+            Map<String, String> rows = appConfigRepository.getAllConfigs();
+
+            Snapshot old = snapshot;
+            Map<String, Entry> entries = new HashMap<>();
+            int changed = 0;
+            for (Map.Entry<String, String> row : rows.entrySet()) {
+                Entry previous = old != null ? old.entries.get(row.getKey()) : null;
+                if (previous != null && Objects.equals(previous.value, row.getValue())) {
+                    entries.put(row.getKey(), previous);
+                } else {
+                    entries.put(row.getKey(),
+                            new Entry(row.getValue(), parseDecimal(row.getValue()), versionCounter.incrementAndGet()));
+                    changed++;
+                }
+            }
+            boolean removed = old != null && !entries.keySet().containsAll(old.entries.keySet());
+            if (old != null && changed == 0 && !removed) {
+                snapshot = new Snapshot(old.entries, old.values, old.version, changeStamp);
+                return;
+            }
+            long version = removed && changed == 0 ? versionCounter.incrementAndGet() : versionCounter.get();
+            snapshot = Snapshot.of(entries, version, changeStamp);
+            log.info("App config loaded: {} keys, {} changed (version {})", entries.size(), changed, version);
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (loadLock) {
+            if (snapshot == null) {
+                reload();
+            }
+            return snapshot;
+        }
+    }
+
+    private static BigDecimal parseDecimal(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record Snapshot(Map<String, Entry> entries, Map<String, String> values, long version,
+            String changeStamp) {
+
+        static Snapshot of(Map<String, Entry> entries, long version, String changeStamp) {
+            Map<String, String> values = new LinkedHashMap<>();
+            entries.forEach((key, entry) -> values.put(key, entry.value));
+            return new Snapshot(Map.copyOf(entries), Collections.unmodifiableMap(values), version, changeStamp);
+        }
+    }
+}
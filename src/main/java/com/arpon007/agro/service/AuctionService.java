@@ -0,0 +1,308 @@
+package com.arpon007.agro.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arpon007.agro.model.Auction;
+import com.arpon007.agro.model.Bid;
+import com.arpon007.agro.repository.AuctionRepository;
+import com.arpon007.agro.repository.AuctionRepository.CropLot;
+import com.arpon007.agro.repository.BidRepository;
+
+/**
+ * Sealed-bid auctions for B2B crops.
+ *
+ * While an auction is open its bids are hidden and cannot be accepted,
+ * countered or rejected one by one. When the window closes the clearing job
+ * sorts the bids once, gives the crop quantity to the highest bids in whole
+ * lots and settles every bid, cart add and notification in batched writes in
+ * one transaction per auction.
+ */
+@Service
+public class AuctionService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuctionService.class);
+
+    /**
+     * Highest amount first; earlier bids win ties
+     */
+    static final Comparator<Bid> PRIORITY = Comparator.comparing(Bid::getAmount, Comparator.reverseOrder())
+            .thenComparing(Bid::getBidTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Bid::getId);
+
+    /**
+     * A winning bid and what it gets
+     */
+    record Fill(Bid bid, BigDecimal quantity, BigDecimal price) {
+    }
+
+    /**
+     * Result of one clearing pass
+     */
+    record Clearing(List<Fill> winners, List<Bid> losers, BigDecimal clearingPrice, BigDecimal soldQuantity) {
+    }
+
+    private final AuctionRepository auctionRepository;
+    private final BidRepository bidRepository;
+    private final OutboxService outboxService;
+    private final StockReservationService reservations;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final LazySnapshot<Map<Long, Auction>> open;
+
+    public AuctionService(AuctionRepository auctionRepository, BidRepository bidRepository,
+            OutboxService outboxService, StockReservationService reservations,
+            PlatformTransactionManager transactionManager, @Value("${app.auction.batch-size:20}") int batchSize) {
+        this.auctionRepository = auctionRepository;
+        this.bidRepository = bidRepository;
+        this.outboxService = outboxService;
+        this.reservations = reservations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.open = new LazySnapshot<>("open auctions", new ConcurrentHashMap<>(),
+                () -> loadOpen(auctionRepository));
+    }
+
+    // ==================== READS ====================
+
+    public Auction getAuction(Long cropId) {
+        return auctionRepository.findByCropId(cropId).orElse(null);
+    }
+
+    /**
+     * Whether the crop's bids are hidden (its auction has not been cleared)
+     */
+    public boolean isSealed(Long cropId) {
+        return open.get().containsKey(cropId);
+    }
+
+    /**
+     * Check a new or revised bid against the crop's auction
+     *
+     * @return whether the crop is under auction
+     * @throws IllegalStateException    outside the bidding window
+     * @throws IllegalArgumentException for a quantity that is not whole lots
+     */
+    public boolean checkBid(Bid bid) {
+        Auction auction = open.get().get(bid.getCropId());
+        if (auction == null) {
+            return false;
+        }
+        if (!auction.isOpenAt(System.currentTimeMillis())) {
+            throw new IllegalStateException("The auction on this crop is not taking bids");
+        }
+        if (bid.getQuantity() == null || bid.getQuantity().signum() <= 0
+                || bid.getQuantity().remainder(auction.getLotSize()).signum() != 0) {
+            throw new IllegalArgumentException("Bid quantity must be a multiple of the lot size "
+                    + auction.getLotSize().stripTrailingZeros().toPlainString());
+        }
+        return true;
+    }
+
+    /**
+     * Bids under auction are settled at close, not one by one
+     */
+    public void requireNegotiable(Long cropId) {
+        if (isSealed(cropId)) {
+            throw new IllegalStateException("Bids on this crop are settled when its auction closes");
+        }
+    }
+
+    // ==================== FARMER WRITES ====================
+
+    /**
+     * Owner, title, type and quantity of a crop, or null if it does not exist
+     */
+    public CropLot cropLot(Long cropId) {
+        return auctionRepository.findCropLot(cropId).orElse(null);
+    }
+
+    /**
+     * Open a sealed-bid auction on a B2B crop. Bids already open on the crop
+     * take part in it.
+     */
+    public void openAuction(Auction auction) {
+        CropLot crop = auctionRepository.findCropLot(auction.getCropId())
+                .orElseThrow(() -> new IllegalArgumentException("Crop not found"));
+        if ("RETAIL".equals(crop.marketplaceType())) {
+            throw new IllegalArgumentException("Auctions are only for B2B crops");
+        }
+        if (auction.getLotSize() == null || auction.getLotSize().signum() <= 0) {
+            throw new IllegalArgumentException("lotSize must be positive");
+        }
+        if (auction.getReservePrice() != null && auction.getReservePrice().signum() <= 0) {
+            throw new IllegalArgumentException("reservePrice must be positive");
+        }
+        if (!auction.getClosesAt().after(auction.getOpensAt())
+                || auction.getClosesAt().getTime() <= System.currentTimeMillis()) {
+            throw new IllegalArgumentException("closesAt must be in the future and after opensAt");
+        }
+        auctionRepository.save(auction);
+        TransactionHooks.afterCommit(() -> open.update(current -> current.put(auction.getCropId(), auction)));
+    }
+
+    /**
+     * Cancel an open auction; its bids go back to manual negotiation
+     */
+    public boolean cancelAuction(Long cropId) {
+        boolean cancelled = auctionRepository.cancel(cropId);
+        TransactionHooks.afterCommit(() -> open.update(current -> current.remove(cropId)));
+        return cancelled;
+    }
+
+    // ==================== CLEARING ====================
+
+    @Scheduled(fixedDelayString = "${app.auction.poll-interval-ms:30000}")
+    public void clearDue() {
+        for (Long cropId : auctionRepository.findDue(batchSize)) {
+            try {
+                clear(cropId);
+            } catch (Exception e) {
+                // The auction stays OPEN and is retried on the next poll
+                log.error("Failed to clear auction for crop {}: {}", cropId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Clear one due auction in a single transaction
+     *
+     * @return the clearing, or null if the auction was not due or is being
+     *         cleared elsewhere
+     */
+    Clearing clear(Long cropId) {
+        return transactionTemplate.execute(status -> {
+            Auction auction = auctionRepository.lockDue(cropId).orElse(null);
+            CropLot crop = auctionRepository.findCropLot(cropId).orElse(null);
+            if (auction == null || crop == null) {
+                return null;
+            }
+
+            List<Bid> bids = bidRepository.findOpenByCropId(cropId);
+            // Quantity already held for carts and accepted bids is not up for auction
+            Clearing clearing = allocate(bids, reservations.available(cropId, crop.quantity()), auction);
+            settle(clearing, cropId, crop);
+            auctionRepository.markCleared(cropId, clearing.clearingPrice(), clearing.soldQuantity(),
+                    clearing.winners().size());
+            TransactionHooks.afterCommit(() -> open.update(current -> current.remove(cropId)));
+            log.info("Auction for crop {} cleared: {} winning bids, {} sold at {}", cropId,
+                    clearing.winners().size(), clearing.soldQuantity(), clearing.clearingPrice());
+            return clearing;
+        });
+    }
+
+    /**
+     * Give the available quantity (in whole lots) to the highest bids. A bid
+     * below the reserve or with no whole lot left loses; the last winner may be
+     * filled partially.
+     */
+    static Clearing allocate(List<Bid> bids, BigDecimal available, Auction auction) {
+        BigDecimal lot = auction.getLotSize();
+        BigDecimal remaining = wholeLots(available != null ? available : BigDecimal.ZERO, lot);
+
+        List<Bid> sorted = new ArrayList<>(bids);
+        sorted.sort(PRIORITY);
+        List<Bid> winning = new ArrayList<>();
+        List<BigDecimal> quantities = new ArrayList<>();
+        List<Bid> losers = new ArrayList<>();
+        for (Bid bid : sorted) {
+            BigDecimal wanted = bid.getQuantity() != null ? bid.getQuantity() : BigDecimal.ZERO;
+            BigDecimal quantity = wholeLots(wanted.min(remaining), lot);
+            boolean belowReserve = auction.getReservePrice() != null
+                    && bid.getAmount().compareTo(auction.getReservePrice()) < 0;
+            if (belowReserve || quantity.signum() <= 0) {
+                losers.add(bid);
+                continue;
+            }
+            winning.add(bid);
+            quantities.add(quantity);
+            remaining = remaining.subtract(quantity);
+        }
+
+        BigDecimal clearingPrice = winning.isEmpty() ? null : winning.get(winning.size() - 1).getAmount();
+        BigDecimal sold = BigDecimal.ZERO;
+        List<Fill> winners = new ArrayList<>(winning.size());
+        for (int i = 0; i < winning.size(); i++) {
+            Bid bid = winning.get(i);
+            BigDecimal price = auction.getPricing() == Auction.Pricing.UNIFORM ? clearingPrice : bid.getAmount();
+            winners.add(new Fill(bid, quantities.get(i), price));
+            sold = sold.add(quantities.get(i));
+        }
+        return new Clearing(winners, losers, clearingPrice, sold);
+    }
+
+    /**
+     * All bid transitions in two batches, the winners' stock holds, then the
+     * outbox events per type in one batch each
+     */
+    private void settle(Clearing clearing, Long cropId, CropLot crop) {
+        List<Object[]> accepted = new ArrayList<>();
+        Map<Long, BigDecimal> held = new HashMap<>();
+        List<Map<String, Object>> cartAdds = new ArrayList<>();
+        List<Map<String, Object>> notifications = new ArrayList<>();
+        for (Fill fill : clearing.winners()) {
+            Bid bid = fill.bid();
+            bid.setCropTitle(crop.title());
+            accepted.add(new Object[] { fill.quantity(), fill.price(), bid.getId(), bid.getVersion() });
+            held.merge(bid.getBuyerId(), fill.quantity(), BigDecimal::add);
+            cartAdds.add(BidService.cartAdd(bid, fill.quantity(), fill.price()));
+            notifications.add(BidService.notification(BidOutboxHandlers.BID_ACCEPTED, bid, fill.quantity(),
+                    fill.price()));
+        }
+
+        List<Object[]> rejected = new ArrayList<>();
+        for (Bid bid : clearing.losers()) {
+            bid.setCropTitle(crop.title());
+            rejected.add(new Object[] { bid.getId(), bid.getVersion() });
+            notifications.add(BidService.notification(BidOutboxHandlers.BID_REJECTED, bid, bid.getQuantity(),
+                    bid.getAmount()));
+        }
+
+        bidRepository.settleBatch(accepted, rejected);
+        reservations.holdForBids(cropId, held);
+        outboxService.enqueueAll(BidOutboxHandlers.CART_ADD, cartAdds);
+        outboxService.enqueueAll(BidOutboxHandlers.NOTIFICATION, notifications);
+        outboxService.enqueueAll(BidOutboxHandlers.INBOX_MESSAGE, notifications.stream()
+                .map(notification -> BidService.inboxMessage(notification, crop.farmerId()))
+                .toList());
+    }
+
+    // ==================== LOADING ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        open.warmUp();
+    }
+
+    public void reload() {
+        open.reload();
+    }
+
+    private static Map<Long, Auction> loadOpen(AuctionRepository auctionRepository) {
+        Map<Long, Auction> loaded = new ConcurrentHashMap<>();
+        for (Auction auction : auctionRepository.findOpen()) {
+            loaded.put(auction.getCropId(), auction);
+        }
+        return loaded;
+    }
+
+    private static BigDecimal wholeLots(BigDecimal quantity, BigDecimal lot) {
+        return quantity.divide(lot, 0, RoundingMode.DOWN).multiply(lot);
+    }
+}
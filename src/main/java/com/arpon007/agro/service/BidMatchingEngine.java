@@ -0,0 +1,170 @@
+package com.arpon007.agro.service;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.arpon007.agro.event.CropChangedEvent;
+import com.arpon007.agro.model.Bid;
+import com.arpon007.agro.model.BidRule;
+import com.arpon007.agro.model.BidRule.Outcome;
+import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.repository.BidRuleRepository;
+
+/**
+ * Matches new bids against the farmer's reserve rules for the crop.
+ *
+ * All rules are held in memory (one small row per crop that has any), so a bid
+ * on a crop without rules costs a map lookup. Rule writes go through this
+ * class and patch the map after commit.
+ */
+@Service
+public class BidMatchingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(BidMatchingEngine.class);
+
+    /**
+     * Decision for a bid: what to do, the price (bid amount for an accept,
+     * counter price for a counter) and the crop it was matched on
+     */
+    public record Match(Outcome outcome, BigDecimal price, Crop crop) {
+    }
+
+    private final BidRuleRepository bidRuleRepository;
+    private final CropCatalogService cropCatalogService;
+    private final LazySnapshot<Map<Long, BidRule>> rules;
+
+    public BidMatchingEngine(BidRuleRepository bidRuleRepository, CropCatalogService cropCatalogService) {
+        this.bidRuleRepository = bidRuleRepository;
+        this.cropCatalogService = cropCatalogService;
+        this.rules = new LazySnapshot<>("bid rules", new ConcurrentHashMap<>(), () -> loadRules(bidRuleRepository));
+    }
+
+    /**
+     * Apply the crop's rules to a bid. Returns null when the farmer decides
+     * manually: no rules, no rule fired, the crop is sold, or the bid wants
+     * more than the listing has.
+     */
+    public Match match(Bid bid) {
+        BidRule rule = rules.get().get(bid.getCropId());
+        if (rule == null || bid.getAmount() == null) {
+            return null;
+        }
+        Crop crop = cropCatalogService.getCrop(bid.getCropId(), false);
+        if (crop == null) {
+            return null;
+        }
+        return switch (rule.evaluate(bid.getAmount(), bid.getQuantity())) {
+            case ACCEPT -> exceedsAvailable(bid, crop) ? null : new Match(Outcome.ACCEPT, bid.getAmount(), crop);
+            case COUNTER -> new Match(Outcome.COUNTER, rule.getAutoCounterPrice(), crop);
+            case REJECT -> new Match(Outcome.REJECT, bid.getAmount(), crop);
+            case NONE -> null;
+        };
+    }
+
+    /**
+     * Whether the bid wants more than is left once other customers' holds are
+     * taken out
+     */
+    private static boolean exceedsAvailable(Bid bid, Crop crop) {
+        BigDecimal left = crop.getAvailableQuantity() != null ? crop.getAvailableQuantity() : crop.getQuantity();
+        return left != null && bid.getQuantity() != null && bid.getQuantity().compareTo(left) > 0;
+    }
+
+    public BidRule getRule(Long cropId) {
+        return rules.get().get(cropId);
+    }
+
+    /**
+     * Owner of a crop, or null if it does not exist
+     */
+    public Long cropOwner(Long cropId) {
+        return bidRuleRepository.findCropOwner(cropId);
+    }
+
+    /**
+     * Store a crop's rules; a rule with no prices removes them
+     */
+    public void saveRule(BidRule rule) {
+        rule.validate();
+        if (rule.isEmpty()) {
+            deleteRule(rule.getCropId());
+            return;
+        }
+        bidRuleRepository.save(rule);
+        TransactionHooks.afterCommit(() -> rules.update(current -> current.put(rule.getCropId(), rule)));
+    }
+
+    public boolean deleteRule(Long cropId) {
+        boolean deleted = bidRuleRepository.delete(cropId);
+        TransactionHooks.afterCommit(() -> rules.update(current -> current.remove(cropId)));
+        return deleted;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rules.warmUp();
+    }
+
+    /**
+     * Deleted crops take their rules with them (ON DELETE CASCADE)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCropChanged(CropChangedEvent event) {
+        if (!rules.isLoaded()) {
+            return;
+        }
+        try {
+            if (event.isFullReload()) {
+                reload();
+            } else {
+                refresh(event.cropIds());
+            }
+        } catch (Exception e) {
+            log.error("Failed to refresh bid rules for {}: {}", event.cropIds(), e.getMessage());
+            rules.invalidate();
+        }
+    }
+
+    public void reload() {
+        rules.reload();
+    }
+
+    /**
+     * Overwrite the crops' rules in place and only then drop the ones that
+     * are gone, so a crop that keeps its rules is never seen without them
+     */
+    private void refresh(Collection<Long> cropIds) {
+        rules.update(current -> {
+            Set<Long> found = new HashSet<>();
+            for (BidRule rule : bidRuleRepository.findByCropIds(cropIds)) {
+                current.put(rule.getCropId(), rule);
+                found.add(rule.getCropId());
+            }
+            for (Long cropId : cropIds) {
+                if (!found.contains(cropId)) {
+                    current.remove(cropId);
+                }
+            }
+        });
+    }
+
+    private static Map<Long, BidRule> loadRules(BidRuleRepository bidRuleRepository) {
+        Map<Long, BidRule> loaded = new ConcurrentHashMap<>();
+        for (BidRule rule : bidRuleRepository.findAll()) {
+            loaded.put(rule.getCropId(), rule);
+        }
+        log.info("Bid rules loaded for {} crops", loaded.size());
+        return loaded;
+    }
+}
@@ -0,0 +1,297 @@
+package com.arpon007.agro.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.arpon007.agro.event.BidChangedEvent;
+import com.arpon007.agro.event.CropChangedEvent;
+import com.arpon007.agro.model.Bid;
+import com.arpon007.agro.repository.BidRepository;
+
+/**
+ * Live order book of the open bids on each crop: best bid, quantity by price
+ * level and the farmer's last counter-offer.
+ *
+ * Books are loaded lazily per crop and patched after every committed bid write
+ * by re-reading just the changed rows. Those reads can race, so a row with a
+ * lower bid version than the one already applied is ignored. Each patch is
+ * pushed to /topic/crops/{id}/bids with a per-crop sequence number; a client
+ * that sees a gap re-fetches the snapshot instead of polling the joined bid
+ * list. Crops under a sealed-bid auction are tracked but not pushed.
+ */
+@Service
+public class BidOrderBook {
+
+    private static final Logger log = LoggerFactory.getLogger(BidOrderBook.class);
+
+    static final Set<String> OPEN_STATUSES = Set.of("PENDING", "COUNTER_OFFER");
+
+    /**
+     * Closed bids remembered per crop, to reject a slower read taken while
+     * they were still open
+     */
+    static final int CLOSED_VERSIONS = 256;
+
+    private final BidRepository bidRepository;
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final AuctionService auctionService;
+    private final Map<Long, Book> books = new ConcurrentHashMap<>();
+
+    public BidOrderBook(BidRepository bidRepository, SimpMessageSendingOperations messagingTemplate,
+            AuctionService auctionService) {
+        this.bidRepository = bidRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.auctionService = auctionService;
+    }
+
+    public static String topic(Long cropId) {
+        return "/topic/crops/" + cropId + "/bids";
+    }
+
+    /**
+     * Full book of a crop: { cropId, sequence, bestBid, depth, lastCounterOffer,
+     * openBids }
+     */
+    public Map<String, Object> snapshot(Long cropId) {
+        Book book = book(cropId);
+        synchronized (book) {
+            Map<String, Object> snapshot = book.header();
+            List<Map<String, Object>> depth = new ArrayList<>();
+            for (BigDecimal price : book.levels.keySet()) {
+                depth.add(book.level(price));
+            }
+            snapshot.put("depth", depth);
+            return snapshot;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBidChanged(BidChangedEvent event) {
+        List<Bid> changed;
+        try {
+            changed = bidRepository.findBookEntries(event.bidIds());
+        } catch (Exception e) {
+            // The rows say which crops they belong to, so without them every
+            // book reloads on its next read
+            log.error("Failed to read bids {} for the order book: {}", event.bidIds(), e.getMessage());
+            books.clear();
+            return;
+        }
+        for (Bid bid : changed) {
+            try {
+                apply(bid);
+            } catch (Exception e) {
+                // This crop's book reloads on the next read
+                log.error("Failed to update bid order book of crop {}: {}", bid.getCropId(), e.getMessage());
+                books.remove(bid.getCropId());
+            }
+        }
+    }
+
+    /**
+     * Deleting a crop removes its bids without bid events, so drop the book and
+     * let it reload
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCropChanged(CropChangedEvent event) {
+        if (event.isFullReload()) {
+            books.clear();
+        } else {
+            event.cropIds().forEach(books::remove);
+        }
+    }
+
+    private void apply(Bid bid) {
+        Book book = book(bid.getCropId());
+        Map<String, Object> delta;
+        synchronized (book) {
+            Set<BigDecimal> changed = book.apply(bid);
+            if (changed == null) {
+                return;
+            }
+            book.sequence++;
+
+            delta = book.header();
+            delta.put("bid", view(bid));
+            List<Map<String, Object>> levels = new ArrayList<>();
+            for (BigDecimal price : changed) {
+                levels.add(book.level(price));
+            }
+            delta.put("levels", levels);
+        }
+        if (!auctionService.isSealed(bid.getCropId())) {
+            messagingTemplate.convertAndSend(topic(bid.getCropId()), (Object) delta);
+        }
+    }
+
+    /**
+     * The crop's book, loading it first if needed. The load runs outside the
+     * map so a slow query does not block other crops; if two threads load the
+     * same crop, the first book in wins.
+     */
+    private Book book(Long cropId) {
+        Book book = books.get(cropId);
+        if (book != null) {
+            return book;
+        }
+        Book loaded = new Book(cropId);
+        List<Bid> open = bidRepository.findOpenByCropId(cropId);
+        open.sort(Comparator.comparing(Bid::getUpdatedAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+        for (Bid bid : open) {
+            loaded.apply(bid);
+        }
+        Book raced = books.putIfAbsent(cropId, loaded);
+        return raced != null ? raced : loaded;
+    }
+
+    private static Map<String, Object> view(Bid bid) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", bid.getId());
+        view.put("buyerId", bid.getBuyerId());
+        view.put("amount", bid.getAmount());
+        view.put("quantity", bid.getQuantity());
+        view.put("farmerCounterPrice", bid.getFarmerCounterPrice());
+        view.put("lastActionBy", bid.getLastActionBy());
+        view.put("status", bid.getStatus());
+        view.put("updatedAt", bid.getUpdatedAt());
+        return view;
+    }
+
+    /**
+     * Open bids of one crop. Guarded by its own monitor.
+     */
+    private static final class Book {
+
+        final Long cropId;
+        final Map<Long, Bid> open = new HashMap<>();
+        /** Version at which each recently closed bid left the book, oldest first */
+        final Map<Long, Integer> closed = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                return size() > CLOSED_VERSIONS;
+            }
+        };
+        final NavigableMap<BigDecimal, Level> levels = new TreeMap<>(Comparator.reverseOrder());
+        Map<String, Object> lastCounterOffer;
+        long sequence;
+
+        Book(Long cropId) {
+            this.cropId = cropId;
+        }
+
+        /**
+         * Replace the bid's entry; returns the price levels that changed, or
+         * null if the row is older than the one already applied
+         */
+        Set<BigDecimal> apply(Bid bid) {
+            Bid current = open.get(bid.getId());
+            Integer applied = current != null ? Integer.valueOf(current.getVersion()) : closed.get(bid.getId());
+            if (applied != null && bid.getVersion() < applied) {
+                return null;
+            }
+
+            Set<BigDecimal> changed = new TreeSet<>(Comparator.reverseOrder());
+            Bid previous = open.remove(bid.getId());
+            if (previous != null) {
+                changed.add(previous.getAmount());
+                Level level = levels.get(previous.getAmount());
+                level.quantity = level.quantity.subtract(quantityOf(previous));
+                if (--level.bids == 0) {
+                    levels.remove(previous.getAmount());
+                }
+            }
+
+            if (OPEN_STATUSES.contains(bid.getStatus()) && bid.getAmount() != null) {
+                open.put(bid.getId(), bid);
+                changed.add(bid.getAmount());
+                Level level = levels.computeIfAbsent(bid.getAmount(), price -> new Level());
+                level.quantity = level.quantity.add(quantityOf(bid));
+                level.bids++;
+                closed.remove(bid.getId());
+            } else {
+                closed.put(bid.getId(), bid.getVersion());
+            }
+
+            if ("COUNTER_OFFER".equals(bid.getStatus()) && bid.getFarmerCounterPrice() != null) {
+                Map<String, Object> counter = new LinkedHashMap<>();
+                counter.put("bidId", bid.getId());
+                counter.put("price", bid.getFarmerCounterPrice());
+                counter.put("quantity", bid.getQuantity());
+                counter.put("at", bid.getUpdatedAt());
+                lastCounterOffer = counter;
+            }
+            return changed;
+        }
+
+        Map<String, Object> header() {
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("cropId", cropId);
+            header.put("sequence", sequence);
+            header.put("bestBid", bestBid());
+            header.put("lastCounterOffer", lastCounterOffer);
+            header.put("openBids", open.size());
+            return header;
+        }
+
+        /**
+         * Price level summary; quantity and bids are zero once the level is gone
+         */
+        Map<String, Object> level(BigDecimal price) {
+            Level level = levels.get(price);
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("price", price);
+            view.put("quantity", level != null ? level.quantity : BigDecimal.ZERO);
+            view.put("bids", level != null ? level.bids : 0);
+            return view;
+        }
+
+        /**
+         * Highest open bid; the earliest one wins a tie
+         */
+        private Map<String, Object> bestBid() {
+            if (levels.isEmpty()) {
+                return null;
+            }
+            BigDecimal price = levels.firstKey();
+            Bid best = earliest(open.values().stream().filter(bid -> bid.getAmount().compareTo(price) == 0).toList());
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("bidId", best.getId());
+            view.put("amount", best.getAmount());
+            view.put("quantity", best.getQuantity());
+            return view;
+        }
+
+        private static Bid earliest(Collection<Bid> bids) {
+            return bids.stream()
+                    .min(Comparator.comparing(Bid::getBidTime, Comparator.nullsLast(Comparator.naturalOrder()))
+                            .thenComparing(Bid::getId))
+                    .orElseThrow();
+        }
+
+        private static BigDecimal quantityOf(Bid bid) {
+            return bid.getQuantity() != null ? bid.getQuantity() : BigDecimal.ZERO;
+        }
+    }
+
+    private static final class Level {
+        BigDecimal quantity = BigDecimal.ZERO;
+        int bids;
+    }
+}
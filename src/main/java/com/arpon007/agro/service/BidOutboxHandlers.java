@@ -0,0 +1,125 @@
+package com.arpon007.agro.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.arpon007.agro.model.Cart;
+import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.model.OutboxEvent;
+import com.arpon007.agro.repository.CartRepository;
+import com.arpon007.agro.repository.ChatRepository;
+
+/**
+ * Outbox event types for bid side effects, and the handlers that perform them.
+ * Message text is rendered here, off the request thread.
+ */
+@Component
+public class BidOutboxHandlers {
+
+    /** { buyerId, cropId, quantity, price } */
+    public static final String CART_ADD = "CART_ADD";
+    /** { template, userId, cropTitle, quantity, price } */
+    public static final String NOTIFICATION = "NOTIFICATION";
+    /** { template, senderId, receiverId, cropTitle, quantity, price } */
+    public static final String INBOX_MESSAGE = "INBOX_MESSAGE";
+    /** { buyerId, cropId, amount, quantity } */
+    public static final String NEW_BID_MESSAGE = "NEW_BID_MESSAGE";
+
+    public static final String BID_ACCEPTED = "BID_ACCEPTED";
+    public static final String BID_REJECTED = "BID_REJECTED";
+
+    private final CartRepository cartRepository;
+    private final ChatRepository chatRepository;
+    private final CropService cropService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public BidOutboxHandlers(OutboxService outboxService, CartRepository cartRepository,
+            ChatRepository chatRepository, CropService cropService, JdbcTemplate jdbcTemplate) {
+        this.cartRepository = cartRepository;
+        this.chatRepository = chatRepository;
+        this.cropService = cropService;
+        this.jdbcTemplate = jdbcTemplate;
+
+        outboxService.register(CART_ADD, this::addToCarts);
+        outboxService.register(NOTIFICATION, this::insertNotifications);
+        outboxService.register(INBOX_MESSAGE, this::sendInboxMessages);
+        outboxService.register(NEW_BID_MESSAGE, this::sendNewBidMessages);
+    }
+
+    private void addToCarts(List<OutboxEvent> events) {
+        Map<Long, Cart> carts = new HashMap<>();
+        for (OutboxEvent event : events) {
+            Cart cart = carts.computeIfAbsent(event.getLong("buyerId"), cartRepository::getOrCreateCart);
+            cartRepository.addItemToCart(cart.getId(), event.getLong("cropId"), event.getDecimal("quantity"),
+                    event.getDecimal("price"));
+        }
+    }
+
+    private void insertNotifications(List<OutboxEvent> events) {
+        String sql = "INSERT INTO notifications (user_id, message_bn, type) VALUES (?, ?, 'BID')";
+        jdbcTemplate.batchUpdate(sql, events.stream()
+                .map(event -> new Object[] { event.getLong("userId"), notificationText(event) })
+                .toList());
+    }
+
+    private void sendInboxMessages(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            chatRepository.sendDirectMessage(event.getLong("senderId"), event.getLong("receiverId"),
+                    inboxText(event));
+        }
+    }
+
+    private void sendNewBidMessages(List<OutboxEvent> events) {
+        Map<Long, Crop> crops = new HashMap<>();
+        for (OutboxEvent event : events) {
+            Crop crop = crops.computeIfAbsent(event.getLong("cropId"), id -> cropService.getCropById(id, false));
+            // The crop may have been deleted since the bid was placed
+            if (crop != null && crop.getFarmerId() != null) {
+                chatRepository.sendBidMessage(event.getLong("buyerId"), crop.getFarmerId(), crop.getTitle(),
+                        event.getString("amount"), event.getString("quantity"));
+            }
+        }
+    }
+
+    private static String notificationText(OutboxEvent event) {
+        return switch (event.getString("template")) {
+            case BID_ACCEPTED -> String.format(
+                    "🎉 আপনার বিড গৃহীত হয়েছে!\n\n" +
+                            "ফসল: %s\n" +
+                            "পরিমাণ: %s কেজি\n" +
+                            "মূল্য: ৳%s/কেজি\n\n" +
+                            "পণ্যটি আপনার কার্টে যোগ করা হয়েছে। চেকআউট করতে কার্টে যান।",
+                    event.getString("cropTitle"), event.getString("quantity"), event.getString("price"));
+            case BID_REJECTED -> String.format(
+                    "❌ দুঃখিত! আপনার বিড প্রত্যাখ্যাত হয়েছে।\n\n" +
+                            "ফসল: %s\n" +
+                            "আপনার প্রস্তাবিত মূল্য: ৳%s/কেজি\n\n" +
+                            "আপনি অন্য ফসলে বিড করতে পারেন।",
+                    event.getString("cropTitle"), event.getString("price"));
+            default -> throw new IllegalArgumentException("Unknown template " + event.getString("template"));
+        };
+    }
+
+    private static String inboxText(OutboxEvent event) {
+        return switch (event.getString("template")) {
+            case BID_ACCEPTED -> String.format(
+                    "✅ বিড গৃহীত হয়েছে!\n\n" +
+                            "ফসল: %s\n" +
+                            "পরিমাণ: %s কেজি\n" +
+                            "মূল্য: ৳%s/কেজি\n\n" +
+                            "পণ্যটি আপনার কার্টে যোগ করা হয়েছে। চেকআউট করতে কার্টে যান।",
+                    event.getString("cropTitle"), event.getString("quantity"), event.getString("price"));
+            case BID_REJECTED -> String.format(
+                    "❌ বিড প্রত্যাখ্যাত হয়েছে\n\n" +
+                            "ফসল: %s\n" +
+                            "আপনার প্রস্তাবিত মূল্য: ৳%s/কেজি\n\n" +
+                            "দুঃখিত, কৃষক আপনার প্রস্তাবিত মূল্য গ্রহণ করেননি। আপনি অন্য ফসলে বিড করতে পারেন।",
+                    event.getString("cropTitle"), event.getString("price"));
+            default -> throw new IllegalArgumentException("Unknown template " + event.getString("template"));
+        };
+    }
+}
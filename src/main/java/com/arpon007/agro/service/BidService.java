@@ -0,0 +1,203 @@
+package com.arpon007.agro.service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.arpon007.agro.model.Bid;
+import com.arpon007.agro.model.BidAction;
+import com.arpon007.agro.repository.BidRepository;
+
+/**
+ * Bid state changes together with their side effects. Each method writes the
+ * bid and records the cart add, notification and chat message as outbox
+ * events in one transaction; {@link OutboxService} performs them afterwards.
+ * Transitions are compare-and-set on the bid's version, so a bid that changed
+ * since it was read fails with a BidConflictException and nothing is queued.
+ *
+ * New bids are first matched against the farmer's reserve rules
+ * ({@link BidMatchingEngine}); a matching bid is accepted, countered or
+ * rejected in the same transaction, with the same effects as the farmer doing
+ * it by hand.
+ */
+@Service
+public class BidService {
+
+    private final BidRepository bidRepository;
+    private final OutboxService outboxService;
+    private final BidMatchingEngine matchingEngine;
+    private final AuctionService auctionService;
+    private final StockReservationService reservations;
+
+    public BidService(BidRepository bidRepository, OutboxService outboxService, BidMatchingEngine matchingEngine,
+            AuctionService auctionService, StockReservationService reservations) {
+        this.bidRepository = bidRepository;
+        this.outboxService = outboxService;
+        this.matchingEngine = matchingEngine;
+        this.auctionService = auctionService;
+        this.reservations = reservations;
+    }
+
+    /**
+     * Place a bid, tell the farmer about it and apply the farmer's reserve
+     * rules. Bids on a crop under auction wait for the auction to clear.
+     *
+     * @return the bid's status afterwards
+     */
+    @Transactional
+    public String placeBid(Bid bid) {
+        boolean auctioned = auctionService.checkBid(bid);
+        bidRepository.placeBid(bid);
+
+        Map<String, Object> message = new HashMap<>();
+        message.put("buyerId", bid.getBuyerId());
+        message.put("cropId", bid.getCropId());
+        message.put("amount", plain(bid.getAmount()));
+        message.put("quantity", plain(bid.getQuantity()));
+        outboxService.enqueue(BidOutboxHandlers.NEW_BID_MESSAGE, message);
+
+        BidMatchingEngine.Match match = auctioned ? null : matchingEngine.match(bid);
+        if (match == null) {
+            return "PENDING";
+        }
+        // Act as the farmer on the version just inserted
+        Long farmerId = match.crop().getFarmerId();
+        bid.setFarmerId(farmerId);
+        bid.setCropTitle(match.crop().getTitle());
+        switch (match.outcome()) {
+            case ACCEPT -> {
+                try {
+                    hold(bid);
+                } catch (IllegalStateException e) {
+                    // Other buyers hold the stock; the farmer decides by hand
+                    return "PENDING";
+                }
+                bidRepository.acceptBid(bid.getId(), BidAction.ACCEPT, bid.getVersion());
+                accepted(bid, farmerId);
+                return "ACCEPTED";
+            }
+            case COUNTER -> {
+                bidRepository.farmerCounterOffer(bid.getId(), bid.getVersion(), match.price());
+                return "COUNTER_OFFER";
+            }
+            case REJECT -> {
+                rejectBid(bid, farmerId);
+                return "REJECTED";
+            }
+            default -> {
+                return "PENDING";
+            }
+        }
+    }
+
+    /**
+     * Accept a bid (loaded with its crop title) on behalf of actorId: the
+     * quantity is held for the buyer, the crop goes into their cart at the
+     * agreed price and the buyer is notified
+     *
+     * @throws IllegalStateException if other customers hold too much of the
+     *                               crop
+     */
+    @Transactional
+    public void acceptBid(Bid bid, Long actorId) {
+        auctionService.requireNegotiable(bid.getCropId());
+        bidRepository.acceptBid(bid.getId(), BidAction.ACCEPT, bid.getVersion());
+        hold(bid);
+        accepted(bid, actorId);
+    }
+
+    /**
+     * The buyer accepts the farmer's counter-offer: the quantity is held for
+     * them as for a bid the farmer accepted
+     *
+     * @throws IllegalStateException if other customers hold too much of the
+     *                               crop
+     */
+    @Transactional
+    public void buyerAcceptBid(Bid bid) {
+        auctionService.requireNegotiable(bid.getCropId());
+        bidRepository.acceptBid(bid.getId(), BidAction.BUYER_ACCEPT, bid.getVersion());
+        hold(bid);
+    }
+
+    /**
+     * Hold the bid's quantity for the buyer until they check out
+     */
+    private void hold(Bid bid) {
+        reservations.holdForBids(bid.getCropId(), Map.of(bid.getBuyerId(), quantity(bid)));
+    }
+
+    private void accepted(Bid bid, Long actorId) {
+        BigDecimal agreedPrice = bid.getFarmerCounterPrice() != null ? bid.getFarmerCounterPrice() : bid.getAmount();
+        BigDecimal quantity = quantity(bid);
+        outboxService.enqueue(BidOutboxHandlers.CART_ADD, cartAdd(bid, quantity, agreedPrice));
+        notifyBuyer(BidOutboxHandlers.BID_ACCEPTED, bid, actorId, quantity, agreedPrice);
+    }
+
+    private static BigDecimal quantity(Bid bid) {
+        return bid.getQuantity() != null ? bid.getQuantity() : BigDecimal.ONE;
+    }
+
+    /**
+     * Reject a bid and notify the buyer
+     */
+    @Transactional
+    public void rejectBid(Bid bid, Long actorId) {
+        auctionService.requireNegotiable(bid.getCropId());
+        bidRepository.rejectBid(bid.getId(), bid.getVersion());
+        notifyBuyer(BidOutboxHandlers.BID_REJECTED, bid, actorId, bid.getQuantity(), bid.getAmount());
+    }
+
+    private void notifyBuyer(String template, Bid bid, Long actorId, BigDecimal quantity, BigDecimal price) {
+        Map<String, Object> notification = notification(template, bid, quantity, price);
+        outboxService.enqueue(BidOutboxHandlers.NOTIFICATION, notification);
+        outboxService.enqueue(BidOutboxHandlers.INBOX_MESSAGE, inboxMessage(notification, actorId));
+    }
+
+    /**
+     * {@link BidOutboxHandlers#CART_ADD} payload
+     */
+    static Map<String, Object> cartAdd(Bid bid, BigDecimal quantity, BigDecimal price) {
+        Map<String, Object> cartAdd = new HashMap<>();
+        cartAdd.put("buyerId", bid.getBuyerId());
+        cartAdd.put("cropId", bid.getCropId());
+        cartAdd.put("quantity", plain(quantity));
+        cartAdd.put("price", plain(price));
+        return cartAdd;
+    }
+
+    /**
+     * {@link BidOutboxHandlers#NOTIFICATION} payload for the bid's buyer
+     */
+    static Map<String, Object> notification(String template, Bid bid, BigDecimal quantity, BigDecimal price) {
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("template", template);
+        notification.put("userId", bid.getBuyerId());
+        notification.put("cropTitle", bid.getCropTitle());
+        notification.put("quantity", plain(quantity));
+        notification.put("price", plain(price));
+        return notification;
+    }
+
+    /**
+     * {@link BidOutboxHandlers#INBOX_MESSAGE} payload with the same text as a
+     * notification, sent by actorId
+     */
+    static Map<String, Object> inboxMessage(Map<String, Object> notification, Long actorId) {
+        Map<String, Object> message = new HashMap<>(notification);
+        Object buyerId = message.remove("userId");
+        message.put("senderId", actorId);
+        message.put("receiverId", buyerId);
+        return message;
+    }
+
+    /**
+     * Amounts travel as plain strings so JSON keeps their exact scale
+     */
+    private static String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+}
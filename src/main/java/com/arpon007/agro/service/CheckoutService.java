@@ -0,0 +1,143 @@
+package com.arpon007.agro.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.arpon007.agro.model.Cart;
+import com.arpon007.agro.model.CartItem;
+import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.model.Order;
+import com.arpon007.agro.model.OrderItem;
+import com.arpon007.agro.model.Transaction;
+import com.arpon007.agro.repository.CartRepository;
+import com.arpon007.agro.repository.CropRepository;
+import com.arpon007.agro.repository.OrderRepository;
+
+/**
+ * Customer checkout of a whole cart in a fixed number of statements: one
+ * query for the crops, one batch of orders (one per farmer) and one of their
+ * lines (one per cart item), one batch of guarded stock
+ * decrements (quantity = quantity - ? WHERE quantity >= ?), then the wallet
+ * debit and cart clear. Any failure rolls the whole checkout back, so stock
+ * can never be oversold. Stock other customers hold is not for sale; the
+ * buyer's own holds are released once the checkout commits.
+ */
+@Service
+public class CheckoutService {
+
+    /**
+     * Orders placed by one checkout
+     */
+    public record Result(List<Long> orderIds, BigDecimal totalAmount, BigDecimal deliveryFee) {
+    }
+
+    private final CartRepository cartRepository;
+    private final CropRepository cropRepository;
+    private final OrderRepository orderRepository;
+    private final WalletService walletService;
+    private final AppConfigService appConfigService;
+    private final StockReservationService reservations;
+
+    public CheckoutService(CartRepository cartRepository, CropRepository cropRepository,
+            OrderRepository orderRepository, WalletService walletService, AppConfigService appConfigService,
+            StockReservationService reservations) {
+        this.cartRepository = cartRepository;
+        this.cropRepository = cropRepository;
+        this.orderRepository = orderRepository;
+        this.walletService = walletService;
+        this.appConfigService = appConfigService;
+        this.reservations = reservations;
+    }
+
+    /**
+     * Turn the buyer's cart into one fully paid order per farmer, with a line
+     * per cart item
+     *
+     * @param deliveryLocation "dhaka" or "outside", for the delivery charge
+     * @throws IllegalStateException with a user-facing message for an empty
+     *                               cart, missing stock or a failed payment
+     */
+    @Transactional
+    public Result checkout(Long buyerId, String mobile, String address, String paymentMethod,
+            String deliveryLocation) {
+        Cart cart = cartRepository.getCartWithItems(buyerId);
+        if (cart.getItems() == null || cart.getItems().isEmpty()) {
+            throw new IllegalStateException("Cart is empty");
+        }
+
+        List<Long> cropIds = cart.getItems().stream().map(CartItem::getCropId).toList();
+        Map<Long, Crop> crops = cropRepository.findStockByIds(cropIds);
+
+        BigDecimal grandTotal = BigDecimal.ZERO;
+        Map<Long, Order> ordersByFarmer = new LinkedHashMap<>();
+        Map<Long, BigDecimal> taken = new LinkedHashMap<>();
+        for (CartItem item : cart.getItems()) {
+            Crop crop = crops.get(item.getCropId());
+            if (crop == null) {
+                throw new IllegalStateException("Product is no longer available");
+            }
+            BigDecimal total = taken.merge(crop.getId(), item.getQuantity(), BigDecimal::add);
+            // Other customers' holds are off limits; the guarded decrement below
+            // still stops two checkouts from taking the same stock
+            if (total.compareTo(reservations.availableTo(crop.getId(), buyerId, crop.getQuantity())) > 0) {
+                throw new IllegalStateException("Insufficient stock for " + crop.getTitle());
+            }
+
+            // Use exact price set by farmer
+            BigDecimal itemTotal = crop.getMinPrice().multiply(item.getQuantity());
+            grandTotal = grandTotal.add(itemTotal);
+
+            // For customers, full payment upfront (no advance/due split)
+            Order order = ordersByFarmer.computeIfAbsent(crop.getFarmerId(), farmerId -> {
+                Order created = new Order();
+                created.setBuyerId(buyerId);
+                created.setFarmerId(farmerId);
+                created.setCropId(crop.getId());
+                created.setTotalAmount(BigDecimal.ZERO);
+                created.setAdvanceAmount(BigDecimal.ZERO);
+                created.setDueAmount(BigDecimal.ZERO);
+                created.setCustomerMobile(mobile);
+                created.setCustomerAddress(address);
+                created.setStatus(Order.OrderStatus.PENDING);
+                created.setDeliveryStatus(Order.DeliveryStatus.PENDING);
+                return created;
+            });
+            order.setTotalAmount(order.getTotalAmount().add(itemTotal));
+            order.setAdvanceAmount(order.getTotalAmount());
+            order.getItems().add(new OrderItem(crop.getId(), item.getQuantity(), crop.getMinPrice(), itemTotal));
+        }
+
+        // Another checkout may have taken the stock since it was read
+        List<Long> shortCrops = cropRepository.reduceStockBatch(taken);
+        if (!shortCrops.isEmpty()) {
+            throw new IllegalStateException("Insufficient stock for " + crops.get(shortCrops.get(0)).getTitle());
+        }
+        List<Long> orderIds = orderRepository.createOrders(new ArrayList<>(ordersByFarmer.values()));
+
+        String configKey = "delivery_charge_" + deliveryLocation; // delivery_charge_dhaka or delivery_charge_outside
+        BigDecimal defaultCharge = "dhaka".equalsIgnoreCase(deliveryLocation) ? new BigDecimal("70")
+                : new BigDecimal("130");
+        BigDecimal deliveryFee = appConfigService.getDecimal(configKey, defaultCharge);
+        grandTotal = grandTotal.add(deliveryFee);
+
+        // Debit wallet only for Wallet/Online payment; COD/Cash is collected on delivery
+        if ("WALLET".equalsIgnoreCase(paymentMethod) || "ONLINE".equalsIgnoreCase(paymentMethod)) {
+            try {
+                walletService.debitWallet(buyerId, grandTotal, Transaction.TransactionSource.ORDER_PAYMENT,
+                        "Payment for " + orderIds.size() + " order(s) + Delivery Fee");
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Payment failed: " + e.getMessage(), e);
+            }
+        }
+
+        cartRepository.clearCart(cart.getId());
+        reservations.release(buyerId, taken.keySet());
+        return new Result(orderIds, grandTotal, deliveryFee);
+    }
+}
@@ -13,7 +13,7 @@ import java.io.IOException;
 import java.util.Map;
 
 @Service
-public class CloudinaryService {
+public class CloudinaryService implements ImageUploader {
 
     private static final Logger log = LoggerFactory.getLogger(CloudinaryService.class);
 
@@ -56,6 +56,7 @@ public class CloudinaryService {
      * @param folder The folder in Cloudinary (e.g., "agro/crops", "agro/blogs")
      * @return The secure URL of the uploaded image, or null on failure
      */
+    @Override
     public String uploadImage(MultipartFile file, String folder) {
         if (!isConfigured()) {
             log.warn("Cloudinary not configured, cannot upload image");
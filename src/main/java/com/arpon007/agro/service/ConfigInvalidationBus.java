@@ -0,0 +1,25 @@
+package com.arpon007.agro.service;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Tells the other application nodes that configuration keys were changed so
+ * they can reload without waiting for the periodic reconcile.
+ *
+ * {@link LocalConfigInvalidationBus} delivers within one JVM; a deployment with
+ * several nodes can provide a broker-backed implementation instead.
+ */
+public interface ConfigInvalidationBus {
+
+    /**
+     * @param originNodeId node that made the change (it has already reloaded)
+     * @param keys         changed keys; empty means "reload everything"
+     */
+    record Invalidation(String originNodeId, Set<String> keys) {
+    }
+
+    void publish(Invalidation invalidation);
+
+    void subscribe(Consumer<Invalidation> listener);
+}
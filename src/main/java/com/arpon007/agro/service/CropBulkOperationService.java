@@ -0,0 +1,163 @@
+package com.arpon007.agro.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arpon007.agro.dto.CropFilter;
+import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.repository.CropRepository;
+
+/**
+ * Applies one admin change to every crop matching a filter.
+ *
+ * Matching ids are resolved with a single query, then updated in chunks with
+ * one set-based UPDATE ... WHERE id IN (...) per chunk. Each chunk commits in
+ * its own short transaction, so a failure only loses that chunk and the
+ * report says which ones.
+ */
+@Service
+public class CropBulkOperationService {
+
+    private static final Logger log = LoggerFactory.getLogger(CropBulkOperationService.class);
+
+    static final int CHUNK_SIZE = 500;
+
+    public enum Operation {
+        QUANTITY_SETTINGS,
+        PRICING_SETTINGS,
+        MARKETPLACE_TYPE,
+        STOCK_OUT,
+        BACK_IN_STOCK
+    }
+
+    private final CropRepository cropRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public CropBulkOperationService(CropRepository cropRepository, PlatformTransactionManager transactionManager) {
+        this.cropRepository = cropRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Run an operation over the filtered crops
+     *
+     * @param values operation arguments, e.g. minWholesaleQty / retailPrice /
+     *               marketplaceType (unset values keep the current column value)
+     * @return a report with matched/updated counts and per-chunk progress
+     */
+    public Map<String, Object> execute(Operation operation, CropFilter filter, Map<String, Object> values) {
+        ChunkUpdate update = prepare(operation, values != null ? values : Map.of());
+
+        long start = System.currentTimeMillis();
+        List<Long> ids = cropRepository.findIdsByFilter(filter);
+        int totalChunks = (ids.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        int updated = 0;
+        int failedChunks = 0;
+        List<Map<String, Object>> chunks = new ArrayList<>(totalChunks);
+        for (int from = 0, chunkNo = 1; from < ids.size(); from += CHUNK_SIZE, chunkNo++) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+
+            Map<String, Object> progress = new LinkedHashMap<>();
+            progress.put("chunk", chunkNo);
+            progress.put("firstCropId", chunk.get(0));
+            progress.put("lastCropId", chunk.get(chunk.size() - 1));
+            progress.put("size", chunk.size());
+            try {
+                Integer rows = transactionTemplate.execute(status -> update.apply(chunk));
+                int chunkUpdated = rows != null ? rows : 0;
+                updated += chunkUpdated;
+                progress.put("updated", chunkUpdated);
+                progress.put("status", "OK");
+            } catch (Exception e) {
+                failedChunks++;
+                progress.put("updated", 0);
+                progress.put("status", "FAILED");
+                progress.put("error", e.getMessage());
+                log.error("Bulk {} chunk {}/{} failed", operation, chunkNo, totalChunks, e);
+            }
+            chunks.add(progress);
+            log.info("Bulk {}: chunk {}/{} done ({} crops updated so far)", operation, chunkNo, totalChunks, updated);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("operation", operation.name());
+        report.put("matched", ids.size());
+        report.put("updated", updated);
+        report.put("totalChunks", totalChunks);
+        report.put("failedChunks", failedChunks);
+        report.put("status", failedChunks == 0 ? "COMPLETED" : "COMPLETED_WITH_ERRORS");
+        report.put("durationMs", System.currentTimeMillis() - start);
+        report.put("chunks", chunks);
+        return report;
+    }
+
+    /**
+     * Validate the arguments once and bind them into the per-chunk statement
+     */
+    private ChunkUpdate prepare(Operation operation, Map<String, Object> values) {
+        switch (operation) {
+            case QUANTITY_SETTINGS: {
+                BigDecimal minWholesaleQty = decimal(values, "minWholesaleQty");
+                BigDecimal minRetailQty = decimal(values, "minRetailQty");
+                BigDecimal maxRetailQty = decimal(values, "maxRetailQty");
+                requirePositive(minWholesaleQty, "Minimum wholesale quantity");
+                requirePositive(minRetailQty, "Minimum retail quantity");
+                if (maxRetailQty != null && minRetailQty != null && maxRetailQty.compareTo(minRetailQty) <= 0) {
+                    throw new IllegalArgumentException("Maximum retail quantity must be greater than minimum");
+                }
+                return ids -> cropRepository.updateQuantitySettingsForIds(ids, minWholesaleQty, minRetailQty,
+                        maxRetailQty);
+            }
+            case PRICING_SETTINGS: {
+                BigDecimal wholesalePrice = decimal(values, "wholesalePrice");
+                BigDecimal retailPrice = decimal(values, "retailPrice");
+                BigDecimal profitMarginPercent = decimal(values, "profitMarginPercent");
+                BigDecimal fixedCostPerUnit = decimal(values, "fixedCostPerUnit");
+                requirePositive(wholesalePrice, "Wholesale price");
+                requirePositive(retailPrice, "Retail price");
+                return ids -> cropRepository.updatePricingSettingsForIds(ids, wholesalePrice, retailPrice,
+                        profitMarginPercent, fixedCostPerUnit);
+            }
+            case MARKETPLACE_TYPE: {
+                Object type = values.get("marketplaceType");
+                if (type == null) {
+                    throw new IllegalArgumentException("marketplaceType is required");
+                }
+                String marketplaceType = Crop.MarketplaceType.valueOf(type.toString().toUpperCase()).name();
+                return ids -> cropRepository.updateMarketplaceTypeForIds(ids, marketplaceType);
+            }
+            case STOCK_OUT:
+                return ids -> cropRepository.updateSoldForIds(ids, true);
+            case BACK_IN_STOCK:
+                return ids -> cropRepository.updateSoldForIds(ids, false);
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation);
+        }
+    }
+
+    private static BigDecimal decimal(Map<String, Object> values, String key) {
+        Object value = values.get(key);
+        return value != null && !value.toString().isBlank() ? new BigDecimal(value.toString()) : null;
+    }
+
+    private static void requirePositive(BigDecimal value, String label) {
+        if (value != null && value.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException(label + " must be greater than 0");
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkUpdate {
+        int apply(List<Long> ids);
+    }
+}
@@ -0,0 +1,313 @@
+package com.arpon007.agro.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.arpon007.agro.dto.CursorPage;
+import com.arpon007.agro.dto.PageCursor;
+import com.arpon007.agro.event.CropChangedEvent;
+import com.arpon007.agro.event.StockReservedEvent;
+import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.repository.CropRepository;
+import com.arpon007.agro.repository.ReferenceDataCache;
+
+/**
+ * In-memory snapshot of the public crop catalog (unsold crops), pre-sorted per
+ * marketplace type and language. Both languages are built from one result set;
+ * the Bangla view only swaps in the crop type names from
+ * {@link ReferenceDataCache}.
+ *
+ * Reads only dereference a volatile immutable snapshot, so they never lock or
+ * touch the database once the catalog is warm. Writers are serialized: every
+ * committed {@link CropChangedEvent} reloads just the affected crops and
+ * publishes a new snapshot. The crops in a snapshot are shared between
+ * requests and must not be modified by callers.
+ *
+ * Each crop also carries its available quantity (quantity minus active stock
+ * holds); a {@link StockReservedEvent} re-stamps copies of the affected crops
+ * without going to the database. Cached listing responses
+ * ({@link ResponseCache.Group#CROPS}) are dropped after each new snapshot is
+ * published.
+ */
+@Service
+public class CropCatalogService {
+
+    private static final Logger log = LoggerFactory.getLogger(CropCatalogService.class);
+
+    /**
+     * Same order as the SQL listings: newest first
+     */
+    static final Comparator<Crop> CATALOG_ORDER = Comparator
+            .comparing(Crop::getCreatedAt, Comparator.nullsLast(Comparator.<Timestamp>reverseOrder()))
+            .thenComparing(Crop::getId, Comparator.reverseOrder());
+
+    private final CropRepository cropRepository;
+    private final ReferenceDataCache referenceData;
+    private final StockReservationService reservations;
+    private final ResponseCache responseCache;
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot;
+
+    public CropCatalogService(CropRepository cropRepository, ReferenceDataCache referenceData,
+            StockReservationService reservations, ResponseCache responseCache) {
+        this.cropRepository = cropRepository;
+        this.referenceData = referenceData;
+        this.reservations = reservations;
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Unsold crops listed under exactly the given marketplace type, newest first
+     */
+    public List<Crop> getCrops(String marketplaceType, boolean isBangla) {
+        Crop.MarketplaceType type;
+        try {
+            type = Crop.MarketplaceType.valueOf(marketplaceType);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Collections.emptyList();
+        }
+        return current().language(isBangla).byType.getOrDefault(type, Collections.emptyList());
+    }
+
+    /**
+     * One page of {@link #getCrops(String, boolean)} starting after the cursor.
+     * The start position is found by binary search on the sorted snapshot.
+     */
+    public CursorPage<Crop> getCropsPage(String marketplaceType, boolean isBangla, PageCursor after, int limit) {
+        List<Crop> crops = getCrops(marketplaceType, isBangla);
+        int from = after == null ? 0 : firstIndexAfter(crops, after);
+        int to = Math.min(crops.size(), from + limit + 1);
+        return CursorPage.of(crops.subList(from, to), limit, crop -> new PageCursor(crop.getCreatedAt(), crop.getId()));
+    }
+
+    private static int firstIndexAfter(List<Crop> crops, PageCursor after) {
+        Crop probe = new Crop();
+        probe.setCreatedAt(after.createdAt());
+        probe.setId(after.id());
+
+        int low = 0;
+        int high = crops.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (CATALOG_ORDER.compare(crops.get(mid), probe) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * An unsold crop from the snapshot, or null if it is sold or unknown
+     */
+    public Crop getCrop(Long id, boolean isBangla) {
+        return current().language(isBangla).byId.get(id);
+    }
+
+    /**
+     * All unsold crops, newest first
+     */
+    public List<Crop> getAllCrops(boolean isBangla) {
+        return current().language(isBangla).all;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            // The first read will retry
+            log.warn("Could not warm up crop catalog: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCropChanged(CropChangedEvent event) {
+        try {
+            if (event.isFullReload() || snapshot == null) {
+                rebuild();
+            } else {
+                patch(event.cropIds());
+            }
+        } catch (Exception e) {
+            // Never fail the write that triggered the refresh; rebuild on next read instead
+            log.error("Failed to refresh crop catalog for {}: {}", event.cropIds(), e.getMessage());
+            snapshot = null;
+        } finally {
+            // Only now, so cached listings are rebuilt from the new snapshot
+            responseCache.invalidate(ResponseCache.Group.CROPS);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockReserved(StockReservedEvent event) {
+        try {
+            restamp(event.cropIds());
+        } catch (Exception e) {
+            log.error("Failed to refresh available stock for {}: {}", event.cropIds(), e.getMessage());
+            snapshot = null;
+        } finally {
+            // Listings show the available quantity
+            responseCache.invalidate(ResponseCache.Group.CROPS);
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (writeLock) {
+            if (snapshot == null) {
+                rebuild();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Reload the whole catalog (one crop query plus the image batches)
+     */
+    public void rebuild() {
+        synchronized (writeLock) {
+            List<Crop> crops = cropRepository.findAll(false);
+            stampAvailable(crops);
+            Snapshot rebuilt = new Snapshot(
+                    LanguageView.of(crops),
+                    LanguageView.of(inBangla(crops)));
+            snapshot = rebuilt;
+            log.info("Crop catalog loaded with {} crops", rebuilt.english.all.size());
+        }
+    }
+
+    private void patch(List<Long> cropIds) {
+        synchronized (writeLock) {
+            Snapshot old = snapshot;
+            if (old == null) {
+                rebuild();
+                return;
+            }
+            List<Crop> reloaded = cropRepository.findActiveByIds(cropIds, false);
+            stampAvailable(reloaded);
+            snapshot = new Snapshot(
+                    old.english.patch(cropIds, reloaded),
+                    old.bangla.patch(cropIds, inBangla(reloaded)));
+        }
+    }
+
+    /**
+     * Replace the given crops with copies carrying their current available
+     * quantity
+     */
+    private void restamp(List<Long> cropIds) {
+        synchronized (writeLock) {
+            Snapshot old = snapshot;
+            if (old == null) {
+                return;
+            }
+            snapshot = new Snapshot(
+                    old.english.patch(cropIds, restamped(old.english, cropIds)),
+                    old.bangla.patch(cropIds, restamped(old.bangla, cropIds)));
+        }
+    }
+
+    private List<Crop> restamped(LanguageView view, List<Long> cropIds) {
+        List<Crop> copies = new ArrayList<>(cropIds.size());
+        for (Long id : cropIds) {
+            Crop crop = view.byId.get(id);
+            if (crop != null) {
+                Crop copy = new Crop(crop);
+                copy.setAvailableQuantity(reservations.available(id, copy.getQuantity()));
+                copies.add(copy);
+            }
+        }
+        return copies;
+    }
+
+    private void stampAvailable(List<Crop> crops) {
+        for (Crop crop : crops) {
+            crop.setAvailableQuantity(reservations.available(crop.getId(), crop.getQuantity()));
+        }
+    }
+
+    /**
+     * Copies of English-named crops carrying the Bangla crop type name
+     */
+    private List<Crop> inBangla(List<Crop> crops) {
+        List<Crop> copies = new ArrayList<>(crops.size());
+        for (Crop crop : crops) {
+            Crop copy = new Crop(crop);
+            copy.setCropTypeName(referenceData.cropTypeName(crop.getCropTypeId(), true));
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private record Snapshot(LanguageView english, LanguageView bangla) {
+        LanguageView language(boolean isBangla) {
+            return isBangla ? bangla : english;
+        }
+    }
+
+    /**
+     * Immutable catalog for one language
+     */
+    private record LanguageView(Map<Long, Crop> byId, List<Crop> all, Map<Crop.MarketplaceType, List<Crop>> byType) {
+
+        static LanguageView of(List<Crop> crops) {
+            Map<Long, Crop> byId = new HashMap<>();
+            for (Crop crop : crops) {
+                byId.put(crop.getId(), crop);
+            }
+            return build(byId);
+        }
+
+        /**
+         * Copy of this view with the given ids replaced by their reloaded rows
+         * (ids missing from the reload are dropped)
+         */
+        LanguageView patch(List<Long> cropIds, List<Crop> reloaded) {
+            Map<Long, Crop> byId = new HashMap<>(this.byId);
+            for (Long id : cropIds) {
+                byId.remove(id);
+            }
+            for (Crop crop : reloaded) {
+                byId.put(crop.getId(), crop);
+            }
+            return build(byId);
+        }
+
+        private static LanguageView build(Map<Long, Crop> byId) {
+            List<Crop> all = new ArrayList<>(byId.values());
+            all.sort(CATALOG_ORDER);
+
+            Map<Crop.MarketplaceType, List<Crop>> grouped = new EnumMap<>(Crop.MarketplaceType.class);
+            for (Crop.MarketplaceType type : Crop.MarketplaceType.values()) {
+                grouped.put(type, new ArrayList<>());
+            }
+            for (Crop crop : all) {
+                Crop.MarketplaceType type = crop.getMarketplaceType() != null ? crop.getMarketplaceType()
+                        : Crop.MarketplaceType.BOTH;
+                grouped.get(type).add(crop);
+            }
+
+            Map<Crop.MarketplaceType, List<Crop>> byType = new EnumMap<>(Crop.MarketplaceType.class);
+            grouped.forEach((type, list) -> byType.put(type, List.copyOf(list)));
+            return new LanguageView(Map.copyOf(byId), List.copyOf(all), Collections.unmodifiableMap(byType));
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.arpon007.agro.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.arpon007.agro.event.CropChangedEvent;
+import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.repository.CropRepository;
+import com.arpon007.agro.repository.LocationHierarchy;
+import com.arpon007.agro.repository.LocationHierarchy.Placement;
+import com.arpon007.agro.repository.ReferenceDataCache;
+
+/**
+ * In-memory index from division / district / upazila id to the unsold crops
+ * placed there.
+ *
+ * "Crops near me" starts at the buyer's upazila and widens to the district and
+ * then the division until it has enough crops. Lookups only touch this index
+ * and the {@link CropCatalogService} snapshot; the index is patched per crop
+ * from {@link CropChangedEvent}s.
+ */
+@Service
+public class CropLocationIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CropLocationIndex.class);
+
+    public enum Level {
+        UPAZILA,
+        DISTRICT,
+        DIVISION
+    }
+
+    /**
+     * Nearby crops, nearest level first (newest first within a level), and the
+     * widest level that had to be searched
+     */
+    public record NearbyResult(Placement origin, Level level, List<Crop> crops) {
+    }
+
+    private final CropRepository cropRepository;
+    private final CropCatalogService cropCatalogService;
+    private final ReferenceDataCache referenceData;
+    private final LazySnapshot<Index> index;
+
+    public CropLocationIndex(CropRepository cropRepository, CropCatalogService cropCatalogService,
+            ReferenceDataCache referenceData) {
+        this.cropRepository = cropRepository;
+        this.cropCatalogService = cropCatalogService;
+        this.referenceData = referenceData;
+        this.index = new LazySnapshot<>("crop location index", new Index(),
+                () -> build(cropRepository, referenceData, false));
+    }
+
+    /**
+     * Find up to limit unsold crops around the origin
+     *
+     * @param marketplaceType optional exact marketplace type filter
+     */
+    public NearbyResult findNearby(Placement origin, String marketplaceType, boolean isBangla, int limit) {
+        Index current = index.get();
+
+        Crop.MarketplaceType type = null;
+        if (marketplaceType != null && !marketplaceType.isBlank()) {
+            type = Crop.MarketplaceType.valueOf(marketplaceType.trim().toUpperCase());
+        }
+
+        List<Crop> result = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        Level level = null;
+        for (Level candidate : Level.values()) {
+            Integer id = idAt(origin, candidate);
+            if (id == null) {
+                continue;
+            }
+            level = candidate;
+            List<Crop> found = new ArrayList<>();
+            for (Long cropId : current.postings(candidate).getOrDefault(id, Set.of())) {
+                if (!seen.add(cropId)) {
+                    continue;
+                }
+                Crop crop = cropCatalogService.getCrop(cropId, isBangla);
+                if (crop != null && (type == null || crop.getMarketplaceType() == type)) {
+                    found.add(crop);
+                }
+            }
+            found.sort(CropCatalogService.CATALOG_ORDER);
+            result.addAll(found.subList(0, Math.min(found.size(), limit - result.size())));
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return new NearbyResult(origin, level, result);
+    }
+
+    /**
+     * Number of indexed crops under a division / district / upazila id
+     */
+    public int count(Level level, Integer id) {
+        return index.get().postings(level).getOrDefault(id, Set.of()).size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        index.warmUp(() -> build(cropRepository, referenceData, true));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCropChanged(CropChangedEvent event) {
+        if (!index.isLoaded()) {
+            return;
+        }
+        try {
+            if (event.isFullReload()) {
+                rebuild(false);
+            } else {
+                reindex(event.cropIds());
+            }
+        } catch (Exception e) {
+            log.error("Failed to update crop location index for {}: {}", event.cropIds(), e.getMessage());
+            index.invalidate();
+        }
+    }
+
+    /**
+     * Reload the whole index
+     *
+     * @param backfill also store the resolved ids of crops saved before
+     *                 locations were normalized
+     */
+    public void rebuild(boolean backfill) {
+        index.reload(() -> build(cropRepository, referenceData, backfill));
+    }
+
+    private static Index build(CropRepository cropRepository, ReferenceDataCache referenceData, boolean backfill) {
+        Index rebuilt = new Index();
+        List<Object[]> resolved = new ArrayList<>();
+        for (Map<String, Object> row : cropRepository.findLocationRows(null)) {
+            Long cropId = ((Number) row.get("id")).longValue();
+            Placement placement = placementOf(referenceData, row);
+            rebuilt.add(cropId, placement);
+            if (row.get("division_id") == null && !placement.isEmpty()) {
+                resolved.add(new Object[] { placement.divisionId(), placement.districtId(),
+                        placement.upazilaId(), cropId });
+            }
+        }
+        if (backfill) {
+            cropRepository.updateLocationIds(resolved);
+        }
+        log.info("Crop location index built with {} crops ({} placements backfilled)",
+                rebuilt.placements.size(), backfill ? resolved.size() : 0);
+        return rebuilt;
+    }
+
+    private void reindex(Collection<Long> cropIds) {
+        index.update(current -> {
+            List<Map<String, Object>> rows = cropRepository.findLocationRows(cropIds);
+            for (Long id : cropIds) {
+                current.remove(id);
+            }
+            for (Map<String, Object> row : rows) {
+                current.add(((Number) row.get("id")).longValue(), placementOf(referenceData, row));
+            }
+        });
+    }
+
+    /**
+     * Stored ids win; otherwise resolve the free text, then the farmer's address
+     */
+    private static Placement placementOf(ReferenceDataCache referenceData, Map<String, Object> row) {
+        LocationHierarchy locations = referenceData.getLocations();
+        Placement placement = locations.placementOf(intValue(row.get("division_id")),
+                intValue(row.get("district_id")), intValue(row.get("upazila_id")));
+        if (placement.isEmpty()) {
+            placement = locations.resolve((String) row.get("location"));
+        }
+        if (placement.isEmpty()) {
+            placement = locations.resolve((String) row.get("farmer_division"), (String) row.get("farmer_district"),
+                    (String) row.get("farmer_upazila"));
+        }
+        return placement;
+    }
+
+    /**
+     * Placements and per-level postings of one generation of the index
+     */
+    private static final class Index {
+
+        final Map<Long, Placement> placements = new ConcurrentHashMap<>();
+        final Map<Integer, Set<Long>> byDivision = new ConcurrentHashMap<>();
+        final Map<Integer, Set<Long>> byDistrict = new ConcurrentHashMap<>();
+        final Map<Integer, Set<Long>> byUpazila = new ConcurrentHashMap<>();
+
+        void add(Long cropId, Placement placement) {
+            if (placement.isEmpty()) {
+                return;
+            }
+            placements.put(cropId, placement);
+            for (Level level : Level.values()) {
+                Integer id = idAt(placement, level);
+                if (id != null) {
+                    postings(level).computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(cropId);
+                }
+            }
+        }
+
+        void remove(Long cropId) {
+            Placement placement = placements.remove(cropId);
+            if (placement == null) {
+                return;
+            }
+            for (Level level : Level.values()) {
+                Integer id = idAt(placement, level);
+                Set<Long> ids = id != null ? postings(level).get(id) : null;
+                if (ids != null) {
+                    ids.remove(cropId);
+                }
+            }
+        }
+
+        Map<Integer, Set<Long>> postings(Level level) {
+            return switch (level) {
+                case UPAZILA -> byUpazila;
+                case DISTRICT -> byDistrict;
+                case DIVISION -> byDivision;
+            };
+        }
+    }
+
+    private static Integer idAt(Placement placement, Level level) {
+        return switch (level) {
+            case UPAZILA -> placement.upazilaId();
+            case DISTRICT -> placement.districtId();
+            case DIVISION -> placement.divisionId();
+        };
+    }
+
+    private static Integer intValue(Object value) {
+        return value != null ? ((Number) value).intValue() : null;
+    }
+}
@@ -1,75 +1,58 @@
 package com.arpon007.agro.service;
 
+import com.arpon007.agro.dto.CursorPage;
+import com.arpon007.agro.dto.PageCursor;
 import com.arpon007.agro.model.Crop;
 import com.arpon007.agro.repository.CropRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class CropService {
 
-    private static final Logger log = LoggerFactory.getLogger(CropService.class);
     private final CropRepository cropRepository;
-    private final CloudinaryService cloudinaryService;
+    private final ImageUploadStage imageUploadStage;
+    private final CropCatalogService cropCatalogService;
+    private final TransactionTemplate transactionTemplate;
 
-    public CropService(CropRepository cropRepository, CloudinaryService cloudinaryService) {
+    public CropService(CropRepository cropRepository, ImageUploadStage imageUploadStage,
+            CropCatalogService cropCatalogService, PlatformTransactionManager transactionManager) {
         this.cropRepository = cropRepository;
-        this.cloudinaryService = cloudinaryService;
+        this.imageUploadStage = imageUploadStage;
+        this.cropCatalogService = cropCatalogService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
+    /**
+     * Upload images first (in parallel, outside any transaction), then save the
+     * crop in a short transaction
+     */
     public Crop addCrop(Crop crop, List<MultipartFile> images) throws IOException {
-        List<String> imageUrls = new ArrayList<>();
-        if (images != null) {
-            for (MultipartFile file : images) {
-                if (!file.isEmpty()) {
-                    String imageUrl = cloudinaryService.uploadImage(file, "agro/crops");
-                    if (imageUrl != null) {
-                        imageUrls.add(imageUrl);
-                        log.info("Uploaded crop image to Cloudinary: {}", imageUrl);
-                    } else {
-                        log.warn("Failed to upload image to Cloudinary: {}", file.getOriginalFilename());
-                    }
-                }
-            }
-        }
-        crop.setImages(imageUrls);
-        return cropRepository.save(crop);
+        crop.setImages(imageUploadStage.uploadAll(images, "agro/crops"));
+        return transactionTemplate.execute(status -> cropRepository.save(crop));
     }
 
-    @Transactional
+    /**
+     * Upload any new images first (outside any transaction), then update the
+     * crop in a short transaction
+     */
     public Crop updateCrop(Crop crop, List<MultipartFile> images) throws IOException {
         // Handle new images if provided
-        if (images != null && !images.isEmpty()) {
-            List<String> imageUrls = new ArrayList<>();
-            for (MultipartFile file : images) {
-                if (!file.isEmpty()) {
-                    String imageUrl = cloudinaryService.uploadImage(file, "agro/crops");
-                    if (imageUrl != null) {
-                        imageUrls.add(imageUrl);
-                        log.info("Uploaded crop image to Cloudinary: {}", imageUrl);
-                    } else {
-                        log.warn("Failed to upload image to Cloudinary: {}", file.getOriginalFilename());
-                    }
-                }
-            }
-            if (!imageUrls.isEmpty()) {
-                crop.setImages(imageUrls);
-            }
+        List<String> imageUrls = imageUploadStage.uploadAll(images, "agro/crops");
+        if (!imageUrls.isEmpty()) {
+            crop.setImages(imageUrls);
         }
-        return cropRepository.update(crop);
+        return transactionTemplate.execute(status -> cropRepository.update(crop));
     }
 
     public List<Crop> getAllCrops(boolean isBangla) {
-        return cropRepository.findAll(isBangla);
+        return cropCatalogService.getAllCrops(isBangla);
     }
 
     public Crop getCropById(Long id, boolean isBangla) {
@@ -78,14 +61,24 @@ public class CropService {
     }
 
     public List<Crop> getCropsByMarketplaceType(String marketplaceType, boolean isBangla) {
-        // Get crops by marketplace type (will include BOTH as well)
-        return cropRepository.findByMarketplaceType(marketplaceType);
+        // Served from the in-memory catalog snapshot (exact marketplace type match)
+        return cropCatalogService.getCrops(marketplaceType, isBangla);
+    }
+
+    public CursorPage<Crop> getCropsPageByMarketplaceType(String marketplaceType, boolean isBangla,
+            PageCursor after, int limit) {
+        return cropCatalogService.getCropsPage(marketplaceType, isBangla, after, limit);
     }
 
     public List<Crop> getCropsByFarmerId(Long farmerId) {
         return cropRepository.findByFarmerId(farmerId);
     }
 
+    public CursorPage<Crop> getCropsPageByFarmerId(Long farmerId, PageCursor after, int limit) {
+        List<Crop> rows = cropRepository.findByFarmerIdPage(farmerId, after, limit);
+        return CursorPage.of(rows, limit, crop -> new PageCursor(crop.getCreatedAt(), crop.getId()));
+    }
+
     @Transactional
     public void markAsSold(Long cropId) {
         cropRepository.markAsSoldOut(cropId);
@@ -3,34 +3,29 @@ package com.arpon007.agro.service;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 @Service
 public class EmailService {
 
     private final JavaMailSender mailSender;
-    private final ResourceLoader resourceLoader;
+    private final EmailTemplates templates;
 
     @Value("${spring.mail.username}")
     private String fromEmail;
 
-    public EmailService(JavaMailSender mailSender, ResourceLoader resourceLoader) {
+    public EmailService(JavaMailSender mailSender, EmailTemplates templates) {
         this.mailSender = mailSender;
-        this.resourceLoader = resourceLoader;
+        this.templates = templates;
     }
 
     public void sendForgotPasswordEmail(String to, String resetLink) {
         try {
-            String htmlContent = loadTemplate("forgot-password.html");
-            htmlContent = htmlContent.replace("{{reset_link}}", resetLink);
+            String htmlContent = templates.get("forgot-password.html").render(Map.of("reset_link", resetLink));
             sendHtmlEmail(to, "Reset Your AgroConnect Password", htmlContent);
         } catch (Exception e) {
             e.printStackTrace();
@@ -49,9 +44,4 @@ public class EmailService {
 
         mailSender.send(message);
     }
-
-    private String loadTemplate(String templateName) throws IOException {
-        Resource resource = resourceLoader.getResource("classpath:templates/email/" + templateName);
-        return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
-    }
 }
@@ -0,0 +1,48 @@
+package com.arpon007.agro.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+/**
+ * The HTML templates under templates/email, read and parsed once at startup
+ * (a broken template fails the application start instead of a request)
+ */
+@Component
+public class EmailTemplates {
+
+    private static final String LOCATION = "classpath:templates/email/*.html";
+
+    private final Map<String, HtmlTemplate> templates = new HashMap<>();
+
+    public EmailTemplates(ResourceLoader resourceLoader) throws IOException {
+        ResourcePatternResolver resolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        for (Resource resource : resolver.getResources(LOCATION)) {
+            String source = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+            try {
+                templates.put(resource.getFilename(), HtmlTemplate.parse(source));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid email template " + resource.getFilename(), e);
+            }
+        }
+    }
+
+    /**
+     * @param name file name, e.g. "invoice.html"
+     */
+    public HtmlTemplate get(String name) {
+        HtmlTemplate template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("No email template " + name);
+        }
+        return template;
+    }
+}
@@ -0,0 +1,345 @@
+package com.arpon007.agro.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.arpon007.agro.repository.ExportRepository;
+import com.arpon007.agro.repository.ExportRepository.Dataset;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Admin exports of whole tables as CSV or NDJSON, optionally gzipped.
+ *
+ * Each row is written to the response as soon as it is read from the
+ * database, through fixed-size buffers, so an export of any size needs the
+ * same small amount of memory. Every running export holds a database
+ * connection for its whole duration, so only a few may run at once.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"), NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final ExportRepository exportRepository;
+    private final ObjectMapper objectMapper;
+    private final Semaphore running;
+
+    public ExportService(ExportRepository exportRepository, ObjectMapper objectMapper,
+            @Value("${app.export.max-concurrent:1}") int maxConcurrent) {
+        this.exportRepository = exportRepository;
+        this.objectMapper = objectMapper;
+        this.running = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    /**
+     * A response body that streams the dataset. The export slot is taken
+     * when the body starts writing, not here, so a body that never runs
+     * (the client left, the async dispatch failed) holds nothing; a request
+     * that races past the check below waits for the slot instead.
+     *
+     * @return empty if the maximum number of exports is already running
+     */
+    public Optional<StreamingResponseBody> open(Dataset dataset, Format format, boolean gzip) {
+        if (running.availablePermits() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(out -> {
+            try {
+                running.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for an export slot");
+            }
+            try {
+                write(dataset, format, gzip, out);
+            } finally {
+                running.release();
+            }
+        });
+    }
+
+    /**
+     * Write the dataset to the stream
+     *
+     * @return number of rows written
+     */
+    long write(Dataset dataset, Format format, boolean gzip, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        OutputStream target = compressed != null ? compressed : out;
+        RowWriter rows = format == Format.CSV ? new CsvWriter(target) : new NdjsonWriter(target);
+        long count;
+        try {
+            count = exportRepository.stream(dataset, rows);
+        } catch (UncheckedIOException e) {
+            // Usually the client went away
+            throw e.getCause();
+        }
+        if (compressed != null) {
+            compressed.finish();
+        }
+        out.flush();
+        log.info("Exported {} {} rows as {} in {} ms", count, dataset, format, System.currentTimeMillis() - start);
+        return count;
+    }
+
+    /**
+     * Writes each row as it is read, with column names and types taken from
+     * the result set metadata
+     *
+     * @return number of rows written
+     */
+    private abstract static class RowWriter implements ResultSetExtractor<Long> {
+
+        String[] names;
+        int[] types;
+
+        @Override
+        public Long extractData(ResultSet rs) throws SQLException {
+            ResultSetMetaData metaData = rs.getMetaData();
+            names = new String[metaData.getColumnCount()];
+            types = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = metaData.getColumnLabel(i + 1).toLowerCase();
+                types[i] = metaData.getColumnType(i + 1);
+            }
+            header();
+            long count = 0;
+            while (rs.next()) {
+                row(rs);
+                count++;
+            }
+            finish();
+            return count;
+        }
+
+        abstract void header();
+
+        abstract void row(ResultSet rs) throws SQLException;
+
+        abstract void finish();
+
+        static boolean isNumber(int type) {
+            return switch (type) {
+                case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT, Types.DECIMAL, Types.NUMERIC,
+                        Types.REAL, Types.FLOAT, Types.DOUBLE -> true;
+                default -> false;
+            };
+        }
+
+        static boolean isTimestamp(int type) {
+            return type == Types.TIMESTAMP || type == Types.TIMESTAMP_WITH_TIMEZONE || type == Types.DATE;
+        }
+
+        static boolean isBoolean(int type) {
+            return type == Types.BOOLEAN || type == Types.BIT;
+        }
+
+        /**
+         * The value as text: numbers in plain notation, timestamps as UTC
+         * ISO-8601, null as null
+         */
+        static String text(ResultSet rs, int column, int type) throws SQLException {
+            if (isTimestamp(type)) {
+                Timestamp timestamp = rs.getTimestamp(column);
+                return timestamp != null ? timestamp.toInstant().toString() : null;
+            }
+            if (type == Types.DECIMAL || type == Types.NUMERIC) {
+                java.math.BigDecimal value = rs.getBigDecimal(column);
+                return value != null ? value.toPlainString() : null;
+            }
+            if (isBoolean(type)) {
+                boolean value = rs.getBoolean(column);
+                return rs.wasNull() ? null : String.valueOf(value);
+            }
+            return rs.getString(column);
+        }
+    }
+
+    private static class CsvWriter extends RowWriter {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        @Override
+        void header() {
+            try {
+                // Byte order mark, so spreadsheet apps read Bangla text as UTF-8
+                writer.write('\uFEFF');
+                for (int i = 0; i < names.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(names[i]);
+                }
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        void row(ResultSet rs) throws SQLException {
+            try {
+                for (int i = 0; i < names.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    String value = text(rs, i + 1, types[i]);
+                    if (value != null) {
+                        writeField(value, !isNumber(types[i]));
+                    }
+                }
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * RFC 4180 quoting. Text starting with a formula character is
+         * prefixed with a quote so spreadsheets do not evaluate it.
+         */
+        private void writeField(String value, boolean text) throws IOException {
+            boolean formula = text && !value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0;
+            boolean quote = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            if (formula) {
+                writer.write('\'');
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+
+        @Override
+        void finish() {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private class NdjsonWriter extends RowWriter {
+
+        private final JsonGenerator generator;
+        private long rows;
+
+        NdjsonWriter(OutputStream out) {
+            this.generator = objectMapper.writer().withRootValueSeparator("\n")
+                    .createGenerator(new java.io.BufferedOutputStream(out, BUFFER_SIZE));
+        }
+
+        @Override
+        void header() {
+        }
+
+        @Override
+        void row(ResultSet rs) throws SQLException {
+            generator.writeStartObject();
+            for (int i = 0; i < names.length; i++) {
+                generator.writeName(names[i]);
+                int type = types[i];
+                if (type == Types.DECIMAL || type == Types.NUMERIC) {
+                    java.math.BigDecimal value = rs.getBigDecimal(i + 1);
+                    if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(value);
+                    }
+                } else if (isNumber(type)) {
+                    long value = rs.getLong(i + 1);
+                    if (rs.wasNull()) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(value);
+                    }
+                } else if (isBoolean(type)) {
+                    boolean value = rs.getBoolean(i + 1);
+                    if (rs.wasNull()) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeBoolean(value);
+                    }
+                } else {
+                    String value = text(rs, i + 1, type);
+                    if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeString(value);
+                    }
+                }
+            }
+            generator.writeEndObject();
+            rows++;
+        }
+
+        @Override
+        void finish() {
+            if (rows > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+}
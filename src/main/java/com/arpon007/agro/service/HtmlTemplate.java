@@ -0,0 +1,185 @@
+package com.arpon007.agro.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A mustache-like HTML template, parsed once into literal text, value slots
+ * and sections, then rendered by appending each part to the output.
+ *
+ * <ul>
+ * <li>{@code {{name}}} is the value's text, HTML-escaped (empty if missing)</li>
+ * <li>{@code {{#name}}...{{/name}}} repeats its body for each map in a
+ * collection value, renders it once for {@code true} or a map, and skips it
+ * otherwise. Inside the body, names are looked up in the current item first
+ * and then in the enclosing values.</li>
+ * </ul>
+ */
+public final class HtmlTemplate {
+
+    private sealed interface Segment permits Literal, Slot, Section {
+    }
+
+    private record Literal(String text) implements Segment {
+    }
+
+    private record Slot(String name) implements Segment {
+    }
+
+    private record Section(String name, List<Segment> body) implements Segment {
+    }
+
+    private final List<Segment> segments;
+    private final int sizeHint;
+
+    private HtmlTemplate(List<Segment> segments, int sizeHint) {
+        this.segments = segments;
+        this.sizeHint = sizeHint;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a tag or section is not closed
+     */
+    public static HtmlTemplate parse(String source) {
+        Deque<Section> open = new ArrayDeque<>();
+        List<Segment> current = new ArrayList<>();
+        Deque<List<Segment>> parents = new ArrayDeque<>();
+        int pos = 0;
+        while (pos < source.length()) {
+            int start = source.indexOf("{{", pos);
+            if (start < 0) {
+                current.add(new Literal(source.substring(pos)));
+                break;
+            }
+            if (start > pos) {
+                current.add(new Literal(source.substring(pos, start)));
+            }
+            int end = source.indexOf("}}", start + 2);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed tag at offset " + start);
+            }
+            String tag = source.substring(start + 2, end).trim();
+            if (tag.startsWith("#")) {
+                Section section = new Section(tag.substring(1).trim(), new ArrayList<>());
+                current.add(section);
+                open.push(section);
+                parents.push(current);
+                current = section.body();
+            } else if (tag.startsWith("/")) {
+                String name = tag.substring(1).trim();
+                if (open.isEmpty() || !open.peek().name().equals(name)) {
+                    throw new IllegalArgumentException("Unexpected {{/" + name + "}} at offset " + start);
+                }
+                open.pop();
+                current = parents.pop();
+            } else {
+                current.add(new Slot(tag));
+            }
+            pos = end + 2;
+        }
+        if (!open.isEmpty()) {
+            throw new IllegalArgumentException("Unclosed section {{#" + open.peek().name() + "}}");
+        }
+        return new HtmlTemplate(List.copyOf(current), source.length());
+    }
+
+    /**
+     * Length of the template source, a good initial capacity for a buffer
+     * the template is rendered into
+     */
+    public int sizeHint() {
+        return sizeHint;
+    }
+
+    public String render(Map<String, ?> values) {
+        StringBuilder out = new StringBuilder(sizeHint + sizeHint / 4);
+        render(values, out);
+        return out.toString();
+    }
+
+    public void render(Map<String, ?> values, StringBuilder out) {
+        try {
+            render(segments, new Scope(values, null), out);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Render straight into a writer or stream, without building the
+     * document in memory first
+     */
+    public void render(Map<String, ?> values, Appendable out) throws IOException {
+        render(segments, new Scope(values, null), out);
+    }
+
+    private record Scope(Map<String, ?> values, Scope parent) {
+
+        Object get(String name) {
+            for (Scope scope = this; scope != null; scope = scope.parent) {
+                Object value = scope.values.get(name);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void render(List<Segment> segments, Scope scope, Appendable out) throws IOException {
+        for (Segment segment : segments) {
+            switch (segment) {
+                case Literal literal -> out.append(literal.text());
+                case Slot slot -> {
+                    Object value = scope.get(slot.name());
+                    if (value != null) {
+                        escape(value.toString(), out);
+                    }
+                }
+                case Section section -> {
+                    Object value = scope.get(section.name());
+                    if (value instanceof Collection<?> items) {
+                        for (Object item : items) {
+                            render(section.body(), new Scope((Map<String, ?>) item, scope), out);
+                        }
+                    } else if (value instanceof Map<?, ?> item) {
+                        render(section.body(), new Scope((Map<String, ?>) item, scope), out);
+                    } else if (Boolean.TRUE.equals(value)) {
+                        render(section.body(), scope, out);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Append the text with &amp;, &lt;, &gt; and quotes escaped, copying the
+     * runs between them in one call each
+     */
+    static void escape(String text, Appendable out) throws IOException {
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity = switch (text.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (entity != null) {
+                out.append(text, run, i).append(entity);
+                run = i + 1;
+            }
+        }
+        out.append(text, run, text.length());
+    }
+}
@@ -0,0 +1,241 @@
+package com.arpon007.agro.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arpon007.agro.repository.IdempotencyKeyRepository;
+import com.arpon007.agro.repository.IdempotencyKeyRepository.StoredResponse;
+
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Exactly-once order and payment requests for clients that retry.
+ *
+ * A request sent with an {@value #HEADER} header runs in one transaction that
+ * first claims the key in idempotency_keys and finally stores the response
+ * there, so the key, the order and the wallet debit commit or roll back
+ * together. A retry with the same key gets the stored response back: from a
+ * bounded in-memory cache when possible, otherwise from the table. A duplicate
+ * that arrives while the original is still running waits for it (on this node
+ * through an in-flight future, across nodes on the key's row lock) instead of
+ * running again. Requests that roll back store nothing and can be retried.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    /** Set on replayed responses */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    /**
+     * Outcome of one run: the live response, the stored one, or neither if
+     * the key is held by a request that has not finished
+     */
+    private record Attempt(ResponseEntity<?> response, StoredResponse stored) {
+    }
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final long waitTimeoutMs;
+    private final int retentionHours;
+    private final Map<String, StoredResponse> completed;
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.idempotency.cache-size:10000}") int cacheSize,
+            @Value("${app.idempotency.wait-timeout-ms:30000}") long waitTimeoutMs,
+            @Value("${app.idempotency.retention-hours:24}") int retentionHours) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.retentionHours = retentionHours;
+        int maxEntries = Math.max(1, cacheSize);
+        this.completed = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Run a request handler in a transaction, at most once per key and user
+     *
+     * @param key      the {@value #HEADER} header; without one the handler
+     *                 simply runs
+     * @param endpoint method and path, so a key cannot be reused for another
+     *                 endpoint
+     * @param request  the request body, so a key cannot be reused for another
+     *                 request
+     * @param action   the handler; it may mark the status rollback-only, in
+     *                 which case nothing is stored
+     * @throws IllegalArgumentException if the key is too long or was used for
+     *                                  a different request
+     */
+    public ResponseEntity<?> execute(String key, Long userId, String endpoint, Object request,
+            Function<TransactionStatus, ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return transactionTemplate.execute(status -> {
+                ResponseEntity<?> response = action.apply(status);
+                rollBackQuietlyIfMarked(status);
+                return response;
+            });
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String requestHash = fingerprint(endpoint, request);
+        String cacheKey = userId + ":" + key;
+        while (true) {
+            StoredResponse done = completed.get(cacheKey);
+            if (done != null) {
+                return replay(done, requestHash);
+            }
+
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(cacheKey, mine);
+            if (running != null) {
+                StoredResponse result;
+                try {
+                    result = running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    return stillProcessing();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return stillProcessing();
+                } catch (ExecutionException e) {
+                    result = null;
+                }
+                if (result != null) {
+                    return replay(result, requestHash);
+                }
+                // The original rolled back; run it ourselves
+                continue;
+            }
+
+            try {
+                Attempt attempt = transactionTemplate.execute(status -> run(userId, key, requestHash, action,
+                        status));
+                if (attempt.stored() != null) {
+                    completed.put(cacheKey, attempt.stored());
+                }
+                mine.complete(attempt.stored());
+                if (attempt.response() != null) {
+                    return attempt.response();
+                }
+                return attempt.stored() != null ? replay(attempt.stored(), requestHash) : stillProcessing();
+            } finally {
+                mine.complete(null);
+                inFlight.remove(cacheKey, mine);
+            }
+        }
+    }
+
+    private Attempt run(Long userId, String key, String requestHash,
+            Function<TransactionStatus, ResponseEntity<?>> action, TransactionStatus status) {
+        if (!idempotencyKeyRepository.claim(userId, key, requestHash)) {
+            // Committed by an earlier request (possibly on another node)
+            return new Attempt(null, idempotencyKeyRepository.find(userId, key).orElse(null));
+        }
+        ResponseEntity<?> response = action.apply(status);
+        if (rollBackQuietlyIfMarked(status)) {
+            return new Attempt(response, null);
+        }
+        StoredResponse stored = toStored(requestHash, response);
+        idempotencyKeyRepository.complete(userId, key, stored);
+        return new Attempt(response, stored);
+    }
+
+    /**
+     * A handler (or a @Transactional service it called) asked for a
+     * rollback: roll back without an UnexpectedRollbackException
+     */
+    private static boolean rollBackQuietlyIfMarked(TransactionStatus status) {
+        if (status.isRollbackOnly()) {
+            status.setRollbackOnly();
+            return true;
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:3600000}")
+    public void purge() {
+        int purged = idempotencyKeyRepository.purgeOlderThan(retentionHours);
+        if (purged > 0) {
+            log.info("Purged {} idempotency keys", purged);
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IllegalArgumentException(HEADER + " was already used for a different request");
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.statusCode())
+                .header(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) {
+            builder.contentType(MediaType.parseMediaType(stored.contentType()));
+        }
+        return builder.body(stored.body());
+    }
+
+    private static ResponseEntity<?> stillProcessing() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("message", "A request with this " + HEADER + " is still being processed"));
+    }
+
+    private StoredResponse toStored(String requestHash, ResponseEntity<?> response) {
+        Object body = response.getBody();
+        if (body == null) {
+            return new StoredResponse(requestHash, response.getStatusCode().value(), null, null);
+        }
+        if (body instanceof String text) {
+            return new StoredResponse(requestHash, response.getStatusCode().value(),
+                    MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8", text);
+        }
+        return new StoredResponse(requestHash, response.getStatusCode().value(), MediaType.APPLICATION_JSON_VALUE,
+                objectMapper.writeValueAsString(body));
+    }
+
+    private String fingerprint(String endpoint, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(endpoint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
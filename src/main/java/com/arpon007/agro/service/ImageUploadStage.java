@@ -0,0 +1,106 @@
+package com.arpon007.agro.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Uploads all images of one listing concurrently on virtual threads.
+ *
+ * Runs before any transaction is opened, so a slow upload never holds one of
+ * the few pooled DB connections. Each call is capped to
+ * {@code app.image-upload.max-concurrency} parallel uploads and to an overall
+ * {@code app.image-upload.timeout-seconds}; uploads that fail or time out are
+ * skipped, as they were with the sequential loop.
+ */
+@Component
+public class ImageUploadStage {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageUploadStage.class);
+
+    private final ImageUploader imageUploader;
+    private final int maxConcurrency;
+    private final long timeoutMillis;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ImageUploadStage(ImageUploader imageUploader,
+            @Value("${app.image-upload.max-concurrency:4}") int maxConcurrency,
+            @Value("${app.image-upload.timeout-seconds:30}") long timeoutSeconds) {
+        this.imageUploader = imageUploader;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    }
+
+    /**
+     * Upload the non-empty files and return their URLs in the original order
+     */
+    public List<String> uploadAll(List<MultipartFile> files, String folder) {
+        List<String> urls = new ArrayList<>();
+        if (files == null || files.isEmpty()) {
+            return urls;
+        }
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<Future<String>> uploads = new ArrayList<>();
+        List<MultipartFile> submitted = new ArrayList<>();
+        for (MultipartFile file : files) {
+            if (file == null || file.isEmpty()) {
+                continue;
+            }
+            submitted.add(file);
+            uploads.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    return imageUploader.uploadImage(file, folder);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (int i = 0; i < uploads.size(); i++) {
+            String name = submitted.get(i).getOriginalFilename();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                String url = uploads.get(i).get(remaining, TimeUnit.NANOSECONDS);
+                if (url != null) {
+                    urls.add(url);
+                    log.info("Uploaded image: {}", url);
+                } else {
+                    log.warn("Failed to upload image: {}", name);
+                }
+            } catch (TimeoutException | CancellationException e) {
+                uploads.get(i).cancel(true);
+                log.warn("Image upload timed out: {}", name);
+            } catch (ExecutionException e) {
+                log.warn("Failed to upload image: {}", name, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                uploads.forEach(upload -> upload.cancel(true));
+                break;
+            }
+        }
+        return urls;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
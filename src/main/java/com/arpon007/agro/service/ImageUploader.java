@@ -0,0 +1,18 @@
+package com.arpon007.agro.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Stores an uploaded image somewhere publicly reachable and returns its URL
+ */
+public interface ImageUploader {
+
+    /**
+     * Upload an image
+     *
+     * @param file   The MultipartFile to upload
+     * @param folder The target folder (e.g., "agro/crops", "agro/blogs")
+     * @return The public URL of the uploaded image, or null on failure
+     */
+    String uploadImage(MultipartFile file, String folder);
+}
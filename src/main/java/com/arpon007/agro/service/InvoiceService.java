@@ -1,108 +1,143 @@
 package com.arpon007.agro.service;
 
-import com.arpon007.agro.model.Order;
 import com.arpon007.agro.repository.OrderRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class InvoiceService {
 
     private static final Logger log = LoggerFactory.getLogger(InvoiceService.class);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    /** Buffers that grew past this (huge orders) are not kept for reuse */
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
     private final OrderRepository orderRepository;
-    private final com.arpon007.agro.repository.UserRepository userRepository;
-    private final com.arpon007.agro.repository.CropRepository cropRepository;
-    private final org.springframework.core.io.ResourceLoader resourceLoader;
-
-    public InvoiceService(OrderRepository orderRepository,
-            com.arpon007.agro.repository.UserRepository userRepository,
-            com.arpon007.agro.repository.CropRepository cropRepository,
-            org.springframework.core.io.ResourceLoader resourceLoader) {
+    private final HtmlTemplate invoiceTemplate;
+    private final ThreadLocal<StringBuilder> buffers;
+
+    public InvoiceService(OrderRepository orderRepository, EmailTemplates emailTemplates) {
         this.orderRepository = orderRepository;
-        this.userRepository = userRepository;
-        this.cropRepository = cropRepository;
-        this.resourceLoader = resourceLoader;
+        this.invoiceTemplate = emailTemplates.get("invoice.html");
+        int initialCapacity = invoiceTemplate.sizeHint() * 2;
+        this.buffers = ThreadLocal.withInitial(() -> new StringBuilder(initialCapacity));
     }
 
     /**
-     * Generate HTML Invoice String (Centralized Logic)
+     * Generate HTML Invoice String (Centralized Logic). The order, both
+     * parties and its lines come from one joined query; the template was
+     * parsed at startup and is rendered into this thread's reusable buffer,
+     * with the {{#items}} section repeated per line.
      */
     public String generateInvoiceHtml(Long orderId) {
         try {
-            Order order = orderRepository.findById(orderId).orElseThrow(() -> new RuntimeException("Order not found"));
-            com.arpon007.agro.model.User buyer = userRepository.findById(order.getBuyerId()).orElse(null);
-            com.arpon007.agro.model.User farmer = userRepository.findById(order.getFarmerId()).orElse(null);
-            com.arpon007.agro.model.Crop crop = cropRepository.findById(order.getCropId()).orElse(null);
-
-            org.springframework.core.io.Resource resource = resourceLoader
-                    .getResource("classpath:templates/email/invoice.html");
-            String template = org.springframework.util.StreamUtils.copyToString(resource.getInputStream(),
-                    java.nio.charset.StandardCharsets.UTF_8);
-
-            String buyerName = buyer != null ? buyer.getFullName() : "Buyer #" + order.getBuyerId();
-            String buyerEmail = buyer != null ? buyer.getEmail() : "N/A";
-            String buyerMobile = order.getCustomerMobile() != null ? order.getCustomerMobile()
-                    : (buyer != null ? buyer.getPhone() : "N/A");
-            String buyerAddress = order.getCustomerAddress() != null ? order.getCustomerAddress() : "N/A";
-
-            String farmerName = farmer != null ? farmer.getFullName() : "Farmer #" + order.getFarmerId();
-            String cropTitle = crop != null ? crop.getTitle() : "Crop #" + order.getCropId();
-
-            // Determine if B2B logic applies
-            boolean isB2B = crop != null
-                    && (crop.getMarketplaceType() == com.arpon007.agro.model.Crop.MarketplaceType.B2B
-                            || crop.getMarketplaceType() == com.arpon007.agro.model.Crop.MarketplaceType.BOTH);
-            // Strictly check Retail to disable B2B features
-            if (crop != null && crop.getMarketplaceType() == com.arpon007.agro.model.Crop.MarketplaceType.RETAIL) {
-                isB2B = false;
-            }
-
-            String platformFeeSection = "";
-            String advancePaymentSection = "";
-
-            if (isB2B) {
-                BigDecimal platformFee = order.getTotalAmount().multiply(new BigDecimal("0.01"));
-                platformFeeSection = "<div class=\"totals-row\"><span>Platform Fee (1%)</span><span>৳"
-                        + platformFee.setScale(2, java.math.RoundingMode.HALF_UP) + "</span></div>";
-                advancePaymentSection = "<div class=\"totals-row\" style=\"color: #ef4444;\"><span>Advance Payment (20%)</span><span>-৳"
-                        + order.getAdvanceAmount() + "</span></div>";
+            Map<String, Object> values = invoiceValues(orderId);
+            StringBuilder html = buffers.get();
+            html.setLength(0);
+            invoiceTemplate.render(values, html);
+            String result = html.toString();
+            if (html.capacity() > MAX_RETAINED_BUFFER) {
+                buffers.remove();
             }
-
-            // Determine payment method - Retail = COD, B2B = Advance Payment
-            String paymentMethod = isB2B ? "Advance Payment" : "Cash on Delivery";
-
-            return template
-                    .replace("{{customer_name}}", buyerName)
-                    .replace("{{customer_email}}", buyerEmail)
-                    .replace("{{customer_phone}}", buyerMobile)
-                    .replace("{{customer_address}}", buyerAddress)
-                    .replace("{{invoice_number}}", "INV-" + order.getId())
-                    .replace("{{date}}", new SimpleDateFormat("dd MMM yyyy").format(new Date()))
-                    .replace("{{order_id}}", String.valueOf(order.getId()))
-                    .replace("{{payment_method}}", paymentMethod)
-                    .replace("{{product_name}}", cropTitle)
-                    .replace("{{farmer_name}}", farmerName)
-                    .replace("{{quantity}}", "1") // Quantity handling placeholder
-                    .replace("{{unit}}", "Unit")
-                    .replace("{{price_per_unit}}", order.getTotalAmount().toString())
-                    .replace("{{total_item_price}}", order.getTotalAmount().toString())
-                    .replace("{{subtotal}}", order.getTotalAmount().toString())
-                    .replace("{{platform_fee_section}}", platformFeeSection)
-                    .replace("{{advance_payment_section}}", advancePaymentSection)
-                    .replace("{{total_due}}", order.getDueAmount().toString());
-
+            return result;
         } catch (Exception e) {
             log.error("Error generating invoice HTML for order {}", orderId, e);
             throw new RuntimeException("Error generating invoice HTML: " + e.getMessage());
         }
     }
 
+    /**
+     * Write the invoice HTML to the stream as it is rendered
+     */
+    public void writeInvoiceHtml(Long orderId, OutputStream out) throws IOException {
+        Map<String, Object> values = invoiceValues(orderId);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+                invoiceTemplate.sizeHint());
+        invoiceTemplate.render(values, writer);
+        writer.flush();
+    }
+
+    /**
+     * The template values of an order's invoice
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> invoiceValues(Long orderId) {
+        Map<String, Object> order = orderRepository.findInvoiceById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        String buyerMobile = order.get("customerMobile") != null ? (String) order.get("customerMobile")
+                : (order.get("buyerPhone") != null ? (String) order.get("buyerPhone") : "N/A");
+        String farmerName = order.get("farmerName") != null ? (String) order.get("farmerName")
+                : "Farmer #" + order.get("farmerId");
+
+        BigDecimal totalAmount = (BigDecimal) order.get("totalAmount");
+        List<Map<String, Object>> lines = (List<Map<String, Object>>) order.get("items");
+        List<Map<String, Object>> items = new ArrayList<>(Math.max(1, lines.size()));
+        if (lines.isEmpty()) {
+            // Orders placed before order lines existed: show them as 1 x total
+            items.add(itemValues(order.get("cropTitle"), order.get("cropId"), null, BigDecimal.ONE, totalAmount,
+                    totalAmount));
+        }
+        for (Map<String, Object> line : lines) {
+            items.add(itemValues(line.get("cropTitle"), line.get("cropId"), line.get("unit"),
+                    (BigDecimal) line.get("quantity"), line.get("unitPrice"), line.get("totalPrice")));
+        }
+
+        // Determine if B2B logic applies (from the first line's crop)
+        String marketplaceType = (String) order.get("marketplaceType");
+        boolean isB2B = "B2B".equals(marketplaceType) || "BOTH".equals(marketplaceType);
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("customer_name", order.get("buyerName") != null ? order.get("buyerName")
+                : "Buyer #" + order.get("buyerId"));
+        values.put("customer_email", order.get("buyerEmail") != null ? order.get("buyerEmail") : "N/A");
+        values.put("customer_phone", buyerMobile);
+        values.put("customer_address", order.get("customerAddress") != null ? order.get("customerAddress")
+                : "N/A");
+        values.put("invoice_number", "INV-" + order.get("id"));
+        values.put("date", LocalDate.now().format(DATE_FORMAT));
+        values.put("order_id", order.get("id"));
+        values.put("farmer_name", farmerName);
+        values.put("items", items);
+        // Determine payment method - Retail = COD, B2B = Advance Payment
+        values.put("payment_method", isB2B ? "Advance Payment" : "Cash on Delivery");
+        values.put("subtotal", totalAmount);
+        values.put("b2b", isB2B);
+        if (isB2B) {
+            values.put("platform_fee", totalAmount.multiply(new BigDecimal("0.01"))
+                    .setScale(2, java.math.RoundingMode.HALF_UP));
+            values.put("advance_amount", order.get("advanceAmount"));
+        }
+        values.put("total_due", order.get("dueAmount"));
+        return values;
+    }
+
+    private static Map<String, Object> itemValues(Object cropTitle, Object cropId, Object unit, BigDecimal quantity,
+            Object unitPrice, Object totalPrice) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("product_name", cropTitle != null ? cropTitle : "Crop #" + cropId);
+        item.put("quantity", quantity.stripTrailingZeros().toPlainString());
+        item.put("unit", unit != null ? unit : "Unit");
+        item.put("price_per_unit", unitPrice);
+        item.put("total_item_price", totalPrice);
+        return item;
+    }
+
     /**
      * Generate PDF invoice - returns HTML content as bytes for now
      * Note: Full PDF generation requires adding a PDF library to pom.xml
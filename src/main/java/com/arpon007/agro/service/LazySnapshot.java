@@ -0,0 +1,113 @@
+package com.arpon007.agro.service;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory copy of some table data, loaded on first use (or at startup by
+ * {@link #warmUp()}).
+ *
+ * A reload builds a new value off to the side and swaps it in, so readers
+ * never see it half built and keep using the previous one until the swap.
+ * Small changes patch the current value in place through
+ * {@link #update(Consumer)}; they take the same lock as a reload, so a patch
+ * is never lost to a reload that read the rows before it. After a failed
+ * patch the owner calls {@link #invalidate()} and the next read reloads.
+ *
+ * @param <T> the loaded value; it must be safe to read while patched
+ */
+public final class LazySnapshot<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(LazySnapshot.class);
+
+    private final String name;
+    private final Supplier<T> loader;
+    private final Object lock = new Object();
+    private volatile T value;
+    private volatile boolean loaded;
+
+    /**
+     * @param name   what is loaded, for log messages
+     * @param empty  value read before the first load
+     * @param loader builds a complete new value from the database
+     */
+    public LazySnapshot(String name, T empty, Supplier<T> loader) {
+        this.name = name;
+        this.value = empty;
+        this.loader = loader;
+    }
+
+    /**
+     * The current value, loading it first if needed
+     */
+    public T get() {
+        if (!loaded) {
+            synchronized (lock) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+        return value;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Build a new value and swap it in
+     *
+     * @return the new value
+     */
+    public T reload() {
+        return reload(loader);
+    }
+
+    /**
+     * Swap in a value built by a one-off loader, e.g. one that also repairs
+     * rows while it reads them
+     */
+    public T reload(Supplier<T> oneOffLoader) {
+        synchronized (lock) {
+            T loadedValue = oneOffLoader.get();
+            value = loadedValue;
+            loaded = true;
+            return loadedValue;
+        }
+    }
+
+    /**
+     * Patch the current value in place
+     */
+    public void update(Consumer<T> patch) {
+        synchronized (lock) {
+            patch.accept(value);
+        }
+    }
+
+    /**
+     * Reload on the next read
+     */
+    public void invalidate() {
+        loaded = false;
+    }
+
+    /**
+     * Load at startup; on failure the first read retries
+     */
+    public void warmUp() {
+        warmUp(loader);
+    }
+
+    public void warmUp(Supplier<T> startupLoader) {
+        try {
+            reload(startupLoader);
+        } catch (Exception e) {
+            log.warn("Could not load {}: {}", name, e.getMessage());
+        }
+    }
+}
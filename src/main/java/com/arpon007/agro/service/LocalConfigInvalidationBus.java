@@ -0,0 +1,37 @@
+package com.arpon007.agro.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process stand-in for a cross-node message bus: every subscriber in this
+ * JVM receives each invalidation synchronously.
+ */
+@Component
+public class LocalConfigInvalidationBus implements ConfigInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalConfigInvalidationBus.class);
+
+    private final List<Consumer<Invalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(Invalidation invalidation) {
+        for (Consumer<Invalidation> listener : listeners) {
+            try {
+                listener.accept(invalidation);
+            } catch (Exception e) {
+                log.error("Config invalidation listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Invalidation> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,61 @@
+package com.arpon007.agro.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Stores images on local disk under the uploads directory (served at
+ * /uploads/** by WebConfig). Enabled with {@code app.image-uploader=local} for
+ * offline development and tests, replacing Cloudinary.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.image-uploader", havingValue = "local")
+public class LocalImageUploader implements ImageUploader {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalImageUploader.class);
+
+    private final Path baseDir;
+
+    public LocalImageUploader(@Value("${app.image-uploader.local-dir:uploads}") String baseDir) {
+        this.baseDir = Paths.get(baseDir).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String uploadImage(MultipartFile file, String folder) {
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+
+        String extension = StringUtils.getFilenameExtension(file.getOriginalFilename());
+        String fileName = UUID.randomUUID() + (extension != null ? "." + extension.toLowerCase() : "");
+        Path target = baseDir.resolve(folder).resolve(fileName).normalize();
+        if (!target.startsWith(baseDir)) {
+            log.warn("Rejected upload outside of {}: {}", baseDir, folder);
+            return null;
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            Files.createDirectories(target.getParent());
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            return "/uploads/" + baseDir.relativize(target).toString().replace('\\', '/');
+        } catch (IOException e) {
+            log.error("Failed to store image locally", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.arpon007.agro.service;
+
+import java.util.List;
+
+import com.arpon007.agro.model.OutboxEvent;
+
+/**
+ * Performs one type of outbox side effect for a batch of events. Runs inside
+ * the transaction that marks the events done, so database writes made here
+ * happen exactly once.
+ */
+@FunctionalInterface
+public interface OutboxHandler {
+
+    void handle(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,227 @@
+package com.arpon007.agro.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arpon007.agro.model.OutboxEvent;
+import com.arpon007.agro.repository.OutboxRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Transactional outbox for side effects of bid and order writes.
+ *
+ * {@link #enqueue} stores the event in the caller's transaction, so it exists
+ * exactly when the business write commits. A small worker pool claims due
+ * events in batches ({@code FOR UPDATE SKIP LOCKED}), runs the registered
+ * {@link OutboxHandler} per event type and marks the batch done in the same
+ * transaction. A failing event is isolated with a savepoint, retried with
+ * exponential backoff and marked DEAD (and logged) after
+ * {@link #MAX_ATTEMPTS}.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+
+    static final int MAX_ATTEMPTS = 8;
+    static final long MAX_BACKOFF_SECONDS = 600;
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int workers;
+    private final int batchSize;
+    private final int retentionDays;
+    private final ExecutorService executor;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final Map<String, OutboxHandler> handlers = new ConcurrentHashMap<>();
+
+    public OutboxService(OutboxRepository outboxRepository, PlatformTransactionManager transactionManager,
+            @Value("${app.outbox.workers:2}") int workers,
+            @Value("${app.outbox.batch-size:50}") int batchSize,
+            @Value("${app.outbox.retention-days:7}") int retentionDays) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = Math.max(0, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.retentionDays = retentionDays;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, this.workers));
+    }
+
+    public void register(String eventType, OutboxHandler handler) {
+        handlers.put(eventType, handler);
+    }
+
+    /**
+     * Record a side effect in the current transaction; workers are woken up
+     * after commit
+     */
+    public void enqueue(String eventType, Map<String, Object> payload) {
+        outboxRepository.insert(eventType, payload);
+        dispatchAfterCommit();
+    }
+
+    /**
+     * {@link #enqueue} for many events of one type, written as one batch
+     */
+    public void enqueueAll(String eventType, List<Map<String, Object>> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        outboxRepository.insertAll(eventType, payloads);
+        dispatchAfterCommit();
+    }
+
+    private void dispatchAfterCommit() {
+        TransactionHooks.afterCommit(this::dispatch);
+    }
+
+    /**
+     * Start a worker if the pool has room. Also runs on a timer to pick up
+     * retries and events missed by a wake-up.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        while (true) {
+            int active = activeWorkers.get();
+            if (active >= workers) {
+                return;
+            }
+            if (activeWorkers.compareAndSet(active, active + 1)) {
+                executor.execute(this::work);
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.purge-interval-ms:3600000}")
+    public void purge() {
+        int purged = outboxRepository.purgeDone(retentionDays);
+        if (purged > 0) {
+            log.info("Purged {} processed outbox events", purged);
+        }
+    }
+
+    private void work() {
+        try {
+            int claimed;
+            do {
+                claimed = processBatch();
+                if (claimed == batchSize) {
+                    // Backlog: bring in another worker
+                    dispatch();
+                }
+            } while (claimed == batchSize);
+        } catch (Exception e) {
+            log.error("Outbox worker failed: {}", e.getMessage());
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Claim and handle one batch in a single transaction
+     *
+     * @return number of events claimed
+     */
+    int processBatch() {
+        Integer claimed = transactionTemplate.execute(status -> {
+            List<OutboxEvent> batch = outboxRepository.claimDue(batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            Map<String, List<OutboxEvent>> byType = new LinkedHashMap<>();
+            for (OutboxEvent event : batch) {
+                byType.computeIfAbsent(event.getEventType(), type -> new ArrayList<>()).add(event);
+            }
+
+            List<Long> done = new ArrayList<>();
+            List<Object[]> retry = new ArrayList<>();
+            List<Object[]> dead = new ArrayList<>();
+            for (Map.Entry<String, List<OutboxEvent>> group : byType.entrySet()) {
+                OutboxHandler handler = handlers.get(group.getKey());
+                if (handler == null) {
+                    for (OutboxEvent event : group.getValue()) {
+                        fail(event, "No handler for " + group.getKey(), retry, dead);
+                    }
+                    continue;
+                }
+                if (run(status, handler, group.getValue(), null)) {
+                    group.getValue().forEach(event -> done.add(event.getId()));
+                    continue;
+                }
+                // Find the bad events one by one so the rest still go through
+                for (OutboxEvent event : group.getValue()) {
+                    StringBuilder error = new StringBuilder();
+                    if (run(status, handler, List.of(event), error)) {
+                        done.add(event.getId());
+                    } else {
+                        fail(event, error.toString(), retry, dead);
+                    }
+                }
+            }
+
+            outboxRepository.markDone(done);
+            outboxRepository.markRetry(retry);
+            outboxRepository.markDead(dead);
+            return batch.size();
+        });
+        return claimed != null ? claimed : 0;
+    }
+
+    /**
+     * Run the handler behind a savepoint, rolling its writes back on failure
+     */
+    private static boolean run(TransactionStatus status, OutboxHandler handler, List<OutboxEvent> events,
+            StringBuilder error) {
+        Object savepoint = status.createSavepoint();
+        try {
+            handler.handle(events);
+            status.releaseSavepoint(savepoint);
+            return true;
+        } catch (Exception e) {
+            status.rollbackToSavepoint(savepoint);
+            if (error != null) {
+                error.append(e.getClass().getSimpleName()).append(": ").append(e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private static void fail(OutboxEvent event, String error, List<Object[]> retry, List<Object[]> dead) {
+        String message = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        int attempts = event.getAttempts() + 1;
+        if (attempts >= MAX_ATTEMPTS) {
+            log.error("Outbox event {} ({}) failed {} times, giving up: {}", event.getId(), event.getEventType(),
+                    attempts, message);
+            dead.add(new Object[] { message, event.getId() });
+        } else {
+            long delay = Math.min(MAX_BACKOFF_SECONDS, 1L << attempts);
+            log.warn("Outbox event {} ({}) failed, retrying in {}s: {}", event.getId(), event.getEventType(), delay,
+                    message);
+            retry.add(new Object[] { message, delay, event.getId() });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,335 @@
+package com.arpon007.agro.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.arpon007.agro.event.CropChangedEvent;
+import com.arpon007.agro.repository.CropRepository;
+
+/**
+ * In-memory inverted index for product search over unsold crops.
+ *
+ * Indexed fields are the title, description, crop type name (English and
+ * Bangla) and the farmer's district, each with its own weight. Terms are kept
+ * in a sorted map so a query token matches every term it is a prefix of
+ * ("ধান" finds "ধানের", "pot" finds "potato"). Queries never touch MySQL; the
+ * index is patched per crop from {@link CropChangedEvent}s.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    /**
+     * Splits on anything that is not a letter, combining mark (Bangla vowel
+     * signs, hasanta, nukta) or digit
+     */
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{M}\\p{N}]+");
+
+    /**
+     * Zero-width (non-)joiners only affect glyph shaping in Bangla, not meaning
+     */
+    private static final Pattern ZERO_WIDTH = Pattern.compile("[\\u200C\\u200D]");
+
+    private static final float TITLE_WEIGHT = 5f;
+    private static final float CROP_TYPE_WEIGHT = 3f;
+    private static final float DISTRICT_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    /**
+     * Score multiplier when a query token only matches the start of a term
+     */
+    private static final float PREFIX_FACTOR = 0.5f;
+
+    /**
+     * Same quantity cap as the retail listing (small quantities only)
+     */
+    private static final BigDecimal RETAIL_MAX_QUANTITY = new BigDecimal("50");
+
+    private final CropRepository cropRepository;
+    private final LazySnapshot<Index> index;
+
+    public ProductSearchIndex(CropRepository cropRepository) {
+        this.cropRepository = cropRepository;
+        this.index = new LazySnapshot<>("product search index", new Index(), () -> build(cropRepository));
+    }
+
+    /**
+     * A page of ranked crop ids and the opaque cursor of the next page (null on
+     * the last page)
+     */
+    public record SearchPage(List<Long> cropIds, String nextCursor) {
+    }
+
+    /**
+     * Find retail crops matching every token of the query, best match first
+     * (ties broken by newest first).
+     *
+     * @param category optional English crop type name to filter on
+     * @param cursor   cursor from a previous page, or null for the first page
+     */
+    public SearchPage search(String query, String category, String cursor, int limit) {
+        return search(query, category, decodeOffset(cursor), limit);
+    }
+
+    /**
+     * {@link #search(String, String, String, int)} starting at the given hit,
+     * for clients still paging with page numbers
+     */
+    public SearchPage search(String query, String category, int offset, int limit) {
+        Index current = index.get();
+
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new SearchPage(List.of(), null);
+        }
+
+        Map<Long, Float> scores = null;
+        for (String token : tokens) {
+            Map<Long, Float> tokenScores = current.scoreToken(token);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                // Every token has to match (AND semantics)
+                Map<Long, Float> merged = new HashMap<>();
+                for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                    Float other = tokenScores.get(entry.getKey());
+                    if (other != null) {
+                        merged.put(entry.getKey(), entry.getValue() + other);
+                    }
+                }
+                scores = merged;
+            }
+            if (scores.isEmpty()) {
+                return new SearchPage(List.of(), null);
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(scores.size());
+        for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+            Document doc = current.documents.get(entry.getKey());
+            if (doc != null && doc.isRetail() && doc.matchesCategory(category)) {
+                hits.add(new Hit(doc, entry.getValue()));
+            }
+        }
+        hits.sort(Hit.RANKING);
+
+        int to = Math.min(hits.size(), offset + limit);
+        List<Long> ids = new ArrayList<>(Math.max(0, to - offset));
+        for (int i = offset; i < to; i++) {
+            ids.add(hits.get(i).doc.id);
+        }
+        return new SearchPage(ids, to < hits.size() ? encodeOffset(to) : null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        index.warmUp();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCropChanged(CropChangedEvent event) {
+        if (!index.isLoaded()) {
+            return;
+        }
+        try {
+            if (event.isFullReload()) {
+                rebuild();
+            } else {
+                reindex(event.cropIds());
+            }
+        } catch (Exception e) {
+            log.error("Failed to update search index for {}: {}", event.cropIds(), e.getMessage());
+            index.invalidate();
+        }
+    }
+
+    /**
+     * Reload the whole index from the database
+     */
+    public void rebuild() {
+        index.reload();
+    }
+
+    private static Index build(CropRepository cropRepository) {
+        Index rebuilt = new Index();
+        for (Map<String, Object> row : cropRepository.findSearchDocuments(null)) {
+            rebuilt.add(Document.from(row));
+        }
+        log.info("Product search index built with {} crops and {} terms", rebuilt.documents.size(),
+                rebuilt.postings.size());
+        return rebuilt;
+    }
+
+    private void reindex(Collection<Long> cropIds) {
+        index.update(current -> {
+            List<Map<String, Object>> rows = cropRepository.findSearchDocuments(cropIds);
+            for (Long id : cropIds) {
+                current.remove(id);
+            }
+            for (Map<String, Object> row : rows) {
+                current.add(Document.from(row));
+            }
+        });
+    }
+
+    /**
+     * Postings and documents of one generation of the index
+     */
+    private static final class Index {
+
+        /** term -> (crop id -> weight of the term in that crop) */
+        final ConcurrentSkipListMap<String, Map<Long, Float>> postings = new ConcurrentSkipListMap<>();
+        final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+        void add(Document doc) {
+            documents.put(doc.id, doc);
+            for (Map.Entry<String, Float> term : doc.terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), t -> new ConcurrentHashMap<>()).put(doc.id, term.getValue());
+            }
+        }
+
+        void remove(Long id) {
+            Document doc = documents.remove(id);
+            if (doc == null) {
+                return;
+            }
+            for (String term : doc.terms.keySet()) {
+                Map<Long, Float> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(id);
+                    if (posting.isEmpty()) {
+                        postings.remove(term, posting);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Best score per crop for one query token: exact term matches count fully,
+         * longer terms that merely start with the token count less
+         */
+        Map<Long, Float> scoreToken(String token) {
+            Map<Long, Float> scores = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Float>> entry : postings
+                    .subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+                float factor = entry.getKey().length() == token.length() ? 1f : PREFIX_FACTOR;
+                for (Map.Entry<Long, Float> posting : entry.getValue().entrySet()) {
+                    scores.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+                }
+            }
+            return scores;
+        }
+    }
+
+    /**
+     * Lower-cased, NFC-normalized tokens. NFC keeps Bangla vowel signs attached to
+     * their consonant and turns nukta letters (ড়, ঢ়, য়) into one canonical form.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC);
+        normalized = ZERO_WIDTH.matcher(normalized).replaceAll("").toLowerCase(Locale.ROOT);
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("s:" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeOffset(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("s:")) {
+                throw new IllegalArgumentException();
+            }
+            return Math.max(0, Integer.parseInt(raw.substring(2)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+
+    private record Hit(Document doc, float score) {
+        static final Comparator<Hit> RANKING = Comparator.comparing(Hit::score, Comparator.reverseOrder())
+                .thenComparing(hit -> hit.doc.createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(hit -> hit.doc.id, Comparator.reverseOrder());
+    }
+
+    /**
+     * Indexed view of one crop: its weighted terms plus the attributes used for
+     * filtering
+     */
+    private record Document(Long id, String cropTypeEn, BigDecimal quantity, Timestamp createdAt,
+            Map<String, Float> terms) {
+
+        static Document from(Map<String, Object> row) {
+            Map<String, Float> terms = new LinkedHashMap<>();
+            addField(terms, (String) row.get("title"), TITLE_WEIGHT);
+            addField(terms, (String) row.get("type_en"), CROP_TYPE_WEIGHT);
+            addField(terms, (String) row.get("type_bn"), CROP_TYPE_WEIGHT);
+            addField(terms, (String) row.get("district"), DISTRICT_WEIGHT);
+            addField(terms, (String) row.get("description"), DESCRIPTION_WEIGHT);
+
+            Object created = row.get("created_at");
+            Timestamp createdAt = created instanceof LocalDateTime ldt ? Timestamp.valueOf(ldt) : (Timestamp) created;
+            return new Document(((Number) row.get("id")).longValue(), (String) row.get("type_en"),
+                    (BigDecimal) row.get("quantity"), createdAt, Map.copyOf(terms));
+        }
+
+        /**
+         * A term's weight is the sum of the weights of the fields it appears in, so
+         * a crop whose title and crop type both match ranks above a title-only match
+         */
+        private static void addField(Map<String, Float> terms, String text, float weight) {
+            Set<String> seen = new HashSet<>(tokenize(text));
+            for (String token : seen) {
+                terms.merge(token, weight, Float::sum);
+            }
+        }
+
+        boolean isRetail() {
+            return quantity == null || quantity.compareTo(RETAIL_MAX_QUANTITY) <= 0;
+        }
+
+        boolean matchesCategory(String category) {
+            return category == null || category.isBlank() || category.equalsIgnoreCase(cropTypeEn);
+        }
+    }
+}
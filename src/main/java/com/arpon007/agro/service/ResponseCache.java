@@ -0,0 +1,202 @@
+package com.arpon007.agro.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.arpon007.agro.event.ReferenceDataChangedEvent;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Pre-serialized JSON for hot, read-mostly GET endpoints.
+ *
+ * Each entry holds the JSON bytes, a gzip copy for larger payloads and a strong
+ * ETag derived from the bytes. A request whose If-None-Match matches gets a 304
+ * without running the query or the serializer. Entries are grouped by the data
+ * they depend on and dropped when that data changes. Crop entries are dropped
+ * by {@link CropCatalogService} once its new snapshot is in place, so a
+ * rebuilt entry never captures the old catalog.
+ */
+@Component
+public class ResponseCache {
+
+    public enum Group {
+        CROPS,
+        REFERENCE_DATA,
+        LOCATIONS
+    }
+
+    /**
+     * Smaller payloads are not worth compressing
+     */
+    static final int GZIP_MIN_BYTES = 1024;
+
+    /**
+     * Keys include request parameters, so cap the number of entries. The cap
+     * is per group, so junk keys in one group cannot crowd out the others.
+     */
+    static final int MAX_ENTRIES_PER_GROUP = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final ConfigInvalidationBus configInvalidationBus;
+    private final Map<Group, Map<String, CachedResponse>> entries = new EnumMap<>(Group.class);
+    private final Map<Group, AtomicLong> generations = new EnumMap<>(Group.class);
+
+    public ResponseCache(ObjectMapper objectMapper, ConfigInvalidationBus configInvalidationBus) {
+        this.objectMapper = objectMapper;
+        this.configInvalidationBus = configInvalidationBus;
+        for (Group group : Group.values()) {
+            entries.put(group, new ConcurrentHashMap<>());
+            generations.put(group, new AtomicLong());
+        }
+    }
+
+    @PostConstruct
+    void subscribe() {
+        // Any config change may affect what these endpoints render
+        configInvalidationBus.subscribe(invalidation -> invalidateAll());
+    }
+
+    private record CachedResponse(Group group, long generation, byte[] json, byte[] gzip, String etag) {
+    }
+
+    /**
+     * Serve the cached payload for the key, building it from the supplier on a
+     * miss
+     */
+    public ResponseEntity<byte[]> respond(HttpServletRequest request, Group group, String key, Supplier<?> body) {
+        CachedResponse cached = entries.get(group).get(key);
+        if (cached == null) {
+            cached = build(group, body.get());
+            store(key, cached);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(cached.etag);
+        headers.setCacheControl(CacheControl.noCache());
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), cached.etag)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (cached.gzip != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new ResponseEntity<>(cached.gzip, headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(cached.json, headers, HttpStatus.OK);
+    }
+
+    public void invalidate(Group group) {
+        generations.get(group).incrementAndGet();
+        entries.get(group).clear();
+    }
+
+    public void invalidateAll() {
+        for (Group group : Group.values()) {
+            invalidate(group);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        invalidate(Group.REFERENCE_DATA);
+        if (event.cropTypesChanged()) {
+            // Crop listings embed the crop type name
+            invalidate(Group.CROPS);
+        }
+    }
+
+    private CachedResponse build(Group group, Object body) {
+        long generation = generations.get(group).get();
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        byte[] gzip = json.length >= GZIP_MIN_BYTES ? gzip(json) : null;
+        return new CachedResponse(group, generation, json, gzip, etag(json));
+    }
+
+    /**
+     * Keep the entry unless its data was invalidated while it was being built.
+     * A full group makes room by evicting an arbitrary entry.
+     */
+    private void store(String key, CachedResponse response) {
+        AtomicLong generation = generations.get(response.group);
+        if (generation.get() != response.generation) {
+            return;
+        }
+        Map<String, CachedResponse> groupEntries = entries.get(response.group);
+        if (groupEntries.size() >= MAX_ENTRIES_PER_GROUP && !groupEntries.containsKey(key)) {
+            Iterator<String> keys = groupEntries.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        groupEntries.put(key, response);
+        if (generation.get() != response.generation) {
+            groupEntries.remove(key, response);
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
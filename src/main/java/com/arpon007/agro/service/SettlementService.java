@@ -0,0 +1,134 @@
+package com.arpon007.agro.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.arpon007.agro.model.OutboxEvent;
+import com.arpon007.agro.model.Transaction;
+import com.arpon007.agro.model.Transaction.TransactionSource;
+import com.arpon007.agro.model.Transaction.TransactionType;
+import com.arpon007.agro.repository.OrderRepository;
+import com.arpon007.agro.repository.OrderRepository.Unsettled;
+import com.arpon007.agro.repository.TransactionRepository;
+import com.arpon007.agro.repository.WalletRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Settlement of delivered orders: the platform fee goes to platform_income
+ * and the rest to the farmer's wallet.
+ *
+ * Marking an order delivered only enqueues an {@value #ORDER_SETTLEMENT}
+ * outbox event in the same transaction. Outbox workers settle the queued
+ * orders a batch at a time, in one transaction per batch: the orders are
+ * locked, already settled ones are skipped, and the income rows, wallet
+ * credits and wallet transactions are written as batches. platform_income is
+ * unique per order, so a repeated delivery update or a retried batch cannot
+ * credit a farmer twice.
+ */
+@Service
+public class SettlementService {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementService.class);
+
+    /** { orderId } */
+    public static final String ORDER_SETTLEMENT = "ORDER_SETTLEMENT";
+
+    static final BigDecimal PLATFORM_FEE_PERCENTAGE = new BigDecimal("2.00");
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    private final OrderRepository orderRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final OutboxService outboxService;
+
+    public SettlementService(OrderRepository orderRepository, WalletRepository walletRepository,
+            TransactionRepository transactionRepository, OutboxService outboxService) {
+        this.orderRepository = orderRepository;
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.outboxService = outboxService;
+    }
+
+    @PostConstruct
+    void registerHandler() {
+        outboxService.register(ORDER_SETTLEMENT, this::settleEvents);
+    }
+
+    /**
+     * Update an order's delivery status. DELIVERED also completes the order
+     * and queues its settlement.
+     */
+    @Transactional
+    public void updateDeliveryStatus(Long orderId, String deliveryStatus) {
+        orderRepository.updateDeliveryStatus(orderId, deliveryStatus);
+        if ("DELIVERED".equals(deliveryStatus)) {
+            orderRepository.updateStatus(orderId, "COMPLETED");
+            outboxService.enqueue(ORDER_SETTLEMENT, Map.of("orderId", orderId));
+        }
+    }
+
+    private void settleEvents(List<OutboxEvent> events) {
+        settle(events.stream().map(event -> event.getLong("orderId")).toList());
+    }
+
+    /**
+     * Settle the given orders in the caller's transaction
+     *
+     * @return number of orders settled; orders already settled or no longer
+     *         delivered are skipped
+     */
+    int settle(Collection<Long> orderIds) {
+        List<Unsettled> orders = orderRepository.lockUnsettled(new LinkedHashSet<>(orderIds));
+        if (orders.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Long> walletIds = walletRepository.findOrCreateIds(
+                orders.stream().map(Unsettled::farmerId).distinct().toList());
+
+        Map<Long, BigDecimal> feeByOrder = new TreeMap<>();
+        Map<Long, BigDecimal> creditByWallet = new TreeMap<>();
+        List<Transaction> transactions = new ArrayList<>();
+        for (Unsettled order : orders) {
+            BigDecimal fee = order.totalAmount().multiply(PLATFORM_FEE_PERCENTAGE)
+                    .divide(HUNDRED, 2, RoundingMode.HALF_UP);
+            feeByOrder.put(order.orderId(), fee);
+
+            // The platform collected the full amount (advance + COD/digital),
+            // so the farmer receives the total minus the fee
+            BigDecimal credit = order.totalAmount().subtract(fee);
+            if (credit.signum() <= 0) {
+                continue;
+            }
+            Long walletId = walletIds.get(order.farmerId());
+            creditByWallet.merge(walletId, credit, BigDecimal::add);
+
+            Transaction transaction = new Transaction();
+            transaction.setWalletId(walletId);
+            transaction.setType(TransactionType.CREDIT);
+            transaction.setAmount(credit);
+            transaction.setSource(TransactionSource.SALE);
+            transaction.setReferenceId(order.orderId());
+            transaction.setDescription("Payment for Order #" + order.orderId());
+            transactions.add(transaction);
+        }
+
+        orderRepository.recordPlatformIncome(feeByOrder, PLATFORM_FEE_PERCENTAGE);
+        walletRepository.creditAll(creditByWallet);
+        transactionRepository.saveAll(transactions);
+        log.info("Settled {} delivered orders for {} farmers", orders.size(), creditByWallet.size());
+        return orders.size();
+    }
+}
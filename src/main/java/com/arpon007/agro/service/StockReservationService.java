@@ -0,0 +1,363 @@
+package com.arpon007.agro.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.arpon007.agro.event.StockReservedEvent;
+import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.repository.CropRepository;
+import com.arpon007.agro.repository.StockReservationRepository;
+import com.arpon007.agro.repository.StockReservationRepository.Reservation;
+
+/**
+ * Time-limited holds on crop stock, one per (crop, customer). A crop put in a
+ * cart or won through an accepted bid is held for the customer until checkout,
+ * until it leaves the cart or until the hold expires; other customers can
+ * only take quantity - active holds.
+ *
+ * The ledger lives in memory, striped by crop so holds on different crops
+ * never contend, and is written through to stock_reservations. A hold counts
+ * as soon as it is taken and is undone if the surrounding transaction rolls
+ * back; a release only counts once it commits, so the ledger never shows more
+ * stock than the database will. Expired holds stop counting right away; the
+ * sweeper deletes them in batches and refreshes the listings.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final int STRIPES = 64;
+
+    /**
+     * One customer's hold on one crop
+     */
+    record Hold(BigDecimal quantity, long expiresAt) {
+        boolean isActiveAt(long millis) {
+            return expiresAt > millis;
+        }
+    }
+
+    private final StockReservationRepository reservationRepository;
+    private final CropRepository cropRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final Duration cartTtl;
+    private final Duration bidTtl;
+    private final int sweepBatchSize;
+    private final Object[] stripes = new Object[STRIPES];
+    // crop id -> customer id -> hold; an inner map is only used under its crop's stripe
+    private final LazySnapshot<Map<Long, Map<Long, Hold>>> holds;
+
+    @Autowired
+    public StockReservationService(StockReservationRepository reservationRepository, CropRepository cropRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.reservation.cart-ttl-minutes:30}") long cartTtlMinutes,
+            @Value("${app.reservation.bid-ttl-minutes:1440}") long bidTtlMinutes,
+            @Value("${app.reservation.sweep-batch-size:500}") int sweepBatchSize) {
+        this(reservationRepository, cropRepository, eventPublisher, Clock.systemUTC(),
+                Duration.ofMinutes(cartTtlMinutes), Duration.ofMinutes(bidTtlMinutes), sweepBatchSize);
+    }
+
+    StockReservationService(StockReservationRepository reservationRepository, CropRepository cropRepository,
+            ApplicationEventPublisher eventPublisher, Clock clock, Duration cartTtl, Duration bidTtl,
+            int sweepBatchSize) {
+        this.reservationRepository = reservationRepository;
+        this.cropRepository = cropRepository;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.cartTtl = cartTtl;
+        this.bidTtl = bidTtl;
+        this.sweepBatchSize = Math.max(1, sweepBatchSize);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        this.holds = new LazySnapshot<>("stock holds", new ConcurrentHashMap<>(),
+                () -> loadHolds(reservationRepository, clock));
+    }
+
+    // ==================== READS ====================
+
+    /**
+     * Stock nobody holds: stock - all active holds, never below zero
+     */
+    public BigDecimal available(Long cropId, BigDecimal stock) {
+        return availableTo(cropId, null, stock);
+    }
+
+    /**
+     * Stock the customer can take: stock - other customers' active holds
+     */
+    public BigDecimal availableTo(Long cropId, Long customerId, BigDecimal stock) {
+        Map<Long, Map<Long, Hold>> ledger = holds.get();
+        long now = clock.millis();
+        BigDecimal base = stock != null ? stock : BigDecimal.ZERO;
+        synchronized (stripe(cropId)) {
+            return base.subtract(heldByOthers(ledger.get(cropId), Set.of(), customerId, now)).max(BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * The customer's active hold on a crop, zero if none
+     */
+    public BigDecimal heldBy(Long cropId, Long customerId) {
+        Map<Long, Map<Long, Hold>> ledger = holds.get();
+        long now = clock.millis();
+        synchronized (stripe(cropId)) {
+            Map<Long, Hold> crop = ledger.get(cropId);
+            Hold hold = crop != null ? crop.get(customerId) : null;
+            return hold != null && hold.isActiveAt(now) ? hold.quantity() : BigDecimal.ZERO;
+        }
+    }
+
+    // ==================== HOLDS ====================
+
+    /**
+     * Set the customer's hold on a crop to the quantity in their cart
+     *
+     * @return false, holding nothing, if the customer cannot take that much
+     */
+    public boolean holdForCart(Long cropId, Long customerId, BigDecimal quantity, BigDecimal stock) {
+        return hold(cropId, Map.of(customerId, quantity), stock, cartTtl, false);
+    }
+
+    /**
+     * Add accepted bid quantities to the buyers' holds on a crop, against its
+     * current stock
+     *
+     * @param quantities quantity per buyer id
+     * @throws IllegalStateException if other customers hold too much of the
+     *                               crop
+     */
+    public void holdForBids(Long cropId, Map<Long, BigDecimal> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Crop crop = cropRepository.findStockByIds(List.of(cropId)).get(cropId);
+        BigDecimal stock = crop != null && !Boolean.TRUE.equals(crop.getIsSold()) ? crop.getQuantity()
+                : BigDecimal.ZERO;
+        if (!hold(cropId, quantities, stock, bidTtl, true)) {
+            throw new IllegalStateException("Only " + available(cropId, stock).stripTrailingZeros().toPlainString()
+                    + " of this crop is not reserved by other customers");
+        }
+    }
+
+    /**
+     * Check and apply new holds for some customers on one crop under its
+     * stripe. Each hold keeps the later of its current and new expiry.
+     *
+     * @param add whether the quantities add to the current holds or replace
+     *            them
+     */
+    private boolean hold(Long cropId, Map<Long, BigDecimal> quantities, BigDecimal stock, Duration ttl,
+            boolean add) {
+        Map<Long, Map<Long, Hold>> ledger = holds.get();
+        long now = clock.millis();
+        long expiresAt = now + ttl.toMillis();
+        Map<Long, Hold> previous = new HashMap<>();
+        synchronized (stripe(cropId)) {
+            Map<Long, Hold> crop = ledger.computeIfAbsent(cropId, id -> new HashMap<>());
+            BigDecimal free = (stock != null ? stock : BigDecimal.ZERO)
+                    .subtract(heldByOthers(crop, quantities.keySet(), null, now));
+
+            Map<Long, Hold> updated = new HashMap<>();
+            BigDecimal wanted = BigDecimal.ZERO;
+            for (Map.Entry<Long, BigDecimal> entry : quantities.entrySet()) {
+                Hold current = crop.get(entry.getKey());
+                boolean active = current != null && current.isActiveAt(now);
+                BigDecimal quantity = add && active ? current.quantity().add(entry.getValue()) : entry.getValue();
+                updated.put(entry.getKey(), new Hold(quantity, active ? Math.max(expiresAt, current.expiresAt())
+                        : expiresAt));
+                wanted = wanted.add(quantity);
+            }
+            if (wanted.compareTo(free) > 0) {
+                if (crop.isEmpty()) {
+                    ledger.remove(cropId);
+                }
+                return false;
+            }
+
+            List<Reservation> rows = new ArrayList<>(updated.size());
+            updated.forEach((customerId, hold) -> rows.add(new Reservation(cropId, customerId, hold.quantity(),
+                    new Timestamp(hold.expiresAt()))));
+            reservationRepository.saveAll(rows);
+            updated.forEach((customerId, hold) -> previous.put(customerId, crop.put(customerId, hold)));
+        }
+        TransactionHooks.onRollback(() -> restore(cropId, previous));
+        eventPublisher.publishEvent(StockReservedEvent.of(cropId));
+        return true;
+    }
+
+    /**
+     * Release the customer's holds on the given crops, e.g. when they leave
+     * the cart or are checked out
+     */
+    public void release(Long customerId, Collection<Long> cropIds) {
+        if (cropIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(cropIds));
+        reservationRepository.deleteAll(customerId, ids);
+        TransactionHooks.afterCommit(() -> {
+            Map<Long, Map<Long, Hold>> ledger = holds.get();
+            for (Long cropId : ids) {
+                synchronized (stripe(cropId)) {
+                    Map<Long, Hold> crop = ledger.get(cropId);
+                    if (crop != null && crop.remove(customerId) != null && crop.isEmpty()) {
+                        ledger.remove(cropId);
+                    }
+                }
+            }
+        });
+        eventPublisher.publishEvent(StockReservedEvent.of(ids));
+    }
+
+    /**
+     * Release every hold of the customer (their cart was cleared)
+     */
+    public void releaseAll(Long customerId) {
+        List<Long> cropIds = new ArrayList<>();
+        for (Map.Entry<Long, Map<Long, Hold>> entry : holds.get().entrySet()) {
+            synchronized (stripe(entry.getKey())) {
+                if (entry.getValue().containsKey(customerId)) {
+                    cropIds.add(entry.getKey());
+                }
+            }
+        }
+        release(customerId, cropIds);
+    }
+
+    // ==================== SWEEPING ====================
+
+    /**
+     * Drop expired holds from memory, then delete them from the table in
+     * batches. Listings of the affected crops are refreshed once per pass.
+     */
+    @Scheduled(fixedDelayString = "${app.reservation.sweep-interval-ms:60000}")
+    public void sweep() {
+        try {
+            long now = clock.millis();
+            Set<Long> cropIds = new LinkedHashSet<>(evictExpired(now));
+
+            Timestamp cutoff = new Timestamp(now);
+            List<Reservation> expired;
+            do {
+                expired = reservationRepository.findExpired(cutoff, sweepBatchSize);
+                if (!expired.isEmpty()) {
+                    reservationRepository.deleteExpired(expired, cutoff);
+                    expired.forEach(reservation -> cropIds.add(reservation.cropId()));
+                }
+            } while (expired.size() == sweepBatchSize);
+
+            if (!cropIds.isEmpty()) {
+                log.debug("Released expired stock holds on {} crops", cropIds.size());
+                eventPublisher.publishEvent(StockReservedEvent.of(cropIds));
+            }
+        } catch (Exception e) {
+            // Expired holds already do not count; the next pass retries
+            log.error("Failed to sweep expired stock holds: {}", e.getMessage());
+        }
+    }
+
+    private List<Long> evictExpired(long now) {
+        Map<Long, Map<Long, Hold>> ledger = holds.get();
+        List<Long> cropIds = new ArrayList<>();
+        for (Map.Entry<Long, Map<Long, Hold>> entry : ledger.entrySet()) {
+            Long cropId = entry.getKey();
+            synchronized (stripe(cropId)) {
+                Map<Long, Hold> crop = entry.getValue();
+                if (crop.values().removeIf(hold -> !hold.isActiveAt(now))) {
+                    cropIds.add(cropId);
+                }
+                if (crop.isEmpty()) {
+                    ledger.remove(cropId, crop);
+                }
+            }
+        }
+        return cropIds;
+    }
+
+    // ==================== LOADING ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        holds.warmUp();
+    }
+
+    public void reload() {
+        holds.reload();
+    }
+
+    private static Map<Long, Map<Long, Hold>> loadHolds(StockReservationRepository reservationRepository,
+            Clock clock) {
+        Map<Long, Map<Long, Hold>> loaded = new ConcurrentHashMap<>();
+        for (Reservation reservation : reservationRepository.findActive(new Timestamp(clock.millis()))) {
+            loaded.computeIfAbsent(reservation.cropId(), id -> new HashMap<>()).put(reservation.customerId(),
+                    new Hold(reservation.quantity(), reservation.expiresAt().getTime()));
+        }
+        return loaded;
+    }
+
+    // ==================== HELPERS ====================
+
+    private Object stripe(Long cropId) {
+        return stripes[Math.floorMod(Long.hashCode(cropId), STRIPES)];
+    }
+
+    /**
+     * Sum of active holds on a crop, leaving out the given customers
+     */
+    private static BigDecimal heldByOthers(Map<Long, Hold> crop, Set<Long> customerIds, Long customerId, long now) {
+        BigDecimal total = BigDecimal.ZERO;
+        if (crop == null) {
+            return total;
+        }
+        for (Map.Entry<Long, Hold> entry : crop.entrySet()) {
+            if (entry.getValue().isActiveAt(now) && !entry.getKey().equals(customerId)
+                    && !customerIds.contains(entry.getKey())) {
+                total = total.add(entry.getValue().quantity());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Put back the holds a rolled-back transaction replaced (null: none)
+     */
+    private void restore(Long cropId, Map<Long, Hold> previous) {
+        Map<Long, Map<Long, Hold>> ledger = holds.get();
+        synchronized (stripe(cropId)) {
+            Map<Long, Hold> crop = ledger.computeIfAbsent(cropId, id -> new HashMap<>());
+            previous.forEach((customerId, hold) -> {
+                if (hold == null) {
+                    crop.remove(customerId);
+                } else {
+                    crop.put(customerId, hold);
+                }
+            });
+            if (crop.isEmpty()) {
+                ledger.remove(cropId);
+            }
+        }
+    }
+}
@@ -0,0 +1,4 @@
+-- Optimistic concurrency for bids: every status transition is a single
+-- UPDATE ... WHERE id = ? AND version = ? AND status IN (...) that bumps it.
+ALTER TABLE bids
+    ADD COLUMN version INT NOT NULL DEFAULT 0 AFTER status;
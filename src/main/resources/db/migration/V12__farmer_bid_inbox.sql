@@ -0,0 +1,27 @@
+-- Farmer bid inbox: one row per live bid, denormalized from bids, crops and
+-- users so the farmer dashboard is an index range scan instead of a four-way
+-- join filtered on crops.farmer_id. Rows are kept in step on every bid write
+-- and backfilled at startup.
+CREATE TABLE IF NOT EXISTS farmer_bid_inbox (
+    bid_id BIGINT PRIMARY KEY,
+    farmer_id BIGINT NOT NULL,
+    crop_id BIGINT NOT NULL,
+    buyer_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    buyer_name VARCHAR(100),
+    farmer_name VARCHAR(100),
+    crop_title VARCHAR(150),
+    unit VARCHAR(20),
+    crop_min_price DECIMAL(10,2),
+    amount DECIMAL(10,2) NOT NULL,
+    quantity DECIMAL(10,2),
+    farmer_counter_price DECIMAL(10,2),
+    last_action_by VARCHAR(10),
+    version INT NOT NULL DEFAULT 0,
+    bid_time TIMESTAMP NULL,
+    updated_at TIMESTAMP NULL,
+    FOREIGN KEY (bid_id) REFERENCES bids(id) ON DELETE CASCADE,
+    INDEX idx_inbox_farmer_status (farmer_id, status, updated_at, bid_id),
+    INDEX idx_inbox_farmer_recent (farmer_id, updated_at, bid_id),
+    INDEX idx_inbox_crop (crop_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,13 @@
+-- Farmer reserve rules per crop listing. New bids are matched against them
+-- in memory: auto-accept at or above a price for a minimum quantity,
+-- auto-counter at a price, auto-reject below a floor. Missing columns mean
+-- the rule is off.
+CREATE TABLE IF NOT EXISTS crop_bid_rules (
+    crop_id BIGINT PRIMARY KEY,
+    auto_accept_price DECIMAL(10,2), -- Accept bids at or above this per-unit price...
+    auto_accept_min_quantity DECIMAL(10,2), -- ...for at least this quantity
+    auto_counter_price DECIMAL(10,2), -- Counter lower bids at this price
+    auto_reject_below DECIMAL(10,2), -- Reject bids below this price
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (crop_id) REFERENCES crops(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
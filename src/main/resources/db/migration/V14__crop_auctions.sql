@@ -0,0 +1,19 @@
+-- Optional sealed-bid auction per B2B crop. Bids placed during the window
+-- stay hidden and are settled together at close: the crop quantity goes to
+-- the highest bids in whole lots, at one uniform price or at each bid's own
+-- price.
+CREATE TABLE IF NOT EXISTS crop_auctions (
+    crop_id BIGINT PRIMARY KEY,
+    opens_at TIMESTAMP NOT NULL,
+    closes_at TIMESTAMP NOT NULL,
+    lot_size DECIMAL(10,2) NOT NULL DEFAULT 1.00, -- Bids and allocations are whole lots
+    reserve_price DECIMAL(10,2), -- Bids below this per-unit price never win
+    pricing ENUM('UNIFORM', 'PAY_AS_BID') NOT NULL DEFAULT 'UNIFORM',
+    status ENUM('OPEN', 'CLOSED', 'CANCELLED') NOT NULL DEFAULT 'OPEN',
+    clearing_price DECIMAL(10,2), -- Lowest winning bid (the uniform price)
+    sold_quantity DECIMAL(10,2),
+    winning_bids INT,
+    cleared_at TIMESTAMP NULL,
+    FOREIGN KEY (crop_id) REFERENCES crops(id) ON DELETE CASCADE,
+    INDEX idx_auction_due (status, closes_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,16 @@
+-- Time-limited holds on crop stock, one per (crop, customer): taken when a
+-- crop goes into a cart or a bid is accepted, released at checkout or when
+-- the item leaves the cart, and swept once expired. Listings show
+-- quantity minus the active holds.
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    crop_id BIGINT NOT NULL,
+    customer_id BIGINT NOT NULL,
+    quantity DECIMAL(10,2) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (crop_id, customer_id),
+    FOREIGN KEY (crop_id) REFERENCES crops(id) ON DELETE CASCADE,
+    FOREIGN KEY (customer_id) REFERENCES users(id) ON DELETE CASCADE,
+    INDEX idx_reservation_customer (customer_id),
+    INDEX idx_reservation_expiry (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,5 @@
+-- Keyset index for a farmer's order history (/api/features/farmer/orders).
+-- Buyers already have idx_orders_buyer_created (V7); the history query joins
+-- crops and users by primary key and reads the cover image through the
+-- crop_images foreign key index.
+CREATE INDEX idx_orders_farmer_created ON orders (farmer_id, created_at, id);
@@ -0,0 +1,14 @@
+-- Responses of order and payment requests sent with an Idempotency-Key
+-- header, so a retried request replays the first response instead of placing
+-- (and paying for) the order again. The row commits together with the order.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    request_hash CHAR(64) NOT NULL, -- SHA-256 of endpoint + request body
+    status_code INT,
+    content_type VARCHAR(100),
+    response_body MEDIUMTEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, idempotency_key),
+    INDEX idx_idempotency_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,10 @@
+-- Delivered orders are settled in the background; the order id is the
+-- settlement key, so platform_income may hold at most one row per order.
+-- Earlier double-clicked deliveries could record the fee twice: keep the
+-- first row of each order before adding the unique key.
+DELETE pi FROM platform_income pi
+JOIN platform_income earlier ON earlier.order_id = pi.order_id AND earlier.id < pi.id;
+
+ALTER TABLE platform_income
+    ADD UNIQUE KEY uq_platform_income_order (order_id),
+    DROP INDEX idx_order_id;
@@ -0,0 +1,18 @@
+-- Orders become a header plus lines: a checkout places one order per farmer
+-- with a line per crop. Existing orders get a single line; their quantity was
+-- never stored, so it is backfilled as 1 x the order total, as the invoices
+-- have always shown it.
+CREATE TABLE IF NOT EXISTS order_items (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    crop_id BIGINT NOT NULL,
+    quantity DECIMAL(10,2) NOT NULL,
+    unit_price DECIMAL(10,2) NOT NULL,
+    total_price DECIMAL(10,2) NOT NULL,
+    FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE,
+    FOREIGN KEY (crop_id) REFERENCES crops(id),
+    INDEX idx_order_items_order (order_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO order_items (order_id, crop_id, quantity, unit_price, total_price)
+SELECT id, crop_id, 1, total_amount, total_amount FROM orders;
@@ -0,0 +1,9 @@
+-- Indexes for the admin order search (/api/admin/orders/search). Each filter
+-- is a leading column followed by (created_at, id), so a filtered page is read
+-- newest first straight off the index; buyer and farmer use V7/V16. Unfiltered
+-- and date-range searches use idx_orders_created.
+CREATE INDEX idx_orders_created ON orders (created_at, id);
+CREATE INDEX idx_orders_status_created ON orders (status, created_at, id);
+CREATE INDEX idx_orders_delivery_created ON orders (delivery_status, created_at, id);
+CREATE INDEX idx_orders_mobile_created ON orders (customer_mobile, created_at, id);
+CREATE INDEX idx_users_district ON users (district);
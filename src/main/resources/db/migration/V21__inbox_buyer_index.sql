@@ -0,0 +1,3 @@
+-- Bid inbox rows are looked up by buyer when a buyer renames themselves
+-- (farmer renames use idx_inbox_farmer_recent).
+CREATE INDEX idx_inbox_buyer ON farmer_bid_inbox (buyer_id);
@@ -0,0 +1,21 @@
+-- Composite indexes backing keyset (cursor) pagination.
+-- Every paged listing orders by (created_at DESC, id DESC) within its filter,
+-- so the index lets MySQL seek straight to the cursor instead of scanning/sorting.
+
+-- Farmer's own crops (/api/crops/my)
+CREATE INDEX idx_crops_farmer_created ON crops (farmer_id, created_at, id);
+
+-- Public product listings (/api/ecommerce/products, catalog reloads)
+CREATE INDEX idx_crops_sold_created ON crops (is_sold, created_at, id);
+
+-- Buyer's bids (/api/bids/my-bids)
+CREATE INDEX idx_bids_buyer_time ON bids (buyer_id, bid_time, id);
+
+-- Bids per crop, used when listing a farmer's incoming bids (/api/bids/farmer-bids)
+CREATE INDEX idx_bids_crop_time ON bids (crop_id, bid_time, id);
+
+-- All bids for admin
+CREATE INDEX idx_bids_time ON bids (bid_time, id);
+
+-- Customer order history (/api/customer/orders)
+CREATE INDEX idx_orders_buyer_created ON orders (buyer_id, created_at, id);
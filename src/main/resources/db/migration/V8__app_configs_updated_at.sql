@@ -0,0 +1,4 @@
+-- Change stamp for the cached configuration: the periodic reconcile compares
+-- COUNT(*) and MAX(updated_at) to notice rows edited directly in the database.
+ALTER TABLE app_configs
+    ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP;
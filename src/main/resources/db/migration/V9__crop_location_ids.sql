@@ -0,0 +1,7 @@
+-- Normalized crop location: ids from the division/district/upazila hierarchy
+-- in reference/bd-locations.json. Resolved from the free-text location (or the
+-- farmer's profile) when a crop is saved; existing rows are backfilled at startup.
+ALTER TABLE crops
+    ADD COLUMN division_id INT NULL AFTER location,
+    ADD COLUMN district_id INT NULL AFTER division_id,
+    ADD COLUMN upazila_id INT NULL AFTER district_id;
@@ -135,6 +135,93 @@ CREATE TABLE IF NOT EXISTS bids (
     INDEX idx_status (status)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Farmer bid inbox: one row per live bid, denormalized from bids, crops and
+-- users so the farmer dashboard is an index range scan. Kept in step by
+-- BidInboxRepository on every bid write.
+CREATE TABLE IF NOT EXISTS farmer_bid_inbox (
+    bid_id BIGINT PRIMARY KEY,
+    farmer_id BIGINT NOT NULL,
+    crop_id BIGINT NOT NULL,
+    buyer_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    buyer_name VARCHAR(100),
+    farmer_name VARCHAR(100),
+    crop_title VARCHAR(150),
+    unit VARCHAR(20),
+    crop_min_price DECIMAL(10,2),
+    amount DECIMAL(10,2) NOT NULL,
+    quantity DECIMAL(10,2),
+    farmer_counter_price DECIMAL(10,2),
+    last_action_by VARCHAR(10),
+    version INT NOT NULL DEFAULT 0,
+    bid_time TIMESTAMP NULL,
+    updated_at TIMESTAMP NULL,
+    FOREIGN KEY (bid_id) REFERENCES bids(id) ON DELETE CASCADE,
+    INDEX idx_inbox_farmer_status (farmer_id, status, updated_at, bid_id),
+    INDEX idx_inbox_farmer_recent (farmer_id, updated_at, bid_id),
+    INDEX idx_inbox_crop (crop_id),
+    INDEX idx_inbox_buyer (buyer_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Farmer reserve rules per crop listing, applied by BidMatchingEngine when a
+-- bid is placed.
+CREATE TABLE IF NOT EXISTS crop_bid_rules (
+    crop_id BIGINT PRIMARY KEY,
+    auto_accept_price DECIMAL(10,2), -- Accept bids at or above this per-unit price...
+    auto_accept_min_quantity DECIMAL(10,2), -- ...for at least this quantity
+    auto_counter_price DECIMAL(10,2), -- Counter lower bids at this price
+    auto_reject_below DECIMAL(10,2), -- Reject bids below this price
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (crop_id) REFERENCES crops(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Sealed-bid auctions for B2B crops: bids are collected during the window
+-- and cleared in one pass by AuctionService when it closes.
+CREATE TABLE IF NOT EXISTS crop_auctions (
+    crop_id BIGINT PRIMARY KEY,
+    opens_at TIMESTAMP NOT NULL,
+    closes_at TIMESTAMP NOT NULL,
+    lot_size DECIMAL(10,2) NOT NULL DEFAULT 1.00, -- Bids and allocations are whole lots
+    reserve_price DECIMAL(10,2), -- Bids below this per-unit price never win
+    pricing ENUM('UNIFORM', 'PAY_AS_BID') NOT NULL DEFAULT 'UNIFORM',
+    status ENUM('OPEN', 'CLOSED', 'CANCELLED') NOT NULL DEFAULT 'OPEN',
+    clearing_price DECIMAL(10,2), -- Lowest winning bid (the uniform price)
+    sold_quantity DECIMAL(10,2),
+    winning_bids INT,
+    cleared_at TIMESTAMP NULL,
+    FOREIGN KEY (crop_id) REFERENCES crops(id) ON DELETE CASCADE,
+    INDEX idx_auction_due (status, closes_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Time-limited stock holds per (crop, customer) for carts and accepted bids,
+-- kept in memory by StockReservationService.
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    crop_id BIGINT NOT NULL,
+    customer_id BIGINT NOT NULL,
+    quantity DECIMAL(10,2) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (crop_id, customer_id),
+    FOREIGN KEY (crop_id) REFERENCES crops(id) ON DELETE CASCADE,
+    FOREIGN KEY (customer_id) REFERENCES users(id) ON DELETE CASCADE,
+    INDEX idx_reservation_customer (customer_id),
+    INDEX idx_reservation_expiry (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- First responses of order/payment requests sent with an Idempotency-Key
+-- header, replayed by IdempotencyService for retries.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    request_hash CHAR(64) NOT NULL, -- SHA-256 of endpoint + request body
+    status_code INT,
+    content_type VARCHAR(100),
+    response_body MEDIUMTEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, idempotency_key),
+    INDEX idx_idempotency_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 CREATE TABLE IF NOT EXISTS orders (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     buyer_id BIGINT NOT NULL,
@@ -150,6 +237,20 @@ CREATE TABLE IF NOT EXISTS orders (
     FOREIGN KEY (crop_id) REFERENCES crops(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Order lines: an order is a header (buyer, farmer, totals) plus one line
+-- per crop; orders.crop_id keeps the first line's crop
+CREATE TABLE IF NOT EXISTS order_items (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    crop_id BIGINT NOT NULL,
+    quantity DECIMAL(10,2) NOT NULL,
+    unit_price DECIMAL(10,2) NOT NULL,
+    total_price DECIMAL(10,2) NOT NULL,
+    FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE,
+    FOREIGN KEY (crop_id) REFERENCES crops(id),
+    INDEX idx_order_items_order (order_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 CREATE TABLE IF NOT EXISTS payments (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     order_id BIGINT NOT NULL,
@@ -212,8 +313,8 @@ CREATE TABLE IF NOT EXISTS cashout_requests (
     processed_by BIGINT NULL,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (processed_by) REFERENCES users(id) ON DELETE SET NULL,
-    INDEX idx_user_id (user_id),
-    INDEX idx_status (status),
+    INDEX idx_cashout_user (user_id),
+    INDEX idx_cashout_status (status),
     INDEX idx_requested_at (requested_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
@@ -333,7 +434,7 @@ CREATE TABLE IF NOT EXISTS messages (
     FOREIGN KEY (receiver_id) REFERENCES users(id) ON DELETE CASCADE,
     INDEX idx_receiver_read (receiver_id, is_read),
     INDEX idx_conversation (sender_id, receiver_id),
-    INDEX idx_created_at (created_at)
+    INDEX idx_messages_created (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 CREATE TABLE IF NOT EXISTS notifications (
@@ -346,6 +447,21 @@ CREATE TABLE IF NOT EXISTS notifications (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Side effects of bid/order writes (cart adds, notifications, chat messages),
+-- written in the same transaction and dispatched by OutboxService
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,
+    payload TEXT NOT NULL,
+    status ENUM('PENDING', 'DONE', 'DEAD') DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    last_error VARCHAR(500),
+    next_attempt_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP NULL,
+    INDEX idx_outbox_due (status, next_attempt_at, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- =================================================================================
 -- 9. BLOGS & AGRICULTURAL TIPS (Agronomist Module)
 -- =================================================================================
@@ -653,7 +769,7 @@ CREATE TABLE IF NOT EXISTS cart_items (
     FOREIGN KEY (cart_id) REFERENCES cart(id) ON DELETE CASCADE,
     FOREIGN KEY (crop_id) REFERENCES crops(id) ON DELETE CASCADE,
     INDEX idx_cart_id (cart_id),
-    INDEX idx_crop_id (crop_id),
+    INDEX idx_cart_items_crop (crop_id),
     UNIQUE KEY unique_cart_crop (cart_id, crop_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
@@ -671,7 +787,7 @@ CREATE TABLE IF NOT EXISTS customer_addresses (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
-    INDEX idx_user_id (user_id)
+    INDEX idx_addresses_user (user_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- Create platform_income table
@@ -682,7 +798,7 @@ CREATE TABLE IF NOT EXISTS platform_income (
     fee_percentage DECIMAL(5,2) DEFAULT 2.00,
     recorded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE,
-    INDEX idx_order_id (order_id),
+    UNIQUE KEY uq_platform_income_order (order_id), -- one settlement per order
     INDEX idx_recorded_at (recorded_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
@@ -738,6 +854,66 @@ PREPARE stmt FROM @sql;
 EXECUTE stmt;
 DEALLOCATE PREPARE stmt;
 
+-- Add version to bids if not exists (compare-and-set status transitions)
+SET @column_exists = (SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS 
+                      WHERE TABLE_SCHEMA = DATABASE() 
+                      AND TABLE_NAME = 'bids' 
+                      AND COLUMN_NAME = 'version');
+SET @sql = IF(@column_exists = 0, 
+    'ALTER TABLE bids ADD COLUMN version INT NOT NULL DEFAULT 0 AFTER status', 
+    'SELECT "version column already exists"');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Add division_id to crops if not exists (normalized location, see reference/bd-locations.json)
+SET @column_exists = (SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS 
+                      WHERE TABLE_SCHEMA = DATABASE() 
+                      AND TABLE_NAME = 'crops' 
+                      AND COLUMN_NAME = 'division_id');
+SET @sql = IF(@column_exists = 0, 
+    'ALTER TABLE crops ADD COLUMN division_id INT NULL AFTER location', 
+    'SELECT "division_id column already exists"');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Add district_id to crops if not exists (normalized location, see reference/bd-locations.json)
+SET @column_exists = (SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS 
+                      WHERE TABLE_SCHEMA = DATABASE() 
+                      AND TABLE_NAME = 'crops' 
+                      AND COLUMN_NAME = 'district_id');
+SET @sql = IF(@column_exists = 0, 
+    'ALTER TABLE crops ADD COLUMN district_id INT NULL AFTER division_id', 
+    'SELECT "district_id column already exists"');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Add upazila_id to crops if not exists (normalized location, see reference/bd-locations.json)
+SET @column_exists = (SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS 
+                      WHERE TABLE_SCHEMA = DATABASE() 
+                      AND TABLE_NAME = 'crops' 
+                      AND COLUMN_NAME = 'upazila_id');
+SET @sql = IF(@column_exists = 0, 
+    'ALTER TABLE crops ADD COLUMN upazila_id INT NULL AFTER district_id', 
+    'SELECT "upazila_id column already exists"');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Add updated_at to app_configs if not exists (used to detect direct edits)
+SET @column_exists = (SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS 
+                      WHERE TABLE_SCHEMA = DATABASE() 
+                      AND TABLE_NAME = 'app_configs' 
+                      AND COLUMN_NAME = 'updated_at');
+SET @sql = IF(@column_exists = 0, 
+    'ALTER TABLE app_configs ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP AFTER config_value', 
+    'SELECT "updated_at column already exists"');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
 
 -- =================================================================================
 -- 3. SEEDING INITIAL DATA
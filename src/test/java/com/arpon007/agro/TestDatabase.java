@@ -0,0 +1,97 @@
+package com.arpon007.agro;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * An in-memory H2 database in MySQL mode with the application's schema.sql
+ * loaded, for repository and service tests, so they run against the real
+ * column types, defaults, enums and NOT NULL constraints instead of a
+ * hand-written copy.
+ *
+ * schema.sql is MySQL: the column upgrades it runs through PREPARE are
+ * applied directly when the column is missing, which on a fresh database is
+ * always. Foreign keys are not enforced, so a test only inserts the rows it
+ * reads.
+ */
+public final class TestDatabase {
+
+    /**
+     * The test classpath has its own schema.sql for the Spring context test,
+     * so the application's is read from the source tree
+     */
+    private static final Path SCHEMA = Path.of("src/main/resources/schema.sql");
+
+    private static final Pattern CONDITIONAL_DDL = Pattern.compile(
+            "^SET @sql = IF\\(@column_exists = 0,\\s*'((?:[^']|'')*)'", Pattern.DOTALL);
+
+    private static List<String> statements;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * A new empty database with the schema, e.g. create("bid_inbox"). Each
+     * call drops whatever an earlier test left under that name.
+     */
+    public static JdbcTemplate create(String name) {
+        String url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        // Session variables (@column_exists) only live on one connection
+        SingleConnectionDataSource connection = new SingleConnectionDataSource(url, "sa", "", true);
+        JdbcTemplate loader = new JdbcTemplate(connection);
+        for (String statement : statements()) {
+            Matcher conditional = CONDITIONAL_DDL.matcher(statement);
+            if (conditional.find()) {
+                Integer exists = loader.queryForObject("SELECT @column_exists", Integer.class);
+                if (exists != null && exists == 0) {
+                    loader.execute(conditional.group(1).replace("''", "'"));
+                }
+            } else if (statement.startsWith("SET @column_exists")) {
+                // H2's DATABASE() is the catalog, MySQL's is the schema
+                loader.execute(statement.replace("DATABASE()", "SCHEMA()"));
+            } else if (!statement.startsWith("PREPARE ") && !statement.startsWith("EXECUTE ")
+                    && !statement.startsWith("DEALLOCATE ")) {
+                loader.execute(statement);
+            }
+        }
+        connection.destroy();
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        return jdbcTemplate;
+    }
+
+    private static synchronized List<String> statements() {
+        if (statements == null) {
+            String script;
+            try {
+                script = Files.readString(SCHEMA, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            List<String> parsed = new ArrayList<>();
+            for (String part : script.replaceAll("--[^\n]*", "").split(";\\s*\n")) {
+                String statement = part.strip();
+                if (statement.endsWith(";")) {
+                    statement = statement.substring(0, statement.length() - 1);
+                }
+                if (!statement.isEmpty()) {
+                    parsed.add(statement);
+                }
+            }
+            statements = List.copyOf(parsed);
+        }
+        return statements;
+    }
+}
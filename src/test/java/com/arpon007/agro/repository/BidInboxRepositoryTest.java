@@ -0,0 +1,106 @@
+package com.arpon007.agro.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.event.BidChangedEvent;
+import com.arpon007.agro.event.CropChangedEvent;
+import com.arpon007.agro.event.UserRenamedEvent;
+import com.arpon007.agro.model.Bid;
+
+/**
+ * The farmer bid inbox follows bid writes, crop edits and renames without
+ * joining at read time.
+ */
+class BidInboxRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private BidInboxRepository inbox;
+    private BidRepository bidRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("bid_inbox");
+        jdbcTemplate.update("""
+                INSERT INTO users (id, full_name, email, password_hash) VALUES
+                    (1, 'Farmer', 'farmer@test', 'x'), (2, 'Other Farmer', 'other@test', 'x'),
+                    (10, 'Buyer', 'buyer@test', 'x')
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO crops (id, farmer_id, title, quantity, unit, min_price) VALUES
+                    (100, 1, 'Rice', 500, 'kg', 40), (200, 2, 'Jute', 500, 'kg', 30)
+                """);
+        inbox = new BidInboxRepository(jdbcTemplate);
+        bidRepository = new BidRepository(jdbcTemplate, event -> inbox.onBidChanged((BidChangedEvent) event));
+    }
+
+    @Test
+    void bidWritesAreMirroredForTheCropOwner() {
+        Long first = placeBid(100L, "45");
+        placeBid(200L, "35");
+
+        List<Bid> bids = inbox.findByFarmerId(1L, Set.of());
+        assertThat(bids).singleElement().satisfies(bid -> {
+            assertThat(bid.getId()).isEqualTo(first);
+            assertThat(bid.getBuyerName()).isEqualTo("Buyer");
+            assertThat(bid.getCropTitle()).isEqualTo("Rice");
+            assertThat(bid.getStatus()).isEqualTo("PENDING");
+        });
+
+        bidRepository.farmerCounterOffer(first, 0, new BigDecimal("50"));
+        assertThat(inbox.findByFarmerId(1L, Set.of("COUNTER_OFFER"))).singleElement()
+                .satisfies(bid -> assertThat(bid.getVersion()).isEqualTo(1));
+        assertThat(inbox.countByStatus(1L)).containsExactlyEntriesOf(Map.of("COUNTER_OFFER", 1L));
+
+        bidRepository.deleteBid(first, null);
+        assertThat(inbox.findByFarmerId(1L, Set.of())).isEmpty();
+    }
+
+    @Test
+    void cropEditsAndBackfillRefreshTheInbox() {
+        jdbcTemplate.update("INSERT INTO bids (crop_id, buyer_id, amount) VALUES (100, 10, 42)");
+        assertThat(inbox.backfill()).isEqualTo(1);
+        assertThat(inbox.backfill()).isZero();
+
+        jdbcTemplate.update("UPDATE crops SET title = 'Aman Rice' WHERE id = 100");
+        inbox.onCropChanged(CropChangedEvent.of(100L));
+        assertThat(inbox.findByFarmerIdPage(1L, Set.of(), null, 10)).singleElement()
+                .satisfies(bid -> assertThat(bid.getCropTitle()).isEqualTo("Aman Rice"));
+        // Nothing copied has changed, so nothing is written
+        assertThat(inbox.refreshCrops(List.of(100L, 200L))).isZero();
+    }
+
+    @Test
+    void renamesReachBothSidesOfTheBid() {
+        placeBid(100L, "45");
+
+        jdbcTemplate.update("UPDATE users SET full_name = 'New Buyer' WHERE id = 10");
+        inbox.onUserRenamed(new UserRenamedEvent(10L));
+        jdbcTemplate.update("UPDATE users SET full_name = 'New Farmer' WHERE id = 1");
+        assertThat(inbox.refreshUserName(1L)).isEqualTo(1);
+
+        assertThat(inbox.findByFarmerId(1L, Set.of())).singleElement().satisfies(bid -> {
+            assertThat(bid.getBuyerName()).isEqualTo("New Buyer");
+            assertThat(bid.getFarmerName()).isEqualTo("New Farmer");
+        });
+    }
+
+    private Long placeBid(Long cropId, String amount) {
+        Bid bid = new Bid();
+        bid.setCropId(cropId);
+        bid.setBuyerId(10L);
+        bid.setAmount(new BigDecimal(amount));
+        bid.setQuantity(new BigDecimal("80"));
+        bidRepository.placeBid(bid);
+        return bid.getId();
+    }
+}
@@ -0,0 +1,97 @@
+package com.arpon007.agro.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.exception.BidConflictException;
+import com.arpon007.agro.model.BidAction;
+
+/**
+ * Bid transitions are single compare-and-set UPDATEs guarded by status and
+ * version.
+ */
+class BidRepositoryTransitionTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private BidRepository bidRepository;
+    private final List<Object> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("bid_transitions");
+        jdbcTemplate.update("INSERT INTO bids (crop_id, buyer_id, amount) VALUES (1, 10, 50)");
+        bidRepository = new BidRepository(jdbcTemplate, events::add);
+    }
+
+    @Test
+    void transitionBumpsVersionAndStaleVersionConflicts() {
+        bidRepository.farmerCounterOffer(1L, 0, new BigDecimal("60"));
+        assertThat(state()).containsEntry("STATUS", "COUNTER_OFFER").containsEntry("VERSION", 1);
+
+        // The buyer acted on version 0 and has not seen the counter-offer
+        assertThatThrownBy(() -> bidRepository.buyerUpdateBid(1L, 0, new BigDecimal("55")))
+                .isInstanceOfSatisfying(BidConflictException.class, e -> {
+                    assertThat(e.getCurrentStatus()).isEqualTo("COUNTER_OFFER");
+                    assertThat(e.getCurrentVersion()).isEqualTo(1);
+                });
+        assertThat(state()).containsEntry("AMOUNT", new BigDecimal("50.00"));
+
+        bidRepository.acceptBid(1L, BidAction.BUYER_ACCEPT, 1);
+        assertThat(state()).containsEntry("STATUS", "ACCEPTED").containsEntry("VERSION", 2);
+        assertThat(events).hasSize(2);
+    }
+
+    @Test
+    void transitionsOutsideTheTableAreRejected() {
+        bidRepository.rejectBid(1L, null);
+
+        assertThatThrownBy(() -> bidRepository.acceptBid(1L, BidAction.ACCEPT, null))
+                .isInstanceOf(BidConflictException.class)
+                .hasMessage("Cannot accept a bid that is REJECTED");
+        assertThatThrownBy(() -> bidRepository.acceptBid(99L, BidAction.ACCEPT, null))
+                .isInstanceOfSatisfying(BidConflictException.class,
+                        e -> assertThat(e.getCurrentStatus()).isNull());
+    }
+
+    @Test
+    void onlyTheBuyerCanOrderAnAcceptedBidAndOnlyOnce() {
+        bidRepository.acceptBid(1L, BidAction.ACCEPT, 0);
+
+        assertThatThrownBy(() -> bidRepository.markOrdered(1L, 11L, null))
+                .isInstanceOfSatisfying(BidConflictException.class,
+                        e -> assertThat(e.getCurrentStatus()).isNull());
+        bidRepository.markOrdered(1L, 10L, null);
+        assertThatThrownBy(() -> bidRepository.markOrdered(1L, 10L, null))
+                .isInstanceOf(BidConflictException.class);
+        assertThat(state()).containsEntry("STATUS", "ORDERED");
+    }
+
+    @Test
+    void settleBatchAcceptsAndRejectsOnTheirVersions() {
+        jdbcTemplate.update("INSERT INTO bids (crop_id, buyer_id, amount) VALUES (1, 11, 40)");
+
+        bidRepository.settleBatch(List.<Object[]>of(new Object[] { new BigDecimal("60"), new BigDecimal("45"), 1L, 0 }),
+                List.<Object[]>of(new Object[] { 2L, 0 }));
+        assertThat(state()).containsEntry("STATUS", "ACCEPTED").containsEntry("VERSION", 1);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM bids WHERE id = 2", String.class))
+                .isEqualTo("REJECTED");
+
+        assertThatThrownBy(() -> bidRepository.settleBatch(List.of(), List.<Object[]>of(new Object[] { 2L, 0 })))
+                .isInstanceOfSatisfying(BidConflictException.class,
+                        e -> assertThat(e.getCurrentStatus()).isEqualTo("REJECTED"));
+    }
+
+    private Map<String, Object> state() {
+        return jdbcTemplate.queryForMap("SELECT status, version, amount FROM bids WHERE id = 1");
+    }
+}
@@ -0,0 +1,151 @@
+package com.arpon007.agro.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.model.Crop;
+
+/**
+ * Verifies that crop listings hydrate images, and checkout reads and
+ * decrements stock, with a constant number of statements instead of one per
+ * crop.
+ */
+class CropRepositoryQueryCountTest {
+
+    private static final int CROP_COUNT = 1200;
+
+    private final AtomicInteger statementCount = new AtomicInteger();
+    private JdbcTemplate jdbcTemplate;
+    private CropRepository cropRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(countingDataSource(TestDatabase.create("crop_query_count").getDataSource()));
+
+        // crop_type 1 is Rice / ধান from the schema's seed rows
+        jdbcTemplate.update("""
+                INSERT INTO users (full_name, email, password_hash, district)
+                VALUES ('Test Farmer', 'farmer@test', 'x', 'Dhaka')
+                """);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO crops (farmer_id, title, crop_type_id, quantity, unit, min_price, marketplace_type) VALUES (1, ?, 1, 100, 'kg', 40, 'RETAIL')",
+                IntStream.range(0, CROP_COUNT).mapToObj(i -> new Object[] { "Crop " + i }).toList());
+        jdbcTemplate.update("INSERT INTO crop_images (crop_id, image_url) SELECT id, CONCAT('https://img/', id, '-a.jpg') FROM crops");
+        jdbcTemplate.update("INSERT INTO crop_images (crop_id, image_url) SELECT id, CONCAT('https://img/', id, '-b.jpg') FROM crops WHERE MOD(id, 2) = 0");
+
+        ReferenceDataCache referenceData = new ReferenceDataCache(jdbcTemplate, event -> {
+        });
+        referenceData.refresh();
+        cropRepository = new CropRepository(jdbcTemplate, new CropImageLoader(jdbcTemplate), event -> {
+        }, referenceData);
+        statementCount.set(0);
+    }
+
+    @Test
+    void listingMethodsUseConstantStatementCount() {
+        int expected = 1 + (CROP_COUNT + CropImageLoader.CHUNK_SIZE - 1) / CropImageLoader.CHUNK_SIZE;
+
+        assertStatements(() -> cropRepository.findAll(false), expected);
+        assertStatements(() -> cropRepository.findAllRetail(), expected);
+        assertStatements(() -> cropRepository.findAllForAdmin(), expected);
+        assertStatements(() -> cropRepository.findByMarketplaceType("RETAIL"), expected);
+        assertStatements(() -> cropRepository.findByFarmerId(1L), expected);
+    }
+
+    @Test
+    void imagesAreAttachedToTheirOwnCrops() {
+        List<Crop> crops = cropRepository.findAllForAdmin();
+
+        assertThat(crops).hasSize(CROP_COUNT);
+        for (Crop crop : crops) {
+            assertThat(crop.getCropTypeName()).isEqualTo("Rice");
+            List<String> images = crop.getImages();
+            assertThat(images).hasSize(crop.getId() % 2 == 0 ? 2 : 1);
+            assertThat(images.get(0)).isEqualTo("https://img/" + crop.getId() + "-a.jpg");
+        }
+    }
+
+    @Test
+    void cropTypeNamesAreResolvedWithoutJoiningCropType() {
+        statementCount.set(0);
+        List<Crop> crops = cropRepository.findActiveByIds(List.of(1L, 2L), true);
+
+        assertThat(crops).extracting(Crop::getCropTypeName).containsOnly("ধান");
+        assertThat(statementCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    void cropsWithoutImagesGetEmptyList() {
+        jdbcTemplate.update("DELETE FROM crop_images");
+
+        List<Crop> crops = cropRepository.findByFarmerId(1L);
+
+        assertThat(crops).isNotEmpty().allSatisfy(crop -> assertThat(crop.getImages()).isEmpty());
+    }
+
+    @Test
+    void checkoutStockMethodsUseOneStatementAndNeverOversell() {
+        List<Long> ids = LongStream.rangeClosed(1, 50).boxed().toList();
+
+        Map<Long, Crop> crops = cropRepository.findStockByIds(ids);
+        assertThat(crops).hasSize(50);
+        assertThat(statementCount.get()).isEqualTo(1);
+
+        Map<Long, BigDecimal> taken = new LinkedHashMap<>();
+        ids.forEach(id -> taken.put(id, new BigDecimal("60")));
+        statementCount.set(0);
+        assertThat(cropRepository.reduceStockBatch(taken)).isEmpty();
+        assertThat(statementCount.get()).isEqualTo(1);
+
+        // 40 left on each: the second decrement must not apply
+        assertThat(cropRepository.reduceStockBatch(Map.of(1L, new BigDecimal("60")))).containsExactly(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM crops WHERE id = 1", BigDecimal.class))
+                .isEqualByComparingTo("40");
+    }
+
+    private void assertStatements(Supplier<List<Crop>> listing, int expected) {
+        statementCount.set(0);
+        List<Crop> crops = listing.get();
+        assertThat(crops).hasSize(CROP_COUNT);
+        assertThat(statementCount.get()).isEqualTo(expected);
+    }
+
+    private DataSource countingDataSource(DataSource target) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DataSource.class },
+                (proxy, method, args) -> {
+                    Object result = method.invoke(target, args);
+                    if (result instanceof Connection connection) {
+                        return countingConnection(connection);
+                    }
+                    return result;
+                });
+    }
+
+    private Connection countingConnection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("prepareStatement") || name.equals("createStatement") || name.equals("prepareCall")) {
+                        statementCount.incrementAndGet();
+                    }
+                    return method.invoke(target, args);
+                });
+    }
+}
@@ -0,0 +1,38 @@
+package com.arpon007.agro.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.arpon007.agro.repository.LocationHierarchy.Placement;
+
+class LocationHierarchyTest {
+
+    private final LocationHierarchy locations = LocationHierarchy.load("reference/bd-locations.json");
+
+    @Test
+    void resolvesMostSpecificLevelFromFreeText() {
+        assertThat(locations.resolve("Mirpur, Dhaka")).isEqualTo(new Placement(1, 1, 3));
+        assertThat(locations.resolve("গাজীপুর")).isEqualTo(new Placement(1, 2, null));
+        assertThat(locations.resolve("  DHAKA ")).isEqualTo(new Placement(1, 1, null));
+        assertThat(locations.resolve("somewhere else")).isEqualTo(Placement.NONE);
+    }
+
+    @Test
+    void profileFieldsAndIdsFillInParents() {
+        assertThat(locations.resolve("ঢাকা (Dhaka)", "ঢাকা (Dhaka)", "গুলশান (Gulshan)"))
+                .isEqualTo(new Placement(1, 1, 2));
+        assertThat(locations.placementOf(null, null, 1)).isEqualTo(new Placement(1, 1, 1));
+        assertThat(locations.placementOf(null, 2, null)).isEqualTo(new Placement(1, 2, null));
+        assertThat(locations.placementOf(999, null, null)).isEqualTo(Placement.NONE);
+    }
+
+    @Test
+    void dropdownListsKeepTheirShape() {
+        assertThat(locations.getDivisions()).hasSize(8);
+        assertThat(locations.getAllDistricts()).hasSize(64);
+        assertThat(locations.getDistricts("ঢাকা (Dhaka)")).contains("গাজীপুর (Gazipur)");
+        assertThat(locations.getUpazilas("গাজীপুর (Gazipur)")).isNotEmpty();
+        assertThat(locations.getTree()).hasSize(8);
+    }
+}
@@ -0,0 +1,95 @@
+package com.arpon007.agro.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.model.Order;
+import com.arpon007.agro.model.OrderItem;
+
+/**
+ * The order history, lines included, comes from one joined,
+ * keyset-paginated statement.
+ */
+class OrderRepositoryHistoryTest {
+
+    private OrderRepository orderRepository;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = TestDatabase.create("order_history");
+        jdbcTemplate.update("""
+                INSERT INTO users (id, full_name, email, password_hash) VALUES
+                    (1, 'Buyer', 'buyer@test', 'x'), (2, 'Farmer', 'farmer@test', 'x')
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO crops (id, farmer_id, title, quantity, unit, min_price) VALUES
+                    (10, 2, 'Rice', 100, 'kg', 40), (11, 2, 'Potato', 100, 'kg', 25)
+                """);
+        jdbcTemplate.update("INSERT INTO crop_images (crop_id, image_url) VALUES (10, 'rice-1'), (10, 'rice-2')");
+        for (int i = 1; i <= 5; i++) {
+            jdbcTemplate.update("INSERT INTO orders (buyer_id, farmer_id, crop_id, total_amount, advance_amount, "
+                    + "due_amount, created_at) VALUES (1, 2, ?, 100, 100, 0, TIMESTAMP '2025-01-01 10:00:00')",
+                    i % 2 == 0 ? 11 : 10);
+        }
+        // Order 5 has two lines, the others one
+        jdbcTemplate.update("INSERT INTO order_items (order_id, crop_id, quantity, unit_price, total_price) "
+                + "SELECT id, crop_id, 1, total_amount, total_amount FROM orders");
+        jdbcTemplate.update("INSERT INTO order_items (order_id, crop_id, quantity, unit_price, total_price) "
+                + "VALUES (5, 11, 2.5, 40, 100)");
+        orderRepository = new OrderRepository(jdbcTemplate);
+    }
+
+    @Test
+    void historyRowsCarryCropAndPartyDetails() {
+        Map<String, Object> order = orderRepository.findHistoryById(1L).orElseThrow();
+
+        assertThat(order).containsEntry("cropTitle", "Rice").containsEntry("cropImage", "rice-1")
+                .containsEntry("farmerName", "Farmer").containsEntry("buyerName", "Buyer")
+                .containsEntry("deliveryStatus", "PENDING");
+        assertThat(orderRepository.findHistoryById(2L).orElseThrow()).containsEntry("cropImage", null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ordersAreWrittenWithTheirLines() {
+        Order order = new Order();
+        order.setBuyerId(1L);
+        order.setFarmerId(2L);
+        order.setCropId(10L);
+        order.setTotalAmount(new BigDecimal("350"));
+        order.setAdvanceAmount(new BigDecimal("350"));
+        order.setDueAmount(BigDecimal.ZERO);
+        order.getItems().add(new OrderItem(10L, new BigDecimal("5"), new BigDecimal("50"), new BigDecimal("250")));
+        order.getItems().add(new OrderItem(11L, new BigDecimal("4"), new BigDecimal("25"), new BigDecimal("100")));
+
+        Long id = orderRepository.createOrders(List.of(order)).get(0);
+
+        List<Map<String, Object>> items = (List<Map<String, Object>>) orderRepository.findHistoryById(id)
+                .orElseThrow().get("items");
+        assertThat(items).extracting(item -> item.get("cropTitle")).containsExactly("Rice", "Potato");
+        assertThat(items.get(0)).containsEntry("unit", "kg");
+        assertThat((BigDecimal) items.get(0).get("quantity")).isEqualByComparingTo("5");
+    }
+
+    @Test
+    void pagesFollowTheKeysetAcrossEqualTimestamps() {
+        // Limits count orders, not joined line rows
+        List<Map<String, Object>> first = orderRepository.findHistoryPage(OrderRepository.Party.BUYER, 1L, null, 2);
+        assertThat(first).extracting(row -> row.get("id")).containsExactly(5L, 4L, 3L);
+        assertThat(first).extracting(row -> row.get("itemCount")).containsExactly(2, 1, 1);
+
+        List<Map<String, Object>> second = orderRepository.findHistoryPage(OrderRepository.Party.FARMER, 2L,
+                OrderRepository.historyCursor(first.get(1)), 2);
+        assertThat(second).extracting(row -> row.get("id")).containsExactly(3L, 2L, 1L);
+
+        assertThat(orderRepository.findHistory(OrderRepository.Party.FARMER, 1L)).isEmpty();
+    }
+}
@@ -0,0 +1,85 @@
+package com.arpon007.agro.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.dto.OrderSearch;
+
+class OrderRepositorySearchTest {
+
+    private OrderRepository orderRepository;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = TestDatabase.create("order_search");
+        jdbcTemplate.update("""
+                INSERT INTO users (id, full_name, email, password_hash, district) VALUES
+                    (1, 'Dhaka Buyer', 'd@x.com', 'x', 'Dhaka'), (2, 'Farmer', 'f@x.com', 'x', 'Bogura'),
+                    (3, 'Khulna Buyer', 'k@x.com', 'x', 'Khulna')
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO crops (id, farmer_id, title, quantity, unit, min_price) VALUES
+                    (10, 2, 'Rice', 100, 'kg', 40)
+                """);
+        Object[][] orders = {
+                { 1L, "PENDING", null, "01711000001", "2025-01-01 09:00:00" },
+                { 1L, "COMPLETED", "DELIVERED", "01711000002", "2025-01-02 09:00:00" },
+                { 3L, "PENDING", "SHIPPED", "01811000003", "2025-01-02 09:00:00" },
+                { 1L, "PENDING", "SHIPPED", "017_1000004", "2025-01-03 09:00:00" },
+                { 3L, "CANCELLED", null, null, "2025-01-04 09:00:00" },
+        };
+        for (Object[] order : orders) {
+            jdbcTemplate.update("INSERT INTO orders (buyer_id, farmer_id, crop_id, total_amount, advance_amount, "
+                    + "due_amount, status, delivery_status, customer_mobile, created_at) "
+                    + "VALUES (?, 2, 10, 100, 100, 0, ?, ?, ?, ?)",
+                    order[0], order[1], order[2], order[3], java.sql.Timestamp.valueOf((String) order[4]));
+        }
+        jdbcTemplate.update("INSERT INTO order_items (order_id, crop_id, quantity, unit_price, total_price) "
+                + "SELECT id, crop_id, 1, total_amount, total_amount FROM orders");
+        orderRepository = new OrderRepository(jdbcTemplate);
+    }
+
+    @Test
+    void filtersCombine() {
+        assertThat(ids(OrderSearch.of("pending", null, null, null, null, null, " Dhaka ", null)))
+                .containsExactly(4L, 1L);
+        assertThat(ids(OrderSearch.of(null, "SHIPPED", null, null, null, 2L, null, null))).containsExactly(4L, 3L);
+        assertThat(ids(OrderSearch.of(null, null, LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 3), 1L, null,
+                null, null))).containsExactly(4L, 2L);
+        // The prefix is matched literally: "_" is not a wildcard
+        assertThat(ids(OrderSearch.of(null, null, null, null, null, null, null, "0171-1"))).containsExactly(2L, 1L);
+        assertThat(ids(OrderSearch.of(null, null, null, null, null, null, null, "017_"))).containsExactly(4L);
+
+        Map<String, Object> row = orderRepository.search(OrderSearch.of(null, null, null, null, 3L, null, null,
+                null), null, 1).get(0);
+        assertThat(row).containsEntry("buyerEmail", "k@x.com").containsEntry("farmerEmail", "f@x.com")
+                .containsEntry("cropTitle", "Rice").containsEntry("itemCount", 1);
+    }
+
+    @Test
+    void pagesFollowTheKeysetAndCountsStopAtTheCap() {
+        List<Map<String, Object>> first = orderRepository.search(OrderSearch.all(), null, 2);
+        assertThat(first).extracting(row -> row.get("id")).containsExactly(5L, 4L, 3L);
+
+        List<Map<String, Object>> second = orderRepository.search(OrderSearch.all(),
+                OrderRepository.historyCursor(first.get(1)), 2);
+        assertThat(second).extracting(row -> row.get("id")).containsExactly(3L, 2L, 1L);
+
+        assertThat(orderRepository.countMatching(OrderSearch.all(), 100)).isEqualTo(5);
+        assertThat(orderRepository.countMatching(OrderSearch.all(), 3)).isEqualTo(4);
+        assertThat(orderRepository.countMatching(OrderSearch.of("PENDING", null, null, null, null, null, null,
+                null), 100)).isEqualTo(3);
+    }
+
+    private List<Object> ids(OrderSearch search) {
+        return orderRepository.search(search, null, 20).stream().map(row -> row.get("id")).toList();
+    }
+}
@@ -0,0 +1,79 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.repository.AppConfigRepository;
+
+/**
+ * Two service instances on one database and one in-process bus stand in for
+ * two application nodes.
+ */
+class AppConfigServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private AppConfigService nodeA;
+    private AppConfigService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("app_config");
+        jdbcTemplate.update("INSERT INTO app_configs (config_key, config_value) VALUES ('delivery_charge_dhaka', '80')");
+
+        AppConfigRepository repository = new AppConfigRepository(jdbcTemplate);
+        LocalConfigInvalidationBus bus = new LocalConfigInvalidationBus();
+        nodeA = new AppConfigService(repository, bus);
+        nodeB = new AppConfigService(repository, bus);
+        nodeA.subscribe();
+        nodeB.subscribe();
+    }
+
+    @Test
+    void readsTypedValuesWithDefaults() {
+        assertThat(nodeA.getDecimal("delivery_charge_dhaka", BigDecimal.ONE)).isEqualByComparingTo("80");
+        assertThat(nodeA.getDecimal("delivery_charge_outside", new BigDecimal("130"))).isEqualByComparingTo("130");
+        assertThat(nodeA.getInt("delivery_charge_dhaka", 0)).isEqualTo(80);
+        assertThat(nodeA.getString("missing", "fallback")).isEqualTo("fallback");
+    }
+
+    @Test
+    void writeIsVisibleOnEveryNodeWithoutReconcile() {
+        nodeB.getAll(); // warm node B before the change
+        long before = nodeB.getVersion("delivery_charge_dhaka");
+
+        nodeA.setAll(Map.of("delivery_charge_dhaka", "90", "delivery_charge_outside", "150"));
+
+        assertThat(nodeA.getDecimal("delivery_charge_dhaka", null)).isEqualByComparingTo("90");
+        assertThat(nodeB.getDecimal("delivery_charge_dhaka", null)).isEqualByComparingTo("90");
+        assertThat(nodeB.getDecimal("delivery_charge_outside", null)).isEqualByComparingTo("150");
+        assertThat(nodeB.getVersion("delivery_charge_dhaka")).isGreaterThan(before);
+    }
+
+    @Test
+    void reconcilePicksUpDirectDatabaseEdits() {
+        nodeA.getAll();
+        jdbcTemplate.update("INSERT INTO app_configs (config_key, config_value, updated_at) "
+                + "VALUES ('delivery_charge_outside', '200', TIMESTAMPADD(SECOND, 5, CURRENT_TIMESTAMP))");
+
+        assertThat(nodeA.getString("delivery_charge_outside", null)).isNull();
+        nodeA.reconcile();
+        assertThat(nodeA.getString("delivery_charge_outside", null)).isEqualTo("200");
+    }
+
+    @Test
+    void unchangedValuesKeepTheirVersion() {
+        long version = nodeA.getVersion("delivery_charge_dhaka");
+
+        nodeA.set("delivery_charge_dhaka", "80");
+        nodeA.reload();
+
+        assertThat(nodeA.getVersion("delivery_charge_dhaka")).isEqualTo(version);
+    }
+}
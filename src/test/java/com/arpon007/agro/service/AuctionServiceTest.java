@@ -0,0 +1,70 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.arpon007.agro.model.Auction;
+import com.arpon007.agro.model.Bid;
+
+class AuctionServiceTest {
+
+    @Test
+    void uniformPricingFillsHighestBidsInWholeLots() {
+        List<Bid> bids = List.of(
+                bid(1L, "50", "100", 1),
+                bid(2L, "55", "200", 2),
+                bid(3L, "50", "100", 3),
+                bid(4L, "52", "100", 4));
+
+        // 350 available in lots of 100: bid 2 takes 200, bid 4 takes 100, bid 1
+        // (earlier than bid 3 at the same price) gets no whole lot left
+        AuctionService.Clearing clearing = AuctionService.allocate(bids, new BigDecimal("350"),
+                auction(Auction.Pricing.UNIFORM, "100", null));
+
+        assertThat(clearing.winners()).extracting(fill -> fill.bid().getId()).containsExactly(2L, 4L);
+        assertThat(clearing.winners()).extracting(AuctionService.Fill::price)
+                .allSatisfy(price -> assertThat(price).isEqualByComparingTo("52"));
+        assertThat(clearing.losers()).extracting(Bid::getId).containsExactly(1L, 3L);
+        assertThat(clearing.soldQuantity()).isEqualByComparingTo("300");
+    }
+
+    @Test
+    void payAsBidChargesEachBidAndPartialFillsTheLastWinner() {
+        List<Bid> bids = List.of(
+                bid(1L, "60", "100", 1),
+                bid(2L, "58", "300", 2),
+                bid(3L, "45", "100", 3));
+
+        AuctionService.Clearing clearing = AuctionService.allocate(bids, new BigDecimal("300"),
+                auction(Auction.Pricing.PAY_AS_BID, "50", "50"));
+
+        assertThat(clearing.winners()).hasSize(2);
+        assertThat(clearing.winners().get(0).price()).isEqualByComparingTo("60");
+        assertThat(clearing.winners().get(1).price()).isEqualByComparingTo("58");
+        assertThat(clearing.winners().get(1).quantity()).isEqualByComparingTo("200");
+        // Below the reserve
+        assertThat(clearing.losers()).extracting(Bid::getId).containsExactly(3L);
+        assertThat(clearing.clearingPrice()).isEqualByComparingTo("58");
+    }
+
+    private static Auction auction(Auction.Pricing pricing, String lotSize, String reservePrice) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return new Auction(7L, now, now, new BigDecimal(lotSize),
+                reservePrice != null ? new BigDecimal(reservePrice) : null, pricing, "OPEN");
+    }
+
+    private static Bid bid(Long id, String amount, String quantity, int minute) {
+        Bid bid = new Bid();
+        bid.setId(id);
+        bid.setCropId(7L);
+        bid.setAmount(new BigDecimal(amount));
+        bid.setQuantity(new BigDecimal(quantity));
+        bid.setBidTime(Timestamp.valueOf("2025-01-01 10:" + String.format("%02d", minute) + ":00"));
+        return bid;
+    }
+}
@@ -0,0 +1,78 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.arpon007.agro.model.Bid;
+import com.arpon007.agro.model.BidRule;
+import com.arpon007.agro.model.BidRule.Outcome;
+import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.repository.BidRuleRepository;
+
+class BidMatchingEngineTest {
+
+    private static final Long CROP_ID = 7L;
+
+    private final BidRuleRepository bidRuleRepository = mock(BidRuleRepository.class);
+    private final CropCatalogService cropCatalogService = mock(CropCatalogService.class);
+    private BidMatchingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        // Accept >= 60 for 50+ units, counter at 55, reject below 40
+        when(bidRuleRepository.findAll()).thenReturn(List.of(new BidRule(CROP_ID, new BigDecimal("60"),
+                new BigDecimal("50"), new BigDecimal("55"), new BigDecimal("40"))));
+        Crop crop = new Crop();
+        crop.setFarmerId(3L);
+        crop.setTitle("Rice");
+        crop.setQuantity(new BigDecimal("500"));
+        when(cropCatalogService.getCrop(CROP_ID, false)).thenReturn(crop);
+        engine = new BidMatchingEngine(bidRuleRepository, cropCatalogService);
+    }
+
+    @Test
+    void rulesDecideByPriceAndQuantity() {
+        assertThat(engine.match(bid("60", "50")).outcome()).isEqualTo(Outcome.ACCEPT);
+        // Price is there but the lot is too small: left to the farmer
+        assertThat(engine.match(bid("65", "10"))).isNull();
+        assertThat(engine.match(bid("45", "100")))
+                .satisfies(match -> {
+                    assertThat(match.outcome()).isEqualTo(Outcome.COUNTER);
+                    assertThat(match.price()).isEqualByComparingTo("55");
+                    assertThat(match.crop().getFarmerId()).isEqualTo(3L);
+                });
+        assertThat(engine.match(bid("39.99", "100")).outcome()).isEqualTo(Outcome.REJECT);
+    }
+
+    @Test
+    void bidsBeyondStockOrOnUnlistedCropsStayManual() {
+        assertThat(engine.match(bid("70", "600"))).isNull();
+
+        when(cropCatalogService.getCrop(CROP_ID, false)).thenReturn(null);
+        assertThat(engine.match(bid("70", "100"))).isNull();
+    }
+
+    @Test
+    void inconsistentRulesAreRefused() {
+        BidRule rule = new BidRule(CROP_ID, new BigDecimal("50"), null, new BigDecimal("55"), null);
+        assertThatThrownBy(() -> engine.saveRule(rule))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("autoCounterPrice must not be above autoAcceptPrice");
+    }
+
+    private static Bid bid(String amount, String quantity) {
+        Bid bid = new Bid();
+        bid.setCropId(CROP_ID);
+        bid.setAmount(new BigDecimal(amount));
+        bid.setQuantity(new BigDecimal(quantity));
+        return bid;
+    }
+}
@@ -0,0 +1,128 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+import com.arpon007.agro.event.BidChangedEvent;
+import com.arpon007.agro.model.Bid;
+import com.arpon007.agro.repository.BidRepository;
+
+class BidOrderBookTest {
+
+    private static final Long CROP_ID = 7L;
+
+    private final BidRepository bidRepository = mock(BidRepository.class);
+    private final SimpMessageSendingOperations messaging = mock(SimpMessageSendingOperations.class);
+    private BidOrderBook orderBook;
+
+    @BeforeEach
+    void setUp() {
+        when(bidRepository.findOpenByCropId(CROP_ID)).thenReturn(new ArrayList<>(List.of(
+                bid(1L, "50", "100", "PENDING", null, 1),
+                bid(2L, "55", "40", "PENDING", null, 2),
+                bid(3L, "50", "20", "PENDING", null, 3))));
+        orderBook = new BidOrderBook(bidRepository, messaging, mock(AuctionService.class));
+    }
+
+    @Test
+    void snapshotAggregatesDepthByPriceLevel() {
+        Map<String, Object> book = orderBook.snapshot(CROP_ID);
+
+        assertThat(book.get("openBids")).isEqualTo(3);
+        assertThat(book.get("bestBid")).isEqualTo(Map.of("bidId", 2L, "amount", new BigDecimal("55"),
+                "quantity", new BigDecimal("40")));
+        assertThat(book.get("depth")).isEqualTo(List.of(
+                Map.of("price", new BigDecimal("55"), "quantity", new BigDecimal("40"), "bids", 1),
+                Map.of("price", new BigDecimal("50"), "quantity", new BigDecimal("120"), "bids", 2)));
+    }
+
+    @Test
+    void changesArePublishedAsDeltas() {
+        orderBook.snapshot(CROP_ID);
+
+        // Re-applying the same row is harmless; only the sequence moves
+        apply(bid(2L, "55", "40", "COUNTER_OFFER", "60", 4));
+        Map<String, Object> counter = apply(bid(2L, "55", "40", "COUNTER_OFFER", "60", 4));
+        assertThat(counter.get("sequence")).isEqualTo(2L);
+        assertThat(((Map<?, ?>) counter.get("lastCounterOffer")).get("price")).isEqualTo(new BigDecimal("60"));
+
+        Map<String, Object> accepted = apply(bid(2L, "55", "40", "ACCEPTED", "60", 5));
+        assertThat(accepted.get("levels")).isEqualTo(List.of(
+                Map.of("price", new BigDecimal("55"), "quantity", BigDecimal.ZERO, "bids", 0)));
+        assertThat(((Map<?, ?>) accepted.get("bestBid")).get("bidId")).isEqualTo(1L);
+
+        Map<String, Object> raised = apply(bid(3L, "52", "20", "PENDING", null, 6));
+        assertThat(raised.get("levels")).isEqualTo(List.of(
+                Map.of("price", new BigDecimal("52"), "quantity", new BigDecimal("20"), "bids", 1),
+                Map.of("price", new BigDecimal("50"), "quantity", new BigDecimal("100"), "bids", 1)));
+        assertThat(orderBook.snapshot(CROP_ID).get("openBids")).isEqualTo(2);
+    }
+
+    @Test
+    void staleRowsDoNotOverwriteNewerOnes() {
+        orderBook.snapshot(CROP_ID);
+        Bid accepted = bid(1L, "50", "100", "ACCEPTED", null, 4);
+        accepted.setVersion(2);
+        apply(accepted);
+
+        // A slower listener read the row before it was accepted
+        Bid stale = bid(1L, "50", "100", "PENDING", null, 1);
+        stale.setVersion(1);
+        when(bidRepository.findBookEntries(anyCollection())).thenReturn(List.of(stale));
+        orderBook.onBidChanged(BidChangedEvent.of(1L));
+
+        Map<String, Object> book = orderBook.snapshot(CROP_ID);
+        assertThat(book.get("openBids")).isEqualTo(2);
+        assertThat(book.get("sequence")).isEqualTo(1L);
+    }
+
+    @Test
+    void aFailingCropOnlyDropsItsOwnBook() {
+        orderBook.snapshot(CROP_ID);
+        Bid elsewhere = bid(4L, "30", "10", "PENDING", null, 4);
+        elsewhere.setCropId(8L);
+        when(bidRepository.findOpenByCropId(8L)).thenThrow(new IllegalStateException("connection reset"));
+        when(bidRepository.findBookEntries(anyCollection()))
+                .thenReturn(List.of(elsewhere, bid(2L, "55", "40", "ACCEPTED", null, 5)));
+
+        orderBook.onBidChanged(BidChangedEvent.of(List.of(4L, 2L)));
+
+        // Crop 7 took its update without a reload
+        assertThat(orderBook.snapshot(CROP_ID).get("openBids")).isEqualTo(2);
+        verify(bidRepository, times(1)).findOpenByCropId(CROP_ID);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> apply(Bid bid) {
+        when(bidRepository.findBookEntries(anyCollection())).thenReturn(List.of(bid));
+        orderBook.onBidChanged(BidChangedEvent.of(bid.getId()));
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messaging, atLeastOnce()).convertAndSend(eq(BidOrderBook.topic(CROP_ID)),
+                payload.capture());
+        return (Map<String, Object>) payload.getValue();
+    }
+
+    private static Bid bid(Long id, String amount, String quantity, String status, String counter, int minute) {
+        Timestamp at = Timestamp.valueOf("2026-01-01 10:" + String.format("%02d", minute) + ":00");
+        return new Bid(id, CROP_ID, 100L + id, new BigDecimal(amount), new BigDecimal(quantity),
+                counter != null ? new BigDecimal(counter) : null, "COUNTER_OFFER".equals(status) ? "FARMER" : "BUYER",
+                Timestamp.valueOf("2026-01-01 09:0" + id + ":00"), at, status);
+    }
+}
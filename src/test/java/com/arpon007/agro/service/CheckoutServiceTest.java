@@ -0,0 +1,167 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.repository.AppConfigRepository;
+import com.arpon007.agro.repository.CartRepository;
+import com.arpon007.agro.repository.CropImageLoader;
+import com.arpon007.agro.repository.CropRepository;
+import com.arpon007.agro.repository.OrderRepository;
+import com.arpon007.agro.repository.ReferenceDataCache;
+import com.arpon007.agro.repository.StockReservationRepository;
+
+/**
+ * A cart checkout places one order per farmer and takes all of its stock or
+ * none of it.
+ */
+class CheckoutServiceTest {
+
+    private static final Long BUYER = 10L;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private CartRepository cartRepository;
+    private StockReservationService reservations;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("checkout");
+        jdbcTemplate.update("""
+                INSERT INTO users (id, full_name, email, password_hash) VALUES
+                    (1, 'Farmer', 'farmer@test', 'x'), (2, 'Other Farmer', 'other@test', 'x'),
+                    (10, 'Buyer', 'buyer@test', 'x'), (11, 'Other Buyer', 'buyer2@test', 'x')
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO crops (id, farmer_id, title, quantity, unit, min_price) VALUES
+                    (100, 1, 'Rice', 10, 'kg', 40), (101, 1, 'Potato', 5, 'kg', 20), (200, 2, 'Jute', 8, 'kg', 30)
+                """);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        jdbcTemplate.update("INSERT INTO cart (id, customer_id) VALUES (1, 10)");
+        jdbcTemplate.update("""
+                INSERT INTO cart_items (cart_id, crop_id, quantity, price_at_addition) VALUES
+                    (1, 100, 4, 40), (1, 101, 2, 20), (1, 200, 6, 30)
+                """);
+        cartRepository = new CartRepository(jdbcTemplate);
+    }
+
+    @Test
+    void checkoutPlacesOneOrderPerFarmerAndReleasesTheBuyersHolds() {
+        CheckoutService checkout = checkoutService(cropRepository(jdbcTemplate));
+        reservations.holdForCart(100L, BUYER, new BigDecimal("4"), new BigDecimal("10"));
+        reservations.holdForCart(200L, 11L, new BigDecimal("2"), new BigDecimal("8"));
+
+        CheckoutService.Result result = checkout(checkout);
+
+        assertThat(result.orderIds()).hasSize(2);
+        assertThat(result.totalAmount()).isEqualByComparingTo("450"); // 160 + 40 + 180 + 70 delivery
+        assertThat(jdbcTemplate.queryForList("""
+                SELECT o.farmer_id, o.total_amount, COUNT(i.id) AS lines FROM orders o
+                JOIN order_items i ON i.order_id = o.id GROUP BY o.id, o.farmer_id, o.total_amount ORDER BY o.farmer_id
+                """)).extracting(row -> List.of(row.get("farmer_id"), ((BigDecimal) row.get("total_amount")).intValue(),
+                ((Number) row.get("lines")).intValue()))
+                .containsExactly(List.of(1L, 200, 2), List.of(2L, 180, 1));
+        assertThat(stock()).containsExactly(6, 3, 2);
+        assertThat(cartRepository.getCartWithItems(BUYER).getItems()).isEmpty();
+
+        // The buyer's hold went with the checkout; the other buyer's is still counted
+        assertThat(reservations.heldBy(100L, BUYER)).isEqualByComparingTo("0");
+        assertThat(reservations.heldBy(200L, 11L)).isEqualByComparingTo("2");
+    }
+
+    @Test
+    void oneOversoldLineRollsBackTheWholeCheckout() {
+        CheckoutService checkout = checkoutService(new CropRepository(jdbcTemplate, new CropImageLoader(jdbcTemplate),
+                event -> {
+                }, referenceData()) {
+            @Override
+            public Map<Long, Crop> findStockByIds(Collection<Long> ids) {
+                Map<Long, Crop> crops = super.findStockByIds(ids);
+                // Another checkout takes the jute and commits after this one has read the stock
+                TransactionTemplate other = new TransactionTemplate(transactionTemplate.getTransactionManager());
+                other.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                other.executeWithoutResult(status -> jdbcTemplate.update("UPDATE crops SET quantity = 5 WHERE id = 200"));
+                return crops;
+            }
+        });
+        reservations.holdForCart(100L, BUYER, new BigDecimal("4"), new BigDecimal("10"));
+
+        assertThatThrownBy(() -> checkout(checkout)).isInstanceOf(IllegalStateException.class)
+                .hasMessage("Insufficient stock for Jute");
+
+        // Rice and potato were decremented before the jute failed, and are back
+        assertThat(stock()).containsExactly(10, 5, 5);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class)).isZero();
+        assertThat(cartRepository.getCartWithItems(BUYER).getItems()).hasSize(3);
+        assertThat(reservations.heldBy(100L, BUYER)).isEqualByComparingTo("4");
+    }
+
+    @Test
+    void batchWithoutUpdateCountsFailsTheCheckout() {
+        JdbcTemplate noCounts = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                // What the MySQL driver returns with rewriteBatchedStatements=true
+                int[] counts = super.batchUpdate(sql, batchArgs);
+                if (sql.startsWith("UPDATE crops")) {
+                    Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+                }
+                return counts;
+            }
+        };
+        CheckoutService checkout = checkoutService(cropRepository(noCounts));
+
+        assertThatThrownBy(() -> checkout(checkout)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("rewriteBatchedStatements");
+        assertThat(stock()).containsExactly(10, 5, 8);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class)).isZero();
+    }
+
+    private CheckoutService.Result checkout(CheckoutService checkout) {
+        return transactionTemplate.execute(status -> checkout.checkout(BUYER, "01711000000", "Dhaka", "COD", "dhaka"));
+    }
+
+    private List<Integer> stock() {
+        return jdbcTemplate.queryForList("SELECT quantity FROM crops ORDER BY id", BigDecimal.class).stream()
+                .map(BigDecimal::intValue).toList();
+    }
+
+    private CheckoutService checkoutService(CropRepository cropRepository) {
+        reservations = new StockReservationService(new StockReservationRepository(jdbcTemplate), cropRepository,
+                event -> {
+                }, Clock.systemUTC(), Duration.ofMinutes(30), Duration.ofHours(24), 1);
+        AppConfigService appConfig = new AppConfigService(new AppConfigRepository(jdbcTemplate),
+                new LocalConfigInvalidationBus());
+        return new CheckoutService(cartRepository, cropRepository, new OrderRepository(jdbcTemplate),
+                mock(WalletService.class), appConfig, reservations);
+    }
+
+    private CropRepository cropRepository(JdbcTemplate template) {
+        return new CropRepository(template, new CropImageLoader(template), event -> {
+        }, referenceData());
+    }
+
+    private ReferenceDataCache referenceData() {
+        return new ReferenceDataCache(jdbcTemplate, event -> {
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.repository.ExportRepository;
+import com.arpon007.agro.repository.ExportRepository.Dataset;
+import com.arpon007.agro.service.ExportService.Format;
+
+import tools.jackson.databind.json.JsonMapper;
+
+class ExportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("export");
+        // Role 1 is ROLE_FARMER from the schema's seed rows
+        jdbcTemplate.update("""
+                INSERT INTO users (id, full_name, email, password_hash, email_verified, phone, country, division,
+                    district, upazila, is_verified, role_id, created_at) VALUES
+                    (1, 'রহিম, "Bhai"', 'r@x.com', 'x', TRUE, '017', 'Bangladesh', 'Dhaka', 'Dhaka', NULL, FALSE, 1,
+                     TIMESTAMP '2025-01-01 10:00:00'),
+                    (2, '=HYPERLINK("x")', 'h@x.com', 'x', FALSE, NULL, NULL, NULL, NULL, NULL, FALSE, NULL, NULL)
+                """);
+        jdbcTemplate.update("INSERT INTO wallets (id, user_id) VALUES (7, 1)");
+        jdbcTemplate.update("""
+                INSERT INTO transactions (id, wallet_id, type, amount, source, reference_id, description, created_at)
+                VALUES
+                    (1, 7, 'CREDIT', 980.00, 'SALE', 5, 'Payment for Order #5', TIMESTAMP '2025-01-02 09:30:00'),
+                    (2, 7, 'DEBIT', 100.50, 'CASHOUT', NULL, 'line one
+                line two', NULL)
+                """);
+
+        exportService = new ExportService(new ExportRepository(jdbcTemplate.getDataSource(), 1), JsonMapper.builder().build(), 1);
+    }
+
+    @Test
+    void csvIsQuotedAndGuardedAgainstFormulas() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(exportService.write(Dataset.USERS, Format.CSV, true, out)).isEqualTo(2);
+
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertThat(csv.split("\r\n")).containsExactly(
+                "\uFEFFid,full_name,email,email_verified,phone,country,division,district,upazila,is_verified,role,"
+                        + "created_at",
+                "1,\"রহিম, \"\"Bhai\"\"\",r@x.com,true,017,Bangladesh,Dhaka,Dhaka,,false,ROLE_FARMER,"
+                        + jdbcTemplate.queryForObject("SELECT created_at FROM users WHERE id = 1",
+                                java.sql.Timestamp.class).toInstant(),
+                "2,\"'=HYPERLINK(\"\"x\"\")\",h@x.com,false,,,,,,false,,");
+    }
+
+    @Test
+    void ndjsonWritesOneTypedObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(exportService.write(Dataset.TRANSACTIONS, Format.NDJSON, false, out)).isEqualTo(2);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("{\"id\":1,\"user_id\":1,\"full_name\":\"রহিম, \\\"Bhai\\\"\","
+                + "\"type\":\"CREDIT\",\"amount\":980.00,\"source\":\"SALE\",\"reference_id\":5,");
+        assertThat(lines[1]).contains("\"reference_id\":null", "\"description\":\"line one\\n", "\"created_at\":null");
+        assertThat(lines[2]).isEmpty();
+    }
+}
@@ -0,0 +1,119 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Timing and allocation of invoice rendering; not part of the normal test
+ * run, use mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class HtmlTemplateBenchmarkTest {
+
+    /**
+     * Rendering the parsed invoice into a reused buffer against the previous
+     * approach: read the template from the classpath, then one String.replace
+     * per placeholder, each copying the whole document. Allocation is
+     * measured per thread, so it is stable enough to assert on; the timings
+     * are printed for reference.
+     */
+    @Test
+    void compiledTemplateAllocatesAFractionOfChainedReplace() throws IOException {
+        HtmlTemplate invoice = new EmailTemplates(new DefaultResourceLoader()).get("invoice.html");
+        Map<String, Object> values = HtmlTemplateTest.invoiceValues(true);
+        StringBuilder buffer = new StringBuilder(invoice.sizeHint() * 2);
+        Runnable compiled = () -> {
+            buffer.setLength(0);
+            invoice.render(values, buffer);
+        };
+        Runnable replace = () -> renderByReplace(values);
+
+        // Both produce the same document
+        assertThat(renderByReplace(values)).isEqualTo(invoice.render(values));
+
+        Measurement before = measure(replace);
+        Measurement after = measure(compiled);
+        System.out.printf("invoice render: chained replace %,d B / %,d ns per op, compiled %,d B / %,d ns per op%n",
+                before.bytesPerOp(), before.nanosPerOp(), after.bytesPerOp(), after.nanosPerOp());
+
+        assertThat(after.bytesPerOp()).isLessThan(before.bytesPerOp() / 10);
+    }
+
+    private record Measurement(long bytesPerOp, long nanosPerOp) {
+    }
+
+    private static Measurement measure(Runnable operation) {
+        int warmup = 10_000;
+        int iterations = 5_000;
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long bytes = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long nanos = System.nanoTime() - start;
+        bytes = threads.getThreadAllocatedBytes(threadId) - bytes;
+        return new Measurement(bytes / iterations, nanos / iterations);
+    }
+
+    /**
+     * The invoice rendering before templates were parsed at startup
+     */
+    @SuppressWarnings("unchecked")
+    private static String renderByReplace(Map<String, Object> values) {
+        String template;
+        try {
+            template = StreamUtils.copyToString(new DefaultResourceLoader()
+                    .getResource("classpath:templates/email/invoice.html").getInputStream(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        int itemsStart = template.indexOf("{{#items}}");
+        int itemsEnd = template.indexOf("{{/items}}");
+        String rowTemplate = template.substring(itemsStart + "{{#items}}".length(), itemsEnd);
+        StringBuilder rows = new StringBuilder();
+        for (Map<String, Object> item : (List<Map<String, Object>>) values.get("items")) {
+            rows.append(rowTemplate
+                    .replace("{{product_name}}", item.get("product_name").toString().replace("<", "&lt;")
+                            .replace(">", "&gt;"))
+                    .replace("{{farmer_name}}", values.get("farmer_name").toString())
+                    .replace("{{quantity}}", item.get("quantity").toString())
+                    .replace("{{unit}}", item.get("unit").toString())
+                    .replace("{{price_per_unit}}", item.get("price_per_unit").toString())
+                    .replace("{{total_item_price}}", item.get("total_item_price").toString()));
+        }
+        template = template.substring(0, itemsStart) + rows + template.substring(itemsEnd + "{{/items}}".length());
+        int b2bStart = template.indexOf("{{#b2b}}");
+        int b2bEnd = template.indexOf("{{/b2b}}");
+        String b2bSection = template.substring(b2bStart + "{{#b2b}}".length(), b2bEnd)
+                .replace("{{platform_fee}}", values.get("platform_fee").toString())
+                .replace("{{advance_amount}}", values.get("advance_amount").toString());
+        template = template.substring(0, b2bStart) + b2bSection + template.substring(b2bEnd + "{{/b2b}}".length());
+        return template
+                .replace("{{customer_name}}", values.get("customer_name").toString())
+                .replace("{{customer_email}}", values.get("customer_email").toString())
+                .replace("{{customer_phone}}", values.get("customer_phone").toString())
+                .replace("{{customer_address}}", values.get("customer_address").toString())
+                .replace("{{invoice_number}}", values.get("invoice_number").toString())
+                .replace("{{date}}", values.get("date").toString())
+                .replace("{{order_id}}", values.get("order_id").toString())
+                .replace("{{payment_method}}", values.get("payment_method").toString())
+                .replace("{{subtotal}}", values.get("subtotal").toString())
+                .replace("{{total_due}}", values.get("total_due").toString());
+    }
+}
@@ -0,0 +1,81 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+class HtmlTemplateTest {
+
+    @Test
+    void slotsAreEscapedAndSectionsRepeat() {
+        HtmlTemplate template = HtmlTemplate.parse(
+                "<p>{{ name }}</p><ul>{{#items}}<li>{{title}} by {{name}}</li>{{/items}}</ul>{{#vip}}VIP{{/vip}}"
+                        + "{{missing}}");
+
+        assertThat(template.render(Map.of("name", "<Rahim & \"Sons\">", "vip", false,
+                "items", List.of(Map.of("title", "Rice"), Map.of("title", "Potato", "name", "Karim")))))
+                .isEqualTo("<p>&lt;Rahim &amp; &quot;Sons&quot;&gt;</p><ul><li>Rice by &lt;Rahim &amp; &quot;Sons"
+                        + "&quot;&gt;</li><li>Potato by Karim</li></ul>");
+        assertThat(template.render(Map.of("name", "It's", "vip", true)))
+                .isEqualTo("<p>It&#39;s</p><ul></ul>VIP");
+    }
+
+    @Test
+    void malformedTemplatesAreRejected() {
+        assertThatThrownBy(() -> HtmlTemplate.parse("{{#items}}<li>")).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("items");
+        assertThatThrownBy(() -> HtmlTemplate.parse("{{#a}}{{/b}}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HtmlTemplate.parse("<p>{{name</p>")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void invoiceTemplateRendersEveryLine() throws IOException {
+        HtmlTemplate invoice = new EmailTemplates(new DefaultResourceLoader()).get("invoice.html");
+
+        String html = invoice.render(invoiceValues(false));
+
+        assertThat(html).contains("INV-42", "<strong>Crop &lt;4&gt;</strong>", "৳1250.00")
+                .doesNotContain("{{", "Platform Fee");
+        assertThat(html.split("<strong>Crop ", -1)).hasSize(6);
+        assertThat(invoice.render(invoiceValues(true))).contains("Platform Fee (1%)", "-৳250.00");
+    }
+
+    static Map<String, Object> invoiceValues(boolean b2b) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("product_name", "Crop <" + i + ">");
+            item.put("quantity", "10");
+            item.put("unit", "kg");
+            item.put("price_per_unit", new BigDecimal("25.00"));
+            item.put("total_item_price", new BigDecimal("250.00"));
+            items.add(item);
+        }
+        Map<String, Object> values = new HashMap<>();
+        values.put("customer_name", "Rahim Uddin");
+        values.put("customer_email", "rahim@example.com");
+        values.put("customer_phone", "01711000000");
+        values.put("customer_address", "House 12, Road 5, Dhanmondi, Dhaka");
+        values.put("invoice_number", "INV-42");
+        values.put("date", "17 Oct 2026");
+        values.put("order_id", 42L);
+        values.put("farmer_name", "Karim Mia");
+        values.put("items", items);
+        values.put("payment_method", b2b ? "Advance Payment" : "Cash on Delivery");
+        values.put("subtotal", new BigDecimal("1250.00"));
+        values.put("b2b", b2b);
+        values.put("platform_fee", new BigDecimal("12.50"));
+        values.put("advance_amount", new BigDecimal("250.00"));
+        values.put("total_due", new BigDecimal("1000.00"));
+        return values;
+    }
+}
@@ -0,0 +1,110 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.repository.IdempotencyKeyRepository;
+
+import tools.jackson.databind.json.JsonMapper;
+
+class IdempotencyServiceTest {
+
+    private static final Map<String, Object> PAYLOAD = Map.of("cropId", 7, "totalAmount", "500");
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private IdempotencyService idempotency;
+    private final AtomicInteger orders = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("idempotency");
+        transactionManager = new DataSourceTransactionManager(jdbcTemplate.getDataSource());
+        idempotency = newService();
+    }
+
+    private IdempotencyService newService() {
+        return new IdempotencyService(new IdempotencyKeyRepository(jdbcTemplate), JsonMapper.builder().build(),
+                transactionManager, 100, 5000, 24);
+    }
+
+    @Test
+    void retriesReplayTheFirstResponseFromMemoryAndFromTheTable() {
+        ResponseEntity<?> first = placeOrder("key-1");
+        assertThat(first.getBody()).isEqualTo(Map.of("orderId", 1));
+
+        ResponseEntity<?> retry = placeOrder("key-1");
+        assertThat(retry.getStatusCode().value()).isEqualTo(200);
+        assertThat(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(retry.getBody()).isEqualTo("{\"orderId\":1}");
+
+        // Another node (or a restart) has an empty cache
+        idempotency = newService();
+        assertThat(placeOrder("key-1").getBody()).isEqualTo("{\"orderId\":1}");
+        assertThat(orders).hasValue(1);
+
+        // Same key, different request
+        assertThatThrownBy(() -> idempotency.execute("key-1", 1L, "POST /api/orders/create", Map.of("cropId", 8),
+                status -> ResponseEntity.ok("again"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rolledBackRequestsStoreNothing() {
+        ResponseEntity<?> failed = idempotency.execute("key-2", 1L, "POST /api/orders/create", PAYLOAD, status -> {
+            status.setRollbackOnly();
+            return ResponseEntity.badRequest().body("Payment failed");
+        });
+        assertThat(failed.getStatusCode().value()).isEqualTo(400);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_keys", Integer.class)).isZero();
+
+        assertThat(placeOrder("key-2").getBody()).isEqualTo(Map.of("orderId", 1));
+    }
+
+    @Test
+    void inFlightDuplicatesWaitForTheOriginal() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<?>> original = CompletableFuture.supplyAsync(() -> idempotency.execute(
+                "key-3", 1L, "POST /api/orders/create", PAYLOAD, status -> {
+                    started.countDown();
+                    await(release);
+                    return ResponseEntity.ok(Map.of("orderId", orders.incrementAndGet()));
+                }));
+        await(started);
+
+        CompletableFuture<ResponseEntity<?>> duplicate = CompletableFuture.supplyAsync(() -> placeOrder("key-3"));
+        Thread.sleep(100);
+        assertThat(duplicate).isNotDone();
+
+        release.countDown();
+        assertThat(original.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(Map.of("orderId", 1));
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).getBody()).isEqualTo("{\"orderId\":1}");
+        assertThat(orders).hasValue(1);
+    }
+
+    private ResponseEntity<?> placeOrder(String key) {
+        return idempotency.execute(key, 1L, "POST /api/orders/create", PAYLOAD,
+                status -> ResponseEntity.ok(Map.of("orderId", orders.incrementAndGet())));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+class ImageUploadStageTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    void uploadsConcurrentlyWithinTheCapAndKeepsOrder() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ImageUploader slowUploader = (file, folder) -> {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return "https://img/" + file.getOriginalFilename();
+        };
+        ImageUploadStage stage = new ImageUploadStage(slowUploader, 3, 10);
+
+        long start = System.nanoTime();
+        List<String> urls = stage.uploadAll(images(6), "agro/crops");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(urls).containsExactly("https://img/0.jpg", "https://img/1.jpg", "https://img/2.jpg",
+                "https://img/3.jpg", "https://img/4.jpg", "https://img/5.jpg");
+        assertThat(maxRunning.get()).isEqualTo(3);
+        // Two waves of three instead of six sequential uploads
+        assertThat(elapsedMillis).isLessThan(1000);
+    }
+
+    @Test
+    void skipsFailedAndTimedOutUploads() {
+        ImageUploader flakyUploader = (file, folder) -> {
+            switch (file.getOriginalFilename()) {
+                case "0.jpg":
+                    return null;
+                case "1.jpg":
+                    try {
+                        Thread.sleep(5_000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "https://img/late.jpg";
+                case "2.jpg":
+                    throw new IllegalStateException("boom");
+                default:
+                    return "https://img/" + file.getOriginalFilename();
+            }
+        };
+        ImageUploadStage stage = new ImageUploadStage(flakyUploader, 4, 1);
+
+        assertThat(stage.uploadAll(images(4), "agro/crops")).containsExactly("https://img/3.jpg");
+    }
+
+    @Test
+    void localUploaderStoresFilesUnderUploads() throws Exception {
+        ImageUploadStage stage = new ImageUploadStage(new LocalImageUploader(uploadDir.toString()), 2, 10);
+
+        List<String> urls = stage.uploadAll(images(2), "agro/crops");
+
+        assertThat(urls).hasSize(2).allSatisfy(url -> assertThat(url).startsWith("/uploads/agro/crops/"));
+        Path stored = uploadDir.resolve(urls.get(0).substring("/uploads/".length()));
+        assertThat(Files.readString(stored)).isEqualTo("image-0");
+    }
+
+    private static List<MultipartFile> images(int count) {
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(new MockMultipartFile("images", i + ".jpg", "image/jpeg",
+                    ("image-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        files.add(new MockMultipartFile("images", "empty.jpg", "image/jpeg", new byte[0]));
+        return files;
+    }
+}
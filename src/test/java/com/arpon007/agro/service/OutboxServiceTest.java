@@ -0,0 +1,93 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.repository.OutboxRepository;
+
+import tools.jackson.databind.json.JsonMapper;
+
+class OutboxServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private OutboxService outboxService;
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("outbox");
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(jdbcTemplate.getDataSource());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // No background workers: the test drives processBatch() itself
+        outboxService = new OutboxService(new OutboxRepository(jdbcTemplate, JsonMapper.builder().build()),
+                transactionManager, 0, 50, 7);
+        outboxService.register("NOTIFY", events -> {
+            batchSizes.add(events.size());
+            for (var event : events) {
+                jdbcTemplate.update("INSERT INTO notifications (user_id, message_bn) VALUES (?, ?)",
+                        event.getLong("userId"), event.getString("text"));
+                if ("poison".equals(event.getString("text"))) {
+                    throw new IllegalStateException("cannot deliver");
+                }
+            }
+        });
+    }
+
+    @Test
+    void eventsExistOnlyIfTheBusinessTransactionCommits() {
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.enqueue("NOTIFY", Map.of("userId", 1, "text", "kept"));
+            outboxService.enqueue("NOTIFY", Map.of("userId", 2, "text", "kept"));
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.enqueue("NOTIFY", Map.of("userId", 3, "text", "lost"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(outboxService.processBatch()).isEqualTo(2);
+        assertThat(batchSizes).containsExactly(2);
+        assertThat(count("SELECT COUNT(*) FROM notifications")).isEqualTo(2);
+        assertThat(count("SELECT COUNT(*) FROM outbox_events WHERE status = 'DONE'")).isEqualTo(2);
+        assertThat(outboxService.processBatch()).isZero();
+    }
+
+    @Test
+    void failingEventIsIsolatedRetriedAndFinallyMarkedDead() {
+        outboxService.enqueue("NOTIFY", Map.of("userId", 1, "text", "ok"));
+        outboxService.enqueue("NOTIFY", Map.of("userId", 2, "text", "poison"));
+        outboxService.enqueue("NOTIFY", Map.of("userId", 3, "text", "ok"));
+
+        outboxService.processBatch();
+
+        // The two good events went through; the poison one's insert was rolled back
+        assertThat(count("SELECT COUNT(*) FROM notifications")).isEqualTo(2);
+        assertThat(count("SELECT COUNT(*) FROM outbox_events WHERE status = 'DONE'")).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForMap("SELECT * FROM outbox_events WHERE status = 'PENDING'"))
+                .containsEntry("ATTEMPTS", 1)
+                .containsEntry("LAST_ERROR", "IllegalStateException: cannot deliver");
+        // Backoff: not due yet
+        assertThat(outboxService.processBatch()).isZero();
+
+        for (int attempt = 1; attempt < OutboxService.MAX_ATTEMPTS; attempt++) {
+            jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = CURRENT_TIMESTAMP WHERE status = 'PENDING'");
+            outboxService.processBatch();
+        }
+        assertThat(count("SELECT COUNT(*) FROM outbox_events WHERE status = 'DEAD'")).isEqualTo(1);
+        assertThat(count("SELECT COUNT(*) FROM notifications")).isEqualTo(2);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
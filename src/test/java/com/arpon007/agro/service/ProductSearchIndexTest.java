@@ -0,0 +1,96 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.arpon007.agro.event.CropChangedEvent;
+import com.arpon007.agro.repository.CropRepository;
+
+class ProductSearchIndexTest {
+
+    private final CropRepository cropRepository = mock(CropRepository.class);
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        rows.add(row(1L, "Fresh Potato", "Diamond potato from the north", "Potato", "আলু", "Rangpur", 20));
+        rows.add(row(2L, "নতুন ধানের চাল", "মিনিকেট চাল", "Rice", "ধান", "Dinajpur", 30));
+        rows.add(row(3L, "Sweet Potato", "Organic", "Vegetables", "শাকসবজি", "Bogura", 10));
+        rows.add(row(4L, "Bulk Potato", "Wholesale lot", "Potato", "আলু", "Rangpur", 500));
+
+        when(cropRepository.findSearchDocuments(isNull())).thenAnswer(inv -> rows);
+        index = new ProductSearchIndex(cropRepository);
+        index.rebuild();
+    }
+
+    @Test
+    void ranksTitleMatchesAboveDescriptionMatches() {
+        rows.add(row(5L, "Organic Carrot", "Tastes like potato", "Vegetables", "শাকসবজি", "Dhaka", 5));
+        index.rebuild();
+
+        assertThat(index.search("potato", null, null, 10).cropIds()).containsExactly(1L, 3L, 5L);
+    }
+
+    @Test
+    void matchesBanglaPrefixesAndDistricts() {
+        assertThat(index.search("ধান", null, null, 10).cropIds()).containsExactly(2L);
+        assertThat(index.search("চা", null, null, 10).cropIds()).containsExactly(2L);
+        assertThat(index.search("rang", null, null, 10).cropIds()).containsExactly(1L);
+    }
+
+    @Test
+    void requiresEveryTokenAndAppliesCategoryFilter() {
+        assertThat(index.search("sweet potato", null, null, 10).cropIds()).containsExactly(3L);
+        assertThat(index.search("potato", "potato", null, 10).cropIds()).containsExactly(1L);
+    }
+
+    @Test
+    void pagesThroughRankedResults() {
+        ProductSearchIndex.SearchPage first = index.search("potato", null, null, 1);
+        assertThat(first.cropIds()).containsExactly(1L);
+        assertThat(first.nextCursor()).isNotNull();
+
+        ProductSearchIndex.SearchPage second = index.search("potato", null, first.nextCursor(), 1);
+        assertThat(second.cropIds()).containsExactly(3L);
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void updatesIncrementallyOnCropChanges() {
+        when(cropRepository.findSearchDocuments(anyCollection()))
+                .thenReturn(List.of(row(3L, "Sweet Pumpkin", "Organic", "Vegetables", "শাকসবজি", "Bogura", 10)));
+
+        index.onCropChanged(CropChangedEvent.of(3L));
+
+        assertThat(index.search("potato", null, null, 10).cropIds()).containsExactly(1L);
+        assertThat(index.search("pump", null, null, 10).cropIds()).containsExactly(3L);
+    }
+
+    private static Map<String, Object> row(Long id, String title, String description, String typeEn, String typeBn,
+            String district, int quantity) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("title", title);
+        row.put("description", description);
+        row.put("type_en", typeEn);
+        row.put("type_bn", typeBn);
+        row.put("district", district);
+        row.put("quantity", BigDecimal.valueOf(quantity));
+        row.put("created_at", new Timestamp(1_700_000_000_000L + id));
+        return row;
+    }
+}
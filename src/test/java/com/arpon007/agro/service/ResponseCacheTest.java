@@ -0,0 +1,109 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import tools.jackson.databind.json.JsonMapper;
+
+class ResponseCacheTest {
+
+    private final AtomicInteger builds = new AtomicInteger();
+    private List<String> payload;
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        payload = IntStream.range(0, 200).mapToObj(i -> "crop-" + i).toList();
+        cache = new ResponseCache(JsonMapper.builder().build(), new LocalConfigInvalidationBus());
+        cache.subscribe();
+    }
+
+    @Test
+    void conditionalGetReturns304WithoutRebuilding() {
+        ResponseEntity<byte[]> first = get(new MockHttpServletRequest());
+        String etag = first.getHeaders().getETag();
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest();
+        conditional.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        ResponseEntity<byte[]> second = get(conditional);
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(etag).startsWith("\"").endsWith("\"");
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(second.getBody()).isNull();
+        assertThat(builds).hasValue(1);
+    }
+
+    @Test
+    void gzipIsServedOnlyWhenAccepted() throws IOException {
+        ResponseEntity<byte[]> plain = get(new MockHttpServletRequest());
+
+        MockHttpServletRequest gzipRequest = new MockHttpServletRequest();
+        gzipRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+        ResponseEntity<byte[]> gzipped = get(gzipRequest);
+
+        assertThat(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzipped.getHeaders().getETag()).isEqualTo(plain.getHeaders().getETag());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo(new String(plain.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void invalidationDropsEntryAndChangesEtag() {
+        String before = get(new MockHttpServletRequest()).getHeaders().getETag();
+
+        payload = List.of("crop-new");
+        cache.invalidate(ResponseCache.Group.CROPS);
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest();
+        conditional.addHeader(HttpHeaders.IF_NONE_MATCH, before);
+        ResponseEntity<byte[]> after = get(conditional);
+
+        assertThat(after.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(after.getHeaders().getETag()).isNotEqualTo(before);
+        assertThat(builds).hasValue(2);
+    }
+
+    @Test
+    void junkKeysInOneGroupDoNotStopCachingElsewhere() {
+        for (int i = 0; i < ResponseCache.MAX_ENTRIES_PER_GROUP + 50; i++) {
+            cache.respond(new MockHttpServletRequest(), ResponseCache.Group.LOCATIONS, "districts:junk-" + i,
+                    List::of);
+        }
+        AtomicInteger locationBuilds = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            get(new MockHttpServletRequest());
+            cache.respond(new MockHttpServletRequest(), ResponseCache.Group.LOCATIONS, "divisions", () -> {
+                locationBuilds.incrementAndGet();
+                return List.of("Dhaka");
+            });
+        }
+
+        assertThat(builds).hasValue(1);
+        assertThat(locationBuilds).hasValue(1);
+    }
+
+    private ResponseEntity<byte[]> get(MockHttpServletRequest request) {
+        return cache.respond(request, ResponseCache.Group.CROPS, "crops:RETAIL:en", () -> {
+            builds.incrementAndGet();
+            return payload;
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.repository.OrderRepository;
+import com.arpon007.agro.repository.OutboxRepository;
+import com.arpon007.agro.repository.TransactionRepository;
+import com.arpon007.agro.repository.WalletRepository;
+
+import tools.jackson.databind.json.JsonMapper;
+
+class SettlementServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private OutboxService outboxService;
+    private SettlementService settlementService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("settlement");
+        jdbcTemplate.update("""
+                INSERT INTO orders (buyer_id, farmer_id, crop_id, total_amount, advance_amount, due_amount) VALUES
+                    (10, 20, 100, 1000, 1000, 0), (10, 20, 100, 250, 250, 0), (10, 21, 100, 500, 500, 0)
+                """);
+        jdbcTemplate.update("INSERT INTO wallets (user_id, balance, total_earned) VALUES (21, 10, 10)");
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(jdbcTemplate.getDataSource());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // No background workers: the test drives processBatch() itself
+        outboxService = new OutboxService(new OutboxRepository(jdbcTemplate, JsonMapper.builder().build()),
+                transactionManager, 0, 50, 7);
+        settlementService = new SettlementService(new OrderRepository(jdbcTemplate),
+                new WalletRepository(jdbcTemplate), new TransactionRepository(jdbcTemplate), outboxService);
+        settlementService.registerHandler();
+    }
+
+    @Test
+    void deliveredOrdersAreSettledOnceInOneBatch() {
+        markDelivered(1L);
+        markDelivered(1L); // double click
+        markDelivered(2L);
+        markDelivered(3L);
+        transactionTemplate.executeWithoutResult(status -> settlementService.updateDeliveryStatus(2L, "SHIPPED"));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = 1", String.class))
+                .isEqualTo("COMPLETED");
+        assertThat(count("platform_income")).isZero();
+
+        assertThat(outboxService.processBatch()).isEqualTo(4);
+
+        // Order 2 was moved back to SHIPPED before it was settled
+        assertThat(jdbcTemplate.queryForList("SELECT amount FROM platform_income ORDER BY order_id",
+                BigDecimal.class)).usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("20"), new BigDecimal("10"));
+        assertThat(balance(20L)).isEqualByComparingTo("980");
+        assertThat(balance(21L)).isEqualByComparingTo("500");
+        assertThat(jdbcTemplate.queryForList("SELECT reference_id FROM transactions ORDER BY reference_id",
+                Long.class)).containsExactly(1L, 3L);
+
+        // Settling again (a retried batch, a later delivery update) is a no-op
+        markDelivered(2L);
+        markDelivered(3L);
+        outboxService.processBatch();
+        assertThat(settlementService.settle(List.of(1L, 2L, 3L))).isZero();
+        assertThat(count("platform_income")).isEqualTo(3);
+        assertThat(balance(20L)).isEqualByComparingTo("1225");
+        assertThat(balance(21L)).isEqualByComparingTo("500");
+    }
+
+    private void markDelivered(Long orderId) {
+        transactionTemplate.executeWithoutResult(
+                status -> settlementService.updateDeliveryStatus(orderId, "DELIVERED"));
+    }
+
+    private BigDecimal balance(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE user_id = ?", BigDecimal.class,
+                userId);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,125 @@
+package com.arpon007.agro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arpon007.agro.TestDatabase;
+import com.arpon007.agro.event.StockReservedEvent;
+import com.arpon007.agro.model.Crop;
+import com.arpon007.agro.repository.CropRepository;
+import com.arpon007.agro.repository.StockReservationRepository;
+
+class StockReservationServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CropRepository cropRepository;
+    private final MutableClock clock = new MutableClock();
+    private final List<Object> events = new ArrayList<>();
+    private StockReservationService reservations;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("stock_reservations");
+        cropRepository = mock(CropRepository.class);
+        reservations = new StockReservationService(new StockReservationRepository(jdbcTemplate), cropRepository,
+                events::add, clock, Duration.ofMinutes(30), Duration.ofHours(24), 1);
+    }
+
+    @Test
+    void holdsLeaveOnlyTheRestForOtherCustomers() {
+        assertThat(reservations.holdForCart(1L, 10L, new BigDecimal("6"), new BigDecimal("10"))).isTrue();
+
+        assertThat(reservations.holdForCart(1L, 11L, new BigDecimal("5"), new BigDecimal("10"))).isFalse();
+        assertThat(reservations.holdForCart(1L, 11L, new BigDecimal("4"), new BigDecimal("10"))).isTrue();
+        // Replacing a hold only counts the customer's new quantity
+        assertThat(reservations.holdForCart(1L, 10L, new BigDecimal("5"), new BigDecimal("10"))).isTrue();
+
+        assertThat(reservations.available(1L, new BigDecimal("10"))).isEqualByComparingTo("1");
+        assertThat(reservations.availableTo(1L, 10L, new BigDecimal("10"))).isEqualByComparingTo("6");
+        assertThat(count()).isEqualTo(2);
+
+        reservations.release(10L, List.of(1L));
+        assertThat(reservations.available(1L, new BigDecimal("10"))).isEqualByComparingTo("6");
+        assertThat(count()).isEqualTo(1);
+    }
+
+    @Test
+    void acceptedBidsAddToTheBuyersHold() {
+        Crop crop = new Crop();
+        crop.setId(1L);
+        crop.setQuantity(new BigDecimal("100"));
+        crop.setIsSold(false);
+        when(cropRepository.findStockByIds(any())).thenReturn(Map.of(1L, crop));
+
+        reservations.holdForCart(1L, 10L, new BigDecimal("20"), new BigDecimal("100"));
+        reservations.holdForBids(1L, Map.of(10L, new BigDecimal("50")));
+        assertThat(reservations.heldBy(1L, 10L)).isEqualByComparingTo("70");
+
+        assertThatThrownBy(() -> reservations.holdForBids(1L, Map.of(11L, new BigDecimal("31"))))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(reservations.heldBy(1L, 11L)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void expiredHoldsStopCountingAndAreSweptInBatches() {
+        reservations.holdForCart(1L, 10L, new BigDecimal("6"), new BigDecimal("10"));
+        reservations.holdForCart(2L, 10L, new BigDecimal("3"), new BigDecimal("10"));
+        reservations.holdForCart(2L, 11L, new BigDecimal("3"), new BigDecimal("10"));
+
+        clock.advance(Duration.ofMinutes(31));
+        assertThat(reservations.available(1L, new BigDecimal("10"))).isEqualByComparingTo("10");
+
+        events.clear();
+        reservations.sweep();
+        assertThat(count()).isZero();
+        assertThat(events).containsExactly(StockReservedEvent.of(List.of(1L, 2L)));
+
+        // A fresh load only brings back live holds
+        reservations.reload();
+        assertThat(reservations.heldBy(2L, 11L)).isEqualByComparingTo("0");
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_reservations", Integer.class);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}